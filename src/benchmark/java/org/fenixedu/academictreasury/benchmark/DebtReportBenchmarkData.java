@@ -0,0 +1,88 @@
+package org.fenixedu.academictreasury.benchmark;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Comparator;
+
+import org.fenixedu.academic.domain.ExecutionYear;
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEvent;
+import org.fenixedu.academictreasury.domain.reports.DebtReportRequest;
+import org.fenixedu.academictreasury.dto.reports.DebtReportRequestBean;
+import org.fenixedu.academictreasury.services.tuition.RegistrationTuitionService;
+import org.fenixedu.treasury.domain.PaymentMethod;
+import org.fenixedu.treasury.domain.document.DebitEntry;
+import org.fenixedu.treasury.domain.document.DocumentNumberSeries;
+import org.fenixedu.treasury.domain.document.FinantialDocumentType;
+import org.fenixedu.treasury.domain.document.SettlementNote;
+import org.fenixedu.treasury.dto.SettlementNoteBean;
+import org.joda.time.LocalDate;
+
+import pt.ist.esw.advice.pt.ist.fenixframework.AtomicInstance;
+import pt.ist.fenixframework.Atomic.TxMode;
+import pt.ist.fenixframework.FenixFramework;
+
+/**
+ * Seeds a synthetic ledger for the debt report benchmarks on top of the tuition
+ * benchmark data: the tuition installments of every registration and a settlement
+ * note paying the first installment of every other registration. Every debit entry,
+ * settlement entry and payment entry is dated today, so a request with the default
+ * dates extracts the whole ledger.
+ *
+ * The data is sized for the benchmarks only, the functional tests seed their own fixtures.
+ */
+public class DebtReportBenchmarkData {
+
+    private static DebtReportRequest debtReportRequest;
+
+    public static void seed(final int numberOfRegistrations) {
+        TuitionBenchmarkData.seed(numberOfRegistrations, 0, 0);
+
+        try {
+            FenixFramework.getTransactionManager().withTransaction(() -> {
+                final ExecutionYear executionYear = TuitionBenchmarkData.getExecutionYear();
+                final LocalDate debtDate = new LocalDate();
+
+                int index = 0;
+                for (final Registration registration : TuitionBenchmarkData.getRegistrations()) {
+                    RegistrationTuitionService.startServiceInvocation(registration, executionYear, debtDate)
+                            .withInferedTuitionPaymentPlan().withAllInstallments().withoutInstallmentsRecalculation()
+                            .executeTuitionPaymentPlanCreation();
+
+                    if (index++ % 2 == 0) {
+                        settleFirstInstallment(registration, executionYear);
+                    }
+                }
+
+                debtReportRequest = DebtReportRequest.create(new DebtReportRequestBean());
+
+                return null;
+            }, new AtomicInstance(TxMode.WRITE, true));
+        } catch (Exception e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    private static void settleFirstInstallment(final Registration registration, final ExecutionYear executionYear) {
+        final AcademicTreasuryEvent academicTreasuryEvent =
+                AcademicTreasuryEvent.findUniqueForRegistrationTuition(registration, executionYear).get();
+
+        final DebitEntry firstInstallment = DebitEntry.findActive(academicTreasuryEvent)
+                .min(Comparator.comparing(DebitEntry::getDueDate).thenComparing(DebitEntry::getExternalId)).get();
+
+        final SettlementNoteBean settlementNoteBean = new SettlementNoteBean(firstInstallment.getDebtAccount(), false, false);
+        settlementNoteBean.setDocNumSeries(DocumentNumberSeries.findUniqueDefaultSeries(
+                FinantialDocumentType.findForSettlementNote(), firstInstallment.getFinantialEntity()));
+        settlementNoteBean.getInvoiceEntryBean(firstInstallment).setIncluded(true);
+        settlementNoteBean.setFinantialEntity(firstInstallment.getFinantialEntity());
+
+        settlementNoteBean.getPaymentEntries().add(new SettlementNoteBean.PaymentEntryBean(firstInstallment.getAmountWithVat(),
+                PaymentMethod.findByCode("NU"), null));
+
+        SettlementNote.createSettlementNote(settlementNoteBean);
+    }
+
+    public static DebtReportRequest getDebtReportRequest() {
+        return debtReportRequest;
+    }
+
+}
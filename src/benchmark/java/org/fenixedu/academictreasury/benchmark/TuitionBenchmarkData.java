@@ -0,0 +1,219 @@
+package org.fenixedu.academictreasury.benchmark;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.fenixedu.academic.domain.Degree;
+import org.fenixedu.academic.domain.DegreeCurricularPlan;
+import org.fenixedu.academic.domain.ExecutionInterval;
+import org.fenixedu.academic.domain.ExecutionYear;
+import org.fenixedu.academic.domain.Person;
+import org.fenixedu.academic.domain.person.identificationDocument.IdentificationDocumentType;
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academic.domain.student.StatuteType;
+import org.fenixedu.academic.domain.student.Student;
+import org.fenixedu.academic.domain.student.StudentStatute;
+import org.fenixedu.academic.dto.person.PersonBean;
+import org.fenixedu.academictreasury.base.BasicAcademicTreasuryUtils;
+import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
+import org.fenixedu.academictreasury.domain.settings.AcademicTreasurySettings;
+import org.fenixedu.academictreasury.domain.tariff.AcademicTariff;
+import org.fenixedu.academictreasury.domain.tuition.TuitionCalculationType;
+import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlan;
+import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlanGroup;
+import org.fenixedu.academictreasury.domain.tuition.conditionRule.StatuteTypeConditionRule;
+import org.fenixedu.academictreasury.dto.tariff.AcademicTariffBean;
+import org.fenixedu.academictreasury.dto.tariff.TuitionPaymentPlanBean;
+import org.fenixedu.academictreasury.tuition.TuitionPaymentPlanTestsUtilities;
+import org.fenixedu.academictreasury.util.AcademicTreasuryBootstrapper;
+import org.fenixedu.commons.i18n.LocalizedString;
+import org.fenixedu.treasury.domain.FinantialEntity;
+import org.fenixedu.treasury.domain.FinantialInstitution;
+import org.fenixedu.treasury.domain.Product;
+import org.fenixedu.treasury.domain.VatExemptionReason;
+import org.fenixedu.treasury.domain.VatType;
+import org.fenixedu.treasury.domain.tariff.DueDateCalculationType;
+import org.joda.time.LocalDate;
+
+import pt.ist.esw.advice.pt.ist.fenixframework.AtomicInstance;
+import pt.ist.fenixframework.Atomic.TxMode;
+import pt.ist.fenixframework.FenixFramework;
+
+/**
+ * Seeds the in-memory domain used by the tuition benchmarks: the registrations of
+ * the enrolments fixture degree curricular plan, a default tuition payment plan,
+ * payment plans with statute condition rules evaluated before the default one, student
+ * statutes with exemptions and emolument tariffs of the degree.
+ *
+ * The data is sized for the benchmarks only, the functional tests seed their own fixtures.
+ */
+public class TuitionBenchmarkData {
+
+    private static final String[] INSTALLMENT_PRODUCT_CODES =
+            { "PROP_1_PREST_1_CIC", "PROP_2_PREST_1_CIC", "PROP_3_PREST_1_CIC", "PROP_4_PREST_1_CIC" };
+
+    private static List<Registration> registrations;
+    private static List<Product> emolumentProducts;
+    private static ExecutionInterval executionInterval;
+    private static ExecutionYear executionYear;
+    private static TuitionPaymentPlan defaultTuitionPaymentPlan;
+
+    public static void seed(final int numberOfRegistrations, final int numberOfConditionedPlans,
+            final int numberOfEmolumentTariffs) {
+        try {
+            FenixFramework.getTransactionManager().withTransaction(() -> {
+                org.fenixedu.academic.domain.EnrolmentTest.initEnrolments();
+
+                TuitionPaymentPlanTestsUtilities.startUp();
+                AcademicTreasuryBootstrapper.bootstrap();
+                BasicAcademicTreasuryUtils.createReservationTaxes();
+                BasicAcademicTreasuryUtils.createStatuteTypeExemptionsMap();
+
+                final Registration template = Student.readStudentByNumber(1).getRegistrationStream().findAny().orElseThrow();
+                final DegreeCurricularPlan degreeCurricularPlan =
+                        template.getLastStudentCurricularPlan().getDegreeCurricularPlan();
+
+                executionInterval = ExecutionInterval.findFirstCurrentChild(degreeCurricularPlan.getDegree().getCalendar());
+                executionYear = executionInterval.getExecutionYear();
+
+                template.getRegistrationProtocol().setPayGratuity(true);
+                template.getPerson().editSocialSecurityNumber("999999990",
+                        PersonCustomer.createSaftDefaultPhysicalAddress(template.getPerson()));
+
+                defaultTuitionPaymentPlan = createTuitionPaymentPlan(degreeCurricularPlan, null);
+
+                final StatuteType notHeldStatuteType = StatuteType.findByCode("ST4").get();
+                for (int i = 0; i < numberOfConditionedPlans; i++) {
+                    createTuitionPaymentPlan(degreeCurricularPlan, notHeldStatuteType);
+                }
+
+                registrations = new ArrayList<>();
+                registrations.add(template);
+                registrations.addAll(createRegistrations(template, degreeCurricularPlan, numberOfRegistrations - 1));
+
+                emolumentProducts = createEmolumentTariffs(degreeCurricularPlan.getDegree(), numberOfEmolumentTariffs);
+
+                return null;
+            }, new AtomicInstance(TxMode.WRITE, true));
+        } catch (Exception e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    private static TuitionPaymentPlan createTuitionPaymentPlan(final DegreeCurricularPlan degreeCurricularPlan,
+            final StatuteType statuteType) {
+        final TuitionPaymentPlanGroup group = TuitionPaymentPlanGroup.findUniqueDefaultGroupForRegistration().get();
+        final TuitionPaymentPlanBean bean =
+                new TuitionPaymentPlanBean(group.getCurrentProduct(), group, finantialEntity(), executionYear);
+
+        bean.setDefaultPaymentPlan(statuteType == null);
+        bean.addDegreeCurricularPlans(degreeCurricularPlan);
+        bean.setDegreeType(degreeCurricularPlan.getDegreeType());
+
+        if (statuteType != null) {
+            final StatuteTypeConditionRule rule = new StatuteTypeConditionRule();
+            rule.addStatuteType(statuteType);
+            bean.addConditionRules(rule);
+        }
+
+        for (int i = 0; i < INSTALLMENT_PRODUCT_CODES.length; i++) {
+            final AcademicTariffBean academicTariffBean = new AcademicTariffBean(i + 1);
+            academicTariffBean.setTuitionInstallmentProduct(Product.findUniqueByCode(INSTALLMENT_PRODUCT_CODES[i]).get());
+            academicTariffBean.setTuitionCalculationType(TuitionCalculationType.FIXED_AMOUNT);
+            academicTariffBean.setFixedAmount(new BigDecimal("250"));
+            academicTariffBean.setBeginDate(executionYear.getBeginLocalDate());
+            academicTariffBean.setDueDateCalculationType(DueDateCalculationType.DAYS_AFTER_CREATION);
+            academicTariffBean.setNumberOfDaysAfterCreationForDueDate(7 + 30 * i);
+            academicTariffBean.setInterestRateType(null);
+
+            bean.getTuitionInstallmentBeans().add(academicTariffBean);
+        }
+
+        return TuitionPaymentPlan.create(bean);
+    }
+
+    /*
+     * One in each three students has a statute with exemption, so the
+     * exemptions are part of the calculations being measured
+     */
+    private static List<Registration> createRegistrations(final Registration template,
+            final DegreeCurricularPlan degreeCurricularPlan, final int count) {
+        if (IdentificationDocumentType.findByCode(IdentificationDocumentType.OTHER_CODE).isEmpty()) {
+            IdentificationDocumentType.create(IdentificationDocumentType.OTHER_CODE, new LocalizedString());
+        }
+
+        final IdentificationDocumentType documentType =
+                IdentificationDocumentType.findByCode(IdentificationDocumentType.OTHER_CODE).orElseThrow();
+        final StatuteType statuteTypeWithExemption = StatuteType.findByCode("ST3").get();
+
+        final List<Registration> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final PersonBean personBean = new PersonBean("Benchmark person " + i, String.valueOf(100000000 + i), documentType,
+                    new LocalDate(2000, 1, 1).toDateTimeAtStartOfDay().toYearMonthDay());
+            personBean.setGivenNames("Benchmark");
+            personBean.setFamilyNames("person " + i);
+
+            final Person person = new Person(personBean);
+            person.editSocialSecurityNumber("999999990", PersonCustomer.createSaftDefaultPhysicalAddress(person));
+
+            final Student student = new Student(person);
+            final Registration registration = Registration.create(student, degreeCurricularPlan, executionYear,
+                    template.getRegistrationProtocol(), template.getIngressionType());
+
+            if (i % 3 == 0) {
+                new StudentStatute(student, statuteTypeWithExemption, executionInterval, executionInterval.getNext(), null, null,
+                        null, registration);
+            }
+
+            result.add(registration);
+        }
+
+        return result;
+    }
+
+    private static List<Product> createEmolumentTariffs(final Degree degree, final int count) {
+        final List<Product> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final Product product = Product.create(AcademicTreasurySettings.getInstance().getEmolumentsProductGroup(),
+                    "BENCH_EMOL_" + i, BasicAcademicTreasuryUtils.ls("Benchmark emolument " + i),
+                    BasicAcademicTreasuryUtils.ls("Unit"), true, false, 0, VatType.findByCode("ISE"),
+                    List.of(FinantialInstitution.findAll().iterator().next()), VatExemptionReason.findByCode("M07"));
+
+            final AcademicTariffBean bean = new AcademicTariffBean();
+            bean.setBeginDate(executionYear.getBeginLocalDate());
+            bean.setEndDate(null);
+            bean.setDegreeType(degree.getDegreeType());
+            bean.setAssociatedDegrees(new ArrayList<>(List.of(degree)));
+            bean.setBaseAmount(new BigDecimal("10.00"));
+
+            AcademicTariff.create(finantialEntity(), product, bean);
+            result.add(product);
+        }
+
+        return result;
+    }
+
+    public static FinantialEntity finantialEntity() {
+        return FinantialEntity.findAll().iterator().next();
+    }
+
+    public static List<Registration> getRegistrations() {
+        return Collections.unmodifiableList(registrations);
+    }
+
+    public static List<Product> getEmolumentProducts() {
+        return Collections.unmodifiableList(emolumentProducts);
+    }
+
+    public static ExecutionYear getExecutionYear() {
+        return executionYear;
+    }
+
+    public static TuitionPaymentPlan getDefaultTuitionPaymentPlan() {
+        return defaultTuitionPaymentPlan;
+    }
+
+}
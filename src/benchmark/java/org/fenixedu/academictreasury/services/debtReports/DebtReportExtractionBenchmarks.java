@@ -0,0 +1,98 @@
+package org.fenixedu.academictreasury.services.debtReports;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.fenixedu.academictreasury.benchmark.DebtReportBenchmarkData;
+import org.fenixedu.academictreasury.domain.reports.DebtReportRequest;
+import org.fenixedu.academictreasury.domain.reports.ErrorsLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pt.ist.fenixframework.FenixFramework;
+
+/**
+ * Benchmarks of the debt report sheets. Each operation extracts the rows of one sheet
+ * from DebtReportService into a list, as the spreadsheet writer does. The allocation
+ * and heap needed by a sheet are reported with the gc profiler, -prof gc.
+ *
+ * They are run with the benchmarks profile, see the pom:
+ *
+ * mvn -Pbenchmarks test-compile exec:exec -Dbenchmarks="DebtReportExtractionBenchmarks -prof gc"
+ *
+ * The ledger size is set with the registrations parameter, each registration
+ * contributing four tuition installments and every other registration a settlement note.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DebtReportExtractionBenchmarks {
+
+    @Param("2000")
+    public int registrations;
+
+    private DebtReportRequest request;
+
+    @Setup(Level.Trial)
+    public void seed() {
+        DebtReportBenchmarkData.seed(registrations);
+
+        request = DebtReportBenchmarkData.getDebtReportRequest();
+    }
+
+    /*
+     * The ledger is read within a transaction, one for each iteration so its begin
+     * and rollback are not measured. Nothing written by the extraction is kept
+     */
+    @Setup(Level.Iteration)
+    public void beginTransaction() throws Exception {
+        FenixFramework.getTransactionManager().begin(false);
+    }
+
+    @TearDown(Level.Iteration)
+    public void rollbackTransaction() throws Exception {
+        FenixFramework.getTransactionManager().rollback();
+    }
+
+    @Benchmark
+    public List<?> debitEntriesReport() {
+        return extract(DebtReportService::debitEntriesReport);
+    }
+
+    @Benchmark
+    public List<?> settlementEntriesReport() {
+        return extract(DebtReportService::settlementEntriesReport);
+    }
+
+    @Benchmark
+    public List<?> paymentEntriesReport() {
+        return extract(DebtReportService::paymentEntriesReport);
+    }
+
+    @Benchmark
+    public List<?> debtAccountEntriesReport() {
+        return extract(DebtReportService::debtAccountEntriesReport);
+    }
+
+    private List<?> extract(final BiFunction<DebtReportRequest, ErrorsLog, Stream<?>> sheet) {
+        return sheet.apply(request, new ErrorsLog()).collect(Collectors.toList());
+    }
+
+}
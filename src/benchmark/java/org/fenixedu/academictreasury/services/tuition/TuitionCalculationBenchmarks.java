@@ -0,0 +1,139 @@
+package org.fenixedu.academictreasury.services.tuition;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.fenixedu.academic.domain.ExecutionYear;
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academictreasury.benchmark.TuitionBenchmarkData;
+import org.fenixedu.academictreasury.domain.tariff.AcademicTariff;
+import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlan;
+import org.fenixedu.academictreasury.dto.tuition.TuitionDebitEntryBean;
+import org.fenixedu.treasury.domain.FinantialEntity;
+import org.fenixedu.treasury.domain.Product;
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pt.ist.fenixframework.FenixFramework;
+
+/**
+ * Benchmarks of the tuition calculation hot paths, each operation being the calculation
+ * of one registration, or the tariff match of one emolument product. They are in this
+ * package to reach TreasuryExemptionsTeller.
+ *
+ * They are run with the benchmarks profile, see the pom:
+ *
+ * mvn -Pbenchmarks test-compile exec:exec -Dbenchmarks=TuitionCalculationBenchmarks
+ *
+ * The volumes are set with the registrations, plans and tariffs parameters, for
+ * instance -Dbenchmarks="TuitionCalculationBenchmarks -p registrations=500".
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TuitionCalculationBenchmarks {
+
+    @Param("2000")
+    public int registrations;
+
+    @Param("50")
+    public int plans;
+
+    @Param("200")
+    public int tariffs;
+
+    private List<Registration> registrationList;
+    private List<Product> emolumentProducts;
+    private ExecutionYear executionYear;
+    private TuitionPaymentPlan defaultTuitionPaymentPlan;
+    private FinantialEntity finantialEntity;
+    private LocalDate debtDate;
+    private DateTime when;
+
+    private int nextRegistration;
+    private int nextEmolumentProduct;
+
+    @Setup(Level.Trial)
+    public void seed() {
+        TuitionBenchmarkData.seed(registrations, plans, tariffs);
+
+        registrationList = TuitionBenchmarkData.getRegistrations();
+        emolumentProducts = TuitionBenchmarkData.getEmolumentProducts();
+        executionYear = TuitionBenchmarkData.getExecutionYear();
+        defaultTuitionPaymentPlan = TuitionBenchmarkData.getDefaultTuitionPaymentPlan();
+        finantialEntity = TuitionBenchmarkData.finantialEntity();
+        debtDate = new LocalDate();
+        when = new DateTime();
+    }
+
+    /*
+     * The domain is read within a transaction, one for each iteration so its begin
+     * and rollback are not measured. Nothing written by the calculations is kept
+     */
+    @Setup(Level.Iteration)
+    public void beginTransaction() throws Exception {
+        FenixFramework.getTransactionManager().begin(false);
+    }
+
+    @TearDown(Level.Iteration)
+    public void rollbackTransaction() throws Exception {
+        FenixFramework.getTransactionManager().rollback();
+    }
+
+    @Benchmark
+    public TuitionPaymentPlan inferTuitionPaymentPlanForRegistration() {
+        return TuitionPaymentPlan.inferTuitionPaymentPlanForRegistration(nextRegistration(), executionYear);
+    }
+
+    @Benchmark
+    public List<TuitionDebitEntryBean> executeInstallmentDebitEntryBeansCalculation() {
+        return RegistrationTuitionService.startServiceInvocation(nextRegistration(), executionYear, debtDate)
+                .withInferedTuitionPaymentPlan().withAllInstallments().withoutInstallmentsRecalculation()
+                .executeInstallmentDebitEntryBeansCalculation();
+    }
+
+    /*
+     * Returned as an object, as the teller is not visible to the code generated by JMH
+     */
+    @Benchmark
+    public Object treasuryExemptionsTeller() {
+        final RegistrationTuitionService service =
+                RegistrationTuitionService.startServiceInvocation(nextRegistration(), executionYear, debtDate)
+                        .withTuitionPaymentPlan(defaultTuitionPaymentPlan).withAllInstallments()
+                        .withoutInstallmentsRecalculation();
+
+        final TreasuryExemptionsTeller teller = new TreasuryExemptionsTeller(service);
+        defaultTuitionPaymentPlan.getOrderedTuitionInstallmentTariffs()
+                .forEach(t -> teller.createDiscountExemptionsMapForOnlyThisInstallment(t));
+
+        return teller;
+    }
+
+    @Benchmark
+    public AcademicTariff academicTariffFindMatch() {
+        final Product product = emolumentProducts.get(nextEmolumentProduct++ % emolumentProducts.size());
+
+        return AcademicTariff.findMatch(finantialEntity, product, registrationList.get(0).getDegree(), when);
+    }
+
+    private Registration nextRegistration() {
+        return registrationList.get(nextRegistration++ % registrationList.size());
+    }
+
+}
@@ -30,9 +30,15 @@ import javax.servlet.ServletContextListener;
 import javax.servlet.annotation.WebListener;
 
 import org.fenixedu.academic.domain.Person;
+import org.fenixedu.academic.domain.student.Registration;
 import org.fenixedu.academictreasury.domain.listeners.DebitEntryDeletionListener;
 import org.fenixedu.academictreasury.domain.listeners.FinantialEntityListener;
+import org.fenixedu.academictreasury.domain.listeners.PendingDebtGenerationRegistrationListener;
 import org.fenixedu.academictreasury.domain.listeners.ProductDeletionListener;
+import org.fenixedu.academictreasury.domain.listeners.TuitionPaymentPlanOrderListener;
+import org.fenixedu.academictreasury.domain.signals.AcademicTreasurySignalJob;
+
+import com.google.common.collect.Lists;
 
 import pt.ist.fenixframework.FenixFramework;
 
@@ -41,6 +47,7 @@ public class AcademicTreasuryInitializer implements ServletContextListener {
 
     @Override
     public void contextDestroyed(final ServletContextEvent arg0) {
+        AcademicTreasurySignalJob.stopScheduledProcessing();
     }
 
     @Override
@@ -48,8 +55,12 @@ public class AcademicTreasuryInitializer implements ServletContextListener {
         DebitEntryDeletionListener.attach();
         ProductDeletionListener.attach();
         FinantialEntityListener.attach();
+        PendingDebtGenerationRegistrationListener.attach();
+        TuitionPaymentPlanOrderListener.attach();
 
         addDeletionListeners();
+
+        AcademicTreasurySignalJob.startScheduledProcessing();
     }
 
     private void addDeletionListeners() {
@@ -60,6 +71,11 @@ public class AcademicTreasuryInitializer implements ServletContextListener {
 
             p.getInactivePersonCustomersSet().forEach(ipc -> ipc.delete());
         });
+
+        FenixFramework.getDomainModel().registerDeletionListener(Registration.class, r -> {
+            r.setDomainRootForPendingSignalJobs(null);
+            Lists.newArrayList(r.getAcademicTreasurySignalJobsSet()).forEach(j -> j.delete());
+        });
     }
 
 }
@@ -11,6 +11,7 @@ import org.fenixedu.academictreasury.services.EmolumentServices;
 import org.fenixedu.academictreasury.services.signals.AcademicServiceRequestCancelOrRejectHandler;
 import org.fenixedu.academictreasury.services.signals.ExtracurricularEnrolmentHandler;
 import org.fenixedu.academictreasury.services.signals.ImprovementEnrolmentHandler;
+import org.fenixedu.academictreasury.services.signals.PendingDebtGenerationRegistrationHandler;
 import org.fenixedu.academictreasury.services.signals.StandaloneEnrolmentHandler;
 import org.fenixedu.bennu.core.signals.Signal;
 
@@ -28,6 +29,7 @@ public class AcademicTreasuryUiInitializer implements ServletContextListener {
         registerStandaloneEnrolmentHandler();
         registerExtracurricularEnrolmentHandler();
         registerImprovementEnrolmentHandler();
+        registerPendingDebtGenerationRegistrationHandler();
     }
 
     private static void registerNewAcademicServiceRequestSituationHandler() {
@@ -51,4 +53,12 @@ public class AcademicTreasuryUiInitializer implements ServletContextListener {
         Signal.register(StudentCurricularPlanEnrolmentManager.IMPROVEMENT_ENROLMENT, new ImprovementEnrolmentHandler());
     }
 
+    private static void registerPendingDebtGenerationRegistrationHandler() {
+        final PendingDebtGenerationRegistrationHandler handler = new PendingDebtGenerationRegistrationHandler();
+
+        Signal.register(StudentCurricularPlanNoCourseGroupEnrolmentManager.STANDALONE_ENROLMENT, handler);
+        Signal.register(StudentCurricularPlanNoCourseGroupEnrolmentManager.EXTRACURRICULAR_ENROLMENT, handler);
+        Signal.register(StudentCurricularPlanEnrolmentManager.IMPROVEMENT_ENROLMENT, handler);
+    }
+
 }
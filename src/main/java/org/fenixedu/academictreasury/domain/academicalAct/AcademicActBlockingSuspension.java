@@ -39,6 +39,7 @@ import java.util.Comparator;
 import java.util.stream.Stream;
 
 import org.fenixedu.academic.domain.Person;
+import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
 import pt.ist.fenixframework.FenixFramework;
 import org.joda.time.Interval;
@@ -73,6 +74,8 @@ public class AcademicActBlockingSuspension extends AcademicActBlockingSuspension
         setReason(reason);
         
         checkRules();
+
+        PersonCustomer.markAcademicalActBlockingStateModified(person);
     }
     
     private void checkRules() {
@@ -117,6 +120,8 @@ public class AcademicActBlockingSuspension extends AcademicActBlockingSuspension
         setReason(reason);
         
         checkRules();
+
+        PersonCustomer.markAcademicalActBlockingStateModified(getPerson());
     }
 
     private boolean isDeletable() {
@@ -129,6 +134,8 @@ public class AcademicActBlockingSuspension extends AcademicActBlockingSuspension
             throw new AcademicTreasuryDomainException("error.AcademicActBlockingSuspension.delete.impossible");
         }
         
+        PersonCustomer.markAcademicalActBlockingStateModified(getPerson());
+
         setDomainRoot(null);
         setPerson(null);
         
@@ -148,7 +155,7 @@ public class AcademicActBlockingSuspension extends AcademicActBlockingSuspension
     }
     
     public static Stream<AcademicActBlockingSuspension> find(final Person person) {
-         return findAll().filter(f -> f.getPerson() == person);
+         return person.getAcademicActBlockingSuspensionsSet().stream();
     }
     
     public static Stream<AcademicActBlockingSuspension> find(final Person person, final LocalDate when) {
@@ -156,7 +163,7 @@ public class AcademicActBlockingSuspension extends AcademicActBlockingSuspension
     }
     
     public static boolean isBlockingSuspended(final Person person, final LocalDate when) {
-        return find(person, when).count() > 0;
+        return find(person, when).findAny().isPresent();
     }
     
     @Atomic
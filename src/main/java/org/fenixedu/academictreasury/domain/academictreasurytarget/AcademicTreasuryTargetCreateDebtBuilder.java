@@ -34,6 +34,7 @@ import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
 import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEvent;
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
 import org.fenixedu.academictreasury.domain.tariff.AcademicTariff;
+import org.fenixedu.academictreasury.services.debtReports.DebtReportService;
 import org.fenixedu.treasury.domain.FinantialEntity;
 import org.fenixedu.treasury.domain.Product;
 import org.fenixedu.treasury.domain.Vat;
@@ -152,6 +153,8 @@ public class AcademicTreasuryTargetCreateDebtBuilder {
                     target.getAcademicTreasuryTargetDescription().getContent(TreasuryConstants.DEFAULT_LANGUAGE), BigDecimal.ONE,
                     null, when.toDateTimeAtStartOfDay(), false, false, debitNote);
 
+            DebtReportService.indexDebitEntry(debitEntry);
+
             if (this.interestRateType != null) {
                 InterestRate.createForDebitEntry(debitEntry, this.interestRateType, 1, false, 0, this.interestFixedAmount, null);
             }
@@ -301,6 +304,8 @@ public class AcademicTreasuryTargetCreateDebtBuilder {
                     target.getAcademicTreasuryTargetDescription().getContent(TreasuryConstants.DEFAULT_LANGUAGE), BigDecimal.ONE,
                     academicTariff.getInterestRate(), effectiveWhen.toDateTimeAtStartOfDay(), false, false, debitNote);
 
+            DebtReportService.indexDebitEntry(debitEntry);
+
             if (createPaymentCode) {
                 createPaymentReferenceCode(debitEntry, dueDate);
             }
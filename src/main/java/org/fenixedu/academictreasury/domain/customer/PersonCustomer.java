@@ -49,11 +49,13 @@ import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEvent;
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
 import org.fenixedu.academictreasury.domain.settings.AcademicTreasurySettings;
 import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
+import org.fenixedu.academictreasury.util.VersionedCache;
 import org.fenixedu.commons.i18n.LocalizedString;
 import org.fenixedu.treasury.domain.Customer;
 import org.fenixedu.treasury.domain.CustomerType;
 import org.fenixedu.treasury.domain.FinantialInstitution;
 import org.fenixedu.treasury.domain.FiscalDataUpdateLog;
+import org.fenixedu.treasury.domain.Product;
 import org.fenixedu.treasury.domain.debt.DebtAccount;
 import org.fenixedu.treasury.domain.debt.balancetransfer.BalanceTransferService;
 import org.fenixedu.treasury.domain.document.DebitEntry;
@@ -68,6 +70,7 @@ import org.joda.time.LocalDate;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 
 import pt.ist.fenixframework.Atomic;
@@ -544,11 +547,21 @@ public class PersonCustomer extends PersonCustomer_Base {
     }
 
     public boolean isBlockingAcademicalActs(final LocalDate when) {
+        return isBlockingAcademicalActs(when, academicalActBlockingProducts());
+    }
+
+    /*
+     * The academical act blocking products are given by the caller, so they
+     * are read once when evaluating several customers
+     */
+    public boolean isBlockingAcademicalActs(final LocalDate when, final Set<Product> academicalActBlockingProducts) {
+        return PersonCustomerBlockingState.isBlockingAcademicalActs(this, when, academicalActBlockingProducts);
+    }
 
-        if (DebtAccount.find(this).map(da -> TreasuryConstants.isGreaterThan(da.getTotalInDebt(), BigDecimal.ZERO))
-                .reduce((a, c) -> a || c).orElse(Boolean.FALSE)) {
-            return DebitEntry.find(this).map(d -> isDebitEntryBlockingAcademicalActs(d, when)).reduce((a, c) -> a || c)
-                    .orElse(Boolean.FALSE);
+    boolean evaluateBlockingAcademicalActs(final LocalDate when, final Set<Product> academicalActBlockingProducts) {
+        if (DebtAccount.find(this).anyMatch(da -> TreasuryConstants.isGreaterThan(da.getTotalInDebt(), BigDecimal.ZERO))) {
+            return DebitEntry.find(this)
+                    .anyMatch(d -> isDebitEntryBlockingAcademicalActs(d, when, academicalActBlockingProducts));
         }
 
         if (DebtAccount.find(this).anyMatch(da -> !da.getPaymentPlansNotCompliantSet(when).isEmpty())) {
@@ -559,33 +572,65 @@ public class PersonCustomer extends PersonCustomer_Base {
     }
 
     public static boolean isDebitEntryBlockingAcademicalActs(final DebitEntry debitEntry, final LocalDate when) {
+        return isDebitEntryBlockingAcademicalActs(debitEntry, when, academicalActBlockingProducts());
+    }
+
+    /*
+     * The cheapest conditions are checked first, the payment plan compliance
+     * is the last one
+     */
+    public static boolean isDebitEntryBlockingAcademicalActs(final DebitEntry debitEntry, final LocalDate when,
+            final Set<Product> academicalActBlockingProducts) {
         if (debitEntry.isAnnulled()) {
             return false;
         }
 
-        if (!debitEntry.isInDebt()) {
+        if (!academicalActBlockingProducts.contains(debitEntry.getProduct())) {
             return false;
         }
 
-        if (!debitEntry.isBlockAcademicActsOnDebt() && !debitEntry.isDueDateExpired(when)) {
+        if (debitEntry.isAcademicalActBlockingSuspension()) {
             return false;
         }
 
-        if (debitEntry.getOpenPaymentPlan() != null && debitEntry.getOpenPaymentPlan().isCompliant(when)) {
+        if (!debitEntry.isInDebt()) {
             return false;
         }
 
-        if (!AcademicTreasurySettings.getInstance().isAcademicalActBlocking(debitEntry.getProduct())) {
+        if (!debitEntry.isBlockAcademicActsOnDebt() && !debitEntry.isDueDateExpired(when)) {
             return false;
         }
 
-        if (debitEntry.isAcademicalActBlockingSuspension()) {
+        if (debitEntry.getOpenPaymentPlan() != null && debitEntry.getOpenPaymentPlan().isCompliant(when)) {
             return false;
         }
 
         return true;
     }
 
+    /*
+     * Discards the materialized academical act blocking state of this customer,
+     * in every server, when the transaction commits
+     */
+    public void markAcademicalActBlockingStateModified() {
+        setAcademicalActBlockingStateModificationDate(
+                VersionedCache.nextModificationDate(getAcademicalActBlockingStateModificationDate()));
+    }
+
+    public static void markAcademicalActBlockingStateModified(final Person person) {
+        find(person).forEach(pc -> pc.markAcademicalActBlockingStateModified());
+    }
+
+    public static void markAcademicalActBlockingStateModified(final DebtAccount debtAccount) {
+        if (debtAccount.getCustomer() instanceof PersonCustomer) {
+            ((PersonCustomer) debtAccount.getCustomer()).markAcademicalActBlockingStateModified();
+        }
+    }
+
+    public static Set<Product> academicalActBlockingProducts() {
+        return ImmutableSet.copyOf(AcademicTreasurySettings.getInstance().getAcademicalActBlockingProductsSet());
+    }
+
     @Override
     public String getUsername() {
         return getAssociatedPerson().getUsername();
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.domain.customer;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.fenixedu.academictreasury.domain.settings.AcademicTreasurySettings;
+import org.fenixedu.treasury.domain.Product;
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Materialized answer of PersonCustomer#isBlockingAcademicalActs for a date.
+ * 
+ * The state is tagged with the modification dates of the customer blocking
+ * state and of the academical act blocking products, which are updated in
+ * the same transaction as the suspensions, the settlements, the annulments
+ * and credits of debit entries by this module and the settings changes. A
+ * state tagged with other dates is not used.
+ * 
+ * This is not complete: the debit entries, settlements and payment plans
+ * changed in the treasury module do not move the customer modification date,
+ * so until the max age given by the settings the state of those changes may
+ * be stale. The states are kept by customer and date, so a customer queried
+ * for several dates has one state for each of them.
+ * 
+ * The states are kept in a bounded cache, which also drops the states not
+ * refreshed in the last hour.
+ */
+class PersonCustomerBlockingState {
+
+    private static final int MAX_STATES = 50000;
+
+    private static final Cache<String, PersonCustomerBlockingState> STATES =
+            CacheBuilder.newBuilder().maximumSize(MAX_STATES).expireAfterWrite(1, TimeUnit.HOURS).build();
+
+    private final String version;
+    private final long computedAt;
+    private final boolean blocking;
+
+    private PersonCustomerBlockingState(final String version, final boolean blocking) {
+        this.version = version;
+        this.computedAt = System.currentTimeMillis();
+        this.blocking = blocking;
+    }
+
+    private boolean isValid(final String version, final int maxAgeInSeconds) {
+        return this.version.equals(version) && System.currentTimeMillis() - this.computedAt <= maxAgeInSeconds * 1000L;
+    }
+
+    static boolean isBlockingAcademicalActs(final PersonCustomer customer, final LocalDate when,
+            final Set<Product> academicalActBlockingProducts) {
+        final AcademicTreasurySettings settings = AcademicTreasurySettings.getInstance();
+
+        if (!settings.isAcademicalActBlockingStateMaterializationActive()) {
+            return customer.evaluateBlockingAcademicalActs(when, academicalActBlockingProducts);
+        }
+
+        final String version = version(customer.getAcademicalActBlockingStateModificationDate())
+                + ":" + version(settings.getAcademicalActBlockingProductsLastModificationDate());
+
+        final String key = customer.getExternalId() + ":" + when;
+        final PersonCustomerBlockingState state = STATES.getIfPresent(key);
+        if (state != null && state.isValid(version, settings.getAcademicalActBlockingStateMaxAgeInSeconds())) {
+            return state.blocking;
+        }
+
+        final boolean blocking = customer.evaluateBlockingAcademicalActs(when, academicalActBlockingProducts);
+        STATES.put(key, new PersonCustomerBlockingState(version, blocking));
+
+        return blocking;
+    }
+
+    private static String version(final DateTime modificationDate) {
+        return Objects.toString(modificationDate != null ? modificationDate.getMillis() : null);
+    }
+
+}
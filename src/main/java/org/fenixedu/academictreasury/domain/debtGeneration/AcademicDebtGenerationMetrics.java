@@ -0,0 +1,326 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.domain.debtGeneration;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang.StringUtils;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Execution metrics of one run of the academic debt generation rules, aggregated by rule
+ * and by strategy.
+ * 
+ * The processing times are kept in a logarithmic histogram, so the memory used does not
+ * depend on the number of registrations. The percentiles are approximated with an error
+ * of at most 10%.
+ */
+public class AcademicDebtGenerationMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(AcademicDebtGenerationMetrics.class);
+
+    private static final ThreadLocal<int[]> TRANSACTION_ATTEMPTS = ThreadLocal.withInitial(() -> new int[1]);
+    private static final ThreadLocal<int[]> REGISTRATION_VISITS = ThreadLocal.withInitial(() -> new int[1]);
+
+    private static volatile AcademicDebtGenerationMetrics lastRun;
+
+    private final String description;
+    private final DateTime startDate;
+    private DateTime endDate;
+
+    private final ConcurrentMap<String, Metrics> metricsByRule = new ConcurrentHashMap<>();
+
+    public AcademicDebtGenerationMetrics(final String description) {
+        this.description = description;
+        this.startDate = new DateTime();
+    }
+
+    public void record(final AcademicDebtGenerationRule rule, final int registrationsVisited,
+            final List<AcademicDebtGenerationProcessingResult> results, final int transactionAttempts) {
+        final Metrics metrics = metricsByRule.computeIfAbsent(rule.getExternalId(),
+                k -> new Metrics(ruleDescription(rule),
+                        StringUtils.substringAfterLast(rule.getAcademicDebtGenerationRuleType().getStrategyImplementation(), ".")));
+
+        metrics.record(registrationsVisited, results, transactionAttempts);
+    }
+
+    /**
+     * Marks the end of the run, logs the summary and makes the metrics available
+     * in {@link #getLastRun()}
+     */
+    public void finish() {
+        this.endDate = new DateTime();
+        lastRun = this;
+
+        logger.info(getSummary());
+    }
+
+    public Collection<Metrics> getRuleMetrics() {
+        return metricsByRule.values().stream().sorted(Comparator.comparing(Metrics::getName)).collect(Collectors.toList());
+    }
+
+    public Collection<Metrics> getStrategyMetrics() {
+        final Map<String, Metrics> result = new TreeMap<>();
+
+        for (final Metrics ruleMetrics : metricsByRule.values()) {
+            result.computeIfAbsent(ruleMetrics.getStrategy(), k -> new Metrics(k, k)).merge(ruleMetrics);
+        }
+
+        return result.values();
+    }
+
+    public String getSummary() {
+        final StringBuilder sb = new StringBuilder();
+
+        sb.append(String.format("Academic debt generation run '%s': %s - %s\n", description, startDate,
+                endDate != null ? endDate : "running"));
+
+        sb.append("\nBy strategy\n").append(Metrics.HEADER).append("\n");
+        getStrategyMetrics().forEach(m -> sb.append(m.toSummaryLine()).append("\n"));
+
+        sb.append("\nBy rule\n").append(Metrics.HEADER).append("\n");
+        getRuleMetrics().forEach(m -> sb.append(m.toSummaryLine()).append("\n"));
+
+        return sb.toString();
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public DateTime getStartDate() {
+        return startDate;
+    }
+
+    public DateTime getEndDate() {
+        return endDate;
+    }
+
+    private static String ruleDescription(final AcademicDebtGenerationRule rule) {
+        return String.format("%s [%s, %s, #%d]", rule.getExternalId(), rule.getAcademicDebtGenerationRuleType().getCode(),
+                rule.getExecutionYear().getQualifiedName(), rule.getOrderNumber());
+    }
+
+    // @formatter:off
+    /* ********************************************
+     * TRANSACTION RETRIES AND REGISTRATIONS VISITS
+     * ********************************************
+     */
+    // @formatter:on
+
+    /**
+     * Called by the strategies at the beginning of each write transaction. As the
+     * transaction is restarted on conflicts, the number of attempts exceeding the number
+     * of processed registrations are the retries
+     */
+    public static void registerTransactionAttempt() {
+        TRANSACTION_ATTEMPTS.get()[0]++;
+    }
+
+    public static int resetTransactionAttempts() {
+        final int[] attempts = TRANSACTION_ATTEMPTS.get();
+        final int result = attempts[0];
+        attempts[0] = 0;
+
+        return result;
+    }
+
+    /**
+     * Called by the strategies for each registration visited when processing all the
+     * registrations of a rule, so they are not looked up again to be counted
+     */
+    public static void registerRegistrationVisit() {
+        REGISTRATION_VISITS.get()[0]++;
+    }
+
+    public static int resetRegistrationVisits() {
+        final int[] visits = REGISTRATION_VISITS.get();
+        final int result = visits[0];
+        visits[0] = 0;
+
+        return result;
+    }
+
+    public static Optional<AcademicDebtGenerationMetrics> getLastRun() {
+        return Optional.ofNullable(lastRun);
+    }
+
+    public static class Metrics {
+
+        private static final String HEADER = "name\tstrategy\tvisited\tdiscarded\tprocessed\texceptions\tretries\tp50 (ms)\t"
+                + "p95 (ms)\tmax (ms)";
+
+        private static final double BUCKET_GROWTH = 1.1;
+        private static final int NUMBER_OF_BUCKETS = 200;
+
+        private final String name;
+        private final String strategy;
+
+        private long registrationsVisited;
+        private long registrationsProcessed;
+        private long exceptions;
+        private long transactionRetries;
+        private long maxProcessingTime;
+        private long timedRegistrations;
+        private final long[] processingTimeHistogram = new long[NUMBER_OF_BUCKETS];
+
+        private Metrics(final String name, final String strategy) {
+            this.name = name;
+            this.strategy = strategy;
+        }
+
+        private synchronized void record(final int visited, final List<AcademicDebtGenerationProcessingResult> results,
+                final int transactionAttempts) {
+            this.registrationsVisited += visited;
+            this.registrationsProcessed += results.size();
+            this.transactionRetries += Math.max(0, transactionAttempts - results.size());
+
+            for (final AcademicDebtGenerationProcessingResult result : results) {
+                if (result.getException() != null) {
+                    this.exceptions++;
+                }
+
+                if (result.getProcessingStartDate() != null && result.getProcessingEndDate() != null) {
+                    final long time = result.getProcessingEndDate().getMillis() - result.getProcessingStartDate().getMillis();
+
+                    this.processingTimeHistogram[bucket(time)]++;
+                    this.maxProcessingTime = Math.max(this.maxProcessingTime, time);
+                    this.timedRegistrations++;
+                }
+            }
+        }
+
+        private synchronized void merge(final Metrics other) {
+            synchronized (other) {
+                this.registrationsVisited += other.registrationsVisited;
+                this.registrationsProcessed += other.registrationsProcessed;
+                this.exceptions += other.exceptions;
+                this.transactionRetries += other.transactionRetries;
+                this.maxProcessingTime = Math.max(this.maxProcessingTime, other.maxProcessingTime);
+                this.timedRegistrations += other.timedRegistrations;
+
+                for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+                    this.processingTimeHistogram[i] += other.processingTimeHistogram[i];
+                }
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getStrategy() {
+            return strategy;
+        }
+
+        public synchronized long getRegistrationsVisited() {
+            return registrationsVisited;
+        }
+
+        /*
+         * The strategies only return results for the registrations not discarded
+         */
+        public synchronized long getRegistrationsDiscarded() {
+            return Math.max(0, registrationsVisited - registrationsProcessed);
+        }
+
+        public synchronized long getRegistrationsProcessed() {
+            return registrationsProcessed;
+        }
+
+        public synchronized long getExceptions() {
+            return exceptions;
+        }
+
+        public synchronized long getTransactionRetries() {
+            return transactionRetries;
+        }
+
+        public synchronized long getMaxProcessingTime() {
+            return maxProcessingTime;
+        }
+
+        public synchronized long getProcessingTimePercentile(final double percentile) {
+            if (timedRegistrations == 0) {
+                return 0;
+            }
+
+            final long rank = (long) Math.ceil(percentile / 100.0 * timedRegistrations);
+
+            long count = 0;
+            for (int i = 0; i < NUMBER_OF_BUCKETS; i++) {
+                count += processingTimeHistogram[i];
+
+                if (count >= rank) {
+                    return Math.min(bucketUpperBound(i), maxProcessingTime);
+                }
+            }
+
+            return maxProcessingTime;
+        }
+
+        private String toSummaryLine() {
+            return String.join("\t", name, strategy, String.valueOf(getRegistrationsVisited()),
+                    String.valueOf(getRegistrationsDiscarded()), String.valueOf(getRegistrationsProcessed()),
+                    String.valueOf(getExceptions()), String.valueOf(getTransactionRetries()),
+                    String.valueOf(getProcessingTimePercentile(50)), String.valueOf(getProcessingTimePercentile(95)),
+                    String.valueOf(getMaxProcessingTime()));
+        }
+
+        private static int bucket(final long time) {
+            if (time <= 1) {
+                return 0;
+            }
+
+            return (int) Math.min(NUMBER_OF_BUCKETS - 1, Math.ceil(Math.log(time) / Math.log(BUCKET_GROWTH)));
+        }
+
+        private static long bucketUpperBound(final int bucket) {
+            return (long) Math.ceil(Math.pow(BUCKET_GROWTH, bucket));
+        }
+    }
+
+}
@@ -593,13 +593,51 @@ public class AcademicDebtGenerationRule extends AcademicDebtGenerationRule_Base
         return new AcademicDebtGenerationRule(bean);
     }
 
+    /*
+     * In incremental mode only the registrations marked as pending are processed, with the
+     * rules whose outcome changes with the current date. All registrations are processed by
+     * all rules when the full sweep is due, as not every change marks the registrations
+     */
     public static List<AcademicDebtGenerationProcessingResult> runAllActive(final boolean runOnlyWithBackgroundExecution) {
-        return runAllActive(runOnlyWithBackgroundExecution, null, null, null, null);
+        final AcademicTreasurySettings settings = AcademicTreasurySettings.getInstance();
+
+        if (!settings.isAcademicDebtGenerationIncrementalModeActive()) {
+            return runAllActive(runOnlyWithBackgroundExecution, null, null, null, null);
+        }
+
+        if (settings.isAcademicDebtGenerationFullSweepDue()) {
+            final DateTime fullSweepDate = new DateTime();
+            final List<AcademicDebtGenerationProcessingResult> result =
+                    runAllActive(runOnlyWithBackgroundExecution, null, null, null, null);
+
+            registerFullSweep(fullSweepDate);
+            return result;
+        }
+
+        final List<AcademicDebtGenerationProcessingResult> result = runAllPendingRegistrations(runOnlyWithBackgroundExecution);
+
+        AcademicDebtGenerationRuleType.findAll().sorted(AcademicDebtGenerationRuleType.COMPARE_BY_ORDER_NUMBER)
+                .filter(type -> type.strategyImplementation().isTimeDriven()).collect(Collectors.toList())
+                .forEach(type -> result.addAll(runAllActive(runOnlyWithBackgroundExecution, null, type, null, null)));
+
+        return result;
+    }
+
+    @Atomic(mode = TxMode.WRITE)
+    private static void registerFullSweep(final DateTime fullSweepDate) {
+        AcademicTreasurySettings.getInstance().setAcademicDebtGenerationLastFullSweepDate(fullSweepDate);
     }
 
     public static List<AcademicDebtGenerationProcessingResult> runAllActive(final boolean runOnlyWithBackgroundExecution,
             Consumer<List<AcademicDebtGenerationProcessingResult>> ruleExecutionCallback, AcademicDebtGenerationRuleType typeArg,
             FinantialEntity finantialEntityArg, ExecutionYear executionYearArg) {
+        final AcademicTreasurySettings settings = AcademicTreasurySettings.getInstance();
+        if (settings.isAcademicDebtGenerationParallelExecutionActive()) {
+            return runAllActiveInParallel(runOnlyWithBackgroundExecution, ruleExecutionCallback, typeArg, finantialEntityArg,
+                    executionYearArg, settings.getAcademicDebtGenerationPoolSize());
+        }
+
+        final AcademicDebtGenerationMetrics metrics = new AcademicDebtGenerationMetrics("runAllActive");
         final List<Future<List<AcademicDebtGenerationProcessingResult>>> futureList = Lists.newArrayList();
 
         final ExecutorService exService = Executors.newSingleThreadExecutor();
@@ -629,7 +667,7 @@ public class AcademicDebtGenerationRule extends AcademicDebtGenerationRule_Base
                     continue;
                 }
 
-                final RuleCallable exec = new RuleCallable(academicDebtGenerationRule, ruleExecutionCallback);
+                final RuleCallable exec = new RuleCallable(academicDebtGenerationRule, ruleExecutionCallback, metrics);
                 futureList.add(exService.submit(exec));
             }
         }
@@ -644,11 +682,105 @@ public class AcademicDebtGenerationRule extends AcademicDebtGenerationRule_Base
             }
         }
 
+        metrics.finish();
+
+        return returnResult;
+    }
+
+    /*
+     * The rules are executed one after the other, in the same order of the sequential
+     * execution. The registrations of each rule are distributed across a bounded pool of
+     * workers, each one processed in its own transaction. A rule only starts after all
+     * registrations of the previous rule are processed
+     */
+    private static List<AcademicDebtGenerationProcessingResult> runAllActiveInParallel(
+            final boolean runOnlyWithBackgroundExecution,
+            final Consumer<List<AcademicDebtGenerationProcessingResult>> ruleExecutionCallback,
+            final AcademicDebtGenerationRuleType typeArg, final FinantialEntity finantialEntityArg,
+            final ExecutionYear executionYearArg, final int poolSize) {
+        final List<AcademicDebtGenerationRule> rulesToRun = Lists.newArrayList();
+
+        for (final AcademicDebtGenerationRuleType type : AcademicDebtGenerationRuleType.findAll()
+                .sorted(AcademicDebtGenerationRuleType.COMPARE_BY_ORDER_NUMBER).collect(Collectors.toList())) {
+
+            if (typeArg != null && typeArg != type) {
+                continue;
+            }
+
+            AcademicDebtGenerationRule.findActiveByType(type).sorted(COMPARE_BY_ORDER_NUMBER)
+                    .filter(r -> r.isAbleToRunUnderScheduleNow())
+                    .filter(r -> finantialEntityArg == null || r.getFinantialEntity() == finantialEntityArg)
+                    .filter(r -> executionYearArg == null || r.getExecutionYear() == executionYearArg)
+                    .filter(r -> !runOnlyWithBackgroundExecution || r.isBackgroundExecution()).forEach(rulesToRun::add);
+        }
+
+        final AcademicDebtGenerationMetrics metrics = new AcademicDebtGenerationMetrics("runAllActiveInParallel");
+        final List<AcademicDebtGenerationProcessingResult> returnResult = Lists.newArrayList();
+
+        final ExecutorService exService = Executors.newFixedThreadPool(poolSize);
+        try {
+            for (final AcademicDebtGenerationRule rule : rulesToRun) {
+                final List<AcademicDebtGenerationProcessingResult> ruleResult = runRuleInParallel(rule, exService, metrics);
+
+                if (ruleExecutionCallback != null) {
+                    ruleExecutionCallback.accept(ruleResult);
+                }
+
+                returnResult.addAll(ruleResult);
+            }
+        } finally {
+            exService.shutdown();
+            metrics.finish();
+        }
+
         return returnResult;
     }
 
+    private static List<AcademicDebtGenerationProcessingResult> runRuleInParallel(final AcademicDebtGenerationRule rule,
+            final ExecutorService exService, final AcademicDebtGenerationMetrics metrics) {
+        final long start = System.currentTimeMillis();
+
+        final List<Future<List<AcademicDebtGenerationProcessingResult>>> futureList = Lists.newArrayList();
+        for (final RuleCallable exec : registrationCallables(rule, metrics)) {
+            futureList.add(exService.submit(exec));
+        }
+
+        final List<AcademicDebtGenerationProcessingResult> ruleResult = Lists.newArrayList();
+        for (final Future<List<AcademicDebtGenerationProcessingResult>> future : futureList) {
+            try {
+                ruleResult.addAll(future.get());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (final ExecutionException e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
+
+        logger.info(String.format("Rule %s processed %d registrations in %d ms", rule.getExternalId(), futureList.size(),
+                System.currentTimeMillis() - start));
+
+        return ruleResult;
+    }
+
+    @Atomic(mode = TxMode.READ)
+    private static List<RuleCallable> registrationCallables(final AcademicDebtGenerationRule rule,
+            final AcademicDebtGenerationMetrics metrics) {
+        if (!rule.isActive()) {
+            return Lists.newArrayList();
+        }
+
+        return rule.getAcademicDebtGenerationRuleType().strategyImplementation().findRegistrationsToProcess(rule).stream()
+                .map(registration -> new RuleCallable(rule, registration, null, metrics)).collect(Collectors.toList());
+    }
+
     public static List<AcademicDebtGenerationProcessingResult> runAllActiveForRegistration(final Registration registration,
             final boolean runOnlyWithBackgroundExecution) {
+        return runAllActiveForRegistration(registration, runOnlyWithBackgroundExecution, null);
+    }
+
+    private static List<AcademicDebtGenerationProcessingResult> runAllActiveForRegistration(final Registration registration,
+            final boolean runOnlyWithBackgroundExecution, final AcademicDebtGenerationMetrics metrics) {
         final List<Future<List<AcademicDebtGenerationProcessingResult>>> futureList = Lists.newArrayList();
 
         final ExecutorService exService = Executors.newSingleThreadExecutor();
@@ -665,7 +797,7 @@ public class AcademicDebtGenerationRule extends AcademicDebtGenerationRule_Base
                     continue;
                 }
 
-                final RuleCallable exec = new RuleCallable(academicDebtGenerationRule, registration, null);
+                final RuleCallable exec = new RuleCallable(academicDebtGenerationRule, registration, null, metrics);
                 futureList.add(exService.submit(exec));
             }
         }
@@ -723,6 +855,116 @@ public class AcademicDebtGenerationRule extends AcademicDebtGenerationRule_Base
         return returnResult;
     }
 
+    public static List<AcademicDebtGenerationProcessingResult> runAllPendingRegistrations(
+            final boolean runOnlyWithBackgroundExecution) {
+        final AcademicTreasurySettings settings = AcademicTreasurySettings.getInstance();
+        final int poolSize =
+                settings.isAcademicDebtGenerationParallelExecutionActive() ? settings.getAcademicDebtGenerationPoolSize() : 1;
+
+        final AcademicDebtGenerationMetrics metrics = new AcademicDebtGenerationMetrics("runAllPendingRegistrations");
+        final List<String> registrationIds = findPendingRegistrationIds();
+        logger.info(String.format("Processing %d registrations pending debt generation", registrationIds.size()));
+
+        final List<Future<List<AcademicDebtGenerationProcessingResult>>> futureList = Lists.newArrayList();
+
+        final ExecutorService exService = Executors.newFixedThreadPool(poolSize);
+        for (final String registrationId : registrationIds) {
+            futureList.add(exService.submit(
+                    () -> processPendingRegistration(registrationId, runOnlyWithBackgroundExecution, metrics)));
+        }
+
+        exService.shutdown();
+
+        final List<AcademicDebtGenerationProcessingResult> returnResult = Lists.newArrayList();
+        for (Future<List<AcademicDebtGenerationProcessingResult>> future : futureList) {
+            try {
+                returnResult.addAll(future.get());
+            } catch (InterruptedException | ExecutionException e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
+
+        metrics.finish();
+
+        return returnResult;
+    }
+
+    @Atomic(mode = TxMode.READ)
+    private static List<String> findPendingRegistrationIds() {
+        return findPendingRegistrations().map(Registration::getExternalId).collect(Collectors.toList());
+    }
+
+    /*
+     * The registration is only unmarked after all the rules are processed without errors.
+     * If it is marked again while being processed, its mark version is changed and it is
+     * kept for the next run
+     */
+    private static List<AcademicDebtGenerationProcessingResult> processPendingRegistration(final String registrationId,
+            final boolean runOnlyWithBackgroundExecution, final AcademicDebtGenerationMetrics metrics) {
+        final int markVersion = readPendingMarkVersion(registrationId);
+
+        final List<AcademicDebtGenerationProcessingResult> result =
+                runAllActiveForPendingRegistration(registrationId, runOnlyWithBackgroundExecution, metrics);
+
+        final boolean processedWithoutErrors = result.stream().allMatch(r -> r.getException() == null);
+        if (processedWithoutErrors) {
+            unmarkPendingRegistration(registrationId, markVersion);
+        }
+
+        return result;
+    }
+
+    @Atomic(mode = TxMode.READ)
+    private static int readPendingMarkVersion(final String registrationId) {
+        final Registration registration = FenixFramework.getDomainObject(registrationId);
+        return PendingDebtGenerationMark.versionOf(registration);
+    }
+
+    @Atomic(mode = TxMode.WRITE)
+    private static void unmarkPendingRegistration(final String registrationId, final int markVersion) {
+        final Registration registration = FenixFramework.getDomainObject(registrationId);
+
+        // Marked again while being processed
+        if (PendingDebtGenerationMark.versionOf(registration) != markVersion) {
+            return;
+        }
+
+        PendingDebtGenerationMark.unmark(registration);
+        registration.setDomainRootForPendingRegistrationsDebtCreation(null);
+    }
+
+    @Atomic(mode = TxMode.READ)
+    private static List<AcademicDebtGenerationProcessingResult> runAllActiveForPendingRegistration(
+            final String registrationId, final boolean runOnlyWithBackgroundExecution,
+            final AcademicDebtGenerationMetrics metrics) {
+        final Registration registration = FenixFramework.getDomainObject(registrationId);
+        return runAllActiveForRegistration(registration, runOnlyWithBackgroundExecution, metrics);
+    }
+
+    /**
+     * Marks the registration to be processed by the next run in incremental mode. Must be
+     * called within a write transaction, usually the one that changed the registration
+     */
+    public static void markRegistrationAsPending(final Registration registration) {
+        if (registration == null) {
+            return;
+        }
+
+        if (!AcademicTreasurySettings.getInstance().isAcademicDebtGenerationIncrementalModeActive()) {
+            return;
+        }
+
+        PendingDebtGenerationMark.mark(registration);
+
+        if (registration.getDomainRootForPendingRegistrationsDebtCreation() == null) {
+            registration.setDomainRootForPendingRegistrationsDebtCreation(FenixFramework.getDomainRoot());
+        }
+    }
+
+    public static Stream<Registration> findPendingRegistrations() {
+        return FenixFramework.getDomainRoot().getPendingRegistrationsForDebtCreationSet().stream();
+    }
+
     public static List<AcademicDebtGenerationProcessingResult> runAcademicDebtGenerationRule(
             final AcademicDebtGenerationRule rule) {
 
@@ -764,6 +1006,7 @@ public class AcademicDebtGenerationRule extends AcademicDebtGenerationRule_Base
         private String registrationId;
 
         private Consumer<List<AcademicDebtGenerationProcessingResult>> ruleExecutionCallback;
+        private AcademicDebtGenerationMetrics metrics;
 
         public RuleCallable(AcademicDebtGenerationRule rule,
                 Consumer<List<AcademicDebtGenerationProcessingResult>> ruleExecutionCallback) {
@@ -772,6 +1015,14 @@ public class AcademicDebtGenerationRule extends AcademicDebtGenerationRule_Base
             this.ruleExecutionCallback = ruleExecutionCallback;
         }
 
+        public RuleCallable(AcademicDebtGenerationRule rule,
+                Consumer<List<AcademicDebtGenerationProcessingResult>> ruleExecutionCallback,
+                AcademicDebtGenerationMetrics metrics) {
+            this(rule, ruleExecutionCallback);
+
+            this.metrics = metrics;
+        }
+
         public RuleCallable(AcademicDebtGenerationRule rule, Registration registration,
                 Consumer<List<AcademicDebtGenerationProcessingResult>> ruleExecutionCallback) {
             this.academicDebtGenerationRuleId = rule.getExternalId();
@@ -780,6 +1031,14 @@ public class AcademicDebtGenerationRule extends AcademicDebtGenerationRule_Base
             this.ruleExecutionCallback = ruleExecutionCallback;
         }
 
+        public RuleCallable(AcademicDebtGenerationRule rule, Registration registration,
+                Consumer<List<AcademicDebtGenerationProcessingResult>> ruleExecutionCallback,
+                AcademicDebtGenerationMetrics metrics) {
+            this(rule, registration, ruleExecutionCallback);
+
+            this.metrics = metrics;
+        }
+
         @Override
         public List<AcademicDebtGenerationProcessingResult> call() {
             return executeRule();
@@ -797,6 +1056,9 @@ public class AcademicDebtGenerationRule extends AcademicDebtGenerationRule_Base
                 return result;
             }
 
+            AcademicDebtGenerationMetrics.resetTransactionAttempts();
+            AcademicDebtGenerationMetrics.resetRegistrationVisits();
+
             try {
                 if (!Strings.isNullOrEmpty(registrationId)) {
                     final Registration registration = FenixFramework.getDomainObject(registrationId);
@@ -810,6 +1072,17 @@ public class AcademicDebtGenerationRule extends AcademicDebtGenerationRule_Base
                 }
             } catch (final Exception e) {
                 e.printStackTrace();
+
+                if (!Strings.isNullOrEmpty(registrationId)) {
+                    final AcademicDebtGenerationProcessingResult failure = new AcademicDebtGenerationProcessingResult(rule,
+                            FenixFramework.getDomainObject(registrationId));
+                    failure.markException(e);
+                    result.add(failure);
+                }
+            }
+
+            if (metrics != null) {
+                recordMetrics(rule, result);
             }
 
             if (ruleExecutionCallback != null) {
@@ -818,6 +1091,18 @@ public class AcademicDebtGenerationRule extends AcademicDebtGenerationRule_Base
 
             return result;
         }
+
+        private void recordMetrics(final AcademicDebtGenerationRule rule,
+                final List<AcademicDebtGenerationProcessingResult> result) {
+            try {
+                final int registrationsVisited = !Strings.isNullOrEmpty(registrationId) ? 1 : AcademicDebtGenerationMetrics
+                        .resetRegistrationVisits();
+
+                metrics.record(rule, registrationsVisited, result, AcademicDebtGenerationMetrics.resetTransactionAttempts());
+            } catch (final Exception e) {
+                logger.warn("Unable to record academic debt generation metrics", e);
+            }
+        }
     }
 
 }
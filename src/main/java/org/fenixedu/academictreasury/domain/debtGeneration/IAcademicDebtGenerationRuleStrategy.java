@@ -36,6 +36,8 @@
 package org.fenixedu.academictreasury.domain.debtGeneration;
 
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.fenixedu.academic.domain.student.Registration;
@@ -76,10 +78,29 @@ public interface IAcademicDebtGenerationRuleStrategy {
         return true;
     }
 
+    /**
+     * Rules whose outcome changes with the current date, without any change of the
+     * registrations. In incremental mode they are still processed for all registrations
+     * in each run
+     */
+    default boolean isTimeDriven() {
+        return false;
+    }
+
     public List<AcademicDebtGenerationProcessingResult> process(final AcademicDebtGenerationRule rule);
 
     public List<AcademicDebtGenerationProcessingResult> process(final AcademicDebtGenerationRule rule, final Registration registration);
 
+    /**
+     * Registrations visited by {@link #process(AcademicDebtGenerationRule)}. The parallel
+     * execution of the rules process each one of them with
+     * {@link #process(AcademicDebtGenerationRule, Registration)}
+     */
+    default Set<Registration> findRegistrationsToProcess(final AcademicDebtGenerationRule rule) {
+        return rule.getDegreeCurricularPlansSet().stream().flatMap(dcp -> dcp.getRegistrations().stream())
+                .collect(Collectors.toSet());
+    }
+
     public static Stream<? extends DebitEntry> findActiveDebitEntries(final PersonCustomer customer, final TreasuryEvent treasuryEvent) {
         return DebitEntry.findActive(treasuryEvent).filter(d -> d.getDebtAccount().getCustomer() == customer);
     }
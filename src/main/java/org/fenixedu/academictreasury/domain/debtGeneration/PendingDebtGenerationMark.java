@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.domain.debtGeneration;
+
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
+
+/**
+ * Version of the pending mark of a registration for the academic debt generation in
+ * incremental mode. The version is incremented each time the registration is marked, so
+ * the run that processed it only unmarks it if it was not marked again in the meantime,
+ * by any server
+ */
+public class PendingDebtGenerationMark extends PendingDebtGenerationMark_Base {
+
+    protected PendingDebtGenerationMark() {
+        super();
+    }
+
+    protected PendingDebtGenerationMark(final Registration registration) {
+        this();
+
+        setRegistration(registration);
+        setVersion(1);
+
+        checkRules();
+    }
+
+    private void checkRules() {
+        if (getRegistration() == null) {
+            throw new AcademicTreasuryDomainException("error.PendingDebtGenerationMark.registration.required");
+        }
+    }
+
+    public void delete() {
+        setRegistration(null);
+
+        super.deleteDomainObject();
+    }
+
+    // @formatter:off
+    /* ********
+     * SERVICES
+     * ********
+     */
+    // @formatter:on
+
+    public static void mark(final Registration registration) {
+        final PendingDebtGenerationMark mark = registration.getPendingDebtGenerationMark();
+
+        if (mark == null) {
+            new PendingDebtGenerationMark(registration);
+        } else {
+            mark.setVersion(mark.getVersion() + 1);
+        }
+    }
+
+    /*
+     * The registrations marked before the marks were versioned have no mark, which is the version zero
+     */
+    public static int versionOf(final Registration registration) {
+        final PendingDebtGenerationMark mark = registration.getPendingDebtGenerationMark();
+        return mark != null ? mark.getVersion() : 0;
+    }
+
+    public static void unmark(final Registration registration) {
+        if (registration.getPendingDebtGenerationMark() != null) {
+            registration.getPendingDebtGenerationMark().delete();
+        }
+    }
+
+}
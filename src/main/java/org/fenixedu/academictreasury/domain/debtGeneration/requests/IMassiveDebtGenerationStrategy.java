@@ -59,4 +59,24 @@ public interface IMassiveDebtGenerationStrategy<T> {
 
     public String dataDescription(final MassiveDebtGenerationRequestFile file);
 
+    /*
+     * Strategies able to process each row on its own are eligible for the
+     * chunked execution of MassiveDebtGenerationRequestFile
+     */
+    public default boolean isChunkedProcessingSupported() {
+        return false;
+    }
+
+    /*
+     * Only called by the chunked execution, so they must be overridden by the
+     * strategies that support it
+     */
+    public default void processRow(final MassiveDebtGenerationRequestFile file, final T row) {
+        throw new UnsupportedOperationException("Chunked processing is not supported by " + getClass().getName());
+    }
+
+    public default int rowNumOf(final T row) {
+        throw new UnsupportedOperationException("Chunked processing is not supported by " + getClass().getName());
+    }
+
 }
@@ -42,6 +42,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.fenixedu.academic.domain.ExecutionYear;
 import org.fenixedu.academictreasury.domain.emoluments.AcademicTax;
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
+import org.fenixedu.academictreasury.domain.requests.RequestRowsProcessor;
+import org.fenixedu.academictreasury.domain.settings.AcademicTreasurySettings;
 import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlanGroup;
 import org.fenixedu.bennu.io.domain.IGenericFile;
 import org.fenixedu.treasury.services.accesscontrol.TreasuryAccessControlAPI;
@@ -50,10 +52,17 @@ import org.fenixedu.treasury.services.integration.TreasuryPlataformDependentServ
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
 import pt.ist.fenixframework.Atomic;
+import pt.ist.fenixframework.Atomic.TxMode;
 import pt.ist.fenixframework.FenixFramework;
 
+import com.google.common.collect.Lists;
+
 import java.io.InputStream;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -127,11 +136,65 @@ public class MassiveDebtGenerationRequestFile extends MassiveDebtGenerationReque
         return getMassiveDebtGenerationType().implementation().dataDescription(this);
     }
 
-    @Atomic
     public void process() {
+        if (isChunkedProcessingActive()) {
+            processInChunks();
+        } else {
+            processInSingleTransaction();
+        }
+    }
+
+    @Atomic
+    public void processInSingleTransaction() {
         getMassiveDebtGenerationType().implementation().process(this);
     }
 
+    @Atomic(mode = TxMode.READ)
+    public boolean isChunkedProcessingActive() {
+        return AcademicTreasurySettings.getInstance().isMassiveDebtGenerationChunkedModeActive()
+                && getMassiveDebtGenerationType().implementation().isChunkedProcessingSupported();
+    }
+
+    /*
+     * Processes the rows in chunks with RequestRowsProcessor. The rows already processed
+     * in a previous execution are skipped, so a failed or interrupted execution is
+     * resumed by processing the file again
+     */
+    public void processInChunks() {
+        final AcademicTreasurySettings settings = AcademicTreasurySettings.getInstance();
+        final IMassiveDebtGenerationStrategy strategy = getMassiveDebtGenerationType().implementation();
+
+        final List<Object> pendingRows = readPendingRows(strategy);
+        final Map<Integer, MassiveDebtGenerationRequestFileRow> fileRows =
+                RequestRowsProcessor.registerRows(() -> MassiveDebtGenerationRequestFileRow.find(this), r -> r.getRowNum(),
+                        pendingRows.stream().map(row -> strategy.rowNumOf(row)).collect(Collectors.toList()),
+                        rowNum -> MassiveDebtGenerationRequestFileRow.create(this, rowNum));
+
+        final int poolSize =
+                settings.isMassiveDebtGenerationParallelExecutionActive() ? settings.getMassiveDebtGenerationPoolSize() : 1;
+
+        new RequestRowsProcessor<Object>("Massive debt generation request file " + getExternalId(),
+                row -> fileRows.get(strategy.rowNumOf(row)), row -> strategy.processRow(this, row), poolSize)
+                        .process(Lists.partition(pendingRows, settings.getMassiveDebtGenerationChunkSize()));
+
+        markAsProcessed();
+    }
+
+    @Atomic(mode = TxMode.READ)
+    private List<Object> readPendingRows(final IMassiveDebtGenerationStrategy strategy) {
+        final Set<Integer> processedRowNums =
+                RequestRowsProcessor.processedKeys(MassiveDebtGenerationRequestFileRow.find(this), r -> r.getRowNum());
+
+        final List<Object> rows = strategy.readExcel(getContent(), new MassiveDebtGenerationRequestFileBean(this));
+
+        return rows.stream().filter(row -> !processedRowNums.contains(strategy.rowNumOf(row))).collect(Collectors.toList());
+    }
+
+    @Atomic(mode = TxMode.WRITE)
+    private void markAsProcessed() {
+        setWhenProcessed(new DateTime());
+    }
+
     @Override
     public boolean isAccessible(final String username) {
         return TreasuryAccessControlAPI.isBackOfficeMember(username);
@@ -149,6 +212,8 @@ public class MassiveDebtGenerationRequestFile extends MassiveDebtGenerationReque
         setExecutionYear(null);
         setFinantialInstitution(null);
 
+        Lists.newArrayList(getMassiveDebtGenerationRequestFileRowsSet()).forEach(r -> r.delete());
+
         if (StringUtils.isNotEmpty(getFileDescriptorId())) {
             fileManager.delete(getFileDescriptorId());
         }
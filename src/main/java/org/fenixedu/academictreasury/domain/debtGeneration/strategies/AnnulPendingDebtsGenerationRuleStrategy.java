@@ -8,6 +8,8 @@ import org.fenixedu.academic.domain.DegreeCurricularPlan;
 import org.fenixedu.academic.domain.ExecutionYear;
 import org.fenixedu.academic.domain.StudentCurricularPlan;
 import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
+import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationMetrics;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationProcessingResult;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationRule;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationRuleEntry;
@@ -75,6 +77,11 @@ public class AnnulPendingDebtsGenerationRuleStrategy implements IAcademicDebtGen
         return false;
     }
 
+    @Override
+    public boolean isTimeDriven() {
+        return true;
+    }
+
     @Override
     @Atomic(mode = TxMode.READ)
     public List<AcademicDebtGenerationProcessingResult> process(final AcademicDebtGenerationRule rule) {
@@ -86,6 +93,7 @@ public class AnnulPendingDebtsGenerationRuleStrategy implements IAcademicDebtGen
         final List<AcademicDebtGenerationProcessingResult> resultList = Lists.newArrayList();
         for (final DegreeCurricularPlan degreeCurricularPlan : rule.getDegreeCurricularPlansSet()) {
             for (final Registration registration : getRegistrations(degreeCurricularPlan)) {
+                AcademicDebtGenerationMetrics.registerRegistrationVisit();
 
                 if (isToDiscard(rule, registration)) {
                     continue;
@@ -110,6 +118,12 @@ public class AnnulPendingDebtsGenerationRuleStrategy implements IAcademicDebtGen
         return resultList;
     }
 
+    @Override
+    public Set<Registration> findRegistrationsToProcess(final AcademicDebtGenerationRule rule) {
+        return rule.getDegreeCurricularPlansSet().stream().flatMap(dcp -> getRegistrations(dcp).stream())
+                .collect(Collectors.toSet());
+    }
+
     private Set<Registration> getRegistrations(DegreeCurricularPlan degreeCurricularPlan) {
         return degreeCurricularPlan.getStudentCurricularPlansSet().stream().map(s -> s.getRegistration())
                 .collect(Collectors.toSet());
@@ -166,6 +180,8 @@ public class AnnulPendingDebtsGenerationRuleStrategy implements IAcademicDebtGen
     @Atomic(mode = TxMode.WRITE)
     private void processAnnulmentOfDebtsForRegistration(final AcademicDebtGenerationRule rule, final Registration registration,
             final AcademicDebtGenerationProcessingResult processingResult) {
+        AcademicDebtGenerationMetrics.registerTransactionAttempt();
+
         LocalDate now = new LocalDate();
 
         // For each product try to grab the pending debit entries
@@ -199,6 +215,7 @@ public class AnnulPendingDebtsGenerationRuleStrategy implements IAcademicDebtGen
         debitEntries.forEach(d -> {
             d.annulOnlyThisDebitEntryAndInterestsInBusinessContext(AcademicTreasuryConstants
                     .academicTreasuryBundle("label.AnnulPendingDebtsGenerationRuleStrategy.annuled.automatically"));
+            PersonCustomer.markAcademicalActBlockingStateModified(d.getDebtAccount());
 
             processingResult.markRuleMadeUpdates();
             processingResult.appendRemarks(String.format("\t%s;%s;%s;%s;%s;\"%s\"", //
@@ -38,6 +38,7 @@ import org.fenixedu.academic.domain.ExecutionYear;
 import org.fenixedu.academic.domain.Person;
 import org.fenixedu.academic.domain.student.Registration;
 import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
+import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationMetrics;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationProcessingResult;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationRule;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationRuleEntry;
@@ -116,6 +117,11 @@ public class CloseDebtsStrategy implements IAcademicDebtGenerationRuleStrategy {
         return false;
     }
 
+    @Override
+    public boolean isTimeDriven() {
+        return true;
+    }
+
     @Override
     @Atomic(mode = TxMode.READ)
     public List<AcademicDebtGenerationProcessingResult> process(final AcademicDebtGenerationRule rule) {
@@ -127,6 +133,7 @@ public class CloseDebtsStrategy implements IAcademicDebtGenerationRuleStrategy {
         final List<AcademicDebtGenerationProcessingResult> resultList = Lists.newArrayList();
         for (final DegreeCurricularPlan degreeCurricularPlan : rule.getDegreeCurricularPlansSet()) {
             for (final Registration registration : getRegistrations(degreeCurricularPlan)) {
+                AcademicDebtGenerationMetrics.registerRegistrationVisit();
 
                 if (!rule.isRuleToApply(registration)) {
                     continue;
@@ -152,6 +159,12 @@ public class CloseDebtsStrategy implements IAcademicDebtGenerationRuleStrategy {
         return resultList;
     }
 
+    @Override
+    public Set<Registration> findRegistrationsToProcess(final AcademicDebtGenerationRule rule) {
+        return rule.getDegreeCurricularPlansSet().stream().flatMap(dcp -> getRegistrations(dcp).stream())
+                .collect(Collectors.toSet());
+    }
+
     private Set<Registration> getRegistrations(DegreeCurricularPlan degreeCurricularPlan) {
         return degreeCurricularPlan.getStudentCurricularPlansSet().stream().map(s -> s.getRegistration())
                 .collect(Collectors.toSet());
@@ -199,6 +212,8 @@ public class CloseDebtsStrategy implements IAcademicDebtGenerationRuleStrategy {
 
     @Atomic(mode = TxMode.WRITE)
     private void processDebtsForRegistration(AcademicDebtGenerationRule rule, Registration registration) {
+        AcademicDebtGenerationMetrics.registerTransactionAttempt();
+
         final Set<DebitEntry> debitEntriesSetForAlignment = Sets.newHashSet();
 
         for (final AcademicDebtGenerationRuleEntry entry : rule.getAcademicDebtGenerationRuleEntriesSet()) {
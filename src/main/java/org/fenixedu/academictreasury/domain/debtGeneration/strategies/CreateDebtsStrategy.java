@@ -32,6 +32,7 @@ import org.fenixedu.academic.domain.ExecutionYear;
 import org.fenixedu.academic.domain.StudentCurricularPlan;
 import org.fenixedu.academic.domain.student.Registration;
 import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
+import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationMetrics;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationProcessingResult;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationRule;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationRuleEntry;
@@ -126,6 +127,7 @@ public class CreateDebtsStrategy implements IAcademicDebtGenerationRuleStrategy
         final List<AcademicDebtGenerationProcessingResult> resultList = Lists.newArrayList();
         for (final DegreeCurricularPlan degreeCurricularPlan : rule.getDegreeCurricularPlansSet()) {
             for (final Registration registration : degreeCurricularPlan.getRegistrations()) {
+                AcademicDebtGenerationMetrics.registerRegistrationVisit();
 
                 if (isToDiscard(rule, registration)) {
                     continue;
@@ -231,6 +233,8 @@ public class CreateDebtsStrategy implements IAcademicDebtGenerationRuleStrategy
     @Atomic(mode = TxMode.WRITE)
     private void processDebtsForRegistration(final AcademicDebtGenerationRule rule, final Registration registration,
             AcademicDebtGenerationProcessingResult processingResult) {
+        AcademicDebtGenerationMetrics.registerTransactionAttempt();
+
 
         // For each product try to grab or create if requested
         final Set<DebitEntry> debitEntries = Sets.newHashSet();
@@ -40,6 +40,7 @@ import org.fenixedu.academic.domain.DegreeCurricularPlan;
 import org.fenixedu.academic.domain.ExecutionYear;
 import org.fenixedu.academic.domain.student.Registration;
 import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
+import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationMetrics;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationProcessingResult;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationRule;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationRuleEntry;
@@ -138,6 +139,7 @@ public class CreatePaymentReferencesStrategy implements IAcademicDebtGenerationR
         final List<AcademicDebtGenerationProcessingResult> resultList = Lists.newArrayList();
         for (final DegreeCurricularPlan degreeCurricularPlan : rule.getDegreeCurricularPlansSet()) {
             for (final Registration registration : degreeCurricularPlan.getRegistrations()) {
+                AcademicDebtGenerationMetrics.registerRegistrationVisit();
 
                 if (registration.getStudentCurricularPlan(rule.getExecutionYear()) == null) {
                     continue;
@@ -261,6 +263,9 @@ public class CreatePaymentReferencesStrategy implements IAcademicDebtGenerationR
                     "error.CreatePaymentReferencesStrategy.amount.is.less.than.minimumAmountForPaymentCode");
         }
 
+        // The payment request is created in the transaction of the payment platform, so only one attempt is counted
+        AcademicDebtGenerationMetrics.registerTransactionAttempt();
+
         DebtAccount debtAccount = debitEntries.iterator().next().getDebtAccount();
         ISibsPaymentCodePoolService.getDefaultDigitalPaymentPlatform(rule.getFinantialEntity())
                 .createSibsPaymentRequest(debtAccount, debitEntries, Collections.emptySet());
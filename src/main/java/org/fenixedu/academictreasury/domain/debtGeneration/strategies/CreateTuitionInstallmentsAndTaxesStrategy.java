@@ -16,6 +16,7 @@ import org.fenixedu.academic.domain.StudentCurricularPlan;
 import org.fenixedu.academic.domain.student.Registration;
 import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtEntriesAggregationInDebitNoteType;
+import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationMetrics;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationProcessingResult;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationRule;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationRuleEntry;
@@ -118,6 +119,7 @@ public class CreateTuitionInstallmentsAndTaxesStrategy implements IAcademicDebtG
         final List<AcademicDebtGenerationProcessingResult> resultList = Lists.newArrayList();
         for (final DegreeCurricularPlan degreeCurricularPlan : rule.getDegreeCurricularPlansSet()) {
             for (final Registration registration : getRegistrations(degreeCurricularPlan)) {
+                AcademicDebtGenerationMetrics.registerRegistrationVisit();
 
                 if (isToDiscard(rule, registration)) {
                     continue;
@@ -170,6 +172,8 @@ public class CreateTuitionInstallmentsAndTaxesStrategy implements IAcademicDebtG
 
     @Atomic(mode = TxMode.WRITE)
     private void processDebtsForRegistration(AcademicDebtGenerationRule rule, Registration registration) {
+        AcademicDebtGenerationMetrics.registerTransactionAttempt();
+
 
         // For each product try to grab or create if requested
         final Set<DebitEntry> debitEntries = Sets.newHashSet();
@@ -354,6 +358,12 @@ public class CreateTuitionInstallmentsAndTaxesStrategy implements IAcademicDebtG
         return findActiveDebitEntries(customer, t, product).findFirst().orElse(null);
     }
 
+    @Override
+    public Set<Registration> findRegistrationsToProcess(final AcademicDebtGenerationRule rule) {
+        return rule.getDegreeCurricularPlansSet().stream().flatMap(dcp -> getRegistrations(dcp).stream())
+                .collect(Collectors.toSet());
+    }
+
     private Set<Registration> getRegistrations(DegreeCurricularPlan dcp) {
         final Set<Registration> registrations = new HashSet<>();
 
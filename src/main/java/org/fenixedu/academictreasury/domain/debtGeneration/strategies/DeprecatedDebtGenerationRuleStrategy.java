@@ -35,7 +35,9 @@
  */
 package org.fenixedu.academictreasury.domain.debtGeneration.strategies;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.fenixedu.academic.domain.student.Registration;
 import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationProcessingResult;
@@ -108,4 +110,10 @@ public class DeprecatedDebtGenerationRuleStrategy implements IAcademicDebtGenera
         // This strategy is no longer in use and must be deleted
         return Lists.newArrayList();
     }
+
+    @Override
+    public Set<Registration> findRegistrationsToProcess(final AcademicDebtGenerationRule rule) {
+        // This strategy is no longer in use and must be deleted
+        return Collections.emptySet();
+    }
 }
@@ -43,6 +43,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Locale;
 
+import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
 import org.fenixedu.academictreasury.domain.debtGeneration.requests.IMassiveDebtGenerationStrategy;
 import org.fenixedu.academictreasury.domain.debtGeneration.requests.MassiveDebtGenerationRequestFile;
 import org.fenixedu.academictreasury.domain.debtGeneration.requests.MassiveDebtGenerationRequestFileBean;
@@ -91,23 +92,30 @@ public class AnullDebitEntriesStrategy implements IMassiveDebtGenerationStrategy
                 readExcel(file.getContent(), new MassiveDebtGenerationRequestFileBean(file));
 
         for (final MassiveDebtGenerationRowResult row : rows) {
-            try {
-                if(row.getDebitEntry().isAnnulled()) {
-                    continue;
-                }
-                
-                if (row.getDebitEntry().getFinantialDocument() != null) {
-                    ((DebitNote) row.getDebitEntry().getFinantialDocument()).anullDebitNoteWithCreditNote(
-                            academicTreasuryBundle("label.AnullDebitEntriesStrategy.anull.message", file.getReason()),
-                            false);
-                } else {
-                    row.getDebitEntry().annulDebitEntry(
-                            academicTreasuryBundle("label.AnullDebitEntriesStrategy.anull.message", file.getReason()));
-                }
-            } catch (final Exception e) {
-                throw new AcademicTreasuryDomainException("error.AnullDebitEntriesStrategy.on.anull.debit.entry",
-                        String.valueOf(row.getRowNum()), e.getLocalizedMessage());
+            processRow(file, row);
+        }
+    }
+
+    @Override
+    public void processRow(final MassiveDebtGenerationRequestFile file, final MassiveDebtGenerationRowResult row) {
+        try {
+            if(row.getDebitEntry().isAnnulled()) {
+                return;
+            }
+            
+            PersonCustomer.markAcademicalActBlockingStateModified(row.getDebitEntry().getDebtAccount());
+
+            if (row.getDebitEntry().getFinantialDocument() != null) {
+                ((DebitNote) row.getDebitEntry().getFinantialDocument()).anullDebitNoteWithCreditNote(
+                        academicTreasuryBundle("label.AnullDebitEntriesStrategy.anull.message", file.getReason()),
+                        false);
+            } else {
+                row.getDebitEntry().annulDebitEntry(
+                        academicTreasuryBundle("label.AnullDebitEntriesStrategy.anull.message", file.getReason()));
             }
+        } catch (final Exception e) {
+            throw new AcademicTreasuryDomainException("error.AnullDebitEntriesStrategy.on.anull.debit.entry",
+                    String.valueOf(row.getRowNum()), e.getLocalizedMessage());
         }
     }
 
@@ -101,43 +101,56 @@ public class TuitionAcademicTaxGenerationStrategy implements IMassiveDebtGenerat
         final List<MassiveDebtGenerationRowResult> rowResult = readExcel(file.getContent(), bean);
 
         for (final MassiveDebtGenerationRowResult row : rowResult) {
-            try {
-                if (file.getTuitionPaymentPlanGroup() != null) {
-                    boolean createdTuition =
-                            TuitionServices.createTuitionForRegistration(row.getStudentCurricularPlan().getRegistration(),
-                                    file.getExecutionYear(), file.getDebtDate(), true, row.getTuitionPaymentPlan(), true);
-
-                    if (!createdTuition) {
-                        final Integer registrationNumber = row.getStudentCurricularPlan().getRegistration().getNumber();
-                        final String studentName = row.getStudentCurricularPlan().getRegistration().getStudent().getName();
-                        final String tuitionPaymentPlanName = row.getTuitionPaymentPlan().getConditionsDescription();
-
-                        throw new AcademicTreasuryDomainException("error.MassiveDebtGenerationRequestFile.tuition.not.created",
-                                String.valueOf(registrationNumber), studentName, tuitionPaymentPlanName);
-                    }
-                } else if (file.getAcademicTax() != null) {
-                    boolean createdAcademicTax = AcademicTaxServices.createAcademicTaxForDefaultFinantialEntity(
-                            row.getStudentCurricularPlan().getRegistration(), file.getExecutionYear(), file.getAcademicTax(),
-                            file.getDebtDate(), true);
+            processRow(file, row);
+        }
 
-                    if (!createdAcademicTax) {
-                        final Integer registrationNumber = row.getStudentCurricularPlan().getRegistration().getNumber();
-                        final String studentName = row.getStudentCurricularPlan().getRegistration().getStudent().getName();
+        file.setWhenProcessed(new DateTime());
+    }
 
-                        throw new AcademicTreasuryDomainException(
-                                "error.MassiveDebtGenerationRequestFile.academicTax.not.created",
-                                String.valueOf(registrationNumber), studentName);
-                    }
+    @Override
+    public boolean isChunkedProcessingSupported() {
+        return true;
+    }
+
+    @Override
+    public void processRow(final MassiveDebtGenerationRequestFile file, final MassiveDebtGenerationRowResult row) {
+        try {
+            if (file.getTuitionPaymentPlanGroup() != null) {
+                boolean createdTuition =
+                        TuitionServices.createTuitionForRegistration(row.getStudentCurricularPlan().getRegistration(),
+                                file.getExecutionYear(), file.getDebtDate(), true, row.getTuitionPaymentPlan(), true);
+
+                if (!createdTuition) {
+                    final Integer registrationNumber = row.getStudentCurricularPlan().getRegistration().getNumber();
+                    final String studentName = row.getStudentCurricularPlan().getRegistration().getStudent().getName();
+                    final String tuitionPaymentPlanName = row.getTuitionPaymentPlan().getConditionsDescription();
+
+                    throw new AcademicTreasuryDomainException("error.MassiveDebtGenerationRequestFile.tuition.not.created",
+                            String.valueOf(registrationNumber), studentName, tuitionPaymentPlanName);
+                }
+            } else if (file.getAcademicTax() != null) {
+                boolean createdAcademicTax = AcademicTaxServices.createAcademicTaxForDefaultFinantialEntity(
+                        row.getStudentCurricularPlan().getRegistration(), file.getExecutionYear(), file.getAcademicTax(),
+                        file.getDebtDate(), true);
+
+                if (!createdAcademicTax) {
+                    final Integer registrationNumber = row.getStudentCurricularPlan().getRegistration().getNumber();
+                    final String studentName = row.getStudentCurricularPlan().getRegistration().getStudent().getName();
+
+                    throw new AcademicTreasuryDomainException("error.MassiveDebtGenerationRequestFile.academicTax.not.created",
+                            String.valueOf(registrationNumber), studentName);
                 }
-            } catch (Exception e) {
-                throw new AcademicTreasuryDomainException("error.MassiveDebtGenerationRequestFile.debt.not.created",
-                        String.valueOf(row.getRowNum()),
-                        String.valueOf(row.getStudentCurricularPlan().getRegistration().getNumber()),
-                        row.getStudentCurricularPlan().getRegistration().getPerson().getName(), e.getLocalizedMessage());
             }
+        } catch (Exception e) {
+            throw new AcademicTreasuryDomainException("error.MassiveDebtGenerationRequestFile.debt.not.created",
+                    String.valueOf(row.getRowNum()), String.valueOf(row.getStudentCurricularPlan().getRegistration().getNumber()),
+                    row.getStudentCurricularPlan().getRegistration().getPerson().getName(), e.getLocalizedMessage());
         }
+    }
 
-        file.setWhenProcessed(new DateTime());
+    @Override
+    public int rowNumOf(final MassiveDebtGenerationRowResult row) {
+        return row.getRowNum();
     }
 
     @Override
@@ -168,15 +181,13 @@ public class TuitionAcademicTaxGenerationStrategy implements IMassiveDebtGenerat
                 throw new AcademicTreasuryDomainException("error.MassiveDebtGenerationRequestFile.debtDate.required");
             }
 
-            List<List<String>> data = ExcelUtils.readExcel(new ByteArrayInputStream(content), MAX_COLS);
-
             final List<MassiveDebtGenerationRowResult> result = Lists.newArrayList();
 
-            int rowNum = 0;
-            for (final List<String> row : data) {
-                rowNum++;
+            // The rows are validated as they are read, the workbook is never fully loaded
+            ExcelUtils.streamExcel(new ByteArrayInputStream(content), MAX_COLS, (rowIndex, row) -> {
+                final int rowNum = rowIndex + 1;
                 if (rowNum == 1) {
-                    continue;
+                    return;
                 }
 
                 if (Strings.isNullOrEmpty(row.get(STUDENT_NUMBER_IDX))) {
@@ -261,7 +272,7 @@ public class TuitionAcademicTaxGenerationStrategy implements IMassiveDebtGenerat
                     throw new RuntimeException("error");
                 }
 
-            }
+            });
 
             return result;
 
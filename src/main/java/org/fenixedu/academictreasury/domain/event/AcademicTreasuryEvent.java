@@ -53,6 +53,7 @@ import org.fenixedu.academic.domain.treasury.IAcademicTreasuryEvent;
 import org.fenixedu.academic.domain.treasury.IAcademicTreasuryEventPayment;
 import org.fenixedu.academic.domain.treasury.IAcademicTreasuryTarget;
 import org.fenixedu.academic.domain.treasury.IPaymentReferenceCode;
+import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
 import org.fenixedu.academictreasury.domain.emoluments.AcademicTax;
 import org.fenixedu.academictreasury.domain.emoluments.ServiceRequestMapEntry;
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
@@ -86,6 +87,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import pt.ist.fenixframework.Atomic;
+import pt.ist.fenixframework.FenixFramework;
 import pt.ist.fenixframework.core.AbstractDomainObject;
 
 public class AcademicTreasuryEvent extends AcademicTreasuryEvent_Base
@@ -162,6 +164,12 @@ public class AcademicTreasuryEvent extends AcademicTreasuryEvent_Base
 
         super.init(finantialEntity, product, nameForAcademicServiceRequest(product, iTreasuryServiceRequest));
 
+        // The relation with the service request is one to one, setting it would
+        // silently detach the existing event
+        if (findUnique(iTreasuryServiceRequest).isPresent()) {
+            throw new AcademicTreasuryDomainException("error.AcademicTreasuryEvent.event.for.academicServiceRequest.duplicate");
+        }
+
         setPerson(person);
         setITreasuryServiceRequest(iTreasuryServiceRequest);
         setPropertiesJsonMap(org.fenixedu.treasury.util.TreasuryConstants.propertiesMapToJson(fillPropertiesMap()));
@@ -1087,7 +1095,7 @@ public class AcademicTreasuryEvent extends AcademicTreasuryEvent_Base
     }
 
     public static Stream<? extends AcademicTreasuryEvent> find(ExecutionYear executionYear) {
-        return findAll().filter(e -> e.getExecutionYear() == executionYear);
+        return executionYear.getAcademicTreasuryEventSet().stream();
     }
 
     public static Stream<? extends AcademicTreasuryEvent> find(Registration registration, ExecutionYear executionYear) {
@@ -1102,8 +1110,15 @@ public class AcademicTreasuryEvent extends AcademicTreasuryEvent_Base
             throw new RuntimeException("wrong call");
         }
 
-        return findAll().filter(e -> e.getITreasuryServiceRequest() != null && e.getITreasuryServiceRequest().getExternalId()
-                .equals(iTreasuryServiceRequest.getExternalId()));
+        // The service request may be given by a wrapper, so it is read by the external id
+        final Object academicServiceRequest = iTreasuryServiceRequest instanceof AcademicServiceRequest ? iTreasuryServiceRequest :
+                FenixFramework.getDomainObject(iTreasuryServiceRequest.getExternalId());
+
+        if (!(academicServiceRequest instanceof AcademicServiceRequest)) {
+            return Stream.empty();
+        }
+
+        return Stream.ofNullable(((AcademicServiceRequest) academicServiceRequest).getAcademicTreasuryEvent());
     }
 
     public static Optional<? extends AcademicTreasuryEvent> findUnique(ITreasuryServiceRequest iTreasuryServiceRequest) {
@@ -1375,30 +1390,52 @@ public class AcademicTreasuryEvent extends AcademicTreasuryEvent_Base
 
         CALCULATED_AMOUNT_TYPE("45");
 
+        private static final Map<String, AcademicTreasuryEventKeys> KEYS_BY_CODE = new HashMap<>();
+
+        static {
+            for (final AcademicTreasuryEventKeys key : values()) {
+                KEYS_BY_CODE.put(key.code, key);
+            }
+        }
+
         private String code;
 
+        /*
+         * Description in the default language, which is the key of the properties maps
+         */
+        private volatile String description;
+
         private AcademicTreasuryEventKeys(final String code) {
             this.code = code;
         }
 
+        public String getCode() {
+            return code;
+        }
+
         public LocalizedString getDescriptionI18N() {
             return AcademicTreasuryConstants.academicTreasuryBundleI18N(
                     "label." + AcademicTreasuryEventKeys.class.getSimpleName() + "." + name());
         }
 
-        public static String valueFor(final DebitEntry debitEntry, final AcademicTreasuryEventKeys key) {
-            if (debitEntry.getPropertiesMap() == null) {
-                return null;
+        public String getDescription() {
+            if (description == null) {
+                description = getDescriptionI18N().getContent(AcademicTreasuryConstants.DEFAULT_LANGUAGE);
             }
 
-            // HACK Should retrieve with code and not with the description
-            final LocalizedString descriptionI18N = key.getDescriptionI18N();
-            if (debitEntry.getPropertiesMap()
-                    .containsKey(descriptionI18N.getContent(AcademicTreasuryConstants.DEFAULT_LANGUAGE))) {
-                return debitEntry.getPropertiesMap().get(descriptionI18N.getContent(AcademicTreasuryConstants.DEFAULT_LANGUAGE));
-            }
+            return description;
+        }
 
-            return null;
+        public static AcademicTreasuryEventKeys findByCode(final String code) {
+            return KEYS_BY_CODE.get(code);
+        }
+
+        /*
+         * To read several keys of the same debit entry use AcademicTreasuryEventProperties
+         * directly, which reads the properties map once
+         */
+        public static String valueFor(final DebitEntry debitEntry, final AcademicTreasuryEventKeys key) {
+            return AcademicTreasuryEventProperties.of(debitEntry).get(key);
         }
     }
 
@@ -1589,6 +1626,9 @@ public class AcademicTreasuryEvent extends AcademicTreasuryEvent_Base
 
     @Override
     public void invokeSettlementCallbacks(SettlementNote settlementNote) {
+        // Called by the treasury module when the settlements of the debit entries of this event change
+        PersonCustomer.markAcademicalActBlockingStateModified(settlementNote.getDebtAccount());
+
         if (isForTreasuryEventTarget()) {
             ((IAcademicTreasuryTarget) getTreasuryEventTarget()).handleSettlement(this);
         }
@@ -1693,6 +1733,10 @@ public class AcademicTreasuryEvent extends AcademicTreasuryEvent_Base
     }
 
     @Override
+    /*
+     * Without degree or execution year the values are read from the properties map,
+     * which is keyed by the descriptions of the keys and not by the keys themselves
+     */
     public String getERPIntegrationMetadata() {
         String degreeCode = "";
         String executionYear = "";
@@ -1700,15 +1744,17 @@ public class AcademicTreasuryEvent extends AcademicTreasuryEvent_Base
         if (this.getDegree() != null) {
             degreeCode = this.getDegree().getCode();
         } else {
-            if (this.getPropertiesMap().containsKey(AcademicTreasuryEventKeys.DEGREE_CODE)) {
-                degreeCode = this.getPropertiesMap().get(AcademicTreasuryEventKeys.DEGREE_CODE);
+            final AcademicTreasuryEventProperties properties = AcademicTreasuryEventProperties.of(this);
+            if (properties.containsKey(AcademicTreasuryEventKeys.DEGREE_CODE)) {
+                degreeCode = properties.get(AcademicTreasuryEventKeys.DEGREE_CODE);
             }
         }
         if (this.getExecutionYear() != null) {
             executionYear = this.getExecutionYear().getQualifiedName();
         } else {
-            if (this.getPropertiesMap().containsKey(AcademicTreasuryEventKeys.EXECUTION_YEAR)) {
-                executionYear = this.getPropertiesMap().get(AcademicTreasuryEventKeys.EXECUTION_YEAR);
+            final AcademicTreasuryEventProperties properties = AcademicTreasuryEventProperties.of(this);
+            if (properties.containsKey(AcademicTreasuryEventKeys.EXECUTION_YEAR)) {
+                executionYear = properties.get(AcademicTreasuryEventKeys.EXECUTION_YEAR);
             }
         }
         return "{\"" + AcademicTreasuryEventKeys.DEGREE_CODE + "\":\"" + degreeCode + "\",\"" + AcademicTreasuryEventKeys.EXECUTION_YEAR + "\":\"" + executionYear + "\"}";
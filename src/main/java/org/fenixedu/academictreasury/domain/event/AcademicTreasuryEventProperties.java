@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.domain.event;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEvent.AcademicTreasuryEventKeys;
+import org.fenixedu.treasury.domain.document.DebitEntry;
+import org.fenixedu.treasury.domain.event.TreasuryEvent;
+
+/**
+ * Read only view of the properties map of a debit entry or treasury event, keyed
+ * by {@link AcademicTreasuryEventKeys}.
+ * 
+ * The properties maps are persisted with the description of the keys in the default
+ * language, which is what the users see. The view resolves each entry of the map to
+ * its key by the code or by that description, so it reads the existing maps and also
+ * maps written with the codes of the keys (see {@link #toCodeKeyedMap()}).
+ * 
+ * The properties map is only read and resolved on the first lookup, and only once.
+ * Entries that are not academic treasury event keys, like the custom calculator
+ * descriptions, are ignored.
+ */
+public class AcademicTreasuryEventProperties {
+
+    private static volatile Map<String, AcademicTreasuryEventKeys> keysByDescription;
+
+    private final Supplier<Map<String, String>> propertiesMapSupplier;
+    private Map<AcademicTreasuryEventKeys, String> values;
+
+    private AcademicTreasuryEventProperties(final Supplier<Map<String, String>> propertiesMapSupplier) {
+        this.propertiesMapSupplier = propertiesMapSupplier;
+    }
+
+    public String get(final AcademicTreasuryEventKeys key) {
+        return values().get(key);
+    }
+
+    public boolean containsKey(final AcademicTreasuryEventKeys key) {
+        return values().containsKey(key);
+    }
+
+    /*
+     * The properties keyed by the code of the keys, in the order of the keys
+     */
+    public Map<String, String> toCodeKeyedMap() {
+        final Map<String, String> result = new LinkedHashMap<>();
+        values().forEach((k, v) -> result.put(k.getCode(), v));
+
+        return result;
+    }
+
+    private Map<AcademicTreasuryEventKeys, String> values() {
+        if (values == null) {
+            values = resolve(propertiesMapSupplier.get());
+        }
+
+        return values;
+    }
+
+    private static Map<AcademicTreasuryEventKeys, String> resolve(final Map<String, String> propertiesMap) {
+        if (propertiesMap == null || propertiesMap.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        final Map<AcademicTreasuryEventKeys, String> result = new EnumMap<>(AcademicTreasuryEventKeys.class);
+        for (final Map.Entry<String, String> entry : propertiesMap.entrySet()) {
+            AcademicTreasuryEventKeys key = AcademicTreasuryEventKeys.findByCode(entry.getKey());
+
+            if (key == null) {
+                key = keysByDescription().get(entry.getKey());
+            }
+
+            if (key != null) {
+                result.put(key, entry.getValue());
+            }
+        }
+
+        return result;
+    }
+
+    /*
+     * The descriptions come from the resource bundle, so they are resolved once
+     */
+    private static Map<String, AcademicTreasuryEventKeys> keysByDescription() {
+        if (keysByDescription == null) {
+            final Map<String, AcademicTreasuryEventKeys> result = new HashMap<>();
+            for (final AcademicTreasuryEventKeys key : AcademicTreasuryEventKeys.values()) {
+                result.putIfAbsent(key.getDescription(), key);
+            }
+
+            keysByDescription = result;
+        }
+
+        return keysByDescription;
+    }
+
+    // @formatter:off
+    /* ********
+     * SERVICES
+     * ********
+     */
+    // @formatter:on
+
+    public static AcademicTreasuryEventProperties of(final DebitEntry debitEntry) {
+        return new AcademicTreasuryEventProperties(debitEntry::getPropertiesMap);
+    }
+
+    public static AcademicTreasuryEventProperties of(final TreasuryEvent treasuryEvent) {
+        return new AcademicTreasuryEventProperties(treasuryEvent::getPropertiesMap);
+    }
+
+}
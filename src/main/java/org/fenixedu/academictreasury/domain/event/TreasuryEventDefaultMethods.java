@@ -38,6 +38,7 @@ package org.fenixedu.academictreasury.domain.event;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.fenixedu.academic.domain.treasury.AcademicTreasuryEventPayment;
@@ -47,6 +48,7 @@ import org.fenixedu.academic.domain.treasury.IPaymentReferenceCode;
 import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
 import org.fenixedu.academictreasury.domain.settings.AcademicTreasurySettings;
 import org.fenixedu.treasury.domain.FinantialInstitution;
+import org.fenixedu.treasury.domain.Product;
 import org.fenixedu.treasury.domain.document.DebitEntry;
 import org.fenixedu.treasury.domain.event.TreasuryEvent;
 import org.fenixedu.treasury.domain.exemption.TreasuryExemption;
@@ -112,6 +114,8 @@ public class TreasuryEventDefaultMethods {
 
     public static void annulDebts(final TreasuryEvent event, final String reason) {
         event.annulAllDebitEntries(reason);
+        DebitEntry.find(event).map(d -> d.getDebtAccount()).distinct()
+                .forEach(PersonCustomer::markAcademicalActBlockingStateModified);
     }
 
     public static String formatMoney(final TreasuryEvent event, final BigDecimal moneyValue) {
@@ -155,7 +159,9 @@ public class TreasuryEventDefaultMethods {
          * and ask if it is in debt
          */
 
-        return DebitEntry.find(treasuryEvent).filter(l -> PersonCustomer.isDebitEntryBlockingAcademicalActs(l, when)).count() > 0;
+        final Set<Product> academicalActBlockingProducts = PersonCustomer.academicalActBlockingProducts();
+        return DebitEntry.find(treasuryEvent)
+                .anyMatch(l -> PersonCustomer.isDebitEntryBlockingAcademicalActs(l, when, academicalActBlockingProducts));
     }
 
     public static boolean isCharged(final TreasuryEvent event) {
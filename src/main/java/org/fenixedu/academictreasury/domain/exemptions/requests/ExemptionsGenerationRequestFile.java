@@ -39,8 +39,11 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.stream.Collectors;
@@ -59,7 +62,10 @@ import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
 import org.fenixedu.academictreasury.domain.emoluments.AcademicTax;
 import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEvent;
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
+import org.fenixedu.academictreasury.domain.requests.RequestRowsProcessor;
+import org.fenixedu.academictreasury.domain.settings.AcademicTreasurySettings;
 import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlanGroup;
+import org.fenixedu.academictreasury.services.debtReports.DebtReportService;
 import org.fenixedu.academictreasury.util.ExcelUtils;
 import org.fenixedu.bennu.io.domain.IGenericFile;
 import org.fenixedu.treasury.domain.Product;
@@ -76,9 +82,11 @@ import org.joda.time.DateTime;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import pt.ist.fenixframework.Atomic;
+import pt.ist.fenixframework.Atomic.TxMode;
 import pt.ist.fenixframework.FenixFramework;
 
 public class ExemptionsGenerationRequestFile extends ExemptionsGenerationRequestFile_Base implements IGenericFile {
@@ -139,30 +147,21 @@ public class ExemptionsGenerationRequestFile extends ExemptionsGenerationRequest
         return TreasuryAccessControlAPI.isBackOfficeMember(username);
     }
 
-    @Atomic
     public void process() {
+        if (AcademicTreasurySettings.getInstance().isExemptionsGenerationChunkedModeActive()) {
+            processInChunks();
+        } else {
+            processInSingleTransaction();
+        }
+    }
+
+    @Atomic
+    public void processInSingleTransaction() {
         List<ExemptionsGenerationRowResult> rowResult =
                 ExemptionsGenerationRequestFile.readExcel(getTreasuryExemptionType(), getContent());
 
         for (final ExemptionsGenerationRowResult row : rowResult) {
-            try {
-                if (row.isTreasuryEventForRegistrationTuition()) {
-                    for (int installmentOrder : row.getTuitionInstallmentsOrderSet()) {
-                        DebitEntry tuitionDebitEntry = row.getTuitionDebitEntry(installmentOrder);
-                        if (tuitionDebitEntry != null) {
-                            TreasuryExemption.create(getTreasuryExemptionType(), row.getReason(),
-                                    row.getDiscountAmount(installmentOrder), tuitionDebitEntry);
-                        }
-                    }
-                } else {
-                    TreasuryExemption.create(getTreasuryExemptionType(), row.getReason(), row.getDiscountAmount(),
-                            row.getDebitEntry());
-                }
-            } catch (Exception e) {
-                throw new AcademicTreasuryDomainException("error.ExemptionsGenerationRequestFile.unable.to.create.exemption",
-                        String.valueOf(row.getRowNum()), String.valueOf(row.getRegistration().getNumber()),
-                        row.getRegistration().getStudent().getName(), e.getLocalizedMessage());
-            }
+            processRow(row);
         }
 
         final DateTime now = new DateTime();
@@ -170,6 +169,77 @@ public class ExemptionsGenerationRequestFile extends ExemptionsGenerationRequest
         setWhenProcessed(now);
     }
 
+    /*
+     * Applies the exemptions in chunks of rows with RequestRowsProcessor. The rows of a
+     * registration are kept in the same chunk. The rows already processed in a previous
+     * execution are skipped, so processing the file again resumes a failed or
+     * interrupted execution without exempting a debit entry twice
+     */
+    public void processInChunks() {
+        final int chunkSize = AcademicTreasurySettings.getInstance().getExemptionsGenerationChunkSize();
+
+        final List<ExemptionsGenerationRowResult> pendingRows = readPendingRows();
+        final Map<Integer, ExemptionsGenerationRequestFileRow> fileRows =
+                RequestRowsProcessor.registerRows(() -> ExemptionsGenerationRequestFileRow.find(this), r -> r.getRowNum(),
+                        pendingRows.stream().map(r -> r.getRowNum()).collect(Collectors.toList()),
+                        rowNum -> ExemptionsGenerationRequestFileRow.create(this, rowNum));
+
+        final List<List<ExemptionsGenerationRowResult>> chunks = Lists.newArrayList();
+        List<ExemptionsGenerationRowResult> currentChunk = Lists.newArrayList();
+        for (final List<ExemptionsGenerationRowResult> registrationRows : pendingRows.stream()
+                .collect(Collectors.groupingBy(r -> r.getRegistration(), LinkedHashMap::new, Collectors.toList())).values()) {
+            if (!currentChunk.isEmpty() && currentChunk.size() + registrationRows.size() > chunkSize) {
+                chunks.add(currentChunk);
+                currentChunk = Lists.newArrayList();
+            }
+
+            currentChunk.addAll(registrationRows);
+        }
+
+        if (!currentChunk.isEmpty()) {
+            chunks.add(currentChunk);
+        }
+
+        new RequestRowsProcessor<ExemptionsGenerationRowResult>("Exemptions generation request file " + getExternalId(),
+                row -> fileRows.get(row.getRowNum()), row -> processRow(row), 1).process(chunks);
+
+        markAsProcessed();
+    }
+
+    @Atomic(mode = TxMode.READ)
+    private List<ExemptionsGenerationRowResult> readPendingRows() {
+        final Set<Integer> processedRowNums =
+                RequestRowsProcessor.processedKeys(ExemptionsGenerationRequestFileRow.find(this), r -> r.getRowNum());
+
+        return readExcel(getTreasuryExemptionType(), getContent(), processedRowNums);
+    }
+
+    @Atomic(mode = TxMode.WRITE)
+    private void markAsProcessed() {
+        setWhenProcessed(new DateTime());
+    }
+
+    private void processRow(final ExemptionsGenerationRowResult row) {
+        try {
+            if (row.isTreasuryEventForRegistrationTuition()) {
+                for (int installmentOrder : row.getTuitionInstallmentsOrderSet()) {
+                    DebitEntry tuitionDebitEntry = row.getTuitionDebitEntry(installmentOrder);
+                    if (tuitionDebitEntry != null) {
+                        DebtReportService.indexTreasuryExemption(TreasuryExemption.create(getTreasuryExemptionType(),
+                                row.getReason(), row.getDiscountAmount(installmentOrder), tuitionDebitEntry));
+                    }
+                }
+            } else {
+                DebtReportService.indexTreasuryExemption(TreasuryExemption.create(getTreasuryExemptionType(),
+                        row.getReason(), row.getDiscountAmount(), row.getDebitEntry()));
+            }
+        } catch (Exception e) {
+            throw new AcademicTreasuryDomainException("error.ExemptionsGenerationRequestFile.unable.to.create.exemption",
+                    String.valueOf(row.getRowNum()), String.valueOf(row.getRegistration().getNumber()),
+                    row.getRegistration().getStudent().getName(), e.getLocalizedMessage());
+        }
+    }
+
     @Override
     public void delete() {
         final ITreasuryPlatformDependentServices services = TreasuryPlataformDependentServicesFactory.implementation();
@@ -178,6 +248,8 @@ public class ExemptionsGenerationRequestFile extends ExemptionsGenerationRequest
         setDomainRoot(null);
         setTreasuryExemptionType(null);
 
+        Lists.newArrayList(getExemptionsGenerationRequestFileRowsSet()).forEach(r -> r.delete());
+
         if(StringUtils.isNotEmpty(getFileDescriptorId())) {
             fileManager.delete(getFileDescriptorId());
         }
@@ -208,21 +280,33 @@ public class ExemptionsGenerationRequestFile extends ExemptionsGenerationRequest
 
     public static List<ExemptionsGenerationRowResult> readExcel(final TreasuryExemptionType treasuryExemptionType,
             byte[] content) {
+        return readExcel(treasuryExemptionType, content, Collections.emptySet());
+    }
+
+    /*
+     * The rows to skip are neither resolved nor validated, as the rows already processed
+     * would fail the validation of the amount to exempt against the exempted debit entries
+     */
+    public static List<ExemptionsGenerationRowResult> readExcel(final TreasuryExemptionType treasuryExemptionType,
+            byte[] content, final Set<Integer> rowNumsToSkip) {
         try {
 
             if (treasuryExemptionType == null) {
                 throw new AcademicTreasuryDomainException("error.ExemptionsGenerationRequestFile.treasuryExemptionType.required");
             }
 
-            final List<List<String>> data = ExcelUtils.readExcel(new ByteArrayInputStream(content), MAX_COLS);
-
             final List<ExemptionsGenerationRowResult> result = Lists.newArrayList();
 
-            int rowNum = 0;
-            for (final List<String> row : data) {
-                rowNum++;
-                if (rowNum == 1) {
-                    continue;
+            // Rows of the same student share the registration, the debt account and the
+            // debit entries of the treasury event, so they are resolved once for the file
+            final Map<String, Registration> registrationsByKey = Maps.newHashMap();
+            final Map<Person, PersonCustomer> personCustomersByPerson = Maps.newHashMap();
+            final Map<TreasuryEvent, Map<Integer, Set<DebitEntry>>> tuitionDebitEntriesByEvent = Maps.newHashMap();
+
+            ExcelUtils.streamExcel(new ByteArrayInputStream(content), MAX_COLS, (rowIndex, row) -> {
+                final int rowNum = rowIndex + 1;
+                if (rowNum == 1 || rowNumsToSkip.contains(rowNum)) {
+                    return;
                 }
 
                 final String studentNumberValue = trim(row.get(STUDENT_NUMBER_IDX));
@@ -235,7 +319,7 @@ public class ExemptionsGenerationRequestFile extends ExemptionsGenerationRequest
                 final String amountToExemptValue = trim(row.get(AMOUNT_TO_EXEMPT_IDX));
 
                 if (Strings.isNullOrEmpty(studentNumberValue)) {
-                    continue;
+                    return;
                 }
 
                 if (Strings.isNullOrEmpty(studentNameValue)) {
@@ -290,7 +374,14 @@ public class ExemptionsGenerationRequestFile extends ExemptionsGenerationRequest
                             String.valueOf(rowNum), executionYearValue);
                 }
 
-                final Registration registration = findActiveRegistration(executionYear, registrationNumber, degree, null, rowNum);
+                final String registrationKey = String.format("%d:%s:%s", registrationNumber, degree.getExternalId(),
+                        executionYear.getExternalId());
+                if (!registrationsByKey.containsKey(registrationKey)) {
+                    registrationsByKey.put(registrationKey,
+                            findActiveRegistration(executionYear, registrationNumber, degree, null, rowNum));
+                }
+
+                final Registration registration = registrationsByKey.get(registrationKey);
 
                 if (registration == null) {
                     throw new AcademicTreasuryDomainException("error.ExemptionsGenerationRequestFile.registration.not.found",
@@ -303,22 +394,27 @@ public class ExemptionsGenerationRequestFile extends ExemptionsGenerationRequest
                 }
 
                 final Person person = registration.getPerson();
-                final String addressFiscalCountryCode = PersonCustomer.addressCountryCode(person);
-                final String fiscalNumber = PersonCustomer.fiscalNumber(person);
-                if (Strings.isNullOrEmpty(addressFiscalCountryCode) || Strings.isNullOrEmpty(fiscalNumber)) {
-                    throw new AcademicTreasuryDomainException("error.PersonCustomer.fiscalInformation.required");
-                }
+                if (!personCustomersByPerson.containsKey(person)) {
+                    final String addressFiscalCountryCode = PersonCustomer.addressCountryCode(person);
+                    final String fiscalNumber = PersonCustomer.fiscalNumber(person);
+                    if (Strings.isNullOrEmpty(addressFiscalCountryCode) || Strings.isNullOrEmpty(fiscalNumber)) {
+                        throw new AcademicTreasuryDomainException("error.PersonCustomer.fiscalInformation.required");
+                    }
 
-                if (!PersonCustomer.findUnique(person, addressFiscalCountryCode, fiscalNumber).isPresent()) {
-                    throw new AcademicTreasuryDomainException("error.ExemptionsGenerationRequestFile.student.has.no.debt.account",
-                            String.valueOf(rowNum), studentNumberValue);
-                }
+                    final PersonCustomer personCustomer =
+                            PersonCustomer.findUnique(person, addressFiscalCountryCode, fiscalNumber).orElse(null);
+                    if (personCustomer == null) {
+                        throw new AcademicTreasuryDomainException(
+                                "error.ExemptionsGenerationRequestFile.student.has.no.debt.account", String.valueOf(rowNum),
+                                studentNumberValue);
+                    }
 
-                final PersonCustomer personCustomer =
-                        PersonCustomer.findUnique(person, addressFiscalCountryCode, fiscalNumber).get();
-                if (!personCustomer.isActive()) {
-                    throw new AcademicTreasuryDomainException("error.PersonCustomer.not.active", addressFiscalCountryCode,
-                            fiscalNumber);
+                    if (!personCustomer.isActive()) {
+                        throw new AcademicTreasuryDomainException("error.PersonCustomer.not.active", addressFiscalCountryCode,
+                                fiscalNumber);
+                    }
+
+                    personCustomersByPerson.put(person, personCustomer);
                 }
 
                 TreasuryEvent treasuryEvent = null;
@@ -392,7 +488,11 @@ public class ExemptionsGenerationRequestFile extends ExemptionsGenerationRequest
                 }
 
                 final SortedSet<Integer> tuitionInstallmentsOrderSet = Sets.newTreeSet();
+                final Map<Integer, DebitEntry> tuitionDebitEntriesByInstallmentOrder = Maps.newHashMap();
                 if (isTreasuryEventForRegistrationTuition(treasuryEvent)) {
+                    final Map<Integer, Set<DebitEntry>> tuitionDebitEntries = tuitionDebitEntriesByEvent.computeIfAbsent(
+                            treasuryEvent, e -> DebitEntry.findActive(e).collect(Collectors.groupingBy(
+                                    d -> d.getProduct().getTuitionInstallmentOrder(), Collectors.<DebitEntry> toSet())));
 
                     for (int i = TUITION_INSTALLMENT_ORDER_IDX; i < row.size(); i++) {
                         final String installmentOrderValue = trim(row.get(i));
@@ -419,9 +519,8 @@ public class ExemptionsGenerationRequestFile extends ExemptionsGenerationRequest
                         {
                             final int installmentOrderFinal = installmentOrder;
                             if (installmentOrderFinal > 0) {
-                                final Set<? extends DebitEntry> debitEntriesSet = DebitEntry.findActive(treasuryEvent)
-                                        .filter(d -> d.getProduct().getTuitionInstallmentOrder() == installmentOrderFinal)
-                                        .collect(Collectors.<DebitEntry> toSet());
+                                final Set<DebitEntry> debitEntriesSet =
+                                        tuitionDebitEntries.getOrDefault(installmentOrderFinal, Collections.emptySet());
 
                                 if (debitEntriesSet.size() > 1) {
                                     throw new AcademicTreasuryDomainException(
@@ -442,6 +541,7 @@ public class ExemptionsGenerationRequestFile extends ExemptionsGenerationRequest
                                 }
 
                                 tuitionInstallmentsOrderSet.add(installmentOrder);
+                                tuitionDebitEntriesByInstallmentOrder.put(installmentOrder, tuitionDebitEntry);
                             }
                         }
                     }
@@ -481,12 +581,13 @@ public class ExemptionsGenerationRequestFile extends ExemptionsGenerationRequest
                 }
 
                 final ExemptionsGenerationRowResult rowResult = new ExemptionsGenerationRowResult(rowNum, registration,
-                        executionYear, treasuryEvent, debitEntry, amountToExempt, reasonValue, tuitionInstallmentsOrderSet);
+                        executionYear, treasuryEvent, debitEntry, amountToExempt, reasonValue, tuitionInstallmentsOrderSet,
+                        tuitionDebitEntriesByInstallmentOrder);
 
                 result.add(rowResult);
-            }
+            });
 
-            if (result.isEmpty()) {
+            if (result.isEmpty() && rowNumsToSkip.isEmpty()) {
                 throw new AcademicTreasuryDomainException("error.ExemptionsGenerationRequestFile.result.empty");
             }
 
@@ -36,6 +36,8 @@
 package org.fenixedu.academictreasury.domain.exemptions.requests;
 
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.stream.Collectors;
@@ -60,6 +62,8 @@ public class ExemptionsGenerationRowResult {
 
     private SortedSet<Integer> tuitionInstallmentsOrderSet;
 
+    private Map<Integer, DebitEntry> tuitionDebitEntriesByInstallmentOrder;
+
     public ExemptionsGenerationRowResult(final int rowNum, final Registration registration, final ExecutionYear executionYear,
             final TreasuryEvent treasuryEvent, final DebitEntry debitEntry, final BigDecimal amountToExempt,
             final String reason, final SortedSet<Integer> tuitionInstallmentsOrderSet) {
@@ -72,6 +76,21 @@ public class ExemptionsGenerationRowResult {
         this.netAmountToExempt = amountToExempt;
         this.reason = reason;
         this.tuitionInstallmentsOrderSet = tuitionInstallmentsOrderSet;
+        this.tuitionDebitEntriesByInstallmentOrder = Collections.emptyMap();
+    }
+
+    /*
+     * The tuition debit entries resolved while reading the file are reused
+     * when the exemptions are created, as long as they are still active
+     */
+    public ExemptionsGenerationRowResult(final int rowNum, final Registration registration, final ExecutionYear executionYear,
+            final TreasuryEvent treasuryEvent, final DebitEntry debitEntry, final BigDecimal amountToExempt,
+            final String reason, final SortedSet<Integer> tuitionInstallmentsOrderSet,
+            final Map<Integer, DebitEntry> tuitionDebitEntriesByInstallmentOrder) {
+        this(rowNum, registration, executionYear, treasuryEvent, debitEntry, amountToExempt, reason,
+                tuitionInstallmentsOrderSet);
+
+        this.tuitionDebitEntriesByInstallmentOrder = tuitionDebitEntriesByInstallmentOrder;
     }
 
     public BigDecimal getDiscountAmount() {
@@ -97,6 +116,11 @@ public class ExemptionsGenerationRowResult {
     }
     
     public DebitEntry getTuitionDebitEntry(final int tuitionInstallmentOrder) {
+        final DebitEntry resolvedDebitEntry = tuitionDebitEntriesByInstallmentOrder.get(tuitionInstallmentOrder);
+        if (resolvedDebitEntry != null && !resolvedDebitEntry.isAnnulled()) {
+            return resolvedDebitEntry;
+        }
+
         final Set<? extends DebitEntry> debitEntriesSet = DebitEntry.findActive(getTreasuryEvent())
                 .filter(d -> d.getProduct().getTuitionInstallmentOrder() == tuitionInstallmentOrder).collect(Collectors.<DebitEntry> toSet());
 
@@ -47,7 +47,9 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -77,15 +79,20 @@ import org.fenixedu.treasury.util.streaming.spreadsheet.Spreadsheet;
 import org.fenixedu.treasury.util.streaming.spreadsheet.SpreadsheetRow;
 import org.joda.time.DateTime;
 import org.joda.time.LocalDate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 import pt.ist.fenixframework.Atomic;
 import pt.ist.fenixframework.Atomic.TxMode;
 
 public class ERPTuitionInfo extends ERPTuitionInfo_Base {
 
+    private static final Logger logger = LoggerFactory.getLogger(ERPTuitionInfo.class);
+
     public static Comparator<ERPTuitionInfo> COMPARE_BY_CREATION_DATE = new Comparator<ERPTuitionInfo>() {
 
         @Override
@@ -240,7 +247,15 @@ public class ERPTuitionInfo extends ERPTuitionInfo_Base {
         return getLastSuccessfulSentERPTuitionInfo() != null;
     }
 
+    /*
+     * Called outside any transaction, as the exporter sends the document between
+     * its own read and write transactions
+     */
     public void export() {
+        if (FenixFramework.getTransaction() != null) {
+            throw new AcademicTreasuryDomainException("error.ERPTuitionInfo.export.within.transaction");
+        }
+
         ERPTuitionInfoSettings.getInstance().exporter().export(this);
     }
 
@@ -405,43 +420,182 @@ public class ERPTuitionInfo extends ERPTuitionInfo_Base {
             personCustomerPredicate = t -> true;
         }
 
-        List<Callable<ERPTuitionInfo>> callablesList = Lists.newArrayList();
-
         final List<ERPTuitionInfoCalculationReportEntry> reportEntries = Collections.synchronizedList(Lists.newArrayList());
-        for (final ExecutionYear executionYear : ERPTuitionInfoSettings.getInstance().getActiveExecutionYearsSet()) {
-            for (final ERPTuitionInfoType type : ERPTuitionInfoType.findActiveForExecutionYear(executionYear)
-                    .collect(Collectors.toSet())) {
 
-                if (!erpTuitionInfoTypeFilterPredicate.test(type)) {
-                    continue;
-                }
+        final int poolSize = ERPTuitionInfoSettings.getInstance().getEffectiveCalculationPoolSize();
+        final ExecutorService executor = Executors.newFixedThreadPool(poolSize);
 
-                for (final PersonCustomer customer : PersonCustomer.findAll().collect(Collectors.<PersonCustomer> toSet())) {
-                    if (customer.getAssociatedPerson().getStudent() == null) {
-                        continue;
-                    }
+        // Bounds the tasks waiting in the executor, the customers of the next types
+        // are only read when the previous ones are being processed
+        final Semaphore permits = new Semaphore(poolSize * 2);
+        final TuitionInfoCalculationProgress progress = new TuitionInfoCalculationProgress();
 
-                    if (!personCustomerPredicate.test(customer)) {
-                        continue;
+        final List<String> notSubmittedCustomerIds = Lists.newArrayList();
+        try {
+            final List<String> typeIds = findTuitionInfoCalculationTypeIds(erpTuitionInfoTypeFilterPredicate);
+            for (int t = 0; t < typeIds.size(); t++) {
+                final String typeId = typeIds.get(t);
+                final List<String> customerIds = findTuitionInfoCalculationCustomerIds(typeId, personCustomerPredicate);
+                logger.info(String.format("ERP tuition info calculation: %d customers for type %s", customerIds.size(), typeId));
+
+                for (int i = 0; i < customerIds.size(); i++) {
+                    try {
+                        permits.acquire();
+                    } catch (final InterruptedException e) {
+                        // The remaining customers of this type and all customers of the
+                        // types not yet read are reported as not processed
+                        addNotProcessedReportEntries(customerIds.subList(i, customerIds.size()), typeId, reportEntries,
+                                notSubmittedCustomerIds);
+                        for (final String remainingTypeId : typeIds.subList(t + 1, typeIds.size())) {
+                            addNotProcessedReportEntries(
+                                    findTuitionInfoCalculationCustomerIds(remainingTypeId, personCustomerPredicate),
+                                    remainingTypeId, reportEntries, notSubmittedCustomerIds);
+                        }
+
+                        throw e;
                     }
 
-                    callablesList.add(createTuitionInformationCallable(customer, type, reportEntries));
+                    progress.submitted.incrementAndGet();
+                    executor.execute(new TuitionInfoCalculationTask(customerIds.get(i), typeId, reportEntries, permits, progress));
                 }
             }
-        }
 
-        try {
-            final ExecutorService executor = Executors.newSingleThreadExecutor();
-            executor.invokeAll(callablesList);
             executor.shutdown();
-            executor.awaitTermination(3, TimeUnit.HOURS);
-
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                progress.log();
+            }
         } catch (final InterruptedException e) {
+            logger.warn(String.format("ERP tuition info calculation interrupted, %d customers were not submitted",
+                    notSubmittedCustomerIds.size()));
+            Thread.currentThread().interrupt();
         } finally {
+            // The work not done is reported instead of being silently dropped
+            if (!executor.isTerminated()) {
+                for (final Runnable runnable : executor.shutdownNow()) {
+                    final TuitionInfoCalculationTask task = (TuitionInfoCalculationTask) runnable;
+                    reportEntries.add(notProcessedReportEntry(task.customerId, task.erpTuitionInfoTypeId));
+                }
+            }
+
+            progress.log();
             writeSpreadsheet(reportEntries);
         }
     }
 
+    @Atomic(mode = TxMode.READ)
+    private static List<String> findTuitionInfoCalculationTypeIds(
+            final Predicate<ERPTuitionInfoType> erpTuitionInfoTypeFilterPredicate) {
+        final List<String> result = Lists.newArrayList();
+        for (final ExecutionYear executionYear : ERPTuitionInfoSettings.getInstance().getActiveExecutionYearsSet()) {
+            ERPTuitionInfoType.findActiveForExecutionYear(executionYear).filter(erpTuitionInfoTypeFilterPredicate::test)
+                    .forEach(t -> result.add(t.getExternalId()));
+        }
+
+        return result;
+    }
+
+    /*
+     * Only the customers of persons with academic treasury events in the execution year
+     * of the type may have tuition amounts. The customers with previous information of
+     * the type are also included, as their amount may have dropped to zero
+     */
+    @Atomic(mode = TxMode.READ)
+    private static List<String> findTuitionInfoCalculationCustomerIds(final String erpTuitionInfoTypeId,
+            final Predicate<PersonCustomer> personCustomerPredicate) {
+        final ERPTuitionInfoType type = FenixFramework.getDomainObject(erpTuitionInfoTypeId);
+
+        final Set<PersonCustomer> customers = Sets.newHashSet();
+        for (final AcademicTreasuryEvent event : type.getExecutionYear().getAcademicTreasuryEventSet()) {
+            if (event.getPerson() == null) {
+                continue;
+            }
+
+            if (event.getPerson().getPersonCustomer() != null) {
+                customers.add(event.getPerson().getPersonCustomer());
+            }
+
+            customers.addAll(event.getPerson().getInactivePersonCustomersSet());
+        }
+
+        type.getErpTuitionInfosSet().stream().filter(i -> i.getCustomer() instanceof PersonCustomer)
+                .forEach(i -> customers.add((PersonCustomer) i.getCustomer()));
+
+        return customers.stream() //
+                .filter(c -> c.getAssociatedPerson() != null && c.getAssociatedPerson().getStudent() != null) //
+                .filter(personCustomerPredicate) //
+                .map(c -> c.getExternalId()) //
+                .collect(Collectors.toList());
+    }
+
+    private static void addNotProcessedReportEntries(final List<String> customerIds, final String erpTuitionInfoTypeId,
+            final List<ERPTuitionInfoCalculationReportEntry> reportEntries, final List<String> notSubmittedCustomerIds) {
+        customerIds.forEach(id -> reportEntries.add(notProcessedReportEntry(id, erpTuitionInfoTypeId)));
+        notSubmittedCustomerIds.addAll(customerIds);
+    }
+
+    private static ERPTuitionInfoCalculationReportEntry notProcessedReportEntry(final String customerId,
+            final String erpTuitionInfoTypeId) {
+        final ERPTuitionInfoCalculationReportEntry reportEntry = new ERPTuitionInfoCalculationReportEntry();
+
+        reportEntry.executionDate = new DateTime().toString(AcademicTreasuryConstants.DATE_TIME_FORMAT_YYYY_MM_DD);
+        reportEntry.errorOccured = Boolean.TRUE.toString();
+        reportEntry.errorDescription =
+                academicTreasuryBundle("error.ERPTuitionInfo.calculation.not.processed", customerId, erpTuitionInfoTypeId);
+
+        return reportEntry;
+    }
+
+    private static class TuitionInfoCalculationTask implements Runnable {
+
+        private final String customerId;
+        private final String erpTuitionInfoTypeId;
+        private final List<ERPTuitionInfoCalculationReportEntry> reportEntries;
+        private final Semaphore permits;
+        private final TuitionInfoCalculationProgress progress;
+
+        private TuitionInfoCalculationTask(final String customerId, final String erpTuitionInfoTypeId,
+                final List<ERPTuitionInfoCalculationReportEntry> reportEntries, final Semaphore permits,
+                final TuitionInfoCalculationProgress progress) {
+            this.customerId = customerId;
+            this.erpTuitionInfoTypeId = erpTuitionInfoTypeId;
+            this.reportEntries = reportEntries;
+            this.permits = permits;
+            this.progress = progress;
+        }
+
+        @Override
+        public void run() {
+            try {
+                createTuitionInformationCallable(customerId, erpTuitionInfoTypeId, reportEntries).call();
+                progress.created.incrementAndGet();
+            } catch (final ERPTuitionInfoNoDifferencesException e) {
+                progress.unchanged.incrementAndGet();
+            } catch (final Throwable e) {
+                // Already described in the report entry
+                progress.failed.incrementAndGet();
+            } finally {
+                permits.release();
+
+                if (progress.completed.incrementAndGet() % 1000 == 0) {
+                    progress.log();
+                }
+            }
+        }
+    }
+
+    private static class TuitionInfoCalculationProgress {
+        private final AtomicInteger submitted = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger created = new AtomicInteger();
+        private final AtomicInteger unchanged = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        private void log() {
+            logger.info(String.format("ERP tuition info calculation: %d of %d processed (%d created, %d unchanged, %d failed)",
+                    completed.get(), submitted.get(), created.get(), unchanged.get(), failed.get()));
+        }
+    }
+
     private static void writeSpreadsheet(final List<ERPTuitionInfoCalculationReportEntry> reportEntries) {
         final Spreadsheet spreadsheet = new Spreadsheet() {
 
@@ -499,19 +653,42 @@ public class ERPTuitionInfo extends ERPTuitionInfo_Base {
             erpTuitionInfoPredicate = t -> true;
         }
 
-        final List<Callable<ERPTuitionInfo>> callablesList = Lists.newArrayList();
+        final ERPTuitionInfoSettings settings = ERPTuitionInfoSettings.getInstance();
+        final List<ERPTuitionInfo> erpTuitionInfos = Lists.newArrayList();
         for (ERPTuitionInfo info : ERPTuitionInfo.findPendingToExport().collect(Collectors.toSet())) {
             if (erpTuitionInfoPredicate.test(info)) {
+                erpTuitionInfos.add(info);
+            }
+        }
+
+        if (settings.isBatchExportationActive()) {
+            final List<Callable<List<ERPTuitionInfo>>> callablesList = Lists.newArrayList();
+            for (final List<ERPTuitionInfo> batch : Lists.partition(erpTuitionInfos,
+                    settings.getEffectiveExportationBatchSize())) {
+                callablesList.add(exportTuitionInformationBatchCallable(batch));
+            }
+
+            invokeExportationCallables(callablesList, settings.getEffectiveExportationPoolSize());
+        } else {
+            final List<Callable<ERPTuitionInfo>> callablesList = Lists.newArrayList();
+            for (final ERPTuitionInfo info : erpTuitionInfos) {
                 callablesList.add(exportTuitionInformationCallable(info));
             }
+
+            invokeExportationCallables(callablesList, settings.getEffectiveExportationPoolSize());
         }
+    }
 
+    private static <T> void invokeExportationCallables(final List<Callable<T>> callablesList, final int poolSize) {
+        final ExecutorService executor = Executors.newFixedThreadPool(poolSize);
         try {
-            final ExecutorService executor = Executors.newSingleThreadExecutor();
             executor.invokeAll(callablesList);
             executor.shutdown();
             executor.awaitTermination(3, TimeUnit.HOURS);
         } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
         }
     }
 
@@ -565,10 +742,12 @@ public class ERPTuitionInfo extends ERPTuitionInfo_Base {
 
     protected static Callable<ERPTuitionInfo> createTuitionInformationCallable(final PersonCustomer customer,
             final ERPTuitionInfoType type, final List<ERPTuitionInfoCalculationReportEntry> reportEntries) {
-        return new Callable<ERPTuitionInfo>() {
+        return createTuitionInformationCallable(customer.getExternalId(), type.getExternalId(), reportEntries);
+    }
 
-            private String customerId = customer.getExternalId();
-            private String erpTuitionInfoTypeId = type.getExternalId();
+    private static Callable<ERPTuitionInfo> createTuitionInformationCallable(final String customerId,
+            final String erpTuitionInfoTypeId, final List<ERPTuitionInfoCalculationReportEntry> reportEntries) {
+        return new Callable<ERPTuitionInfo>() {
 
             @Override
             @Atomic(mode = TxMode.READ)
@@ -649,8 +828,11 @@ public class ERPTuitionInfo extends ERPTuitionInfo_Base {
         return new Callable<ERPTuitionInfo>() {
             private String erpTuitionInfoId = erpTuitionInfo.getExternalId();
 
+            /*
+             * Not atomic, the exporter opens its own transactions so
+             * the remote call is not made inside a transaction
+             */
             @Override
-            @Atomic(mode = TxMode.READ)
             public ERPTuitionInfo call() throws Exception {
                 final ERPTuitionInfo info = FenixFramework.getDomainObject(erpTuitionInfoId);
 
@@ -660,4 +842,25 @@ public class ERPTuitionInfo extends ERPTuitionInfo_Base {
         };
     }
 
+    protected static Callable<List<ERPTuitionInfo>> exportTuitionInformationBatchCallable(
+            final List<ERPTuitionInfo> erpTuitionInfos) {
+        if (!ERPTuitionInfoSettings.getInstance().isExportationActive()) {
+            throw new AcademicTreasuryDomainException("error.ERPTuitionInfo.exportation.active.disabled");
+        }
+
+        return new Callable<List<ERPTuitionInfo>>() {
+            private List<String> erpTuitionInfoIds =
+                    erpTuitionInfos.stream().map(i -> i.getExternalId()).collect(Collectors.toList());
+
+            @Override
+            public List<ERPTuitionInfo> call() throws Exception {
+                final List<ERPTuitionInfo> infos = erpTuitionInfoIds.stream()
+                        .map(id -> FenixFramework.<ERPTuitionInfo> getDomainObject(id)).collect(Collectors.toList());
+
+                ERPTuitionInfoSettings.getInstance().exporter().export(infos);
+                return infos;
+            }
+        };
+    }
+
 }
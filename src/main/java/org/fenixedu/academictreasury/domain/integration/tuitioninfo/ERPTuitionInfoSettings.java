@@ -56,6 +56,31 @@ public class ERPTuitionInfoSettings extends ERPTuitionInfoSettings_Base {
         return getExportationActive();
     }
     
+    /*
+     * Number of customers whose tuition information is calculated concurrently
+     */
+    public int getEffectiveCalculationPoolSize() {
+        return getCalculationPoolSize() != null && getCalculationPoolSize() > 1 ? getCalculationPoolSize() : 1;
+    }
+    
+    /*
+     * Number of tuition infos exported concurrently to the ERP
+     */
+    public int getEffectiveExportationPoolSize() {
+        return getExportationPoolSize() != null && getExportationPoolSize() > 1 ? getExportationPoolSize() : 1;
+    }
+    
+    /*
+     * Number of tuition infos sent in the same audit file
+     */
+    public int getEffectiveExportationBatchSize() {
+        return getExportationBatchSize() != null && getExportationBatchSize() > 1 ? getExportationBatchSize() : 1;
+    }
+    
+    public boolean isBatchExportationActive() {
+        return getEffectiveExportationBatchSize() > 1;
+    }
+    
     @Atomic
     public void edit(final Series series) {
         setSeries(series);
@@ -37,7 +37,18 @@ package org.fenixedu.academictreasury.domain.integration.tuitioninfo;
 
 import org.fenixedu.academictreasury.domain.integration.ERPTuitionInfoExportOperation;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 public interface IERPTuitionInfoExporter {
     
     public ERPTuitionInfoExportOperation export(final ERPTuitionInfo erpTuitionInfo);
+
+    /*
+     * Exports several tuition infos, by default one at a time. Exporters
+     * may send them together, returning one operation for each exported
+     */
+    public default List<ERPTuitionInfoExportOperation> export(final List<ERPTuitionInfo> erpTuitionInfos) {
+        return erpTuitionInfos.stream().map(i -> export(i)).collect(Collectors.toList());
+    }
 }
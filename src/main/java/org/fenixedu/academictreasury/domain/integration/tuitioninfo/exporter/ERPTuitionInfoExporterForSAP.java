@@ -36,6 +36,7 @@
 package org.fenixedu.academictreasury.domain.integration.tuitioninfo.exporter;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -43,6 +44,7 @@ import com.google.gson.reflect.TypeToken;
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
 import org.fenixedu.academictreasury.domain.integration.ERPTuitionInfoExportOperation;
 import org.fenixedu.academictreasury.domain.integration.tuitioninfo.ERPTuitionInfo;
+import org.fenixedu.academictreasury.domain.integration.tuitioninfo.ERPTuitionInfoSettings;
 import org.fenixedu.academictreasury.domain.integration.tuitioninfo.ERPTuitionInfoType;
 import org.fenixedu.academictreasury.domain.integration.tuitioninfo.IERPTuitionInfoExporter;
 import org.fenixedu.academictreasury.domain.settings.AcademicTreasurySettings;
@@ -67,10 +69,12 @@ import org.fenixedu.treasury.services.integration.erp.dto.DocumentsInformationIn
 import org.fenixedu.treasury.services.integration.erp.dto.DocumentsInformationOutput;
 import org.fenixedu.treasury.services.integration.erp.sap.SAPExporter;
 import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pt.ist.fenixframework.Atomic;
 import pt.ist.fenixframework.Atomic.TxMode;
+import pt.ist.fenixframework.FenixFramework;
 
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
@@ -84,6 +88,7 @@ import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.net.MalformedURLException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.fenixedu.academictreasury.util.AcademicTreasuryConstants.academicTreasuryBundle;
 import static org.fenixedu.treasury.util.TreasuryConstants.treasuryBundle;
@@ -92,56 +97,244 @@ public class ERPTuitionInfoExporterForSAP implements IERPTuitionInfoExporter {
 
     private static Logger logger = LoggerFactory.getLogger(SAPExporter.class);
 
-    @Atomic(mode = TxMode.WRITE)
-    public ERPTuitionInfoExportOperation export(final ERPTuitionInfo erpTuitionInfo) {
-        final FinantialInstitution institution = erpTuitionInfo.getDocumentNumberSeries().getSeries().getFinantialInstitution();
+    /*
+     * Tuition infos being exported in this server, to avoid sending the same document
+     * twice when the exportation is triggered concurrently. This is a guard of a single
+     * server only, an exportation triggered at the same time in other server is not seen
+     */
+    private static final Set<String> EXPORTATIONS_IN_PROGRESS = ConcurrentHashMap.newKeySet();
 
-        if (!institution.getErpIntegrationConfiguration()
-                .isIntegratedDocumentsExportationEnabled() && !erpTuitionInfo.isPendingToExport()) {
-            throw new AcademicTreasuryDomainException("error.ERPTuitionInfoExporterForSAP.export.not.pending");
+    private static final Gson GSON = new GsonBuilder().create();
+
+    private static final Type STRING_STRING_MAP_TYPE = new TypeToken<Map<String, String>>() {
+    }.getType();
+
+    /*
+     * The factory lookup goes through the JAXP service loading, it is done once per thread
+     * instead of once per converted document
+     */
+    private static final ThreadLocal<DatatypeFactory> DATATYPE_FACTORY = new ThreadLocal<>();
+
+    private static DatatypeFactory dataTypeFactory() throws DatatypeConfigurationException {
+        if (DATATYPE_FACTORY.get() == null) {
+            DATATYPE_FACTORY.set(DatatypeFactory.newInstance());
         }
 
-        final IntegrationOperationLogBean logBean = new IntegrationOperationLogBean();
+        return DATATYPE_FACTORY.get();
+    }
+
+    /*
+     * The exportation is split in three phases, so the remote call does not hold
+     * a write transaction: the SAF-T content is built in a read transaction, sent
+     * without any transaction and the result is registered in a short write transaction
+     */
+    public ERPTuitionInfoExportOperation export(final ERPTuitionInfo erpTuitionInfo) {
+        checkNoActiveTransaction();
+
+        final String erpTuitionInfoId = erpTuitionInfo.getExternalId();
+
+        if (!EXPORTATIONS_IN_PROGRESS.add(erpTuitionInfoId)) {
+            throw new AcademicTreasuryDomainException("error.ERPTuitionInfoExporterForSAP.export.in.progress");
+        }
 
-        final ERPTuitionInfoExportOperation operation =
-                createSaftExportOperation(erpTuitionInfo, null, institution, new DateTime());
         try {
-            logBean.appendIntegrationLog(
-                    academicTreasuryBundle("label.ERPTuitionInfoExporterForSAP.starting.finantialdocuments.integration"));
+            final IntegrationOperationLogBean logBean = new IntegrationOperationLogBean();
+            final DateTime when = new DateTime();
 
-            final String xml = generateERPFile(erpTuitionInfo);
+            checkPendingToExport(erpTuitionInfoId);
 
-            logBean.appendIntegrationLog(academicTreasuryBundle("label.ERPTuitionInfoExporterForSAP.erp.xml.content.generated"));
+            final List<String> erpTuitionInfoIds = Collections.singletonList(erpTuitionInfoId);
+
+            ERPTuitionInfoExportation exportation = null;
+            DocumentsInformationOutput output = null;
+            Throwable error = null;
+            try {
+                exportation = prepareExportation(erpTuitionInfoIds, logBean);
+                output = sendDocumentsInformationToIntegration(exportation, logBean);
+            } catch (final Exception e) {
+                error = e;
+            }
 
-            writeContentToExportOperation(xml, operation);
+            return registerExportationResult(erpTuitionInfoIds, exportation, output, error, logBean, when).get(0);
+        } finally {
+            EXPORTATIONS_IN_PROGRESS.remove(erpTuitionInfoId);
+        }
+    }
 
-            boolean success = sendDocumentsInformationToIntegration(operation);
+    /*
+     * Exports the tuition infos in audit files with up to exportationBatchSize documents,
+     * each one sent in a single request. A batch whose audit file exceeds the maximum
+     * size to export online is split until it fits
+     */
+    @Override
+    public List<ERPTuitionInfoExportOperation> export(final List<ERPTuitionInfo> erpTuitionInfos) {
+        checkNoActiveTransaction();
+
+        final List<String> erpTuitionInfoIds = Lists.newArrayList();
+        for (final ERPTuitionInfo erpTuitionInfo : erpTuitionInfos) {
+            // Tuition infos being exported by other thread are left to that exportation
+            if (EXPORTATIONS_IN_PROGRESS.add(erpTuitionInfo.getExternalId())) {
+                erpTuitionInfoIds.add(erpTuitionInfo.getExternalId());
+            }
+        }
 
-            operation.setSuccess(success);
-            logBean.appendIntegrationLog(
-                    academicTreasuryBundle("label.ERPTuitionInfoExporterForSAP.finished.finantialdocuments.integration"));
+        try {
+            final List<ERPTuitionInfoExportOperation> result = Lists.newArrayList();
+            for (final List<String> batch : readExportationBatches(erpTuitionInfoIds)) {
+                result.addAll(exportBatch(batch));
+            }
 
-        } catch (Exception ex) {
-            writeError(operation, logBean, ex);
+            return result;
         } finally {
-            operation.appendLog(logBean.getErrorLog(), logBean.getIntegrationLog(), logBean.getSoapInboundMessage(),
-                    logBean.getSoapOutboundMessage());
+            EXPORTATIONS_IN_PROGRESS.removeAll(erpTuitionInfoIds);
         }
+    }
 
-        return operation;
+    /*
+     * Within a transaction of the caller the phases would be flattened in it: the
+     * documents would be sent before the first write and sent again when a read
+     * transaction is restarted as a write one to register the result
+     */
+    private static void checkNoActiveTransaction() {
+        if (FenixFramework.getTransaction() != null) {
+            throw new AcademicTreasuryDomainException("error.ERPTuitionInfoExporterForSAP.export.within.transaction");
+        }
     }
 
-    private String generateERPFile(final ERPTuitionInfo erpTuitionInfo) {
+    @Atomic(mode = TxMode.READ)
+    private List<List<String>> readExportationBatches(final List<String> erpTuitionInfoIds) {
+        final int batchSize = ERPTuitionInfoSettings.getInstance().getEffectiveExportationBatchSize();
+
+        // An audit file has the header of one finantial institution
+        final Map<FinantialInstitution, List<String>> idsByInstitution = new LinkedHashMap<>();
+        for (final String erpTuitionInfoId : erpTuitionInfoIds) {
+            final ERPTuitionInfo erpTuitionInfo = FenixFramework.getDomainObject(erpTuitionInfoId);
+            final FinantialInstitution institution =
+                    erpTuitionInfo.getDocumentNumberSeries().getSeries().getFinantialInstitution();
+
+            if (!institution.getErpIntegrationConfiguration()
+                    .isIntegratedDocumentsExportationEnabled() && !erpTuitionInfo.isPendingToExport()) {
+                continue;
+            }
+
+            idsByInstitution.computeIfAbsent(institution, i -> Lists.newArrayList()).add(erpTuitionInfoId);
+        }
+
+        final List<List<String>> batches = Lists.newArrayList();
+        for (final List<String> ids : idsByInstitution.values()) {
+            batches.addAll(Lists.partition(ids, batchSize));
+        }
+
+        return batches;
+    }
+
+    private List<ERPTuitionInfoExportOperation> exportBatch(final List<String> erpTuitionInfoIds) {
+        final IntegrationOperationLogBean logBean = new IntegrationOperationLogBean();
+        final DateTime when = new DateTime();
+
+        ERPTuitionInfoExportation exportation = null;
+        DocumentsInformationOutput output = null;
+        Throwable error = null;
+        try {
+            exportation = prepareExportation(erpTuitionInfoIds, logBean);
+
+            if (erpTuitionInfoIds.size() > 1 && exportation.configurationActive && exportation.content != null
+                    && exportation.content.length > exportation.maxSizeBytesToExportOnline) {
+                final int half = erpTuitionInfoIds.size() / 2;
+
+                final List<ERPTuitionInfoExportOperation> result =
+                        Lists.newArrayList(exportBatch(erpTuitionInfoIds.subList(0, half)));
+                result.addAll(exportBatch(erpTuitionInfoIds.subList(half, erpTuitionInfoIds.size())));
+
+                return result;
+            }
+
+            output = sendDocumentsInformationToIntegration(exportation, logBean);
+        } catch (final Exception e) {
+            error = e;
+        }
+
+        return registerExportationResult(erpTuitionInfoIds, exportation, output, error, logBean, when);
+    }
+
+    /*
+     * Content to send and the integration configuration, read once in the
+     * first phase and used by the send without any transaction
+     */
+    private static class ERPTuitionInfoExportation {
+        private final String xml;
+        private final byte[] content;
+        private final FinantialInstitution institution;
+        private final IERPExternalService service;
+        private final boolean configurationActive;
+        private final long maxSizeBytesToExportOnline;
+
+        private ERPTuitionInfoExportation(final String xml, final byte[] content, final FinantialInstitution institution,
+                final IERPExternalService service, final boolean configurationActive, final long maxSizeBytesToExportOnline) {
+            this.xml = xml;
+            this.content = content;
+            this.institution = institution;
+            this.service = service;
+            this.configurationActive = configurationActive;
+            this.maxSizeBytesToExportOnline = maxSizeBytesToExportOnline;
+        }
+    }
+
+    @Atomic(mode = TxMode.READ)
+    private void checkPendingToExport(final String erpTuitionInfoId) {
+        final ERPTuitionInfo erpTuitionInfo = FenixFramework.getDomainObject(erpTuitionInfoId);
         final FinantialInstitution institution = erpTuitionInfo.getDocumentNumberSeries().getSeries().getFinantialInstitution();
 
+        if (!institution.getErpIntegrationConfiguration()
+                .isIntegratedDocumentsExportationEnabled() && !erpTuitionInfo.isPendingToExport()) {
+            throw new AcademicTreasuryDomainException("error.ERPTuitionInfoExporterForSAP.export.not.pending");
+        }
+    }
+
+    @Atomic(mode = TxMode.READ)
+    private ERPTuitionInfoExportation prepareExportation(final List<String> erpTuitionInfoIds,
+            final IntegrationOperationLogBean logBean) throws MalformedURLException {
+        final List<ERPTuitionInfo> erpTuitionInfos = Lists.newArrayList();
+        for (final String erpTuitionInfoId : erpTuitionInfoIds) {
+            erpTuitionInfos.add(FenixFramework.getDomainObject(erpTuitionInfoId));
+        }
+
+        final FinantialInstitution institution =
+                erpTuitionInfos.get(0).getDocumentNumberSeries().getSeries().getFinantialInstitution();
+
+        logBean.appendIntegrationLog(
+                academicTreasuryBundle("label.ERPTuitionInfoExporterForSAP.starting.finantialdocuments.integration"));
+
+        final String xml = generateERPFile(erpTuitionInfos);
+
+        logBean.appendIntegrationLog(academicTreasuryBundle("label.ERPTuitionInfoExporterForSAP.erp.xml.content.generated"));
+
+        final ERPConfiguration erpIntegrationConfiguration = institution.getErpIntegrationConfiguration();
+        if (erpIntegrationConfiguration == null) {
+            throw new TreasuryDomainException("error.ERPExporter.invalid.erp.configuration");
+        }
+
+        final boolean configurationActive = erpIntegrationConfiguration.getActive();
+
+        return new ERPTuitionInfoExportation(xml, toBytes(xml), institution,
+                configurationActive ? erpIntegrationConfiguration.getERPExternalServiceImplementation() : null,
+                configurationActive, erpIntegrationConfiguration.getMaxSizeBytesToExportOnline());
+    }
+
+    private String generateERPFile(final List<ERPTuitionInfo> erpTuitionInfos) {
+        final FinantialInstitution institution =
+                erpTuitionInfos.get(0).getDocumentNumberSeries().getSeries().getFinantialInstitution();
+
         // Build SAFT-AuditFile
         AuditFile auditFile = new AuditFile();
         // ThreadInformation information = 
         // SaftThreadRegister.retrieveCurrentThreadInformation();
 
         // Build SAFT-HEADER (Chapter 1 in AuditFile)
-        Header header = this.createSAFTHeader(erpTuitionInfo.getBeginDate().toDateTimeAtStartOfDay(),
-                erpTuitionInfo.getEndDate().toDateTimeAtStartOfDay(), institution, SAPExporter.ERP_HEADER_VERSION_1_00_00);
+        final LocalDate beginDate = erpTuitionInfos.stream().map(i -> i.getBeginDate()).min(Comparator.naturalOrder()).get();
+        final LocalDate endDate = erpTuitionInfos.stream().map(i -> i.getEndDate()).max(Comparator.naturalOrder()).get();
+        Header header = this.createSAFTHeader(beginDate.toDateTimeAtStartOfDay(), endDate.toDateTimeAtStartOfDay(), institution,
+                SAPExporter.ERP_HEADER_VERSION_1_00_00);
 
         // SetHeader
         auditFile.setHeader(header);
@@ -192,18 +385,20 @@ public class ERPTuitionInfoExporterForSAP implements IERPTuitionInfoExporter {
         invoices.setTotalCredit(BigDecimal.ZERO);
         invoices.setTotalDebit(BigDecimal.ZERO);
 
-        final WorkDocument workDocument = convertToSAFTWorkDocument(erpTuitionInfo, customerMap, productMap);
-        workingDocuments.getWorkDocument().add(workDocument);
+        for (final ERPTuitionInfo erpTuitionInfo : erpTuitionInfos) {
+            final WorkDocument workDocument = convertToSAFTWorkDocument(erpTuitionInfo, customerMap, productMap);
+            workingDocuments.getWorkDocument().add(workDocument);
 
-        if (erpTuitionInfo.isDebit()) {
-            totalDebitOfWorkingDocuments = totalDebitOfWorkingDocuments.add(workDocument.getDocumentTotals().getNetTotal());
-        } else if (erpTuitionInfo.isCredit()) {
-            totalCreditOfWorkingDocuments =
-                    totalCreditOfWorkingDocuments.add(workDocument.getDocumentTotals().getNetTotal()).abs();
-        }
+            if (erpTuitionInfo.isDebit()) {
+                totalDebitOfWorkingDocuments = totalDebitOfWorkingDocuments.add(workDocument.getDocumentTotals().getNetTotal());
+            } else if (erpTuitionInfo.isCredit()) {
+                totalCreditOfWorkingDocuments =
+                        totalCreditOfWorkingDocuments.add(workDocument.getDocumentTotals().getNetTotal()).abs();
+            }
 
-        // AcumulateValues
-        numberOfWorkingDocuments = numberOfWorkingDocuments.add(BigInteger.ONE);
+            // AcumulateValues
+            numberOfWorkingDocuments = numberOfWorkingDocuments.add(BigInteger.ONE);
+        }
 
         // Update Totals of Workingdocuments
         workingDocuments.setNumberOfEntries(numberOfWorkingDocuments);
@@ -246,7 +441,7 @@ public class ERPTuitionInfoExporterForSAP implements IERPTuitionInfoExporter {
         DatatypeFactory dataTypeFactory;
         try {
 
-            dataTypeFactory = DatatypeFactory.newInstance();
+            dataTypeFactory = dataTypeFactory();
 
             // AuditFileVersion
             header.setAuditFileVersion(auditVersion);
@@ -401,7 +596,7 @@ public class ERPTuitionInfoExporterForSAP implements IERPTuitionInfoExporter {
         // MovementDate
         DatatypeFactory dataTypeFactory;
         try {
-            dataTypeFactory = DatatypeFactory.newInstance();
+            dataTypeFactory = dataTypeFactory();
             final DateTime documentDate = erpTuitionInfo.getCreationDate();
 
             /* Anil: 14/06/2016: Fill with 0's the Hash element */
@@ -498,7 +693,7 @@ public class ERPTuitionInfoExporterForSAP implements IERPTuitionInfoExporter {
         final DateTime documentDate = erpTuitionInfo.getCreationDate();
 
         try {
-            final DatatypeFactory dataTypeFactory = DatatypeFactory.newInstance();
+            final DatatypeFactory dataTypeFactory = dataTypeFactory();
 
             org.fenixedu.treasury.generated.sources.saft.sap.Product currentProduct = null;
 
@@ -616,13 +811,7 @@ public class ERPTuitionInfoExporterForSAP implements IERPTuitionInfoExporter {
         metadataPropertiesMap.put("END_DATE", erpTuitionInfo.getEndDate()
                 .toString(org.fenixedu.academictreasury.util.AcademicTreasuryConstants.STANDARD_DATE_FORMAT_YYYY_MM_DD));
 
-        final GsonBuilder builder = new GsonBuilder();
-
-        final Gson gson = builder.create();
-        final Type stringStringMapType = new TypeToken<Map<String, String>>() {
-        }.getType();
-
-        final String json = gson.toJson(metadataPropertiesMap, stringStringMapType);
+        final String json = GSON.toJson(metadataPropertiesMap, STRING_STRING_MAP_TYPE);
 
         final Metadata metadata = new Metadata();
         metadata.setDescription(json);
@@ -651,99 +840,168 @@ public class ERPTuitionInfoExporterForSAP implements IERPTuitionInfoExporter {
         return tax;
     }
 
-    // SERVICE
-    @Atomic(mode = TxMode.WRITE)
-    private ERPTuitionInfoExportOperation createSaftExportOperation(final ERPTuitionInfo erpTuitionInfo, byte[] data,
-            final FinantialInstitution institution, final DateTime when) {
-        String filename = institution.getFiscalNumber() + "_" + when.toString() + ".xml";
-        ERPTuitionInfoExportOperation operation =
-                ERPTuitionInfoExportOperation.create(erpTuitionInfo, data, filename, institution, null, when);
+    private DocumentsInformationOutput sendDocumentsInformationToIntegration(final ERPTuitionInfoExportation exportation,
+            final IntegrationOperationLogBean logBean) throws MalformedURLException {
+        if (!exportation.configurationActive) {
+            logBean.appendErrorLog(treasuryBundle("info.ERPExporter.configuration.inactive"));
+            return null;
+        }
 
-        return operation;
-    }
+        logBean.appendIntegrationLog(treasuryBundle("info.ERPExporter.sending.inforation"));
 
-    private boolean sendDocumentsInformationToIntegration(final ERPTuitionInfoExportOperation operation)
-            throws MalformedURLException {
-        final FinantialInstitution institution = operation.getFinantialInstitution();
-        final IntegrationOperationLogBean logBean = new IntegrationOperationLogBean();
+        if (exportation.content.length > exportation.maxSizeBytesToExportOnline) {
+            throw new TreasuryDomainException(
+                    "error.ERPExporter.sendDocumentsInformationToIntegration.maxSizeBytesToExportOnline.exceeded");
+        }
 
-        try {
+        final DocumentsInformationInput input = new DocumentsInformationInput();
+        input.setData(exportation.content);
+        final DocumentsInformationOutput sendInfoOnlineResult = exportation.service.sendInfoOnline(exportation.institution, input);
 
-            boolean success = true;
-            ERPConfiguration erpIntegrationConfiguration = institution.getErpIntegrationConfiguration();
-            if (erpIntegrationConfiguration == null) {
-                throw new TreasuryDomainException("error.ERPExporter.invalid.erp.configuration");
-            }
+        logBean.appendIntegrationLog(
+                treasuryBundle("info.ERPExporter.sucess.sending.inforation.online", sendInfoOnlineResult.getRequestId()));
+
+        for (final String m : sendInfoOnlineResult.getOtherMessages()) {
+            logBean.appendIntegrationLog(m);
+        }
 
-            if (erpIntegrationConfiguration.getActive() == false) {
-                logBean.appendErrorLog(treasuryBundle("info.ERPExporter.configuration.inactive"));
-                return false;
+        logBean.defineSoapInboundMessage(sendInfoOnlineResult.getSoapInboundMessage());
+        logBean.defineSoapOutboundMessage(sendInfoOnlineResult.getSoapOutboundMessage());
+
+        return sendInfoOnlineResult;
+    }
+
+    /*
+     * The content and the SOAP messages of a batch are kept in the operation of its
+     * first document, the operations of the other documents refer to that document
+     */
+    @Atomic(mode = TxMode.WRITE)
+    private List<ERPTuitionInfoExportOperation> registerExportationResult(final List<String> erpTuitionInfoIds,
+            final ERPTuitionInfoExportation exportation, final DocumentsInformationOutput sendInfoOnlineResult,
+            final Throwable error, final IntegrationOperationLogBean logBean, final DateTime when) {
+        final List<ERPTuitionInfo> erpTuitionInfos = Lists.newArrayList();
+        for (final String erpTuitionInfoId : erpTuitionInfoIds) {
+            erpTuitionInfos.add(FenixFramework.getDomainObject(erpTuitionInfoId));
+        }
+
+        final Map<String, DocumentStatusWS> statusesByDocumentNumber = new HashMap<>();
+        if (sendInfoOnlineResult != null) {
+            for (final DocumentStatusWS status : sendInfoOnlineResult.getDocumentStatus()) {
+                statusesByDocumentNumber.put(status.getDocumentNumber(), status);
             }
 
-            logBean.appendIntegrationLog(treasuryBundle("info.ERPExporter.sending.inforation"));
-
-            final IERPExternalService service = erpIntegrationConfiguration.getERPExternalServiceImplementation();
-            final DocumentsInformationInput input = new DocumentsInformationInput();
-            if (operation.getFile().getSize() <= erpIntegrationConfiguration.getMaxSizeBytesToExportOnline()) {
-                input.setData(operation.getFile().getContent());
-                DocumentsInformationOutput sendInfoOnlineResult = service.sendInfoOnline(institution, input);
-
-                operation.setErpOperationId(sendInfoOnlineResult.getRequestId());
-                logBean.appendIntegrationLog(
-                        treasuryBundle("info.ERPExporter.sucess.sending.inforation.online", sendInfoOnlineResult.getRequestId()));
-
-                //if we have result in online situation, then check the information of integration STATUS
-                for (DocumentStatusWS status : sendInfoOnlineResult.getDocumentStatus()) {
-                    if (status.isIntegratedWithSuccess()) {
-
-                        ERPTuitionInfo tuitionInfo =
-                                ERPTuitionInfo.findUniqueByDocumentNumber(status.getDocumentNumber()).orElse(null);
-
-                        if (tuitionInfo != null) {
-                            final String message = treasuryBundle("info.ERPExporter.sucess.integrating.document",
-                                    tuitionInfo.getUiDocumentNumber());
-                            logBean.appendIntegrationLog(message);
-                            tuitionInfo.markIntegratedWithSuccess(message);
-                        } else {
-                            success = false;
-                            logBean.appendIntegrationLog(
-                                    treasuryBundle("info.ERPExporter.error.integrating.document", status.getDocumentNumber(),
-                                            status.getErrorDescription()));
-                            logBean.appendErrorLog(
-                                    treasuryBundle("info.ERPExporter.error.integrating.document", status.getDocumentNumber(),
-                                            status.getErrorDescription()));
-                        }
-                    } else {
-                        success = false;
-                        logBean.appendIntegrationLog(
-                                treasuryBundle("info.ERPExporter.error.integrating.document", status.getDocumentNumber(),
-                                        status.getErrorDescription()));
-                        logBean.appendErrorLog(
-                                treasuryBundle("info.ERPExporter.error.integrating.document", status.getDocumentNumber(),
-                                        status.getErrorDescription()));
+            registerOtherDocumentsStatus(erpTuitionInfos, statusesByDocumentNumber, logBean);
+        }
+
+        final List<ERPTuitionInfoExportOperation> operations = Lists.newArrayList();
+        for (final ERPTuitionInfo erpTuitionInfo : erpTuitionInfos) {
+            final FinantialInstitution institution =
+                    erpTuitionInfo.getDocumentNumberSeries().getSeries().getFinantialInstitution();
+            final ERPTuitionInfoExportOperation operation = createSaftExportOperation(erpTuitionInfo, null, institution, when);
+            final IntegrationOperationLogBean operationLogBean = operations.isEmpty() ? logBean : new IntegrationOperationLogBean();
 
+            try {
+                if (operations.isEmpty()) {
+                    if (exportation != null) {
+                        writeContentToExportOperation(exportation.xml, operation);
                     }
+                } else {
+                    operationLogBean.appendIntegrationLog(academicTreasuryBundle(
+                            "label.ERPTuitionInfoExporterForSAP.exported.in.batch", erpTuitionInfos.get(0).getUiDocumentNumber()));
                 }
 
-                for (final String m : sendInfoOnlineResult.getOtherMessages()) {
-                    logBean.appendIntegrationLog(m);
+                if (error != null) {
+                    writeError(operation, operationLogBean, error);
+                } else {
+                    if (sendInfoOnlineResult != null) {
+                        operation.setErpOperationId(sendInfoOnlineResult.getRequestId());
+                    }
+
+                    operation.setSuccess(sendInfoOnlineResult != null && registerDocumentStatus(erpTuitionInfo,
+                            statusesByDocumentNumber.get(erpTuitionInfo.getUiDocumentNumber()), operationLogBean));
+                    operationLogBean.appendIntegrationLog(
+                            academicTreasuryBundle("label.ERPTuitionInfoExporterForSAP.finished.finantialdocuments.integration"));
                 }
+            } finally {
+                operation.appendLog(operationLogBean.getErrorLog(), operationLogBean.getIntegrationLog(),
+                        operationLogBean.getSoapInboundMessage(), operationLogBean.getSoapOutboundMessage());
+            }
 
-                logBean.defineSoapInboundMessage(sendInfoOnlineResult.getSoapInboundMessage());
-                logBean.defineSoapOutboundMessage(sendInfoOnlineResult.getSoapOutboundMessage());
+            operations.add(operation);
+        }
 
-            } else {
-                throw new TreasuryDomainException(
-                        "error.ERPExporter.sendDocumentsInformationToIntegration.maxSizeBytesToExportOnline.exceeded");
+        return operations;
+    }
+
+    /*
+     * Marking a document as integrated is idempotent, so the answer of a retried
+     * exportation can be registered even if the document was already integrated
+     */
+    private boolean registerDocumentStatus(final ERPTuitionInfo erpTuitionInfo, final DocumentStatusWS status,
+            final IntegrationOperationLogBean logBean) {
+        if (status == null) {
+            final String message = academicTreasuryBundle("error.ERPTuitionInfoExporterForSAP.document.status.missing",
+                    erpTuitionInfo.getUiDocumentNumber());
+            logBean.appendIntegrationLog(message);
+            logBean.appendErrorLog(message);
+            return false;
+        }
+
+        if (!status.isIntegratedWithSuccess()) {
+            logBean.appendIntegrationLog(treasuryBundle("info.ERPExporter.error.integrating.document", status.getDocumentNumber(),
+                    status.getErrorDescription()));
+            logBean.appendErrorLog(treasuryBundle("info.ERPExporter.error.integrating.document", status.getDocumentNumber(),
+                    status.getErrorDescription()));
+            return false;
+        }
+
+        final String message =
+                treasuryBundle("info.ERPExporter.sucess.integrating.document", erpTuitionInfo.getUiDocumentNumber());
+        logBean.appendIntegrationLog(message);
+        erpTuitionInfo.markIntegratedWithSuccess(message);
+
+        return true;
+    }
+
+    /*
+     * Statuses of documents which were not sent in the audit file are registered
+     * as before, they do not change the success of the sent documents
+     */
+    private void registerOtherDocumentsStatus(final List<ERPTuitionInfo> erpTuitionInfos,
+            final Map<String, DocumentStatusWS> statusesByDocumentNumber, final IntegrationOperationLogBean logBean) {
+        final Set<String> sentDocumentNumbers = new HashSet<>();
+        erpTuitionInfos.forEach(i -> sentDocumentNumbers.add(i.getUiDocumentNumber()));
+
+        for (final DocumentStatusWS status : statusesByDocumentNumber.values()) {
+            if (sentDocumentNumbers.contains(status.getDocumentNumber())) {
+                continue;
             }
 
-            return success;
-        } finally {
-            operation.appendLog(logBean.getErrorLog(), logBean.getIntegrationLog(), logBean.getSoapInboundMessage(),
-                    logBean.getSoapOutboundMessage());
+            final ERPTuitionInfo tuitionInfo = status.isIntegratedWithSuccess() ? ERPTuitionInfo
+                    .findUniqueByDocumentNumber(status.getDocumentNumber()).orElse(null) : null;
+
+            if (tuitionInfo != null) {
+                registerDocumentStatus(tuitionInfo, status, logBean);
+            } else {
+                logBean.appendIntegrationLog(treasuryBundle("info.ERPExporter.error.integrating.document",
+                        status.getDocumentNumber(), status.getErrorDescription()));
+                logBean.appendErrorLog(treasuryBundle("info.ERPExporter.error.integrating.document", status.getDocumentNumber(),
+                        status.getErrorDescription()));
+            }
         }
     }
 
+    // SERVICE
+    @Atomic(mode = TxMode.WRITE)
+    private ERPTuitionInfoExportOperation createSaftExportOperation(final ERPTuitionInfo erpTuitionInfo, byte[] data,
+            final FinantialInstitution institution, final DateTime when) {
+        String filename = institution.getFiscalNumber() + "_" + when.toString() + ".xml";
+        ERPTuitionInfoExportOperation operation =
+                ERPTuitionInfoExportOperation.create(erpTuitionInfo, data, filename, institution, null, when);
+
+        return operation;
+    }
+
     private void writeError(final ERPTuitionInfoExportOperation operation, final IntegrationOperationLogBean logBean,
             final Throwable t) {
         StringWriter out = new StringWriter();
@@ -755,15 +1013,21 @@ public class ERPTuitionInfoExporterForSAP implements IERPTuitionInfoExporter {
         operation.setProcessed(true);
     }
 
-    // SERVICE
-    @Atomic
-    private void writeContentToExportOperation(final String content, final ERPTuitionInfoExportOperation operation) {
+    private static byte[] toBytes(final String content) {
         byte[] bytes = null;
         try {
             bytes = content.getBytes(SAPExporter.SAFT_PT_ENCODING);
         } catch (UnsupportedEncodingException e) {
             e.printStackTrace();
         }
+
+        return bytes;
+    }
+
+    // SERVICE
+    @Atomic
+    private void writeContentToExportOperation(final String content, final ERPTuitionInfoExportOperation operation) {
+        byte[] bytes = toBytes(content);
         String fileName = operation.getFinantialInstitution().getFiscalNumber() + "_" + operation.getExecutionDate()
                 .toString("ddMMyyyy_hhmm") + ".xml";
         OperationFile binaryStream = new OperationFile(fileName, bytes);
@@ -781,7 +1045,7 @@ public class ERPTuitionInfoExporterForSAP implements IERPTuitionInfoExporter {
         // MovementDate
         DatatypeFactory dataTypeFactory;
         try {
-            dataTypeFactory = DatatypeFactory.newInstance();
+            dataTypeFactory = dataTypeFactory();
             final DateTime documentDate = erpTuitionInfo.getCreationDate();
 
             // SystemEntryDate
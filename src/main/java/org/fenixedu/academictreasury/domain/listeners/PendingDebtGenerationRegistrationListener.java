@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.domain.listeners;
+
+import org.fenixedu.academic.domain.Enrolment;
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academic.domain.student.RegistrationRegime;
+import org.fenixedu.academic.domain.student.StudentStatute;
+import org.fenixedu.academic.domain.student.registrationStates.RegistrationState;
+import org.fenixedu.academictreasury.domain.debtGeneration.AcademicDebtGenerationRule;
+import org.fenixedu.academictreasury.domain.debtGeneration.PendingDebtGenerationMark;
+import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEvent;
+import org.fenixedu.treasury.domain.document.DebitEntry;
+
+import pt.ist.fenixframework.FenixFramework;
+
+/**
+ * Marks the registrations to be processed by the academic debt generation rules in
+ * incremental mode, when their enrolments, registration states, statutes, regimes or debit
+ * entries are removed. The creation of enrolments is tracked by the enrolment signals. The
+ * other changes are caught by the periodic full sweep of AcademicDebtGenerationRule.runAllActive.
+ */
+public class PendingDebtGenerationRegistrationListener {
+
+    public static void attach() {
+        FenixFramework.getDomainModel().registerDeletionListener(Enrolment.class,
+                e -> AcademicDebtGenerationRule.markRegistrationAsPending(e.getRegistration()));
+
+        FenixFramework.getDomainModel().registerDeletionListener(RegistrationState.class,
+                s -> AcademicDebtGenerationRule.markRegistrationAsPending(s.getRegistration()));
+
+        FenixFramework.getDomainModel().registerDeletionListener(StudentStatute.class, s -> {
+            if (s.getRegistration() != null) {
+                AcademicDebtGenerationRule.markRegistrationAsPending(s.getRegistration());
+            } else if (s.getStudent() != null) {
+                s.getStudent().getRegistrationsSet().forEach(AcademicDebtGenerationRule::markRegistrationAsPending);
+            }
+        });
+
+        FenixFramework.getDomainModel().registerDeletionListener(RegistrationRegime.class,
+                r -> AcademicDebtGenerationRule.markRegistrationAsPending(r.getRegistration()));
+
+        FenixFramework.getDomainModel().registerDeletionListener(DebitEntry.class, d -> {
+            if (d.getTreasuryEvent() instanceof AcademicTreasuryEvent) {
+                AcademicDebtGenerationRule
+                        .markRegistrationAsPending(((AcademicTreasuryEvent) d.getTreasuryEvent()).getRegistration());
+            }
+        });
+
+        FenixFramework.getDomainModel().registerDeletionListener(Registration.class, r -> {
+            PendingDebtGenerationMark.unmark(r);
+            r.setDomainRootForPendingRegistrationsDebtCreation(null);
+        });
+    }
+
+}
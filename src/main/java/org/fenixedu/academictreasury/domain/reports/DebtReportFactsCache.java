@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.domain.reports;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.fenixedu.academic.domain.Degree;
+import org.fenixedu.academic.domain.ExecutionYear;
+import org.fenixedu.academic.domain.StudentCurricularPlan;
+import org.fenixedu.academic.domain.candidacy.IngressionType;
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academic.domain.student.RegistrationRegimeType;
+import org.fenixedu.academictreasury.services.TuitionServices;
+import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
+import org.fenixedu.commons.i18n.LocalizedString;
+
+/**
+ * Facts derived from the academic domain that are written in several rows of the same
+ * report, like the student conditions of a registration in an execution year or the
+ * names of a degree. They are derived once per report and shared by the report beans.
+ * 
+ * The cache lives as long as the {@link ErrorsLog} of the report, which is shared by
+ * the threads extracting the sheets, so it must be thread safe.
+ */
+public class DebtReportFactsCache {
+
+    private final Map<Registration, Map<ExecutionYear, StudentConditionsFacts>> studentConditions = new ConcurrentHashMap<>();
+    private final Map<Degree, DegreeFacts> degrees = new ConcurrentHashMap<>();
+
+    private final LongAdder studentConditionsHits = new LongAdder();
+    private final LongAdder studentConditionsMisses = new LongAdder();
+    private final LongAdder degreeHits = new LongAdder();
+    private final LongAdder degreeMisses = new LongAdder();
+
+    public StudentConditionsFacts studentConditions(final Registration registration, final ExecutionYear executionYear) {
+        final Map<ExecutionYear, StudentConditionsFacts> byExecutionYear =
+                studentConditions.computeIfAbsent(registration, r -> new ConcurrentHashMap<>());
+
+        return lookup(byExecutionYear, executionYear, e -> new StudentConditionsFacts(registration, e), studentConditionsHits,
+                studentConditionsMisses);
+    }
+
+    public DegreeFacts degree(final Degree degree) {
+        return lookup(degrees, degree, DegreeFacts::new, degreeHits, degreeMisses);
+    }
+
+    private static <K, V> V lookup(final Map<K, V> map, final K key, final Function<K, V> factsFunction, final LongAdder hits,
+            final LongAdder misses) {
+        final V cached = map.get(key);
+
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+
+        final V facts = factsFunction.apply(key);
+        final V previous = map.putIfAbsent(key, facts);
+
+        return previous != null ? previous : facts;
+    }
+
+    public String getStatistics() {
+        return String.format("Report facts cache: student conditions %d hits / %d misses, degrees %d hits / %d misses",
+                studentConditionsHits.sum(), studentConditionsMisses.sum(), degreeHits.sum(), degreeMisses.sum());
+    }
+
+    public static class StudentConditionsFacts {
+        private final boolean firstTimeStudent;
+        private final boolean partialRegime;
+        private final String statutes;
+        private final LocalizedString agreement;
+        private final LocalizedString ingression;
+        private final int numberOfNormalEnrolments;
+        private final int numberOfStandaloneEnrolments;
+        private final int numberOfExtracurricularEnrolments;
+        private final StudentCurricularPlan studentCurricularPlan;
+
+        private StudentConditionsFacts(final Registration registration, final ExecutionYear executionYear) {
+            this.firstTimeStudent = registration.isFirstTime(executionYear);
+            this.partialRegime = registration.getRegimeType(executionYear) == RegistrationRegimeType.PARTIAL_TIME;
+            this.statutes = AcademicTreasuryConstants.statutesTypesValidOnAnyExecutionSemesterFor(registration, executionYear)
+                    .stream().map(s -> s != null ? s.getName().getContent() : "").reduce((a, c) -> c + ", " + a).orElse(null);
+            this.agreement = registration.getRegistrationProtocol().getDescription();
+
+            final IngressionType ingressionType = registration.getIngressionType();
+            this.ingression = ingressionType != null ? ingressionType.getDescription() : null;
+
+            this.numberOfNormalEnrolments = TuitionServices.normalEnrolmentsIncludingAnnuled(registration, executionYear).size();
+            this.numberOfStandaloneEnrolments =
+                    TuitionServices.standaloneEnrolmentsIncludingAnnuled(registration, executionYear).size();
+            this.numberOfExtracurricularEnrolments =
+                    TuitionServices.extracurricularEnrolmentsIncludingAnnuled(registration, executionYear).size();
+
+            final StudentCurricularPlan studentCurricularPlanOfExecutionYear =
+                    registration.getStudentCurricularPlan(executionYear);
+            this.studentCurricularPlan = studentCurricularPlanOfExecutionYear != null ? studentCurricularPlanOfExecutionYear : registration
+                    .getActiveStudentCurricularPlan();
+        }
+
+        public boolean isFirstTimeStudent() {
+            return firstTimeStudent;
+        }
+
+        public boolean isPartialRegime() {
+            return partialRegime;
+        }
+
+        public String getStatutes() {
+            return statutes;
+        }
+
+        public LocalizedString getAgreement() {
+            return agreement;
+        }
+
+        public LocalizedString getIngression() {
+            return ingression;
+        }
+
+        public int getNumberOfNormalEnrolments() {
+            return numberOfNormalEnrolments;
+        }
+
+        public int getNumberOfStandaloneEnrolments() {
+            return numberOfStandaloneEnrolments;
+        }
+
+        public int getNumberOfExtracurricularEnrolments() {
+            return numberOfExtracurricularEnrolments;
+        }
+
+        /*
+         * The student curricular plan of the execution year or, if there is none, the
+         * active student curricular plan of the registration
+         */
+        public StudentCurricularPlan getStudentCurricularPlan() {
+            return studentCurricularPlan;
+        }
+    }
+
+    public static class DegreeFacts {
+        private final String degreeTypeName;
+        private final String code;
+        private final String presentationName;
+
+        private DegreeFacts(final Degree degree) {
+            this.degreeTypeName = degree.getDegreeType().getName().getContent();
+            this.code = degree.getCode();
+            this.presentationName = degree.getPresentationName();
+        }
+
+        public String getDegreeTypeName() {
+            return degreeTypeName;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getPresentationName() {
+            return presentationName;
+        }
+    }
+
+}
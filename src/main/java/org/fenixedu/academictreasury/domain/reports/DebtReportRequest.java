@@ -37,16 +37,25 @@ package org.fenixedu.academictreasury.domain.reports;
 
 import static org.fenixedu.academictreasury.util.AcademicTreasuryConstants.academicTreasuryBundle;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
+import org.fenixedu.academictreasury.domain.settings.AcademicTreasurySettings;
 import org.fenixedu.academictreasury.dto.reports.AcademicActBlockingSuspensionReportEntryBean;
 import org.fenixedu.academictreasury.dto.reports.DebtAccountReportEntryBean;
 import org.fenixedu.academictreasury.dto.reports.DebtReportEntryBean;
@@ -155,11 +164,16 @@ public class DebtReportRequest extends DebtReportRequest_Base {
 
     @Atomic(mode = TxMode.READ)
     public void processRequest() {
+        final AcademicTreasurySettings settings = AcademicTreasurySettings.getInstance();
+        if (settings.isDebtReportParallelExtractionActive()) {
+            processRequestInParallel(settings.getDebtReportParallelExtractionPoolSize());
+            return;
+        }
 
         ExecutorService executorService = Executors.newSingleThreadExecutor();
 
-        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ZipOutputStream zos = new ZipOutputStream(baos);
+        final DebtReportRequestContentSpool spool = createContentSpool();
+        ZipOutputStream zos = new ZipOutputStream(spool.getOutputStream());
 
         final ErrorsLog errorsLog = new ErrorsLog();
 
@@ -217,13 +231,14 @@ public class DebtReportRequest extends DebtReportRequest_Base {
 
             try {
                 zos.close();
-                baos.close();
 
-                byte[] contents = baos.toByteArray();
-                writeReportResultFile(errorsLog, contents);
+                logger.info("Report content size: " + spool.getSize());
+
+                writeReportResultFile(errorsLog, spool);
             } catch (final IOException e) {
                 throw new RuntimeException(e);
             } finally {
+                spool.dispose();
             }
         });
 
@@ -239,10 +254,204 @@ public class DebtReportRequest extends DebtReportRequest_Base {
 
     }
 
+    /*
+     * Each workbook is extracted concurrently in its own read transaction into its own ZIP part.
+     * The parts are assembled in the final ZIP in the order of the sequential extraction, after
+     * all of them are produced, and the result file is written from another thread, like the
+     * sequential extraction does
+     */
+    private void processRequestInParallel(final int poolSize) {
+        final ErrorsLog errorsLog = new ErrorsLog();
+        final List<DebtReportWorkbookPart> parts = workbookParts(errorsLog);
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, Math.min(poolSize, parts.size())));
+
+        final List<Future<DebtReportRequestContentSpool>> futures = new ArrayList<>();
+        for (final DebtReportWorkbookPart part : parts) {
+            futures.add(executorService.submit(() -> extractWorkbookPart(part, errorsLog)));
+        }
+
+        executorService.shutdown();
+
+        final DebtReportRequestContentSpool spool = createContentSpool();
+        try {
+            try (final ZipOutputStream zos = new ZipOutputStream(spool.getOutputStream())) {
+                final Set<String> entryNames = new HashSet<>();
+                for (int i = 0; i < parts.size(); i++) {
+                    final DebtReportWorkbookPart part = parts.get(i);
+
+                    DebtReportRequestContentSpool partSpool = null;
+                    try {
+                        partSpool = futures.get(i).get();
+                        copyZipEntries(partSpool, zos, entryNames);
+                    } catch (final ExecutionException e) {
+                        logger.error("Unable to extract workbook " + part.getFilename(), e.getCause());
+                        errorsLog.addError(part.getFilename(), e.getCause());
+                    } finally {
+                        if (partSpool != null) {
+                            partSpool.dispose();
+                        }
+                    }
+                }
+            }
+
+            logger.info("writeReportResultFile");
+            logger.info("Report content size: " + spool.getSize());
+
+            // The result is written in its own write transaction, as this thread is in the read transaction of processRequest
+            final ExecutorService writerService = Executors.newSingleThreadExecutor();
+            try {
+                writerService.submit(() -> writeReportResultFile(errorsLog, spool)).get();
+            } finally {
+                writerService.shutdown();
+            }
+        } catch (final ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (final InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            spool.dispose();
+        }
+    }
+
+    @Atomic(mode = TxMode.READ)
+    private DebtReportRequestContentSpool extractWorkbookPart(final DebtReportWorkbookPart part, final ErrorsLog errorsLog)
+            throws IOException {
+        logger.info("START extractWorkbookPart: " + part.getFilename());
+
+        final DebtReportRequestContentSpool partSpool = createContentSpool();
+        try (final ZipOutputStream zos = new ZipOutputStream(partSpool.getOutputStream())) {
+            zos.putNextEntry(new ZipEntry(part.getFilename()));
+
+            Spreadsheet.buildSpreadsheetContent(new Spreadsheet() {
+
+                @Override
+                public ExcelSheet[] getSheets() {
+                    return part.createSheets();
+                }
+
+            }, errorsLog, zos);
+
+            zos.closeEntry();
+        } catch (final IOException | RuntimeException e) {
+            partSpool.dispose();
+            throw e;
+        }
+
+        logger.info("END extractWorkbookPart: " + part.getFilename());
+        return partSpool;
+    }
+
+    /*
+     * The payment codes workbooks share the same filename, which in the sequential extraction
+     * only differs by the timestamp. As the parts are named at the same time, the repeated names
+     * are numbered to keep the ZIP entries unique
+     */
+    private static void copyZipEntries(final DebtReportRequestContentSpool partSpool, final ZipOutputStream zos,
+            final Set<String> entryNames) throws IOException {
+        try (final ZipInputStream zis = new ZipInputStream(partSpool.getInputStream())) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                final int extensionIndex = entry.getName().lastIndexOf('.');
+                String entryName = entry.getName();
+                for (int i = 2; !entryNames.add(entryName); i++) {
+                    entryName = entry.getName().substring(0, extensionIndex) + "_" + i
+                            + entry.getName().substring(extensionIndex);
+                }
+
+                zos.putNextEntry(new ZipEntry(entryName));
+                zis.transferTo(zos);
+                zos.closeEntry();
+            }
+        }
+    }
+
+    /*
+     * The same workbooks, with the same sheets, written by the sequential extraction
+     */
+    private List<DebtReportWorkbookPart> workbookParts(final ErrorsLog errorsLog) {
+        final List<DebtReportWorkbookPart> result = new ArrayList<>();
+
+        if (getType().isRequestForInvoiceEntries()) {
+            result.add(new DebtReportWorkbookPart("label.DebtReportRequestResultFile.INVOICE_ENTRIES.filename",
+                    () -> new ExcelSheet[] {
+                            ExcelSheet.create(debitEntriesSheetName(), DebtReportEntryBean.getSpreadsheetDebitHeaders(),
+                                    DebtReportService.debitEntriesReport(this, errorsLog)),
+                            ExcelSheet.create(creditEntriesSheetName(), DebtReportEntryBean.getSpreadsheetCreditHeaders(),
+                                    DebtReportService.creditEntriesReport(this, errorsLog)) }));
+
+            result.add(new DebtReportWorkbookPart("label.DebtReportRequestResultFile.SETTLEMENT_ENTRIES.filename",
+                    () -> new ExcelSheet[] {
+                            ExcelSheet.create(settlementEntriesSheetName(), SettlementReportEntryBean.getSpreadsheetHeaders(),
+                                    DebtReportService.settlementEntriesReport(this, errorsLog)),
+                            ExcelSheet.create(paymentEntriesSheetName(), PaymentReportEntryBean.getSpreadsheetHeaders(),
+                                    DebtReportService.paymentEntriesReport(this, errorsLog)),
+                            ExcelSheet.create(reimbursementEntriesSheetName(),
+                                    ReimbursementReportEntryBean.getSpreadsheetHeaders(),
+                                    DebtReportService.reimbursementEntriesReport(this, errorsLog)) }));
+
+            result.add(sibsTransactionDetailWorkbookPart(errorsLog));
+        } else if (getType().isRequestForPaymentReferenceCodes()) {
+            result.add(new DebtReportWorkbookPart("label.DebtReportRequestResultFile.PAYMENT_CODES.filename",
+                    () -> new ExcelSheet[] { ExcelSheet.create(paymentReferenceCodeSheetName(),
+                            PaymentReferenceCodeEntryBean.getSpreadsheetHeaders(),
+                            DebtReportService.paymentReferenceCodeReport(this, errorsLog)) }));
+
+            result.add(sibsTransactionDetailWorkbookPart(errorsLog));
+        } else if (getType().isRequestForOtherData()) {
+            result.add(new DebtReportWorkbookPart("label.DebtReportRequestResultFile.OTHER.filename",
+                    () -> new ExcelSheet[] {
+                            ExcelSheet.create(debtAccountEntriesSheetName(), DebtAccountReportEntryBean.getSpreadsheetHeaders(),
+                                    DebtReportService.debtAccountEntriesReport(this, errorsLog)),
+                            ExcelSheet.create(academicActBlockingSuspensionSheetName(),
+                                    AcademicActBlockingSuspensionReportEntryBean.getSpreadsheetHeaders(),
+                                    DebtReportService.academicActBlockingSuspensionReport(this, errorsLog)),
+                            ExcelSheet.create(treasuryExemptionSheetName(),
+                                    TreasuryExemptionReportEntryBean.getSpreadsheetHeaders(),
+                                    DebtReportService.treasuryExemptionReport(this, errorsLog)),
+                            ExcelSheet.create(productSheetName(), ProductReportEntryBean.getSpreadsheetHeaders(),
+                                    DebtReportService.productReport(this, errorsLog)) }));
+        }
+
+        return result;
+    }
+
+    private DebtReportWorkbookPart sibsTransactionDetailWorkbookPart(final ErrorsLog errorsLog) {
+        return new DebtReportWorkbookPart("label.DebtReportRequestResultFile.PAYMENT_CODES.filename",
+                () -> new ExcelSheet[] { ExcelSheet.create(sibsTransactionDetailSheetName(),
+                        SibsTransactionDetailEntryBean.getSpreadsheetHeaders(),
+                        DebtReportService.sibsTransactionDetailReport(this, errorsLog)) });
+    }
+
+    private DebtReportRequestContentSpool createContentSpool() {
+        if (!AcademicTreasurySettings.getInstance().isDebtReportStreamingModeActive()) {
+            return DebtReportRequestContentSpool.inMemory();
+        }
+
+        try {
+            return DebtReportRequestContentSpool.temporaryFile("debtReportRequest-" + getExternalId() + "-");
+        } catch (final IOException e) {
+            logger.warn("Unable to create temporary file for debt report, falling back to in memory content", e);
+            return DebtReportRequestContentSpool.inMemory();
+        }
+    }
+
     @Atomic(mode = TxMode.WRITE)
-    private void writeReportResultFile(final ErrorsLog errorsLog, final byte[] content) {
-        DebtReportRequestResultFile.create(this, content);
-        DebtReportRequestResultErrorsFile.create(this, errorsLog.getLog().getBytes());
+    private void writeReportResultFile(final ErrorsLog errorsLog, final DebtReportRequestContentSpool spool) {
+        final String factsCacheStatistics = errorsLog.getFactsCache().getStatistics();
+        logger.info(factsCacheStatistics);
+
+        try (final InputStream content = spool.getInputStream()) {
+            DebtReportRequestResultFile.create(this, content, spool.getSize());
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        DebtReportRequestResultErrorsFile.create(this, (errorsLog.getLog() + factsCacheStatistics + "\n").getBytes());
         setDomainRootForPendingReportRequests(null);
     }
 
@@ -394,6 +603,29 @@ public class DebtReportRequest extends DebtReportRequest_Base {
         logger.info("END extractInformationForDebitAndCredits");
     }
 
+    private static class DebtReportWorkbookPart {
+
+        private final String filename;
+        private final Supplier<ExcelSheet[]> sheetsSupplier;
+
+        private DebtReportWorkbookPart(final String filenameKey, final Supplier<ExcelSheet[]> sheetsSupplier) {
+            this.filename = academicTreasuryBundle(filenameKey, new DateTime().toString("YYYYMMddHHmmss"));
+            this.sheetsSupplier = sheetsSupplier;
+        }
+
+        public String getFilename() {
+            return filename;
+        }
+
+        /*
+         * The sheet rows streams are created by the thread that extracts the part, inside
+         * its read transaction
+         */
+        public ExcelSheet[] createSheets() {
+            return sheetsSupplier.get();
+        }
+    }
+
     @Atomic
     public void cancelRequest() {
         setDomainRootForPendingReportRequests(null);
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.domain.reports;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Destination of the ZIP content produced by {@link DebtReportRequest#processRequest()}.
+ * 
+ * In streaming mode the ZIP entries are written to a temporary file as the rows are
+ * produced, and the result file is created by reading that temporary file as a stream,
+ * so the heap usage does not grow with the size of the report. Otherwise the content
+ * is kept in memory, as before.
+ */
+class DebtReportRequestContentSpool {
+
+    private static final Logger logger = LoggerFactory.getLogger(DebtReportRequestContentSpool.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File temporaryFile;
+    private final ByteArrayOutputStream inMemoryContent;
+    private final OutputStream outputStream;
+
+    private DebtReportRequestContentSpool(final File temporaryFile) throws IOException {
+        this.temporaryFile = temporaryFile;
+        this.inMemoryContent = null;
+        this.outputStream = new BufferedOutputStream(new FileOutputStream(temporaryFile), BUFFER_SIZE);
+    }
+
+    private DebtReportRequestContentSpool() {
+        this.temporaryFile = null;
+        this.inMemoryContent = new ByteArrayOutputStream();
+        this.outputStream = this.inMemoryContent;
+    }
+
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    public boolean isStreaming() {
+        return temporaryFile != null;
+    }
+
+    /**
+     * Returns a stream to read the written content. Must be called after the stream
+     * obtained by {@link #getOutputStream()} is closed
+     */
+    public InputStream getInputStream() throws IOException {
+        if (isStreaming()) {
+            return new BufferedInputStream(new FileInputStream(temporaryFile), BUFFER_SIZE);
+        }
+
+        return new ByteArrayInputStream(inMemoryContent.toByteArray());
+    }
+
+    public long getSize() {
+        if (isStreaming()) {
+            return temporaryFile.length();
+        }
+
+        return inMemoryContent.size();
+    }
+
+    public void dispose() {
+        try {
+            outputStream.close();
+        } catch (final IOException e) {
+            logger.warn("Unable to close debt report content stream", e);
+        }
+
+        if (isStreaming() && temporaryFile.exists() && !temporaryFile.delete()) {
+            logger.warn("Unable to delete debt report temporary file: " + temporaryFile.getAbsolutePath());
+        }
+    }
+
+    // @formatter:off
+    /* ********
+     * SERVICES
+     * ********
+     */
+    // @formatter:on
+
+    public static DebtReportRequestContentSpool inMemory() {
+        return new DebtReportRequestContentSpool();
+    }
+
+    public static DebtReportRequestContentSpool temporaryFile(final String prefix) throws IOException {
+        final File file = File.createTempFile(prefix, ".zip");
+        file.deleteOnExit();
+
+        return new DebtReportRequestContentSpool(file);
+    }
+
+}
@@ -85,6 +85,26 @@ public class DebtReportRequestResultFile extends DebtReportRequestResultFile_Bas
         checkRules();
     }
 
+    /*
+     * Reads the content from the stream, so the ZIP spooled to a temporary file
+     * is never loaded whole in the heap
+     */
+    protected DebtReportRequestResultFile(final DebtReportRequest request, final InputStream content, final long size) {
+        this();
+
+        setDebtReportRequest(request);
+
+        final String filename = academicTreasuryBundle("label.DebtReportRequestResultFile.ZIP.filename",
+                new DateTime().toString("YYYYMMddHHmmss"));
+
+        final FileManager fileManager = ServiceProvider.getService(FileManager.class);
+
+        FileDescriptor fileDescriptor = fileManager.createFile(filename, size, CONTENT_TYPE, content);
+        setFileDescriptorId(fileDescriptor.getId());
+
+        checkRules();
+    }
+
     private void checkRules() {
         if(getDebtReportRequest() == null) {
             throw new AcademicTreasuryDomainException("error.DebtReportRequestResultFile.debtReportRequest.required");
@@ -149,6 +169,11 @@ public class DebtReportRequestResultFile extends DebtReportRequestResultFile_Bas
         return new DebtReportRequestResultFile(request, content);
     }
 
+    public static DebtReportRequestResultFile create(final DebtReportRequest request, final InputStream content,
+            final long size) {
+        return new DebtReportRequestResultFile(request, content, size);
+    }
+
     public static Stream<DebtReportRequestResultFile> findAll() {
         return FenixFramework.getDomainRoot().getDebtReportRequestResultFilesSet().stream();
     }
@@ -52,13 +52,21 @@ import org.fenixedu.treasury.util.streaming.spreadsheet.IErrorsLog;
 public class ErrorsLog implements IErrorsLog {
     final StringBuffer sb = new StringBuffer();
 
+    /*
+     * The errors log is created once per report and handed to every report bean,
+     * so it also carries the facts shared by the rows of the report
+     */
+    private final DebtReportFactsCache factsCache = new DebtReportFactsCache();
+
     public void addError(final InvoiceEntry entry, final Exception e) {
-        final String oid = entry.getExternalId();
-        final String documentNumber =
-                entry.getFinantialDocument() != null ? entry.getFinantialDocument().getUiDocumentNumber() : "";
-        final String description = entry.getDescription();
+        synchronized (this) {
+            final String oid = entry.getExternalId();
+            final String documentNumber =
+                    entry.getFinantialDocument() != null ? entry.getFinantialDocument().getUiDocumentNumber() : "";
+            final String description = entry.getDescription();
 
-        sb.append(String.format("[%s/%s] - '%s'\n%s\n\n", oid, documentNumber, description, ExceptionUtils.getFullStackTrace(e)));
+            sb.append(String.format("[%s/%s] - '%s'\n%s\n\n", oid, documentNumber, description, ExceptionUtils.getFullStackTrace(e)));
+        }
     }
 
     public void addError(final SettlementEntry entry, final Exception e) {
@@ -151,8 +159,18 @@ public class ErrorsLog implements IErrorsLog {
         }
     }
     
+    public void addError(final String context, final Throwable e) {
+        synchronized (this) {
+            sb.append(String.format("[%s]\n%s\n\n", context, ExceptionUtils.getFullStackTrace(e)));
+        }
+    }
+
     public String getLog() {
         return sb.toString();
     }
 
+    public DebtReportFactsCache getFactsCache() {
+        return factsCache;
+    }
+
 }
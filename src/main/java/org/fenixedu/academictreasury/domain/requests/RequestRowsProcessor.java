@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.domain.requests;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+
+import pt.ist.fenixframework.Atomic;
+import pt.ist.fenixframework.Atomic.TxMode;
+
+/**
+ * Processes the rows of a request in chunks, each one committed in its own write
+ * transaction along with the {@link RequestRow} of its rows. A chunk with a failing
+ * row is retried row by row, leaving only the failing rows to be processed, with
+ * their error message. As the rows already processed are skipped by the requests,
+ * a failed or interrupted request is resumed by processing it again.
+ * 
+ * The requests only resolve their rows, register their status rows with
+ * {@link #registerRows} and split them in chunks.
+ */
+public class RequestRowsProcessor<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestRowsProcessor.class);
+
+    private final String description;
+    private final Function<T, RequestRow> requestRowFunction;
+    private final Consumer<T> rowProcessor;
+    private final int poolSize;
+
+    /*
+     * The rows processor is called within the write transaction of the chunk. The
+     * chunks are processed concurrently when the pool size is greater than one
+     */
+    public RequestRowsProcessor(final String description, final Function<T, RequestRow> requestRowFunction,
+            final Consumer<T> rowProcessor, final int poolSize) {
+        this.description = description;
+        this.requestRowFunction = requestRowFunction;
+        this.rowProcessor = rowProcessor;
+        this.poolSize = poolSize;
+    }
+
+    public void process(final List<List<T>> chunks) {
+        final long start = System.currentTimeMillis();
+        int failedRows = 0;
+
+        if (poolSize > 1) {
+            final ExecutorService exService = Executors.newFixedThreadPool(poolSize);
+
+            try {
+                final List<Future<Integer>> futureList = Lists.newArrayList();
+                for (final List<T> chunk : chunks) {
+                    futureList.add(exService.submit(() -> processChunk(chunk)));
+                }
+
+                for (final Future<Integer> future : futureList) {
+                    try {
+                        failedRows += future.get();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(e);
+                    } catch (final ExecutionException e) {
+                        throw new RuntimeException(e.getCause());
+                    }
+                }
+            } finally {
+                exService.shutdownNow();
+            }
+        } else {
+            for (final List<T> chunk : chunks) {
+                failedRows += processChunk(chunk);
+            }
+        }
+
+        logger.info(String.format("%s processed %d rows in %d chunks in %d ms with %d failed rows", description,
+                chunks.stream().mapToInt(List::size).sum(), chunks.size(), System.currentTimeMillis() - start, failedRows));
+
+        if (failedRows > 0) {
+            throw new AcademicTreasuryDomainException("error.RequestRowsProcessor.rows.not.processed",
+                    String.valueOf(failedRows));
+        }
+    }
+
+    private int processChunk(final List<T> chunk) {
+        if (chunk.size() > 1) {
+            try {
+                processRows(chunk);
+                return 0;
+            } catch (final Exception e) {
+                logger.warn(String.format("Chunk of %s failed, retrying row by row", description));
+            }
+        }
+
+        int failedRows = 0;
+        for (final T row : chunk) {
+            try {
+                processRows(Collections.singletonList(row));
+            } catch (final Exception e) {
+                logger.warn(String.format("Row of %s failed", description), e);
+
+                failedRows++;
+                registerFailure(requestRowFunction.apply(row), e.getLocalizedMessage());
+            }
+        }
+
+        return failedRows;
+    }
+
+    @Atomic(mode = TxMode.WRITE)
+    private void processRows(final List<T> rows) {
+        for (final T row : rows) {
+            rowProcessor.accept(row);
+            requestRowFunction.apply(row).registerProcessed();
+        }
+    }
+
+    @Atomic(mode = TxMode.WRITE)
+    private void registerFailure(final RequestRow requestRow, final String errorMessage) {
+        requestRow.registerFailure(errorMessage);
+    }
+
+    // @formatter:off
+    /* ********
+     * SERVICES
+     * ********
+     */
+    // @formatter:on
+
+    public static <K, R extends RequestRow> Set<K> processedKeys(final Stream<R> requestRows,
+            final Function<R, K> keyFunction) {
+        return requestRows.filter(RequestRow::isProcessed).map(keyFunction).collect(Collectors.toSet());
+    }
+
+    /**
+     * Returns the status rows of the request by key, creating the rows of the keys not
+     * registered yet. They are all registered in one transaction before the rows are
+     * processed, so the concurrent chunks only write their own status rows and not the
+     * rows relation of the request, which would make their transactions conflict and restart
+     */
+    @Atomic(mode = TxMode.WRITE)
+    public static <K, R extends RequestRow> Map<K, R> registerRows(final Supplier<Stream<R>> requestRows,
+            final Function<R, K> keyFunction, final Collection<K> keys, final Function<K, R> createFunction) {
+        final Map<K, R> result = requestRows.get().collect(Collectors.toMap(keyFunction, r -> r, (r1, r2) -> r1));
+
+        for (final K key : keys) {
+            result.computeIfAbsent(key, createFunction);
+        }
+
+        return result;
+    }
+
+}
@@ -42,6 +42,7 @@ import org.apache.commons.lang.ClassUtils;
 import org.apache.commons.lang.StringUtils;
 import org.fenixedu.academictreasury.domain.emoluments.AcademicTax;
 import org.fenixedu.academictreasury.domain.treasury.IAcademicTreasuryAccountUrl;
+import org.fenixedu.academictreasury.util.VersionedCache;
 
 import pt.ist.fenixframework.FenixFramework;
 import org.fenixedu.treasury.domain.Product;
@@ -70,11 +71,15 @@ public class AcademicTreasurySettings extends AcademicTreasurySettings_Base {
     @Atomic
     public void addAcademicalActBlockingProduct(final Product product) {
         super.addAcademicalActBlockingProducts(product);
+        setAcademicalActBlockingProductsLastModificationDate(
+                VersionedCache.nextModificationDate(getAcademicalActBlockingProductsLastModificationDate()));
     }
 
     @Atomic
     public void removeAcademicalActBlockingProduct(final Product product) {
         super.removeAcademicalActBlockingProducts(product);
+        setAcademicalActBlockingProductsLastModificationDate(
+                VersionedCache.nextModificationDate(getAcademicalActBlockingProductsLastModificationDate()));
     }
 
     @Atomic
@@ -123,6 +128,127 @@ public class AcademicTreasurySettings extends AcademicTreasurySettings_Base {
         return Boolean.TRUE.equals(getDebtGenerationRulesPeriodicExecutionActive());
     }
 
+    public void activateDebtReportStreamingMode() {
+        setDebtReportStreamingModeActive(true);
+    }
+
+    public void inactivateDebtReportStreamingMode() {
+        setDebtReportStreamingModeActive(false);
+    }
+
+    public boolean isDebtReportStreamingModeActive() {
+        return Boolean.TRUE.equals(getDebtReportStreamingModeActive());
+    }
+
+    /*
+     * The debt report sheets are extracted concurrently, each one in its own
+     * read transaction, when the pool size is greater than one
+     */
+    public boolean isDebtReportParallelExtractionActive() {
+        return getDebtReportParallelExtractionPoolSize() != null && getDebtReportParallelExtractionPoolSize() > 1;
+    }
+
+    private static final int DEFAULT_DEBT_REPORT_ENTRY_INDEX_MAX_AGE_IN_SECONDS = 900;
+
+    /*
+     * The debt report entries indexes walk all entries at most once in the max age,
+     * which is fifteen minutes when it is not set. In between, only the entries created
+     * by this module are indexed. A max age of zero walks all entries in each lookup
+     */
+    public int getDebtReportEntryIndexMaxAgeInSecondsOrDefault() {
+        return getDebtReportEntryIndexMaxAgeInSeconds() != null ? Math.max(0, getDebtReportEntryIndexMaxAgeInSeconds())
+                : DEFAULT_DEBT_REPORT_ENTRY_INDEX_MAX_AGE_IN_SECONDS;
+    }
+
+    /*
+     * The registrations of each academic debt generation rule are processed
+     * concurrently when the pool size is greater than one
+     */
+    public boolean isAcademicDebtGenerationParallelExecutionActive() {
+        return getAcademicDebtGenerationPoolSize() != null && getAcademicDebtGenerationPoolSize() > 1;
+    }
+
+    public void activateAcademicDebtGenerationIncrementalMode() {
+        setAcademicDebtGenerationIncrementalModeActive(true);
+    }
+
+    public void inactivateAcademicDebtGenerationIncrementalMode() {
+        setAcademicDebtGenerationIncrementalModeActive(false);
+    }
+
+    public boolean isAcademicDebtGenerationIncrementalModeActive() {
+        return Boolean.TRUE.equals(getAcademicDebtGenerationIncrementalModeActive());
+    }
+
+    /*
+     * In incremental mode all registrations are still processed when the last full sweep
+     * is older than the interval, which is one day when it is not set. This catches the
+     * changes that do not mark the registrations as pending
+     */
+    public boolean isAcademicDebtGenerationFullSweepDue() {
+        final int intervalInHours = getAcademicDebtGenerationFullSweepIntervalInHours() != null ?
+                getAcademicDebtGenerationFullSweepIntervalInHours() : 24;
+
+        return getAcademicDebtGenerationLastFullSweepDate() == null
+                || !getAcademicDebtGenerationLastFullSweepDate().plusHours(intervalInHours).isAfterNow();
+    }
+
+    /*
+     * The massive debt generation request files are processed committing
+     * a chunk of rows in each transaction when the chunk size is set
+     */
+    public boolean isMassiveDebtGenerationChunkedModeActive() {
+        return getMassiveDebtGenerationChunkSize() != null && getMassiveDebtGenerationChunkSize() > 0;
+    }
+
+    /*
+     * The chunks of a massive debt generation request file are processed
+     * concurrently when the pool size is greater than one
+     */
+    public boolean isMassiveDebtGenerationParallelExecutionActive() {
+        return getMassiveDebtGenerationPoolSize() != null && getMassiveDebtGenerationPoolSize() > 1;
+    }
+
+    /*
+     * The exemptions generation request files are processed committing
+     * a chunk of rows in each transaction when the chunk size is set
+     */
+    public boolean isExemptionsGenerationChunkedModeActive() {
+        return getExemptionsGenerationChunkSize() != null && getExemptionsGenerationChunkSize() > 0;
+    }
+
+    /*
+     * The registrations of a tuition recalculation request are recalculated
+     * concurrently when the pool size is greater than one
+     */
+    public boolean isTuitionRecalculationParallelExecutionActive() {
+        return getTuitionRecalculationPoolSize() != null && getTuitionRecalculationPoolSize() > 1;
+    }
+
+    /*
+     * The academical act blocking state of each customer is kept in memory
+     * for at most the max age, when it is set
+     */
+    public boolean isAcademicalActBlockingStateMaterializationActive() {
+        return getAcademicalActBlockingStateMaxAgeInSeconds() != null && getAcademicalActBlockingStateMaxAgeInSeconds() > 0;
+    }
+
+    public void activateSignalJobsOutboxMode() {
+        setSignalJobsOutboxModeActive(true);
+    }
+
+    public void inactivateSignalJobsOutboxMode() {
+        setSignalJobsOutboxModeActive(false);
+    }
+
+    /*
+     * The enrolment and service request signals only record a pending job,
+     * processed later by AcademicTreasurySignalJob.processPendingJobs()
+     */
+    public boolean isSignalJobsOutboxModeActive() {
+        return Boolean.TRUE.equals(getSignalJobsOutboxModeActive());
+    }
+
     // @formatter: off
     /************
      * SERVICES *
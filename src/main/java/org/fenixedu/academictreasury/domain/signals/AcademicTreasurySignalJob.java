@@ -0,0 +1,349 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.domain.signals;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
+import org.fenixedu.academictreasury.domain.settings.AcademicTreasurySettings;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+
+import pt.ist.fenixframework.Atomic;
+import pt.ist.fenixframework.Atomic.TxMode;
+import pt.ist.fenixframework.DomainObject;
+import pt.ist.fenixframework.FenixFramework;
+
+/**
+ * Durable record of the treasury work triggered by an academic signal. The
+ * signal transaction only creates the job, which is executed later in its own
+ * transaction, so the enrolment does not wait for the tuition and taxes
+ * calculation. A job is identified by its type and target, so the same signal
+ * emitted twice while the first job is pending is recorded once. A job is
+ * deleted once processed, only the failed jobs are kept to be inspected.
+ * 
+ * The jobs are kept by the registration of their target. The signal transaction
+ * writes the jobs of that registration and, only for its first pending job, the
+ * set of registrations with pending jobs, instead of sets shared by all jobs.
+ */
+public class AcademicTreasurySignalJob extends AcademicTreasurySignalJob_Base {
+
+    private static final Logger logger = LoggerFactory.getLogger(AcademicTreasurySignalJob.class);
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final int DEFAULT_POOL_SIZE = 1;
+    private static final int RETRY_DELAY_IN_MINUTES = 5;
+    private static final int PROCESSING_INTERVAL_IN_SECONDS = 60;
+
+    private static ScheduledExecutorService scheduler;
+
+    protected AcademicTreasurySignalJob() {
+        super();
+
+        setCreationDate(new DateTime());
+        setPending(true);
+        setAttempts(0);
+    }
+
+    protected AcademicTreasurySignalJob(final AcademicTreasurySignalJobType type, final Registration registration,
+            final DomainObject target) {
+        this();
+
+        setType(type);
+        setRegistration(registration);
+        setTargetId(target != null ? target.getExternalId() : null);
+        setIdempotencyKey(idempotencyKey(type, target));
+
+        checkRules();
+
+        if (registration.getDomainRootForPendingSignalJobs() == null) {
+            registration.setDomainRootForPendingSignalJobs(FenixFramework.getDomainRoot());
+        }
+    }
+
+    private void checkRules() {
+        if (getRegistration() == null) {
+            throw new AcademicTreasuryDomainException("error.AcademicTreasurySignalJob.registration.required");
+        }
+
+        if (getType() == null) {
+            throw new AcademicTreasuryDomainException("error.AcademicTreasurySignalJob.type.required");
+        }
+
+        if (Strings.isNullOrEmpty(getTargetId())) {
+            throw new AcademicTreasuryDomainException("error.AcademicTreasurySignalJob.targetId.required");
+        }
+    }
+
+    public boolean isPending() {
+        return getPending();
+    }
+
+    private boolean isReadyToRun(final DateTime now) {
+        return getLastAttemptDate() == null
+                || !getLastAttemptDate().plusMinutes(RETRY_DELAY_IN_MINUTES * getAttempts()).isAfter(now);
+    }
+
+    /*
+     * A target deleted meanwhile, like an enrolment removed before the job ran,
+     * leaves nothing to be done. The job is deleted in the same transaction, so
+     * the processed jobs do not pile up in the registration
+     */
+    private void execute() {
+        final DomainObject target = FenixFramework.getDomainObject(getTargetId());
+
+        if (FenixFramework.isDomainObjectValid(target)) {
+            getType().execute(target);
+        }
+
+        delete();
+    }
+
+    private void registerFailure(final String errorMessage, final int maxAttempts) {
+        setAttempts(getAttempts() + 1);
+        setLastAttemptDate(new DateTime());
+        setLastErrorMessage(errorMessage);
+
+        if (getAttempts() >= maxAttempts) {
+            // Kept with the error message to be inspected, it is not retried
+            setPending(false);
+            setDomainRootForFailedSignalJobs(FenixFramework.getDomainRoot());
+        }
+    }
+
+    @Atomic
+    public void delete() {
+        setRegistration(null);
+        setDomainRootForFailedSignalJobs(null);
+
+        super.deleteDomainObject();
+    }
+
+    // @formatter:off
+    /* ********
+     * SERVICES
+     * ********
+     */
+    // @formatter:on
+
+    public static Stream<AcademicTreasurySignalJob> find(final Registration registration) {
+        return registration.getAcademicTreasurySignalJobsSet().stream();
+    }
+
+    public static Stream<AcademicTreasurySignalJob> findPending() {
+        return FenixFramework.getDomainRoot().getRegistrationsWithPendingSignalJobsSet().stream().flatMap(r -> find(r))
+                .filter(j -> j.isPending());
+    }
+
+    public static Stream<AcademicTreasurySignalJob> findFailed() {
+        return FenixFramework.getDomainRoot().getFailedAcademicTreasurySignalJobsSet().stream();
+    }
+
+    public static String idempotencyKey(final AcademicTreasurySignalJobType type, final DomainObject target) {
+        return String.format("%s:%s", type != null ? type.name() : null, target != null ? target.getExternalId() : null);
+    }
+
+    /*
+     * Executes the work in the signal transaction, unless the outbox mode is
+     * active. In that case the job is recorded to be processed later, unless
+     * the registration already has a pending job with the same type and target.
+     * A signal emitted again after the job was processed or has failed is
+     * recorded in a new job
+     */
+    public static void executeOrEnqueue(final AcademicTreasurySignalJobType type, final DomainObject target) {
+        if (!AcademicTreasurySettings.getInstance().isSignalJobsOutboxModeActive()) {
+            type.execute(target);
+            return;
+        }
+
+        final Registration registration = type.registrationOf(target);
+        if (registration == null) {
+            type.execute(target);
+            return;
+        }
+
+        final String idempotencyKey = idempotencyKey(type, target);
+        if (find(registration).anyMatch(j -> j.isPending() && idempotencyKey.equals(j.getIdempotencyKey()))) {
+            return;
+        }
+
+        new AcademicTreasurySignalJob(type, registration, target);
+    }
+
+    /*
+     * Drains the pending jobs with a pool of workers, each job in its own
+     * transaction. A failed job is retried in the following runs, with a
+     * growing delay, up to the max attempts given by the settings
+     */
+    public static void processPendingJobs() {
+        final AcademicTreasurySettings settings = AcademicTreasurySettings.getInstance();
+        final int poolSize = settings.getSignalJobsPoolSize() != null && settings.getSignalJobsPoolSize() > 0 ? settings
+                .getSignalJobsPoolSize() : DEFAULT_POOL_SIZE;
+        final int maxAttempts = settings.getSignalJobsMaxAttempts() != null && settings.getSignalJobsMaxAttempts() > 0 ? settings
+                .getSignalJobsMaxAttempts() : DEFAULT_MAX_ATTEMPTS;
+
+        final long start = System.currentTimeMillis();
+        final List<String> jobIds = readyToRunJobIds();
+
+        if (jobIds.isEmpty()) {
+            unmarkRegistrationsWithoutPendingJobs();
+            return;
+        }
+
+        final ExecutorService exService = Executors.newFixedThreadPool(poolSize);
+        int failedJobs = 0;
+        try {
+            final List<Future<Boolean>> futureList = Lists.newArrayList();
+            for (final String jobId : jobIds) {
+                futureList.add(exService.submit(() -> processJob(jobId, maxAttempts)));
+            }
+
+            for (final Future<Boolean> future : futureList) {
+                try {
+                    if (!future.get()) {
+                        failedJobs++;
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                } catch (final ExecutionException e) {
+                    failedJobs++;
+                    logger.error(e.getMessage(), e);
+                }
+            }
+        } finally {
+            exService.shutdownNow();
+        }
+
+        unmarkRegistrationsWithoutPendingJobs();
+
+        logger.info(String.format("Processed %d academic treasury signal jobs in %d ms with %d failures", jobIds.size(),
+                System.currentTimeMillis() - start, failedJobs));
+    }
+
+    @Atomic(mode = TxMode.READ)
+    private static List<String> readyToRunJobIds() {
+        final DateTime now = new DateTime();
+
+        return findPending().filter(j -> j.isReadyToRun(now)).sorted((o1, o2) -> {
+            final int c = o1.getCreationDate().compareTo(o2.getCreationDate());
+            return c != 0 ? c : o1.getExternalId().compareTo(o2.getExternalId());
+        }).map(j -> j.getExternalId()).collect(Collectors.toList());
+    }
+
+    private static boolean processJob(final String jobId, final int maxAttempts) {
+        try {
+            executeJob(jobId);
+            return true;
+        } catch (final Exception e) {
+            logger.warn(String.format("Academic treasury signal job %s failed: %s", jobId, e.getMessage()));
+            registerJobFailure(jobId, e.getLocalizedMessage(), maxAttempts);
+            return false;
+        }
+    }
+
+    @Atomic(mode = TxMode.WRITE)
+    private static void executeJob(final String jobId) {
+        final AcademicTreasurySignalJob job = FenixFramework.getDomainObject(jobId);
+
+        // Already processed by another worker or server
+        if (!FenixFramework.isDomainObjectValid(job) || !job.isPending()) {
+            return;
+        }
+
+        job.execute();
+    }
+
+    @Atomic(mode = TxMode.WRITE)
+    private static void registerJobFailure(final String jobId, final String errorMessage, final int maxAttempts) {
+        final AcademicTreasurySignalJob job = FenixFramework.getDomainObject(jobId);
+
+        job.registerFailure(errorMessage, maxAttempts);
+    }
+
+    /*
+     * Done by the workers in a single transaction, so the signal transactions
+     * only write the shared set when a registration gets its first pending job
+     */
+    @Atomic(mode = TxMode.WRITE)
+    private static void unmarkRegistrationsWithoutPendingJobs() {
+        Lists.newArrayList(FenixFramework.getDomainRoot().getRegistrationsWithPendingSignalJobsSet()).stream()
+                .filter(r -> find(r).noneMatch(j -> j.isPending())).forEach(r -> r.setDomainRootForPendingSignalJobs(null));
+    }
+
+    /*
+     * Processes the pending jobs periodically, in every server. The jobs still
+     * pending are drained even if the outbox mode was meanwhile inactivated
+     */
+    public static synchronized void startScheduledProcessing() {
+        if (scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                processPendingJobs();
+            } catch (final Throwable t) {
+                // The following runs are cancelled if the exception is not caught
+                logger.error(t.getMessage(), t);
+            }
+        }, PROCESSING_INTERVAL_IN_SECONDS, PROCESSING_INTERVAL_IN_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stopScheduledProcessing() {
+        if (scheduler == null) {
+            return;
+        }
+
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+}
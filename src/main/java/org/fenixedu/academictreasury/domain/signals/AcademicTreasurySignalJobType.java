@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.domain.signals;
+
+import org.fenixedu.academic.domain.Enrolment;
+import org.fenixedu.academic.domain.EnrolmentEvaluation;
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academictreasury.domain.serviceRequests.ITreasuryServiceRequest;
+import org.fenixedu.academictreasury.services.AcademicTaxServices;
+import org.fenixedu.academictreasury.services.EmolumentServices;
+import org.fenixedu.academictreasury.services.TuitionServices;
+import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
+import org.fenixedu.treasury.domain.FinantialEntity;
+import org.joda.time.LocalDate;
+
+import pt.ist.fenixframework.DomainObject;
+
+/**
+ * The treasury work triggered by the academic signals. It is executed in the
+ * signal transaction or later by a signal job, when the outbox mode is active
+ */
+public enum AcademicTreasurySignalJobType {
+
+    STANDALONE_ENROLMENT {
+        @Override
+        public void execute(final DomainObject target) {
+            final Enrolment enrolment = (Enrolment) target;
+
+            TuitionServices.createInferedTuitionForStandalone(enrolment, enrolment.getCreationDateDateTime().toLocalDate(),
+                    false);
+        }
+
+        @Override
+        public Registration registrationOf(final DomainObject target) {
+            return ((Enrolment) target).getRegistration();
+        }
+    },
+
+    EXTRACURRICULAR_ENROLMENT {
+        @Override
+        public void execute(final DomainObject target) {
+            final Enrolment enrolment = (Enrolment) target;
+
+            TuitionServices.createInferedTuitionForExtracurricular(enrolment,
+                    enrolment.getCreationDateDateTime().toLocalDate(), false);
+        }
+
+        @Override
+        public Registration registrationOf(final DomainObject target) {
+            return ((Enrolment) target).getRegistration();
+        }
+    },
+
+    IMPROVEMENT_ENROLMENT {
+        @Override
+        public void execute(final DomainObject target) {
+            final EnrolmentEvaluation enrolmentEvaluation = (EnrolmentEvaluation) target;
+            final LocalDate when = enrolmentEvaluation.getWhenDateTime().toLocalDate();
+            final FinantialEntity finantialEntity = AcademicTreasuryConstants
+                    .getFinantialEntityOfDegree(enrolmentEvaluation.getDegreeCurricularPlan().getDegree(), when);
+
+            AcademicTaxServices.createImprovementTax(finantialEntity, enrolmentEvaluation, when);
+        }
+
+        @Override
+        public Registration registrationOf(final DomainObject target) {
+            return ((EnrolmentEvaluation) target).getRegistration();
+        }
+    },
+
+    SERVICE_REQUEST_CANCEL_OR_REJECT {
+        @Override
+        public void execute(final DomainObject target) {
+            EmolumentServices.removeDebitEntryForAcademicService((ITreasuryServiceRequest) target);
+        }
+
+        @Override
+        public Registration registrationOf(final DomainObject target) {
+            return ((ITreasuryServiceRequest) target).getRegistration();
+        }
+    };
+
+    public abstract void execute(final DomainObject target);
+
+    /*
+     * The signal jobs are kept by registration, the work of a target without
+     * registration is executed in the signal transaction
+     */
+    public abstract Registration registrationOf(final DomainObject target);
+
+}
@@ -51,6 +51,7 @@ import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainExc
 import org.fenixedu.academictreasury.domain.serviceRequests.ITreasuryServiceRequest;
 import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlanGroup;
 import org.fenixedu.academictreasury.dto.tariff.AcademicTariffBean;
+import org.fenixedu.academictreasury.services.debtReports.DebtReportService;
 import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
 import org.fenixedu.commons.i18n.LocalizedString;
 import org.fenixedu.treasury.domain.Currency;
@@ -80,6 +81,8 @@ public class AcademicTariff extends AcademicTariff_Base {
         super();
 
         init(finantialEntity, product, bean);
+
+        AcademicTariffIndex.markTariffsModified();
     }
 
     @Override
@@ -337,6 +340,62 @@ public class AcademicTariff extends AcademicTariff_Base {
         }
 
         checkRules();
+
+        AcademicTariffIndex.markTariffsModified();
+    }
+
+    /*
+     * The tariffs are grouped and sorted by AcademicTariffIndex with the following
+     * properties, so any change must update its version. The amounts are always read from
+     * the tariffs, and are not kept in the index
+     */
+
+    @Override
+    public void setBeginDate(final DateTime beginDate) {
+        super.setBeginDate(beginDate);
+        AcademicTariffIndex.markTariffsModified();
+    }
+
+    @Override
+    public void setEndDate(final DateTime endDate) {
+        super.setEndDate(endDate);
+        AcademicTariffIndex.markTariffsModified();
+    }
+
+    @Override
+    public void setDegreeType(final DegreeType degreeType) {
+        super.setDegreeType(degreeType);
+        AcademicTariffIndex.markTariffsModified();
+    }
+
+    @Override
+    public void setCycleType(final CycleType cycleType) {
+        super.setCycleType(cycleType);
+        AcademicTariffIndex.markTariffsModified();
+    }
+
+    @Override
+    public void addUnits(final Unit unit) {
+        super.addUnits(unit);
+        AcademicTariffIndex.markTariffsModified();
+    }
+
+    @Override
+    public void removeUnits(final Unit unit) {
+        super.removeUnits(unit);
+        AcademicTariffIndex.markTariffsModified();
+    }
+
+    @Override
+    public void addAssociatedDegrees(final Degree associatedDegree) {
+        super.addAssociatedDegrees(associatedDegree);
+        AcademicTariffIndex.markTariffsModified();
+    }
+
+    @Override
+    public void removeAssociatedDegrees(final Degree associatedDegree) {
+        super.removeAssociatedDegrees(associatedDegree);
+        AcademicTariffIndex.markTariffsModified();
     }
 
     @Override
@@ -347,6 +406,8 @@ public class AcademicTariff extends AcademicTariff_Base {
     @Override
     @Atomic
     public void delete() {
+        AcademicTariffIndex.markTariffsModified();
+
         setDegreeType(null);
         setDegree(null);
         getAssociatedDegreesSet().clear();
@@ -556,10 +617,14 @@ public class AcademicTariff extends AcademicTariff_Base {
         final Map<String, String> fillPriceProperties =
                 fillPriceCommonPropertiesForAcademicServiceRequest(debtAccount, academicTreasuryEvent, when);
 
-        return DebitEntry.create(getFinantialEntity(), debtAccount, academicTreasuryEvent, vat, amount, dueDate,
-                fillPriceProperties, getProduct(), debitEntryName.getContent(TreasuryConstants.DEFAULT_LANGUAGE),
-                AcademicTreasuryConstants.DEFAULT_QUANTITY, this.getInterestRate(), when.toDateTimeAtStartOfDay(), false, false,
-                null);
+        final DebitEntry debitEntry =
+                DebitEntry.create(getFinantialEntity(), debtAccount, academicTreasuryEvent, vat, amount, dueDate,
+                        fillPriceProperties, getProduct(), debitEntryName.getContent(TreasuryConstants.DEFAULT_LANGUAGE),
+                        AcademicTreasuryConstants.DEFAULT_QUANTITY, this.getInterestRate(), when.toDateTimeAtStartOfDay(), false,
+                        false, null);
+
+        DebtReportService.indexDebitEntry(debitEntry);
+        return debitEntry;
     }
 
     public DebitEntry createDebitEntryForAcademicTax(final DebtAccount debtAccount,
@@ -590,10 +655,14 @@ public class AcademicTariff extends AcademicTariff_Base {
         final Map<String, String> fillPriceProperties =
                 fillPricePropertiesForAcademicTax(debtAccount, academicTreasuryEvent, when);
 
-        return DebitEntry.create(getFinantialEntity(), debtAccount, academicTreasuryEvent, vat, amount, dueDate,
-                fillPriceProperties, getProduct(), debitEntryName.getContent(TreasuryConstants.DEFAULT_LANGUAGE),
-                AcademicTreasuryConstants.DEFAULT_QUANTITY, this.getInterestRate(), when.toDateTimeAtStartOfDay(), false, false,
-                null);
+        final DebitEntry debitEntry =
+                DebitEntry.create(getFinantialEntity(), debtAccount, academicTreasuryEvent, vat, amount, dueDate,
+                        fillPriceProperties, getProduct(), debitEntryName.getContent(TreasuryConstants.DEFAULT_LANGUAGE),
+                        AcademicTreasuryConstants.DEFAULT_QUANTITY, this.getInterestRate(), when.toDateTimeAtStartOfDay(), false,
+                        false, null);
+
+        DebtReportService.indexDebitEntry(debitEntry);
+        return debitEntry;
     }
 
     public DebitEntry createDebitEntryForCustomAcademicDebt(final DebtAccount debtAccount,
@@ -621,9 +690,13 @@ public class AcademicTariff extends AcademicTariff_Base {
         final Map<String, String> fillPriceProperties =
                 fillPricePropertiesForAcademicTax(debtAccount, academicTreasuryEvent, when);
 
-        return DebitEntry.create(getFinantialEntity(), debtAccount, academicTreasuryEvent, vat, amount, dueDate,
-                fillPriceProperties, getProduct(), debitEntryName.getContent(), TreasuryConstants.DEFAULT_QUANTITY,
-                this.getInterestRate(), when.toDateTimeAtStartOfDay(), false, false, null);
+        final DebitEntry debitEntry =
+                DebitEntry.create(getFinantialEntity(), debtAccount, academicTreasuryEvent, vat, amount, dueDate,
+                        fillPriceProperties, getProduct(), debitEntryName.getContent(), TreasuryConstants.DEFAULT_QUANTITY,
+                        this.getInterestRate(), when.toDateTimeAtStartOfDay(), false, false, null);
+
+        DebtReportService.indexDebitEntry(debitEntry);
+        return debitEntry;
     }
 
     public DebitEntry createDebitEntryForImprovement(final DebtAccount debtAccount,
@@ -659,6 +732,8 @@ public class AcademicTariff extends AcademicTariff_Base {
                         fillPriceProperties, getProduct(), debitEntryName.getContent(TreasuryConstants.DEFAULT_LANGUAGE),
                         AcademicTreasuryConstants.DEFAULT_QUANTITY, this.getInterestRate(), new DateTime(), false, false, null);
 
+        DebtReportService.indexDebitEntry(debitEntry);
+
         academicTreasuryEvent.associateEnrolmentEvaluation(debitEntry, enrolmentEvaluation);
 
         return debitEntry;
@@ -690,6 +765,8 @@ public class AcademicTariff extends AcademicTariff_Base {
                 DebitEntry.create(getFinantialEntity(), debtAccount, academicTreasuryEvent, vat, amount, dueDate,
                         fillPriceProperties, getProduct(), debitEntryName.getContent(TreasuryConstants.DEFAULT_LANGUAGE),
                         AcademicTreasuryConstants.DEFAULT_QUANTITY, this.getInterestRate(), new DateTime(), false, false, null);
+
+        DebtReportService.indexDebitEntry(debitEntry);
         return debitEntry;
     }
 
@@ -1068,7 +1145,7 @@ public class AcademicTariff extends AcademicTariff_Base {
         }
 
         // Fallback to product only in financial entity
-        final Set<? extends AcademicTariff> activeTariffs = findActive(finantialEntity, product, when) //
+        final Set<? extends AcademicTariff> activeTariffs = AcademicTariffIndex.find(finantialEntity, product).findActive(when) //
                 .filter(e -> e.getUnitsSet().isEmpty()) //
                 .filter(e -> e.getDegreeType() == null) //
                 .filter(e -> e.getAssociatedDegreesSet().isEmpty()) //
@@ -1094,7 +1171,8 @@ public class AcademicTariff extends AcademicTariff_Base {
 
         {
             // Fallback to degreeType
-            Set<? extends AcademicTariff> activeTariffs = findActive(finantialEntity, product, degreeType, when) //
+            Set<? extends AcademicTariff> activeTariffs =
+                    AcademicTariffIndex.find(finantialEntity, product).findActive(degreeType, when) //
                     .filter(e -> e.getUnitsSet().isEmpty()) //
                     .filter(e -> e.getAssociatedDegreesSet().isEmpty()) //
                     .filter(e -> e.getCycleType() == null) //
@@ -1115,8 +1193,9 @@ public class AcademicTariff extends AcademicTariff_Base {
             throw new RuntimeException("unit is null. wrong findMatch call");
         }
 
-        Function<Boolean, Set<? extends AcademicTariff>> func =
-                isSubUnit -> findActive(finantialEntity, product, unit, isSubUnit, when) //
+        final AcademicTariffIndex index = AcademicTariffIndex.find(finantialEntity, product);
+
+        Function<Boolean, Set<? extends AcademicTariff>> func = isSubUnit -> index.findActive(unit, isSubUnit, when) //
                         .filter(e -> e.getDegreeType() == null) //
                         .filter(e -> e.getAssociatedDegreesSet().isEmpty()) //
                         .filter(e -> e.getCycleType() == null) //
@@ -1157,8 +1236,10 @@ public class AcademicTariff extends AcademicTariff_Base {
             throw new RuntimeException("unit is null. wrong findMatch call");
         }
 
+        final AcademicTariffIndex index = AcademicTariffIndex.find(finantialEntity, product);
+
         Function<Boolean, Set<? extends AcademicTariff>> func =
-                isSubUnit -> findActive(finantialEntity, product, degreeType, unit, false, when) //
+                isSubUnit -> index.findActive(degreeType, unit, false, when) //
                         .filter(e -> e.getAssociatedDegreesSet().isEmpty()) //
                         .filter(e -> e.getCycleType() == null) //
                         .collect(Collectors.<AcademicTariff> toSet());
@@ -1184,7 +1265,7 @@ public class AcademicTariff extends AcademicTariff_Base {
         }
 
         // Try to find by degreeType but not go up to financial entity
-        Set<? extends AcademicTariff> activeTariffsByDegreeType = findActive(finantialEntity, product, degreeType, when) //
+        Set<? extends AcademicTariff> activeTariffsByDegreeType = index.findActive(degreeType, when) //
                 .filter(e -> e.getUnitsSet().isEmpty()) //
                 .filter(e -> e.getAssociatedDegreesSet().isEmpty()) //
                 .filter(e -> e.getCycleType() == null) //
@@ -1211,7 +1292,8 @@ public class AcademicTariff extends AcademicTariff_Base {
         {
             // With the most specific conditions tariff was not found. Fallback to degree
 
-            Set<? extends AcademicTariff> activeTariffs = findActive(finantialEntity, product, degreeType, degree, when) //
+            Set<? extends AcademicTariff> activeTariffs =
+                    AcademicTariffIndex.find(finantialEntity, product).findActive(degreeType, degree, when) //
                     .filter(e -> e.getCycleType() == null) //
                     .collect(Collectors.<AcademicTariff> toSet());
 
@@ -1241,8 +1323,8 @@ public class AcademicTariff extends AcademicTariff_Base {
 
         {
             Set<? extends AcademicTariff> activeTariffs =
-                    findActive(finantialEntity, product, degreeType, degree, cycleType, when).collect(
-                            Collectors.<AcademicTariff> toSet());
+                    AcademicTariffIndex.find(finantialEntity, product).findActive(degreeType, degree, cycleType, when)
+                            .collect(Collectors.<AcademicTariff> toSet());
 
             if (activeTariffs.size() > 1) {
                 throw new AcademicTreasuryDomainException("error.AcademicTariff.findActive.more.than.one");
@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.domain.tariff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.fenixedu.academic.domain.Degree;
+import org.fenixedu.academic.domain.degree.DegreeType;
+import org.fenixedu.academic.domain.degreeStructure.CycleType;
+import org.fenixedu.academic.domain.organizationalStructure.Unit;
+import org.fenixedu.academictreasury.domain.settings.AcademicTreasurySettings;
+import org.fenixedu.academictreasury.util.VersionedCache;
+import org.fenixedu.treasury.domain.FinantialEntity;
+import org.fenixedu.treasury.domain.Product;
+import org.joda.time.DateTime;
+
+/**
+ * Lookup structure of the academic tariffs of a finantial entity and product, used by
+ * {@link AcademicTariff#findMatch}.
+ * 
+ * The tariffs are grouped by degree type, degree and unit, and each group is kept sorted
+ * by begin date, so finding the active tariffs of a group at a given date is a binary
+ * search instead of a walk over all the tariffs of the product.
+ * 
+ * Each snapshot is immutable and kept in a {@link VersionedCache}, tagged with the academic
+ * tariffs modification date kept in {@link AcademicTreasurySettings}. As that date is updated
+ * in the same transaction that creates, edits or deletes a tariff, a transaction never uses
+ * a snapshot built from a different version of the tariffs.
+ * 
+ * The candidates returned are checked again against the same conditions of the
+ * {@link AcademicTariff#findActive} methods.
+ */
+class AcademicTariffIndex {
+
+    private static final int MAX_SNAPSHOTS = 10000;
+
+    private static final VersionedCache<AcademicTariffIndex> SNAPSHOTS = new VersionedCache<>(MAX_SNAPSHOTS);
+
+    private final TariffIntervals broadTariffs;
+    private final TariffIntervals tariffsWithUnits;
+    private final Map<DegreeType, TariffIntervals> tariffsByDegreeType;
+    private final Map<Unit, TariffIntervals> tariffsByUnit;
+    private final Map<Degree, TariffIntervals> tariffsByDegree;
+
+    private AcademicTariffIndex(final FinantialEntity finantialEntity, final Product product) {
+        final List<AcademicTariff> broadList = new ArrayList<>();
+        final List<AcademicTariff> withUnitsList = new ArrayList<>();
+        final Map<DegreeType, List<AcademicTariff>> byDegreeType = new HashMap<>();
+        final Map<Unit, List<AcademicTariff>> byUnit = new HashMap<>();
+        final Map<Degree, List<AcademicTariff>> byDegree = new HashMap<>();
+
+        AcademicTariff.find(finantialEntity, product).forEach(t -> {
+            if (t.getDegreeType() != null) {
+                byDegreeType.computeIfAbsent(t.getDegreeType(), k -> new ArrayList<>()).add(t);
+            }
+
+            if (!t.getUnitsSet().isEmpty()) {
+                withUnitsList.add(t);
+                t.getUnitsSet().forEach(u -> byUnit.computeIfAbsent(u, k -> new ArrayList<>()).add(t));
+            }
+
+            t.getAssociatedDegreesSet().forEach(d -> byDegree.computeIfAbsent(d, k -> new ArrayList<>()).add(t));
+
+            if (t.getDegreeType() == null && t.getUnitsSet().isEmpty() && t.getAssociatedDegreesSet().isEmpty()
+                    && t.getCycleType() == null) {
+                broadList.add(t);
+            }
+        });
+
+        this.broadTariffs = new TariffIntervals(broadList);
+        this.tariffsWithUnits = new TariffIntervals(withUnitsList);
+        this.tariffsByDegreeType = toIntervals(byDegreeType);
+        this.tariffsByUnit = toIntervals(byUnit);
+        this.tariffsByDegree = toIntervals(byDegree);
+    }
+
+    Stream<AcademicTariff> findActive(final DateTime when) {
+        return broadTariffs.findActive(when);
+    }
+
+    Stream<AcademicTariff> findActive(final DegreeType degreeType, final DateTime when) {
+        return group(tariffsByDegreeType, degreeType).findActive(when) //
+                .filter(t -> t.getDegreeType() == degreeType);
+    }
+
+    Stream<AcademicTariff> findActive(final Unit unit, final boolean isSubUnit, final DateTime when) {
+        final TariffIntervals group = isSubUnit ? tariffsWithUnits : group(tariffsByUnit, unit);
+
+        return group.findActive(when) //
+                .filter(t -> !t.getUnitsSet().isEmpty()) //
+                .filter(t -> t.getUnitsSet().contains(unit) || (isSubUnit && unit.isSubUnitOf(t.getUnitsSet())));
+    }
+
+    Stream<AcademicTariff> findActive(final DegreeType degreeType, final Unit unit, final boolean isSubUnit,
+            final DateTime when) {
+        return findActive(unit, isSubUnit, when).filter(t -> t.getDegreeType() == degreeType);
+    }
+
+    Stream<AcademicTariff> findActive(final DegreeType degreeType, final Degree degree, final DateTime when) {
+        return group(tariffsByDegree, degree).findActive(when) //
+                .filter(t -> t.getDegreeType() == degreeType) //
+                .filter(t -> t.getAssociatedDegreesSet().contains(degree));
+    }
+
+    Stream<AcademicTariff> findActive(final DegreeType degreeType, final Degree degree, final CycleType cycleType,
+            final DateTime when) {
+        return findActive(degreeType, degree, when).filter(t -> t.getCycleType() == cycleType);
+    }
+
+    private static <T> TariffIntervals group(final Map<T, TariffIntervals> map, final T key) {
+        return map.getOrDefault(key, TariffIntervals.EMPTY);
+    }
+
+    private static <T> Map<T, TariffIntervals> toIntervals(final Map<T, List<AcademicTariff>> map) {
+        final Map<T, TariffIntervals> result = new HashMap<>();
+        map.forEach((k, v) -> result.put(k, new TariffIntervals(v)));
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    // @formatter:off
+    /* ********
+     * SERVICES
+     * ********
+     */
+    // @formatter:on
+
+    static AcademicTariffIndex find(final FinantialEntity finantialEntity, final Product product) {
+        return SNAPSHOTS.get(finantialEntity.getExternalId() + ":" + product.getExternalId(),
+                AcademicTreasurySettings.getInstance().getAcademicTariffsLastModificationDate(),
+                () -> new AcademicTariffIndex(finantialEntity, product));
+    }
+
+    /*
+     * Must be called in the transaction that creates, edits or deletes the tariff
+     */
+    static void markTariffsModified() {
+        final AcademicTreasurySettings settings = AcademicTreasurySettings.getInstance();
+        settings.setAcademicTariffsLastModificationDate(
+                VersionedCache.nextModificationDate(settings.getAcademicTariffsLastModificationDate()));
+    }
+
+    /*
+     * The tariffs sorted by begin date, with the greatest end date of each prefix. Looking
+     * backwards from the last tariff beginning before the date, the search stops as soon
+     * as no previous tariff ends after the date
+     */
+    private static class TariffIntervals {
+
+        private static final TariffIntervals EMPTY = new TariffIntervals(Collections.emptyList());
+
+        private final AcademicTariff[] tariffs;
+        private final long[] beginDates;
+        private final long[] maxEndDates;
+
+        private TariffIntervals(final List<AcademicTariff> list) {
+            this.tariffs = list.stream().sorted(Comparator.comparingLong(TariffIntervals::beginMillis))
+                    .toArray(AcademicTariff[]::new);
+            this.beginDates = new long[tariffs.length];
+            this.maxEndDates = new long[tariffs.length];
+
+            long maxEnd = Long.MIN_VALUE;
+            for (int i = 0; i < tariffs.length; i++) {
+                maxEnd = Math.max(maxEnd, endMillis(tariffs[i]));
+
+                this.beginDates[i] = beginMillis(tariffs[i]);
+                this.maxEndDates[i] = maxEnd;
+            }
+        }
+
+        private Stream<AcademicTariff> findActive(final DateTime when) {
+            // Widened by one day on both sides, the exact check is left to Tariff::isActive
+            final long lowerBound = when.minusDays(1).getMillis();
+            final long upperBound = when.plusDays(1).getMillis();
+
+            int index = Arrays.binarySearch(beginDates, upperBound);
+            if (index >= 0) {
+                while (index + 1 < beginDates.length && beginDates[index + 1] == upperBound) {
+                    index++;
+                }
+            } else {
+                index = -index - 2;
+            }
+
+            final List<AcademicTariff> result = new ArrayList<>();
+            for (int i = index; i >= 0 && maxEndDates[i] >= lowerBound; i--) {
+                if (endMillis(tariffs[i]) >= lowerBound) {
+                    result.add(tariffs[i]);
+                }
+            }
+
+            return result.stream().filter(t -> t.isActive(when));
+        }
+
+        private static long beginMillis(final AcademicTariff tariff) {
+            return tariff.getBeginDate() != null ? tariff.getBeginDate().getMillis() : Long.MIN_VALUE;
+        }
+
+        private static long endMillis(final AcademicTariff tariff) {
+            return tariff.getEndDate() != null ? tariff.getEndDate().getMillis() : Long.MAX_VALUE;
+        }
+    }
+
+}
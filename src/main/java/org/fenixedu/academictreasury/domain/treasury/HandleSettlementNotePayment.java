@@ -40,6 +40,7 @@ import java.util.stream.Collectors;
 import org.fenixedu.treasury.domain.bennu.signals.BennuSignalsHandler;
 
 import org.fenixedu.academic.domain.treasury.IAcademicTreasuryTarget;
+import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
 import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEvent;
 import org.fenixedu.treasury.domain.document.DebitEntry;
 import org.fenixedu.treasury.domain.document.InvoiceEntry;
@@ -70,6 +71,10 @@ public class HandleSettlementNotePayment implements BennuSignalsHandler<Settleme
             return;
         }
 
+        if (settlementNote.getDebtAccount().getCustomer() instanceof PersonCustomer) {
+            ((PersonCustomer) settlementNote.getDebtAccount().getCustomer()).markAcademicalActBlockingStateModified();
+        }
+
         for (final SettlementEntry s : settlementNote.getSettlemetEntries().collect(Collectors.toSet())) {
             final InvoiceEntry invoiceEntry = s.getInvoiceEntry();
 
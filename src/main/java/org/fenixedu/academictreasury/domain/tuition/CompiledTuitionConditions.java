@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.domain.tuition;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.fenixedu.academic.domain.Enrolment;
+import org.fenixedu.academictreasury.domain.settings.AcademicTreasurySettings;
+import org.fenixedu.academictreasury.util.VersionedCache;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Condition rules of a tuition payment plan compiled into predicates, so testing
+ * the plan against the facts of a registration is a few set membership checks
+ * instead of reading the rules again.
+ * 
+ * The compiled rules are kept between calls and tagged with the condition rules
+ * modification date kept in {@link AcademicTreasurySettings}, which is updated in
+ * the same transaction that creates, moves or deletes a rule. The entry of a plan
+ * is evicted when the plan is deleted, and the number of plans kept is bounded.
+ */
+class CompiledTuitionConditions {
+
+    private static final int MAX_PLANS = 10000;
+
+    private static final VersionedCache<CompiledTuitionConditions> CACHE = new VersionedCache<>(MAX_PLANS);
+
+    private final List<CompiledRule> rules;
+
+    private CompiledTuitionConditions(final List<CompiledRule> rules) {
+        this.rules = ImmutableList.copyOf(rules);
+    }
+
+    /*
+     * Mirrors TuitionPaymentPlan.isValidTo, where a rule of an excluded class
+     * fails the plan
+     */
+    boolean test(final TuitionConditionFacts facts, final Enrolment enrolment,
+            final Set<Class<? extends TuitionConditionRule>> exclude) {
+        for (final CompiledRule rule : rules) {
+            if (exclude.contains(rule.ruleClass) || !rule.predicate.test(facts, enrolment)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    static CompiledTuitionConditions of(final TuitionPaymentPlan tuitionPaymentPlan) {
+        return CACHE.get(tuitionPaymentPlan.getExternalId(),
+                AcademicTreasurySettings.getInstance().getTuitionConditionRulesLastModificationDate(),
+                () -> new CompiledTuitionConditions(tuitionPaymentPlan.getTuitionConditionRulesSet().stream()
+                        .map(r -> new CompiledRule(r.getClass(), r.compile())).collect(Collectors.toList())));
+    }
+
+    static void evict(final TuitionPaymentPlan tuitionPaymentPlan) {
+        CACHE.invalidate(tuitionPaymentPlan.getExternalId());
+    }
+
+    /*
+     * Must be called in the transaction that changes the condition rules
+     */
+    static void markRulesModified() {
+        final AcademicTreasurySettings settings = AcademicTreasurySettings.getInstance();
+        settings.setTuitionConditionRulesLastModificationDate(
+                VersionedCache.nextModificationDate(settings.getTuitionConditionRulesLastModificationDate()));
+    }
+
+    private static class CompiledRule {
+        private final Class<? extends TuitionConditionRule> ruleClass;
+        private final TuitionConditionPredicate predicate;
+
+        private CompiledRule(final Class<? extends TuitionConditionRule> ruleClass, final TuitionConditionPredicate predicate) {
+            this.ruleClass = ruleClass;
+            this.predicate = predicate;
+        }
+    }
+
+}
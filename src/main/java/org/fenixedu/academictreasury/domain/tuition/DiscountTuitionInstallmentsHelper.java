@@ -17,6 +17,7 @@ import org.fenixedu.academic.domain.StudentCurricularPlan;
 import org.fenixedu.academic.domain.student.Registration;
 import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEvent;
 import org.fenixedu.academictreasury.dto.tuition.TuitionDebitEntryBean;
+import org.fenixedu.academictreasury.services.debtReports.DebtReportService;
 import org.fenixedu.commons.i18n.LocalizedString;
 import org.fenixedu.treasury.domain.Currency;
 import org.fenixedu.treasury.domain.Product;
@@ -140,8 +141,8 @@ public class DiscountTuitionInstallmentsHelper {
 
                 String reason = treasuryExemptionType.getName()
                         .getContent(TreasuryConstants.getDefaultLocale());
-                TreasuryExemption.create(treasuryExemptionType, reason, amountToExempt,
-                        installmentDebitEntry);
+                DebtReportService.indexTreasuryExemption(
+                        TreasuryExemption.create(treasuryExemptionType, reason, amountToExempt, installmentDebitEntry));
             }
 
             return true;
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.domain.tuition;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.fenixedu.academic.domain.CurricularYear;
+import org.fenixedu.academic.domain.ExecutionInterval;
+import org.fenixedu.academic.domain.ExecutionYear;
+import org.fenixedu.academic.domain.candidacy.IngressionType;
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academic.domain.student.RegistrationProtocol;
+import org.fenixedu.academic.domain.student.RegistrationRegimeType;
+import org.fenixedu.academic.domain.student.StatuteType;
+import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Facts of a registration in an execution year used by the tuition condition rules.
+ * 
+ * Each fact is read from the registration only when first needed, and then reused while
+ * testing the compiled conditions of all the candidate tuition payment plans. Once read,
+ * a fact never changes and the sets are immutable, so the compiled conditions can keep
+ * testing them with plain set membership checks. It is meant to live only during one
+ * inference, within the transaction that reads the registration.
+ */
+public class TuitionConditionFacts {
+
+    private final Registration registration;
+    private final ExecutionYear executionYear;
+
+    private final Supplier<CurricularYear> curricularYear;
+    private final Supplier<Boolean> firstTimeStudent;
+    private final Supplier<Set<StatuteType>> statuteTypes;
+    private final Supplier<IngressionType> ingression;
+    private final Supplier<RegistrationRegimeType> regimeType;
+    private final Supplier<RegistrationProtocol> registrationProtocol;
+    private final Supplier<Set<ExecutionInterval>> enrolmentsExecutionIntervals;
+
+    private TuitionConditionFacts(final Registration registration, final ExecutionYear executionYear) {
+        this.registration = registration;
+        this.executionYear = executionYear;
+
+        this.curricularYear = Suppliers
+                .memoize(() -> CurricularYear.readByYear(TuitionPaymentPlan.curricularYear(registration, executionYear)));
+        this.firstTimeStudent = Suppliers.memoize(() -> TuitionPaymentPlan.firstTimeStudent(registration, executionYear));
+        this.statuteTypes = Suppliers.memoize(() -> ImmutableSet
+                .copyOf(AcademicTreasuryConstants.statutesTypesValidOnAnyExecutionSemesterFor(registration, executionYear)));
+        this.ingression = Suppliers.memoize(() -> registration.getIngressionType());
+        this.regimeType = Suppliers.memoize(() -> registration.getRegimeType(executionYear));
+        this.registrationProtocol = Suppliers.memoize(() -> registration.getRegistrationProtocol());
+        this.enrolmentsExecutionIntervals = Suppliers.memoize(() -> ImmutableSet.copyOf(registration.getEnrolments(executionYear)
+                .stream().map(e -> e.getExecutionInterval()).collect(Collectors.toSet())));
+    }
+
+    public static TuitionConditionFacts of(final Registration registration, final ExecutionYear executionYear) {
+        return new TuitionConditionFacts(registration, executionYear);
+    }
+
+    public Registration getRegistration() {
+        return registration;
+    }
+
+    public ExecutionYear getExecutionYear() {
+        return executionYear;
+    }
+
+    public CurricularYear getCurricularYear() {
+        return curricularYear.get();
+    }
+
+    public boolean isFirstTimeStudent() {
+        return firstTimeStudent.get();
+    }
+
+    public Set<StatuteType> getStatuteTypes() {
+        return statuteTypes.get();
+    }
+
+    public IngressionType getIngression() {
+        return ingression.get();
+    }
+
+    public RegistrationRegimeType getRegimeType() {
+        return regimeType.get();
+    }
+
+    public RegistrationProtocol getRegistrationProtocol() {
+        return registrationProtocol.get();
+    }
+
+    public ExecutionYear getRegistrationYear() {
+        return registration.getRegistrationYear();
+    }
+
+    public Set<ExecutionInterval> getEnrolmentsExecutionIntervals() {
+        return enrolmentsExecutionIntervals.get();
+    }
+
+}
@@ -55,6 +55,15 @@ public abstract class TuitionConditionRule extends TuitionConditionRule_Base {
     public TuitionConditionRule() {
         super();
         setDomainRoot(FenixFramework.getDomainRoot());
+
+        markConditionRulesModified();
+    }
+
+    @Override
+    public void setTuitionPaymentPlan(final TuitionPaymentPlan tuitionPaymentPlan) {
+        super.setTuitionPaymentPlan(tuitionPaymentPlan);
+
+        markConditionRulesModified();
     }
 
     public abstract boolean containsRule(TuitionConditionRule tuitionConditionRule);
@@ -78,6 +87,23 @@ public abstract class TuitionConditionRule extends TuitionConditionRule_Base {
     public abstract boolean isValidTo(final Registration registration, final ExecutionYear executionYear,
             final Enrolment enrolment);
 
+    /*
+     * Evaluates the rule with the facts already read from the registration. To be
+     * overridden by the rules that depend only on those facts
+     */
+    public boolean isValidTo(final TuitionConditionFacts facts, final Enrolment enrolment) {
+        return isValidTo(facts.getRegistration(), facts.getExecutionYear(), enrolment);
+    }
+
+    /*
+     * Compiles the rule into a predicate with its own copy of the values of the rule,
+     * kept between transactions by CompiledTuitionConditions. To be overridden by the
+     * rules that depend only on the facts
+     */
+    public TuitionConditionPredicate compile() {
+        return (facts, enrolment) -> isValidTo(facts, enrolment);
+    }
+
     protected abstract String getBundle();
 
     public static String getPresentationName(Class<? extends TuitionConditionRule> tuitionConditionRule) {
@@ -99,4 +125,12 @@ public abstract class TuitionConditionRule extends TuitionConditionRule_Base {
 
     public abstract TuitionConditionRule duplicate();
 
+    /*
+     * Must be called in the transaction that changes the values of a condition
+     * rule, so the compiled conditions of the tuition payment plans are discarded
+     */
+    public static void markConditionRulesModified() {
+        CompiledTuitionConditions.markRulesModified();
+    }
+
 }
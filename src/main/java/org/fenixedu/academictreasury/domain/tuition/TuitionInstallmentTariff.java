@@ -45,6 +45,7 @@ import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEvent.Academic
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
 import org.fenixedu.academictreasury.domain.tuition.calculators.TuitionPaymentPlanCalculator;
 import org.fenixedu.academictreasury.dto.tariff.AcademicTariffBean;
+import org.fenixedu.academictreasury.services.debtReports.DebtReportService;
 import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
 import org.fenixedu.commons.i18n.LocalizedString;
 import org.fenixedu.treasury.domain.Currency;
@@ -668,6 +669,8 @@ public class TuitionInstallmentTariff extends TuitionInstallmentTariff_Base {
                                 AcademicTreasuryConstants.DEFAULT_LANGUAGE), AcademicTreasuryConstants.DEFAULT_QUANTITY,
                         this.getInterestRate(), when.toDateTimeAtStartOfDay(), false, false, null);
 
+        DebtReportService.indexDebitEntry(debitEntry);
+
         if (isAcademicalActBlockingOff()) {
             debitEntry.markAcademicalActBlockingSuspension();
         }
@@ -714,6 +717,8 @@ public class TuitionInstallmentTariff extends TuitionInstallmentTariff_Base {
                                 AcademicTreasuryConstants.DEFAULT_LANGUAGE), AcademicTreasuryConstants.DEFAULT_QUANTITY,
                         this.getInterestRate(), when.toDateTimeAtStartOfDay(), false, false, null);
 
+        DebtReportService.indexDebitEntry(debitEntry);
+
         if (isAcademicalActBlockingOff()) {
             debitEntry.markAcademicalActBlockingSuspension();
         }
@@ -769,6 +774,8 @@ public class TuitionInstallmentTariff extends TuitionInstallmentTariff_Base {
                         installmentDebitEntryName.trim(), AcademicTreasuryConstants.DEFAULT_QUANTITY, this.getInterestRate(),
                         when.toDateTimeAtStartOfDay(), false, false, null);
 
+        DebtReportService.indexDebitEntry(debitEntry);
+
         if (isAcademicalActBlockingOff()) {
             debitEntry.markAcademicalActBlockingSuspension();
         }
@@ -809,6 +816,8 @@ public class TuitionInstallmentTariff extends TuitionInstallmentTariff_Base {
                         AcademicTreasuryConstants.DEFAULT_QUANTITY, this.getInterestRate(), when.toDateTimeAtStartOfDay(), false,
                         false, null);
 
+        DebtReportService.indexDebitEntry(debitEntry);
+
         if (isAcademicalActBlockingOff()) {
             debitEntry.markAcademicalActBlockingSuspension();
         }
@@ -848,6 +857,8 @@ public class TuitionInstallmentTariff extends TuitionInstallmentTariff_Base {
                                 AcademicTreasuryConstants.DEFAULT_LANGUAGE), AcademicTreasuryConstants.DEFAULT_QUANTITY,
                         this.getInterestRate(), when.toDateTimeAtStartOfDay(), false, false, null);
 
+        DebtReportService.indexDebitEntry(debitEntry);
+
         if (isAcademicalActBlockingOff()) {
             debitEntry.markAcademicalActBlockingSuspension();
         }
@@ -645,6 +645,8 @@ public class TuitionPaymentPlan extends TuitionPaymentPlan_Base {
         super.setStatuteType(null);
         super.setIngression(null);
 
+        CompiledTuitionConditions.evict(this);
+
         super.deleteDomainObject();
     }
 
@@ -760,9 +762,8 @@ public class TuitionPaymentPlan extends TuitionPaymentPlan_Base {
     public static TuitionPaymentPlan inferTuitionPaymentPlanForRegistration(final DegreeCurricularPlan degreeCurricularPlan,
             final ExecutionYear executionYear, Predicate<? super TuitionPaymentPlan> predicate) {
 
-        final List<TuitionPaymentPlan> plans = TuitionPaymentPlan.findSortedByPaymentPlanOrder(
-                        TuitionPaymentPlanGroup.findUniqueDefaultGroupForRegistration().get(), degreeCurricularPlan, executionYear)
-                .collect(Collectors.toList());
+        final List<TuitionPaymentPlan> plans = TuitionPaymentPlanCandidates
+                .find(TuitionPaymentPlanGroup.findUniqueDefaultGroupForRegistration().get(), degreeCurricularPlan, executionYear);
 
         return plans.stream().filter(predicate).findFirst().orElse(null);
     }
@@ -789,8 +790,9 @@ public class TuitionPaymentPlan extends TuitionPaymentPlan_Base {
             return null;
         }
 
+        final TuitionConditionFacts facts = TuitionConditionFacts.of(registration, executionYear);
         Predicate<? super TuitionPaymentPlan> predicate =
-                plan -> !plan.isCustomized() && plan.isValidTo(registration, executionYear, null, Collections.emptySet());
+                plan -> !plan.isCustomized() && plan.isValidTo(facts, null, Collections.emptySet());
 
         return inferTuitionPaymentPlanForRegistration(registration, executionYear, predicate);
     }
@@ -804,12 +806,13 @@ public class TuitionPaymentPlan extends TuitionPaymentPlan_Base {
 
         final DegreeCurricularPlan degreeCurricularPlan = enrolment.getCurricularCourse().getDegreeCurricularPlan();
 
-        final List<TuitionPaymentPlan> filtered = TuitionPaymentPlan.findSortedByPaymentPlanOrder(
-                        TuitionPaymentPlanGroup.findUniqueDefaultGroupForStandalone().get(), degreeCurricularPlan, executionYear)
-                .collect(Collectors.toList());
+        final List<TuitionPaymentPlan> filtered = TuitionPaymentPlanCandidates
+                .find(TuitionPaymentPlanGroup.findUniqueDefaultGroupForStandalone().get(), degreeCurricularPlan, executionYear);
 
-        return filtered.stream().filter(plan -> !plan.isCustomized() && plan.isValidTo(registration, executionYear, enrolment,
-                Collections.emptySet())).findFirst().orElse(null);
+        final TuitionConditionFacts facts = TuitionConditionFacts.of(registration, executionYear);
+        return filtered.stream()
+                .filter(plan -> !plan.isCustomized() && plan.isValidTo(facts, enrolment, Collections.emptySet())).findFirst()
+                .orElse(null);
     }
 
     public static TuitionPaymentPlan inferTuitionPaymentPlanForExtracurricularEnrolment(final Registration registration,
@@ -820,18 +823,23 @@ public class TuitionPaymentPlan extends TuitionPaymentPlan_Base {
         }
 
         final DegreeCurricularPlan degreeCurricularPlan = enrolment.getCurricularCourse().getDegreeCurricularPlan();
-        final List<TuitionPaymentPlan> filtered = TuitionPaymentPlan.findSortedByPaymentPlanOrder(
-                        TuitionPaymentPlanGroup.findUniqueDefaultGroupForExtracurricular().get(), degreeCurricularPlan, executionYear)
-                .collect(Collectors.toList());
+        final List<TuitionPaymentPlan> filtered = TuitionPaymentPlanCandidates
+                .find(TuitionPaymentPlanGroup.findUniqueDefaultGroupForExtracurricular().get(), degreeCurricularPlan, executionYear);
 
-        return filtered.stream().filter(plan -> !plan.isCustomized() && plan.isValidTo(registration, executionYear, enrolment,
-                Collections.emptySet())).findFirst().orElse(null);
+        final TuitionConditionFacts facts = TuitionConditionFacts.of(registration, executionYear);
+        return filtered.stream()
+                .filter(plan -> !plan.isCustomized() && plan.isValidTo(facts, enrolment, Collections.emptySet())).findFirst()
+                .orElse(null);
     }
 
     public boolean isValidTo(Registration registration, ExecutionYear executionYear, Enrolment enrolment,
             Set<Class<? extends TuitionConditionRule>> exclude) {
-        return isCustomized() || isDefaultPaymentPlan() || getTuitionConditionRulesSet().stream()
-                .allMatch(c -> !exclude.contains(c.getClass()) && c.isValidTo(registration, executionYear, enrolment));
+        return isValidTo(TuitionConditionFacts.of(registration, executionYear), enrolment, exclude);
+    }
+
+    public boolean isValidTo(TuitionConditionFacts facts, Enrolment enrolment,
+            Set<Class<? extends TuitionConditionRule>> exclude) {
+        return isCustomized() || isDefaultPaymentPlan() || CompiledTuitionConditions.of(this).test(facts, enrolment, exclude);
     }
 
     public static boolean firstTimeStudent(final Registration registration, final ExecutionYear executionYear) {
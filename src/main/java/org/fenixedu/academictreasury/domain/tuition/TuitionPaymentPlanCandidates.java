@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.domain.tuition;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.fenixedu.academic.domain.DegreeCurricularPlan;
+import org.fenixedu.academic.domain.ExecutionYear;
+import org.fenixedu.academictreasury.domain.settings.AcademicTreasurySettings;
+import org.fenixedu.academictreasury.util.VersionedCache;
+
+/**
+ * Tuition payment plans of a group, degree curricular plan and execution year, sorted by
+ * the payment plan order, to be tested in the inference of the tuition payment plan of
+ * each student.
+ * 
+ * The sorted lists are kept in a bounded {@link VersionedCache} and tagged with the tuition
+ * payment plan orders modification date kept in {@link AcademicTreasurySettings}, which is
+ * updated in the same transaction that changes the order of a plan or the relations between
+ * orders, plans, groups, degree curricular plans and execution years, see
+ * TuitionPaymentPlanOrderListener.
+ */
+public class TuitionPaymentPlanCandidates {
+
+    private static final int MAX_LISTS = 20000;
+
+    private static final VersionedCache<List<TuitionPaymentPlan>> CACHE = new VersionedCache<>(MAX_LISTS);
+
+    static List<TuitionPaymentPlan> find(final TuitionPaymentPlanGroup tuitionPaymentPlanGroup,
+            final DegreeCurricularPlan degreeCurricularPlan, final ExecutionYear executionYear) {
+        final String key = String.join(":", tuitionPaymentPlanGroup.getExternalId(), degreeCurricularPlan.getExternalId(),
+                executionYear.getExternalId());
+
+        return CACHE.get(key, AcademicTreasurySettings.getInstance().getTuitionPaymentPlanOrdersLastModificationDate(),
+                () -> Collections.unmodifiableList(TuitionPaymentPlanOrder
+                        .findSortedByPaymentPlanOrder(tuitionPaymentPlanGroup, degreeCurricularPlan, executionYear)
+                        .map(order -> order.getTuitionPaymentPlan()).collect(Collectors.toList())));
+    }
+
+    /*
+     * Must be called in the transaction that changes the tuition payment plan orders
+     */
+    public static void markOrdersModified() {
+        final AcademicTreasurySettings settings = AcademicTreasurySettings.getInstance();
+        settings.setTuitionPaymentPlanOrdersLastModificationDate(
+                VersionedCache.nextModificationDate(settings.getTuitionPaymentPlanOrdersLastModificationDate()));
+    }
+
+}
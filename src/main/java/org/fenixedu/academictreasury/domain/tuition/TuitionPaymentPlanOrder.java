@@ -109,6 +109,18 @@ public class TuitionPaymentPlanOrder extends TuitionPaymentPlanOrder_Base {
         delete(true);
     }
 
+    /*
+     * The sorted tuition payment plans are cached for the inference of the
+     * tuition payment plan, see TuitionPaymentPlanCandidates. The relations
+     * are tracked by TuitionPaymentPlanOrderListener
+     */
+
+    @Override
+    public void setPaymentPlanOrder(int paymentPlanOrder) {
+        TuitionPaymentPlanCandidates.markOrdersModified();
+        super.setPaymentPlanOrder(paymentPlanOrder);
+    }
+
     private void setOnReachablePosition() {
         while (!isReacheble()) {
             orderUp();
@@ -271,6 +283,6 @@ public class TuitionPaymentPlanOrder extends TuitionPaymentPlanOrder_Base {
     }
 
     public static Stream<TuitionPaymentPlanOrder> find(DegreeCurricularPlan dcp) {
-        return findAll().filter(o -> o.getDegreeCurricularPlan() == dcp);
+        return dcp.getTuitionPaymentPlanOrdersSet().stream();
     }
 }
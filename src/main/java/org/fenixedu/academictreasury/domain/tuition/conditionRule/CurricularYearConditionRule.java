@@ -36,10 +36,14 @@ import org.fenixedu.academic.domain.exceptions.DomainException;
 import org.fenixedu.academic.domain.student.Registration;
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
 import org.fenixedu.academictreasury.domain.tuition.TuitionConditionAnnotation;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionFacts;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionPredicate;
 import org.fenixedu.academictreasury.domain.tuition.TuitionConditionRule;
 import org.fenixedu.academictreasury.dto.tariff.TuitionPaymentPlanBean;
 import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
 
+import com.google.common.collect.ImmutableSet;
+
 @TuitionConditionAnnotation(CurricularYearConditionRule.BUNDLE_NAME)
 public class CurricularYearConditionRule extends CurricularYearConditionRule_Base {
 
@@ -63,6 +67,32 @@ public class CurricularYearConditionRule extends CurricularYearConditionRule_Bas
         return getCurricularYearSet().contains(CurricularYear.readByYear(registration.getCurricularYear(executionYear)));
     }
 
+    @Override
+    public boolean isValidTo(TuitionConditionFacts facts, Enrolment enrolment) {
+        return getCurricularYearSet().contains(facts.getCurricularYear());
+    }
+
+    @Override
+    public TuitionConditionPredicate compile() {
+        final Set<CurricularYear> curricularYears = ImmutableSet.copyOf(getCurricularYearSet());
+
+        return (facts, enrolment) -> curricularYears.contains(facts.getCurricularYear());
+    }
+
+    @Override
+    public void addCurricularYear(final CurricularYear curricularYear) {
+        super.addCurricularYear(curricularYear);
+
+        markConditionRulesModified();
+    }
+
+    @Override
+    public void removeCurricularYear(final CurricularYear curricularYear) {
+        super.removeCurricularYear(curricularYear);
+
+        markConditionRulesModified();
+    }
+
     @Override
     public boolean checkRules() {
         if (getCurricularYearSet() == null || getCurricularYearSet().isEmpty()) {
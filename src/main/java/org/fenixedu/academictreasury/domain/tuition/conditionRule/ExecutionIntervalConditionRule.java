@@ -35,11 +35,15 @@ import org.fenixedu.academic.domain.exceptions.DomainException;
 import org.fenixedu.academic.domain.student.Registration;
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
 import org.fenixedu.academictreasury.domain.tuition.TuitionConditionAnnotation;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionFacts;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionPredicate;
 import org.fenixedu.academictreasury.domain.tuition.TuitionConditionRule;
 import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlan;
 import org.fenixedu.academictreasury.dto.tariff.TuitionPaymentPlanBean;
 import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
 
+import com.google.common.collect.ImmutableSet;
+
 @TuitionConditionAnnotation(ExecutionIntervalConditionRule.BUNDLE_NAME)
 public class ExecutionIntervalConditionRule extends ExecutionIntervalConditionRule_Base {
 
@@ -68,6 +72,41 @@ public class ExecutionIntervalConditionRule extends ExecutionIntervalConditionRu
         return getExecutionIntervalSet().contains(collect.iterator().next());
     }
 
+    @Override
+    public boolean isValidTo(TuitionConditionFacts facts, Enrolment enrolment) {
+        Set<ExecutionInterval> collect = facts.getEnrolmentsExecutionIntervals();
+        if (collect.size() != 1) {
+            return false;
+        }
+        return getExecutionIntervalSet().contains(collect.iterator().next());
+    }
+
+    @Override
+    public TuitionConditionPredicate compile() {
+        final Set<ExecutionInterval> executionIntervals = ImmutableSet.copyOf(getExecutionIntervalSet());
+
+        return (facts, enrolment) -> {
+            final Set<ExecutionInterval> enrolmentsExecutionIntervals = facts.getEnrolmentsExecutionIntervals();
+
+            return enrolmentsExecutionIntervals.size() == 1
+                    && executionIntervals.contains(enrolmentsExecutionIntervals.iterator().next());
+        };
+    }
+
+    @Override
+    public void addExecutionInterval(final ExecutionInterval executionInterval) {
+        super.addExecutionInterval(executionInterval);
+
+        markConditionRulesModified();
+    }
+
+    @Override
+    public void removeExecutionInterval(final ExecutionInterval executionInterval) {
+        super.removeExecutionInterval(executionInterval);
+
+        markConditionRulesModified();
+    }
+
     @Override
     public boolean checkRules() {
         if (getExecutionIntervalSet() == null || getExecutionIntervalSet().isEmpty()) {
@@ -41,6 +41,8 @@ import org.fenixedu.academic.domain.exceptions.DomainException;
 import org.fenixedu.academic.domain.student.Registration;
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
 import org.fenixedu.academictreasury.domain.tuition.TuitionConditionAnnotation;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionFacts;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionPredicate;
 import org.fenixedu.academictreasury.domain.tuition.TuitionConditionRule;
 import org.fenixedu.academictreasury.dto.tariff.TuitionPaymentPlanBean;
 import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
@@ -69,6 +71,25 @@ public class FirstTimeStudentConditionRule extends FirstTimeStudentConditionRule
         return Boolean.logicalAnd(getFirstTimeStudent(), registrationFirstTime);
     }
 
+    @Override
+    public boolean isValidTo(TuitionConditionFacts facts, Enrolment enrolment) {
+        return Boolean.logicalAnd(getFirstTimeStudent(), facts.isFirstTimeStudent());
+    }
+
+    @Override
+    public TuitionConditionPredicate compile() {
+        final Boolean firstTimeStudent = getFirstTimeStudent();
+
+        return (facts, enrolment) -> Boolean.logicalAnd(firstTimeStudent, facts.isFirstTimeStudent());
+    }
+
+    @Override
+    public void setFirstTimeStudent(final Boolean firstTimeStudent) {
+        super.setFirstTimeStudent(firstTimeStudent);
+
+        markConditionRulesModified();
+    }
+
     @Override
     public boolean checkRules() {
         if (getFirstTimeStudent() == null) {
@@ -25,6 +25,7 @@
  */
 package org.fenixedu.academictreasury.domain.tuition.conditionRule;
 
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.fenixedu.academic.domain.Enrolment;
@@ -34,10 +35,14 @@ import org.fenixedu.academic.domain.exceptions.DomainException;
 import org.fenixedu.academic.domain.student.Registration;
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
 import org.fenixedu.academictreasury.domain.tuition.TuitionConditionAnnotation;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionFacts;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionPredicate;
 import org.fenixedu.academictreasury.domain.tuition.TuitionConditionRule;
 import org.fenixedu.academictreasury.dto.tariff.TuitionPaymentPlanBean;
 import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
 
+import com.google.common.collect.ImmutableSet;
+
 @TuitionConditionAnnotation(IngressionTypeConditionRule.BUNDLE_NAME)
 public class IngressionTypeConditionRule extends IngressionTypeConditionRule_Base {
 
@@ -62,6 +67,32 @@ public class IngressionTypeConditionRule extends IngressionTypeConditionRule_Bas
         return getIngressionSet().contains(ingression);
     }
 
+    @Override
+    public boolean isValidTo(TuitionConditionFacts facts, Enrolment enrolment) {
+        return getIngressionSet().contains(facts.getIngression());
+    }
+
+    @Override
+    public TuitionConditionPredicate compile() {
+        final Set<IngressionType> ingressions = ImmutableSet.copyOf(getIngressionSet());
+
+        return (facts, enrolment) -> ingressions.contains(facts.getIngression());
+    }
+
+    @Override
+    public void addIngression(final IngressionType ingression) {
+        super.addIngression(ingression);
+
+        markConditionRulesModified();
+    }
+
+    @Override
+    public void removeIngression(final IngressionType ingression) {
+        super.removeIngression(ingression);
+
+        markConditionRulesModified();
+    }
+
     @Override
     public boolean checkRules() {
         if (getIngressionSet() == null || getIngressionSet().isEmpty()) {
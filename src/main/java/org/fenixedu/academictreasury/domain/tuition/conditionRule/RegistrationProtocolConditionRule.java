@@ -38,10 +38,14 @@ import org.fenixedu.academic.domain.student.Registration;
 import org.fenixedu.academic.domain.student.RegistrationProtocol;
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
 import org.fenixedu.academictreasury.domain.tuition.TuitionConditionAnnotation;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionFacts;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionPredicate;
 import org.fenixedu.academictreasury.domain.tuition.TuitionConditionRule;
 import org.fenixedu.academictreasury.dto.tariff.TuitionPaymentPlanBean;
 import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
 
+import com.google.common.collect.ImmutableSet;
+
 @TuitionConditionAnnotation(RegistrationProtocolConditionRule.BUNDLE_NAME)
 public class RegistrationProtocolConditionRule extends RegistrationProtocolConditionRule_Base {
 
@@ -70,6 +74,32 @@ public class RegistrationProtocolConditionRule extends RegistrationProtocolCondi
         return getRegistrationProtocolSet().contains(registration.getRegistrationProtocol());
     }
 
+    @Override
+    public boolean isValidTo(TuitionConditionFacts facts, Enrolment enrolment) {
+        return getRegistrationProtocolSet().contains(facts.getRegistrationProtocol());
+    }
+
+    @Override
+    public TuitionConditionPredicate compile() {
+        final Set<RegistrationProtocol> registrationProtocols = ImmutableSet.copyOf(getRegistrationProtocolSet());
+
+        return (facts, enrolment) -> registrationProtocols.contains(facts.getRegistrationProtocol());
+    }
+
+    @Override
+    public void addRegistrationProtocol(final RegistrationProtocol registrationProtocol) {
+        super.addRegistrationProtocol(registrationProtocol);
+
+        markConditionRulesModified();
+    }
+
+    @Override
+    public void removeRegistrationProtocol(final RegistrationProtocol registrationProtocol) {
+        super.removeRegistrationProtocol(registrationProtocol);
+
+        markConditionRulesModified();
+    }
+
     @Override
     public boolean checkRules() {
         if (getRegistrationProtocolSet() == null || getRegistrationProtocolSet().isEmpty()) {
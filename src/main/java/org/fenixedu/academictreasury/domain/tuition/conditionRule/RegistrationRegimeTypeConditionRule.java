@@ -38,10 +38,14 @@ import org.fenixedu.academic.domain.student.Registration;
 import org.fenixedu.academic.domain.student.RegistrationRegimeType;
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
 import org.fenixedu.academictreasury.domain.tuition.TuitionConditionAnnotation;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionFacts;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionPredicate;
 import org.fenixedu.academictreasury.domain.tuition.TuitionConditionRule;
 import org.fenixedu.academictreasury.dto.tariff.TuitionPaymentPlanBean;
 import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
 
+import com.google.common.collect.Sets;
+
 @TuitionConditionAnnotation(RegistrationRegimeTypeConditionRule.BUNDLE_NAME)
 public class RegistrationRegimeTypeConditionRule extends RegistrationRegimeTypeConditionRule_Base {
 
@@ -66,6 +70,25 @@ public class RegistrationRegimeTypeConditionRule extends RegistrationRegimeTypeC
         return getRegistrationRegimeTypes().contains(registrationRegimeType);
     }
 
+    @Override
+    public boolean isValidTo(TuitionConditionFacts facts, Enrolment enrolment) {
+        return getRegistrationRegimeTypes().contains(facts.getRegimeType());
+    }
+
+    @Override
+    public TuitionConditionPredicate compile() {
+        final Set<RegistrationRegimeType> registrationRegimeTypes = Sets.immutableEnumSet(getRegimeTypesConverted());
+
+        return (facts, enrolment) -> registrationRegimeTypes.contains(facts.getRegimeType());
+    }
+
+    @Override
+    public void setRegistrationRegimeTypesSerialized(final String registrationRegimeTypesSerialized) {
+        super.setRegistrationRegimeTypesSerialized(registrationRegimeTypesSerialized);
+
+        markConditionRulesModified();
+    }
+
     public Set<RegistrationRegimeType> getRegistrationRegimeTypes() {
         Set<RegistrationRegimeType> result = new RegimeHashSet(this);
         getRegimeTypesConverted().forEach(r -> result.add(r));
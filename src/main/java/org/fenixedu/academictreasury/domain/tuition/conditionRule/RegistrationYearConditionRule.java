@@ -1,5 +1,6 @@
 package org.fenixedu.academictreasury.domain.tuition.conditionRule;
 
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.fenixedu.academic.domain.Enrolment;
@@ -8,10 +9,14 @@ import org.fenixedu.academic.domain.ExecutionYear;
 import org.fenixedu.academic.domain.student.Registration;
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
 import org.fenixedu.academictreasury.domain.tuition.TuitionConditionAnnotation;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionFacts;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionPredicate;
 import org.fenixedu.academictreasury.domain.tuition.TuitionConditionRule;
 import org.fenixedu.academictreasury.dto.tariff.TuitionPaymentPlanBean;
 import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
 
+import com.google.common.collect.ImmutableSet;
+
 @TuitionConditionAnnotation(RegistrationYearConditionRule.BUNDLE_NAME)
 public class RegistrationYearConditionRule extends RegistrationYearConditionRule_Base {
 
@@ -36,6 +41,32 @@ public class RegistrationYearConditionRule extends RegistrationYearConditionRule
         return getExecutionIntervalsSet().contains(registration.getRegistrationYear());
     }
 
+    @Override
+    public boolean isValidTo(TuitionConditionFacts facts, Enrolment enrolment) {
+        return getExecutionIntervalsSet().contains(facts.getRegistrationYear());
+    }
+
+    @Override
+    public TuitionConditionPredicate compile() {
+        final Set<ExecutionInterval> executionIntervals = ImmutableSet.copyOf(getExecutionIntervalsSet());
+
+        return (facts, enrolment) -> executionIntervals.contains(facts.getRegistrationYear());
+    }
+
+    @Override
+    public void addExecutionIntervals(final ExecutionInterval executionIntervals) {
+        super.addExecutionIntervals(executionIntervals);
+
+        markConditionRulesModified();
+    }
+
+    @Override
+    public void removeExecutionIntervals(final ExecutionInterval executionIntervals) {
+        super.removeExecutionIntervals(executionIntervals);
+
+        markConditionRulesModified();
+    }
+
     @Override
     public boolean checkRules() {
         if (getExecutionIntervalsSet() == null || getExecutionIntervalsSet().isEmpty()) {
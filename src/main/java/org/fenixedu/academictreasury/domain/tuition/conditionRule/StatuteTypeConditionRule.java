@@ -25,6 +25,7 @@
  */
 package org.fenixedu.academictreasury.domain.tuition.conditionRule;
 
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -37,10 +38,14 @@ import org.fenixedu.academic.domain.student.Registration;
 import org.fenixedu.academic.domain.student.StatuteType;
 import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
 import org.fenixedu.academictreasury.domain.tuition.TuitionConditionAnnotation;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionFacts;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionPredicate;
 import org.fenixedu.academictreasury.domain.tuition.TuitionConditionRule;
 import org.fenixedu.academictreasury.dto.tariff.TuitionPaymentPlanBean;
 import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
 
+import com.google.common.collect.ImmutableSet;
+
 @TuitionConditionAnnotation(StatuteTypeConditionRule.BUNDLE_NAME)
 public class StatuteTypeConditionRule extends StatuteTypeConditionRule_Base {
 
@@ -72,6 +77,34 @@ public class StatuteTypeConditionRule extends StatuteTypeConditionRule_Base {
         return getStatuteTypeSet().stream().anyMatch(statute -> statutesTypesValidOnAnyExecutionSemesterFor.contains(statute));
     }
 
+    @Override
+    public boolean isValidTo(TuitionConditionFacts facts, Enrolment enrolment) {
+        final Set<StatuteType> statuteTypes = facts.getStatuteTypes();
+
+        return getStatuteTypeSet().stream().anyMatch(statute -> statuteTypes.contains(statute));
+    }
+
+    @Override
+    public TuitionConditionPredicate compile() {
+        final Set<StatuteType> statuteTypes = ImmutableSet.copyOf(getStatuteTypeSet());
+
+        return (facts, enrolment) -> !Collections.disjoint(statuteTypes, facts.getStatuteTypes());
+    }
+
+    @Override
+    public void addStatuteType(final StatuteType statuteType) {
+        super.addStatuteType(statuteType);
+
+        markConditionRulesModified();
+    }
+
+    @Override
+    public void removeStatuteType(final StatuteType statuteType) {
+        super.removeStatuteType(statuteType);
+
+        markConditionRulesModified();
+    }
+
     @Override
     public boolean checkRules() {
         if (getStatuteTypeSet() == null || getStatuteTypeSet().isEmpty()) {
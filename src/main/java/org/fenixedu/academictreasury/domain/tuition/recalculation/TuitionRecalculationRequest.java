@@ -0,0 +1,318 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.domain.tuition.recalculation;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.fenixedu.academic.domain.ExecutionYear;
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEvent;
+import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
+import org.fenixedu.academictreasury.domain.requests.RequestRowsProcessor;
+import org.fenixedu.academictreasury.domain.settings.AcademicTreasurySettings;
+import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlan;
+import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlanGroup;
+import org.fenixedu.academictreasury.services.tuition.InstallmentOptions;
+import org.fenixedu.academictreasury.services.tuition.RegistrationOptions;
+import org.fenixedu.academictreasury.services.tuition.RegistrationTuitionService;
+import org.fenixedu.academictreasury.services.tuition.TuitionOptions;
+import org.fenixedu.academictreasury.util.TsvUtils;
+import org.fenixedu.treasury.domain.Product;
+import org.fenixedu.treasury.domain.document.DebitEntry;
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+
+import com.google.common.collect.Lists;
+
+import pt.ist.fenixframework.Atomic;
+import pt.ist.fenixframework.Atomic.TxMode;
+import pt.ist.fenixframework.FenixFramework;
+
+/**
+ * Bulk recalculation of the registration tuitions of an execution year, restricted
+ * to one tuition payment plan or to all the plans of the tuition payment plan group.
+ * 
+ * Each registration is recalculated with {@link RequestRowsProcessor} in its own write
+ * transaction, which also records its row with the net amounts before and after. The
+ * registrations already processed are skipped, so a failed or interrupted request is
+ * resumed by processing it again.
+ * The installments are recalculated with the recalculation due date of the request or,
+ * when it is not set, with the recalculations configured in the tuition payment plan.
+ */
+public class TuitionRecalculationRequest extends TuitionRecalculationRequest_Base {
+
+    protected TuitionRecalculationRequest() {
+        super();
+        setDomainRoot(FenixFramework.getDomainRoot());
+        setCreationDate(new DateTime());
+    }
+
+    protected TuitionRecalculationRequest(final ExecutionYear executionYear,
+            final TuitionPaymentPlanGroup tuitionPaymentPlanGroup, final TuitionPaymentPlan tuitionPaymentPlan,
+            final LocalDate debtDate, final LocalDate recalculationDueDate) {
+        this();
+
+        setExecutionYear(executionYear);
+        setTuitionPaymentPlanGroup(tuitionPaymentPlanGroup);
+        setTuitionPaymentPlan(tuitionPaymentPlan);
+        setDebtDate(debtDate);
+        setRecalculationDueDate(recalculationDueDate);
+
+        checkRules();
+    }
+
+    private void checkRules() {
+        if (getDomainRoot() == null) {
+            throw new AcademicTreasuryDomainException("error.TuitionRecalculationRequest.domainRoot.required");
+        }
+
+        if (getExecutionYear() == null) {
+            throw new AcademicTreasuryDomainException("error.TuitionRecalculationRequest.executionYear.required");
+        }
+
+        if (getTuitionPaymentPlanGroup() == null) {
+            throw new AcademicTreasuryDomainException("error.TuitionRecalculationRequest.tuitionPaymentPlanGroup.required");
+        }
+
+        if (!getTuitionPaymentPlanGroup().isForRegistration()) {
+            throw new AcademicTreasuryDomainException(
+                    "error.TuitionRecalculationRequest.tuitionPaymentPlanGroup.not.for.registration");
+        }
+
+        if (getDebtDate() == null) {
+            throw new AcademicTreasuryDomainException("error.TuitionRecalculationRequest.debtDate.required");
+        }
+
+        if (getTuitionPaymentPlan() != null
+                && (getTuitionPaymentPlan().getTuitionPaymentPlanGroup() != getTuitionPaymentPlanGroup()
+                        || getTuitionPaymentPlan().getExecutionYear() != getExecutionYear())) {
+            throw new AcademicTreasuryDomainException("error.TuitionRecalculationRequest.tuitionPaymentPlan.invalid");
+        }
+    }
+
+    public boolean isProcessed() {
+        return getWhenProcessed() != null;
+    }
+
+    /*
+     * Recalculates each registration in its own chunk with RequestRowsProcessor, the
+     * chunks being processed concurrently when the parallel execution is active
+     */
+    public void process() {
+        final AcademicTreasurySettings settings = AcademicTreasurySettings.getInstance();
+        final int poolSize =
+                settings.isTuitionRecalculationParallelExecutionActive() ? settings.getTuitionRecalculationPoolSize() : 1;
+
+        final List<String> registrationIds = readPendingRegistrations();
+        final Map<String, TuitionRecalculationRequestRow> rows =
+                RequestRowsProcessor.registerRows(() -> TuitionRecalculationRequestRow.find(this),
+                        r -> r.getRegistration().getExternalId(), registrationIds,
+                        id -> TuitionRecalculationRequestRow.create(this, FenixFramework.getDomainObject(id)));
+
+        new RequestRowsProcessor<String>("Tuition recalculation request " + getExternalId(), id -> rows.get(id),
+                id -> recalculate(id, rows.get(id)), poolSize).process(Lists.partition(registrationIds, 1));
+
+        markAsProcessed();
+    }
+
+    /*
+     * The registrations with a tuition event of the group in the execution year,
+     * restricted to the ones whose inferred plan is the plan of the request, if any
+     */
+    @Atomic(mode = TxMode.READ)
+    private List<String> readPendingRegistrations() {
+        final Set<Registration> processedRegistrations =
+                RequestRowsProcessor.processedKeys(TuitionRecalculationRequestRow.find(this), r -> r.getRegistration());
+
+        return AcademicTreasuryEvent.find(getExecutionYear())
+                .filter(e -> e.getTuitionPaymentPlanGroup() == getTuitionPaymentPlanGroup() && e.getRegistration() != null)
+                .map(e -> e.getRegistration()).filter(r -> !processedRegistrations.contains(r))
+                .filter(r -> getTuitionPaymentPlan() == null || TuitionPaymentPlan.inferTuitionPaymentPlanForRegistration(r,
+                        getExecutionYear()) == getTuitionPaymentPlan())
+                .sorted(Comparator.comparing(Registration::getNumber)).map(r -> r.getExternalId())
+                .collect(Collectors.toList());
+    }
+
+    private void recalculate(final String registrationId, final TuitionRecalculationRequestRow row) {
+        final Registration registration = FenixFramework.getDomainObject(registrationId);
+        final ExecutionYear executionYear = getExecutionYear();
+
+        final BigDecimal netAmountBefore = sumOfChargedProducts(registration, AcademicTreasuryEvent::getNetAmountToPay);
+        final BigDecimal netExemptedAmountBefore =
+                sumOfChargedProducts(registration, AcademicTreasuryEvent::getNetExemptedAmount);
+
+        final RegistrationOptions registrationOptions =
+                RegistrationTuitionService.startServiceInvocation(registration, executionYear, getDebtDate());
+
+        final TuitionOptions tuitionOptions = getTuitionPaymentPlan() != null ? registrationOptions
+                .withTuitionPaymentPlan(getTuitionPaymentPlan()) : registrationOptions.withInferedTuitionPaymentPlan();
+
+        final InstallmentOptions installmentOptions =
+                tuitionOptions.withAllInstallments().forceInstallmentsEvenTreasuryEventIsCharged(true);
+
+        final RegistrationTuitionService service = getRecalculationDueDate() != null ? installmentOptions
+                .recalculateInstallments(installmentsToRecalculate(registration)) : installmentOptions
+                        .withoutInstallmentsRecalculation();
+
+        service.executeTuitionPaymentPlanCreation();
+
+        row.registerAmounts(netAmountBefore, netExemptedAmountBefore,
+                sumOfChargedProducts(registration, AcademicTreasuryEvent::getNetAmountToPay),
+                sumOfChargedProducts(registration, AcademicTreasuryEvent::getNetExemptedAmount));
+    }
+
+    private Map<Product, LocalDate> installmentsToRecalculate(final Registration registration) {
+        final TuitionPaymentPlan tuitionPaymentPlan = getTuitionPaymentPlan() != null ? getTuitionPaymentPlan() :
+                TuitionPaymentPlan.inferTuitionPaymentPlanForRegistration(registration, getExecutionYear());
+
+        if (tuitionPaymentPlan == null) {
+            return Map.of();
+        }
+
+        return tuitionPaymentPlan.getTuitionInstallmentTariffsSet().stream().map(t -> t.getProduct()).distinct()
+                .collect(Collectors.toMap(Function.identity(), p -> getRecalculationDueDate()));
+    }
+
+    private BigDecimal sumOfChargedProducts(final Registration registration,
+            final BiFunction<AcademicTreasuryEvent, Product, BigDecimal> amountFunction) {
+        final AcademicTreasuryEvent academicTreasuryEvent =
+                AcademicTreasuryEvent.findUniqueForRegistrationTuition(registration, getExecutionYear()).orElse(null);
+
+        if (academicTreasuryEvent == null) {
+            return BigDecimal.ZERO;
+        }
+
+        return DebitEntry.findActive(academicTreasuryEvent).map(DebitEntry::getProduct).distinct()
+                .map(p -> amountFunction.apply(academicTreasuryEvent, p)).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Atomic(mode = TxMode.WRITE)
+    private void markAsProcessed() {
+        setWhenProcessed(new DateTime());
+    }
+
+    /*
+     * Writes one tab separated line per registration recalculated or failed,
+     * with the differences of the net amounts and the error message
+     */
+    @Atomic(mode = TxMode.READ)
+    public void writeReport(final Writer writer) throws IOException {
+        TsvUtils.writeLine(writer, TsvUtils.headers("label.TuitionRecalculationRequest.header", "registrationNumber",
+                "studentNumber", "degreeCode", "netAmountBefore", "netAmountAfter", "netAmountDifference",
+                "netExemptedAmountBefore", "netExemptedAmountAfter", "netExemptedAmountDifference", "whenProcessed",
+                "errorMessage"));
+
+        final List<TuitionRecalculationRequestRow> rows = TuitionRecalculationRequestRow.find(this)
+                .sorted(Comparator.comparing(r -> r.getRegistration().getNumber())).collect(Collectors.toList());
+
+        for (final TuitionRecalculationRequestRow row : rows) {
+            final Registration registration = row.getRegistration();
+
+            final List<String> columns = new ArrayList<>();
+            columns.add(String.valueOf(registration.getNumber()));
+            columns.add(String.valueOf(registration.getStudent().getNumber()));
+            columns.add(registration.getDegree().getCode());
+            columns.add(plainString(row.getNetAmountBefore()));
+            columns.add(plainString(row.getNetAmountAfter()));
+            columns.add(plainString(row.getNetAmountDifference()));
+            columns.add(plainString(row.getNetExemptedAmountBefore()));
+            columns.add(plainString(row.getNetExemptedAmountAfter()));
+            columns.add(plainString(row.getNetExemptedAmountDifference()));
+            columns.add(row.getWhenProcessed() != null ? row.getWhenProcessed().toString() : null);
+            columns.add(row.getErrorMessage());
+
+            TsvUtils.writeLine(writer, columns);
+        }
+
+        writer.flush();
+    }
+
+    private static String plainString(final BigDecimal value) {
+        return value != null ? value.toPlainString() : null;
+    }
+
+    public void delete() {
+        setDomainRoot(null);
+        setExecutionYear(null);
+        setTuitionPaymentPlanGroup(null);
+        setTuitionPaymentPlan(null);
+
+        Lists.newArrayList(getTuitionRecalculationRequestRowsSet()).forEach(r -> r.delete());
+
+        super.deleteDomainObject();
+    }
+
+    // @formatter:off
+    /* ********
+     * SERVICES
+     * ********
+     */
+    // @formatter:on
+
+    public static Stream<TuitionRecalculationRequest> findAll() {
+        return FenixFramework.getDomainRoot().getTuitionRecalculationRequestsSet().stream();
+    }
+
+    public static Stream<TuitionRecalculationRequest> find(final ExecutionYear executionYear) {
+        return findAll().filter(r -> r.getExecutionYear() == executionYear);
+    }
+
+    @Atomic
+    public static TuitionRecalculationRequest createForTuitionPaymentPlan(final TuitionPaymentPlan tuitionPaymentPlan,
+            final LocalDate debtDate, final LocalDate recalculationDueDate) {
+        return new TuitionRecalculationRequest(tuitionPaymentPlan.getExecutionYear(),
+                tuitionPaymentPlan.getTuitionPaymentPlanGroup(), tuitionPaymentPlan, debtDate, recalculationDueDate);
+    }
+
+    @Atomic
+    public static TuitionRecalculationRequest createForTuitionPaymentPlanGroup(
+            final TuitionPaymentPlanGroup tuitionPaymentPlanGroup, final ExecutionYear executionYear, final LocalDate debtDate,
+            final LocalDate recalculationDueDate) {
+        return new TuitionRecalculationRequest(executionYear, tuitionPaymentPlanGroup, null, debtDate, recalculationDueDate);
+    }
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.domain.tuition.recalculation;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
+
+/**
+ * Recalculation status of one registration of a tuition recalculation request,
+ * used to resume from the registrations not yet recalculated and to report the
+ * net amounts before and after the recalculation
+ */
+public class TuitionRecalculationRequestRow extends TuitionRecalculationRequestRow_Base {
+
+    protected TuitionRecalculationRequestRow() {
+        super();
+    }
+
+    protected TuitionRecalculationRequestRow(final TuitionRecalculationRequest request, final Registration registration) {
+        this();
+
+        setTuitionRecalculationRequest(request);
+        setRegistration(registration);
+
+        checkRules();
+    }
+
+    private void checkRules() {
+        if (getTuitionRecalculationRequest() == null) {
+            throw new AcademicTreasuryDomainException("error.RequestRow.request.required");
+        }
+
+        if (getRegistration() == null) {
+            throw new AcademicTreasuryDomainException("error.TuitionRecalculationRequestRow.registration.required");
+        }
+
+        // The registration is unique as the rows are only created by TuitionRecalculationRequest.registerRows
+    }
+
+    /*
+     * The net amounts of the tuition charged before and after the recalculation, the row
+     * being registered as processed by RequestRowsProcessor in the same transaction
+     */
+    public void registerAmounts(final BigDecimal netAmountBefore, final BigDecimal netExemptedAmountBefore,
+            final BigDecimal netAmountAfter, final BigDecimal netExemptedAmountAfter) {
+        setNetAmountBefore(netAmountBefore);
+        setNetExemptedAmountBefore(netExemptedAmountBefore);
+        setNetAmountAfter(netAmountAfter);
+        setNetExemptedAmountAfter(netExemptedAmountAfter);
+    }
+
+    public BigDecimal getNetAmountDifference() {
+        if (getNetAmountBefore() == null || getNetAmountAfter() == null) {
+            return null;
+        }
+
+        return getNetAmountAfter().subtract(getNetAmountBefore());
+    }
+
+    public BigDecimal getNetExemptedAmountDifference() {
+        if (getNetExemptedAmountBefore() == null || getNetExemptedAmountAfter() == null) {
+            return null;
+        }
+
+        return getNetExemptedAmountAfter().subtract(getNetExemptedAmountBefore());
+    }
+
+    @Override
+    public void delete() {
+        setTuitionRecalculationRequest(null);
+        setRegistration(null);
+
+        super.deleteDomainObject();
+    }
+
+    // @formatter:off
+    /* ********
+     * SERVICES
+     * ********
+     */
+    // @formatter:on
+
+    public static Stream<TuitionRecalculationRequestRow> find(final TuitionRecalculationRequest request) {
+        return request.getTuitionRecalculationRequestRowsSet().stream();
+    }
+
+    public static Stream<TuitionRecalculationRequestRow> find(final TuitionRecalculationRequest request,
+            final Registration registration) {
+        return find(request).filter(r -> r.getRegistration() == registration);
+    }
+
+    public static Optional<TuitionRecalculationRequestRow> findUnique(final TuitionRecalculationRequest request,
+            final Registration registration) {
+        return find(request, registration).findFirst();
+    }
+
+    public static TuitionRecalculationRequestRow create(final TuitionRecalculationRequest request,
+            final Registration registration) {
+        return new TuitionRecalculationRequestRow(request, registration);
+    }
+
+}
@@ -295,7 +295,7 @@ public class DebtReportEntryBean implements SpreadsheetRow, IFinantialReportEntr
                         ((Invoice) entry.getFinantialDocument()).getPayorDebtAccount().getCustomer().getName();
             }
 
-            fillStudentInformation(entry);
+            fillStudentInformation(entry, errorsLog);
 
             this.productCode = entry.getProduct().getCode();
             this.invoiceEntryDescription = entry.getDescription();
@@ -386,7 +386,7 @@ public class DebtReportEntryBean implements SpreadsheetRow, IFinantialReportEntr
         }
     }
 
-    private void fillStudentInformation(final InvoiceEntry entry) {
+    private void fillStudentInformation(final InvoiceEntry entry, final ErrorsLog errorsLog) {
         final Customer customer = entry.getDebtAccount().getCustomer();
 
         this.customerId = customer.getExternalId();
@@ -417,7 +417,7 @@ public class DebtReportEntryBean implements SpreadsheetRow, IFinantialReportEntr
             this.studentNumber = ((PersonCustomer) customer).getAssociatedPerson().getStudent().getNumber();
         }
 
-        fillAcademicInformation(entry);
+        fillAcademicInformation(entry, errorsLog.getFactsCache());
     }
 
     static EmailAddress personalEmail(final Person person) {
@@ -6,15 +6,15 @@ import org.fenixedu.academic.domain.CurricularCourse;
 import org.fenixedu.academic.domain.Degree;
 import org.fenixedu.academic.domain.ExecutionYear;
 import org.fenixedu.academic.domain.StudentCurricularPlan;
-import org.fenixedu.academic.domain.candidacy.IngressionType;
 import org.fenixedu.academic.domain.student.Registration;
-import org.fenixedu.academic.domain.student.RegistrationRegimeType;
 import org.fenixedu.academic.domain.treasury.IAcademicTreasuryTarget;
 import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEvent;
 import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEvent.AcademicTreasuryEventKeys;
+import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEventProperties;
+import org.fenixedu.academictreasury.domain.reports.DebtReportFactsCache;
+import org.fenixedu.academictreasury.domain.reports.DebtReportFactsCache.DegreeFacts;
+import org.fenixedu.academictreasury.domain.reports.DebtReportFactsCache.StudentConditionsFacts;
 import org.fenixedu.academictreasury.domain.serviceRequests.ITreasuryServiceRequest;
-import org.fenixedu.academictreasury.services.TuitionServices;
-import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
 import org.fenixedu.commons.i18n.LocalizedString;
 import org.fenixedu.treasury.domain.document.CreditEntry;
 import org.fenixedu.treasury.domain.document.DebitEntry;
@@ -32,7 +32,7 @@ import com.google.common.base.Strings;
 // Use this interface to not repeat code between methods used for report
 public interface IFinantialReportEntryCommonMethods {
 
-    default void fillAcademicInformation(final InvoiceEntry invoiceEntry) {
+    default void fillAcademicInformation(final InvoiceEntry invoiceEntry, final DebtReportFactsCache factsCache) {
         DebitEntry debitEntry =
                 invoiceEntry.isDebitNoteEntry() ? (DebitEntry) invoiceEntry : ((CreditEntry) invoiceEntry).getDebitEntry();
 
@@ -106,10 +106,7 @@ public interface IFinantialReportEntryCommonMethods {
                 final AcademicTreasuryEvent academicTreasuryEvent = (AcademicTreasuryEvent) treasuryEvent;
 
                 if (academicTreasuryEvent.getDegree() != null) {
-                    this.setDegreeType(academicTreasuryEvent.getDegree().getDegreeType().getName().getContent());
-                    this.setDegreeCode(academicTreasuryEvent.getDegree().getCode());
-                    this.setDegreeName(academicTreasuryEvent.getDegree().getPresentationName());
-                    this.setDegreeDomainObject(academicTreasuryEvent.getDegree());
+                    fillDegreeInformation(academicTreasuryEvent.getDegree(), factsCache);
                 }
 
                 if (academicTreasuryEvent.getExecutionYear() != null) {
@@ -122,37 +119,24 @@ public interface IFinantialReportEntryCommonMethods {
                     ExecutionYear executionYear = academicTreasuryEvent.getExecutionYear();
 
                     this.setRegistrationNumber(registration.getNumber());
-                    this.setDegreeType(
-                            academicTreasuryEvent.getRegistration().getDegree().getDegreeType().getName().getContent());
-                    this.setDegreeCode(academicTreasuryEvent.getRegistration().getDegree().getCode());
-                    this.setDegreeName(academicTreasuryEvent.getRegistration().getDegree().getPresentationName());
-                    this.setDegreeDomainObject(academicTreasuryEvent.getRegistration().getDegree());
+                    fillDegreeInformation(academicTreasuryEvent.getRegistration().getDegree(), factsCache);
                     this.setExecutionYear(executionYear.getQualifiedName());
                     this.setExecutionYearDomainObject(executionYear);
 
                     if (debitEntry != null) {
-                        this.setTuitionPaymentPlan(
-                                AcademicTreasuryEventKeys.valueFor(debitEntry, AcademicTreasuryEventKeys.TUITION_PAYMENT_PLAN));
-                        this.setTuitionPaymentPlanConditions(AcademicTreasuryEventKeys.valueFor(debitEntry,
-                                AcademicTreasuryEventKeys.TUITION_PAYMENT_PLAN_CONDITIONS));
+                        AcademicTreasuryEventProperties properties = AcademicTreasuryEventProperties.of(debitEntry);
+                        this.setTuitionPaymentPlan(properties.get(AcademicTreasuryEventKeys.TUITION_PAYMENT_PLAN));
+                        this.setTuitionPaymentPlanConditions(
+                                properties.get(AcademicTreasuryEventKeys.TUITION_PAYMENT_PLAN_CONDITIONS));
                     }
 
-                    fillStudentConditionsInformation(registration, executionYear);
-
-                    this.setActiveStudentCurricularPlanOfExecutionYear(registration.getStudentCurricularPlan(executionYear));
-
-                    if (this.getActiveStudentCurricularPlanOfExecutionYear() == null) {
-                        this.setActiveStudentCurricularPlanOfExecutionYear(registration.getActiveStudentCurricularPlan());
-                    }
+                    fillStudentConditionsInformation(registration, executionYear, factsCache);
                 } else if (academicTreasuryEvent.isForStandaloneTuition() || academicTreasuryEvent.isForExtracurricularTuition()) {
                     if (debitEntry != null) {
                         CurricularCourse curricularCourse = getCurricularCourse(debitEntry);
 
                         if (curricularCourse != null) {
-                            this.setDegreeType(curricularCourse.getDegree().getDegreeType().getName().getContent());
-                            this.setDegreeCode(curricularCourse.getDegree().getCode());
-                            this.setDegreeName(curricularCourse.getDegree().getPresentationName());
-                            this.setDegreeDomainObject(curricularCourse.getDegree());
+                            fillDegreeInformation(curricularCourse.getDegree(), factsCache);
                         }
 
                         if (debitEntry.getExecutionSemester() != null) {
@@ -161,30 +145,21 @@ public interface IFinantialReportEntryCommonMethods {
                             this.setExecutionSemester(debitEntry.getExecutionSemester().getQualifiedName());
                         }
 
-                        this.setTuitionPaymentPlan(
-                                AcademicTreasuryEventKeys.valueFor(debitEntry, AcademicTreasuryEventKeys.TUITION_PAYMENT_PLAN));
-                        this.setTuitionPaymentPlanConditions(AcademicTreasuryEventKeys.valueFor(debitEntry,
-                                AcademicTreasuryEventKeys.TUITION_PAYMENT_PLAN_CONDITIONS));
+                        AcademicTreasuryEventProperties properties = AcademicTreasuryEventProperties.of(debitEntry);
+                        this.setTuitionPaymentPlan(properties.get(AcademicTreasuryEventKeys.TUITION_PAYMENT_PLAN));
+                        this.setTuitionPaymentPlanConditions(
+                                properties.get(AcademicTreasuryEventKeys.TUITION_PAYMENT_PLAN_CONDITIONS));
                     }
 
                     Registration registration = academicTreasuryEvent.getRegistration();
                     ExecutionYear executionYear = academicTreasuryEvent.getExecutionYear();
-                    fillStudentConditionsInformation(registration, executionYear);
-
-                    this.setActiveStudentCurricularPlanOfExecutionYear(registration.getStudentCurricularPlan(executionYear));
-
-                    if (this.getActiveStudentCurricularPlanOfExecutionYear() == null) {
-                        this.setActiveStudentCurricularPlanOfExecutionYear(registration.getActiveStudentCurricularPlan());
-                    }
+                    fillStudentConditionsInformation(registration, executionYear, factsCache);
                 } else if (academicTreasuryEvent.isForImprovementTax()) {
                     if (debitEntry != null) {
                         CurricularCourse curricularCourse = getCurricularCourse(debitEntry);
 
                         if (curricularCourse != null) {
-                            this.setDegreeType(curricularCourse.getDegree().getDegreeType().getName().getContent());
-                            this.setDegreeCode(curricularCourse.getDegree().getCode());
-                            this.setDegreeName(curricularCourse.getDegree().getPresentationName());
-                            this.setDegreeDomainObject(curricularCourse.getDegree());
+                            fillDegreeInformation(curricularCourse.getDegree(), factsCache);
                         }
 
                         if (debitEntry.getExecutionSemester() != null) {
@@ -196,51 +171,30 @@ public interface IFinantialReportEntryCommonMethods {
 
                     Registration registration = academicTreasuryEvent.getRegistration();
                     ExecutionYear executionYear = academicTreasuryEvent.getExecutionYear();
-                    fillStudentConditionsInformation(registration, executionYear);
-
-                    this.setActiveStudentCurricularPlanOfExecutionYear(registration.getStudentCurricularPlan(executionYear));
-
-                    if (this.getActiveStudentCurricularPlanOfExecutionYear() == null) {
-                        this.setActiveStudentCurricularPlanOfExecutionYear(registration.getActiveStudentCurricularPlan());
-                    }
+                    fillStudentConditionsInformation(registration, executionYear, factsCache);
                 } else if (academicTreasuryEvent.isForAcademicTax()) {
                     Registration registration = academicTreasuryEvent.getRegistration();
                     ExecutionYear executionYear = academicTreasuryEvent.getExecutionYear();
 
                     this.setRegistrationNumber(registration.getNumber());
-                    this.setDegreeType(
-                            academicTreasuryEvent.getRegistration().getDegree().getDegreeType().getName().getContent());
-                    this.setDegreeCode(academicTreasuryEvent.getRegistration().getDegree().getCode());
-                    this.setDegreeName(academicTreasuryEvent.getRegistration().getDegree().getPresentationName());
-                    this.setDegreeDomainObject(academicTreasuryEvent.getRegistration().getDegree());
+                    fillDegreeInformation(academicTreasuryEvent.getRegistration().getDegree(), factsCache);
                     this.setExecutionYear(executionYear.getQualifiedName());
                     this.setExecutionYearDomainObject(executionYear);
 
-                    fillStudentConditionsInformation(academicTreasuryEvent.getRegistration(), executionYear);
-
-                    this.setActiveStudentCurricularPlanOfExecutionYear(registration.getStudentCurricularPlan(executionYear));
-
-                    if (this.getActiveStudentCurricularPlanOfExecutionYear() == null) {
-                        this.setActiveStudentCurricularPlanOfExecutionYear(registration.getActiveStudentCurricularPlan());
-                    }
+                    fillStudentConditionsInformation(academicTreasuryEvent.getRegistration(), executionYear, factsCache);
                 } else if (academicTreasuryEvent.isForAcademicServiceRequest()) {
                     final ITreasuryServiceRequest iTreasuryServiceRequest = academicTreasuryEvent.getITreasuryServiceRequest();
 
                     Registration registration = iTreasuryServiceRequest.getRegistration();
                     this.setRegistrationNumber(registration.getNumber());
-                    this.setDegreeType(registration.getDegree().getDegreeType().getName().getContent());
-                    this.setDegreeCode(registration.getDegree().getCode());
-                    this.setDegreeName(registration.getDegree().getPresentationName());
-                    this.setDegreeDomainObject(registration.getDegree());
+                    fillDegreeInformation(registration.getDegree(), factsCache);
 
                     if (iTreasuryServiceRequest.hasExecutionYear()) {
                         ExecutionYear executionYear = iTreasuryServiceRequest.getExecutionYear();
 
                         this.setExecutionYear(executionYear.getQualifiedName());
                         this.setExecutionYearDomainObject(executionYear);
-                        fillStudentConditionsInformation(iTreasuryServiceRequest.getRegistration(), executionYear);
-
-                        this.setActiveStudentCurricularPlanOfExecutionYear(registration.getStudentCurricularPlan(executionYear));
+                        fillStudentConditionsInformation(registration, executionYear, factsCache);
                     }
 
                     if (this.getActiveStudentCurricularPlanOfExecutionYear() == null) {
@@ -253,10 +207,7 @@ public interface IFinantialReportEntryCommonMethods {
                     Registration registration = treasuryEventTarget.getAcademicTreasuryTargetRegistration();
                     if (registration != null) {
                         this.setRegistrationNumber(registration.getNumber());
-                        this.setDegreeType(registration.getDegree().getDegreeType().getName().getContent());
-                        this.setDegreeCode(registration.getDegree().getCode());
-                        this.setDegreeName(registration.getDegree().getPresentationName());
-                        this.setDegreeDomainObject(registration.getDegree());
+                        fillDegreeInformation(registration.getDegree(), factsCache);
                     }
 
                     ExecutionYear executionYear = treasuryEventTarget.getAcademicTreasuryTargetExecutionYear();
@@ -282,19 +233,11 @@ public interface IFinantialReportEntryCommonMethods {
                     ExecutionYear executionYear = academicTreasuryEvent.getExecutionYear();
 
                     this.setRegistrationNumber(registration.getNumber());
-                    this.setDegreeType(registration.getDegree().getDegreeType().getName().getContent());
-                    this.setDegreeCode(registration.getDegree().getCode());
-                    this.setDegreeName(registration.getDegree().getPresentationName());
-                    this.setDegreeDomainObject(registration.getDegree());
+                    fillDegreeInformation(registration.getDegree(), factsCache);
                     this.setExecutionYear(executionYear.getQualifiedName());
                     this.setExecutionYearDomainObject(executionYear);
 
-                    fillStudentConditionsInformation(registration, executionYear);
-
-                    this.setActiveStudentCurricularPlanOfExecutionYear(registration.getStudentCurricularPlan(executionYear));
-                    if (this.getActiveStudentCurricularPlanOfExecutionYear() == null) {
-                        this.setActiveStudentCurricularPlanOfExecutionYear(registration.getActiveStudentCurricularPlan());
-                    }
+                    fillStudentConditionsInformation(registration, executionYear, factsCache);
                 }
             } else {
                 if (!Strings.isNullOrEmpty(treasuryEvent.getDegreeCode())) {
@@ -343,24 +286,30 @@ public interface IFinantialReportEntryCommonMethods {
         return originDebitEntry;
     }
 
-    private void fillStudentConditionsInformation(final Registration registration, final ExecutionYear executionYear) {
-        this.setFirstTimeStudent(registration.isFirstTime(executionYear));
-        this.setPartialRegime(registration.getRegimeType(executionYear) == RegistrationRegimeType.PARTIAL_TIME);
-        this.setStatutes(statutes(registration, executionYear));
-        this.setAgreement(registration.getRegistrationProtocol().getDescription());
-        IngressionType ingressionType = registration.getIngressionType();
-        this.setIngression(ingressionType != null ? ingressionType.getDescription() : null);
-
-        this.setNumberOfNormalEnrolments(TuitionServices.normalEnrolmentsIncludingAnnuled(registration, executionYear).size());
-        this.setNumberOfStandaloneEnrolments(
-                TuitionServices.standaloneEnrolmentsIncludingAnnuled(registration, executionYear).size());
-        this.setNumberOfExtracurricularEnrolments(
-                TuitionServices.extracurricularEnrolmentsIncludingAnnuled(registration, executionYear).size());
+    private void fillDegreeInformation(final Degree degree, final DebtReportFactsCache factsCache) {
+        final DegreeFacts degreeFacts = factsCache.degree(degree);
+
+        this.setDegreeType(degreeFacts.getDegreeTypeName());
+        this.setDegreeCode(degreeFacts.getCode());
+        this.setDegreeName(degreeFacts.getPresentationName());
+        this.setDegreeDomainObject(degree);
     }
 
-    private String statutes(final Registration registration, final ExecutionYear executionYear) {
-        return AcademicTreasuryConstants.statutesTypesValidOnAnyExecutionSemesterFor(registration, executionYear).stream()
-                .map(s -> s != null ? s.getName().getContent() : "").reduce((a, c) -> c + ", " + a).orElse(null);
+    private void fillStudentConditionsInformation(final Registration registration, final ExecutionYear executionYear,
+            final DebtReportFactsCache factsCache) {
+        final StudentConditionsFacts studentConditions = factsCache.studentConditions(registration, executionYear);
+
+        this.setFirstTimeStudent(studentConditions.isFirstTimeStudent());
+        this.setPartialRegime(studentConditions.isPartialRegime());
+        this.setStatutes(studentConditions.getStatutes());
+        this.setAgreement(studentConditions.getAgreement());
+        this.setIngression(studentConditions.getIngression());
+
+        this.setNumberOfNormalEnrolments(studentConditions.getNumberOfNormalEnrolments());
+        this.setNumberOfStandaloneEnrolments(studentConditions.getNumberOfStandaloneEnrolments());
+        this.setNumberOfExtracurricularEnrolments(studentConditions.getNumberOfExtracurricularEnrolments());
+
+        this.setActiveStudentCurricularPlanOfExecutionYear(studentConditions.getStudentCurricularPlan());
     }
 
     public Integer getRegistrationNumber();
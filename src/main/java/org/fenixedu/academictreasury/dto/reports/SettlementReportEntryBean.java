@@ -220,7 +220,7 @@ public class SettlementReportEntryBean implements SpreadsheetRow, IFinantialRepo
 
             fillStudentInformation(entry);
 
-            fillAcademicInformation(entry.getInvoiceEntry());
+            fillAcademicInformation(entry.getInvoiceEntry(), errorsLog.getFactsCache());
 
             if (entry.getInvoiceEntry().getFinantialEntity() != null) {
                 this.finantialEntityCode = entry.getInvoiceEntry().getFinantialEntity().getCode();
@@ -29,9 +29,12 @@ import static com.qubit.terra.framework.tools.excel.ExcelUtil.createCellWithValu
 import static org.fenixedu.academictreasury.util.AcademicTreasuryConstants.academicTreasuryBundle;
 
 import org.apache.poi.ss.usermodel.Row;
+import org.fenixedu.academic.domain.Degree;
 import org.fenixedu.academic.domain.treasury.IAcademicTreasuryTarget;
 import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
 import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEvent;
+import org.fenixedu.academictreasury.domain.reports.DebtReportFactsCache;
+import org.fenixedu.academictreasury.domain.reports.DebtReportFactsCache.DegreeFacts;
 import org.fenixedu.academictreasury.domain.reports.DebtReportRequest;
 import org.fenixedu.academictreasury.domain.reports.ErrorsLog;
 import org.fenixedu.academictreasury.domain.serviceRequests.ITreasuryServiceRequest;
@@ -163,7 +166,7 @@ public class TreasuryExemptionReportEntryBean extends AbstractReportEntryBean {
 
             this.reason = treasuryExemption.getReason();
 
-            fillAcademicInformation(treasuryExemption.getDebitEntry());
+            fillAcademicInformation(treasuryExemption.getDebitEntry(), errorsLog.getFactsCache());
 
             this.completed = true;
         } catch (final Exception e) {
@@ -173,7 +176,7 @@ public class TreasuryExemptionReportEntryBean extends AbstractReportEntryBean {
 
     }
 
-    private void fillAcademicInformation(final InvoiceEntry entry) {
+    private void fillAcademicInformation(final InvoiceEntry entry, final DebtReportFactsCache factsCache) {
         final DebitEntry debitEntry = entry.isDebitNoteEntry() ? (DebitEntry) entry : ((CreditEntry) entry).getDebitEntry();
 
         if (debitEntry != null) {
@@ -184,16 +187,12 @@ public class TreasuryExemptionReportEntryBean extends AbstractReportEntryBean {
 
                 if (academicTreasuryEvent.isForRegistrationTuition()) {
                     this.registrationNumber = academicTreasuryEvent.getRegistration().getNumber();
-                    this.degreeType = academicTreasuryEvent.getRegistration().getDegree().getDegreeType().getName().getContent();
-                    this.degreeCode = academicTreasuryEvent.getRegistration().getDegree().getCode();
-                    this.degreeName = academicTreasuryEvent.getRegistration().getDegree().getPresentationName();
+                    fillDegreeInformation(academicTreasuryEvent.getRegistration().getDegree(), factsCache);
                     this.executionYear = academicTreasuryEvent.getExecutionYear().getQualifiedName();
 
                 } else if (academicTreasuryEvent.isForStandaloneTuition() || academicTreasuryEvent.isForExtracurricularTuition()) {
                     if (debitEntry.getCurricularCourse() != null) {
-                        this.degreeType = debitEntry.getCurricularCourse().getDegree().getDegreeType().getName().getContent();
-                        this.degreeCode = debitEntry.getCurricularCourse().getDegree().getCode();
-                        this.degreeName = debitEntry.getCurricularCourse().getDegree().getPresentationName();
+                        fillDegreeInformation(debitEntry.getCurricularCourse().getDegree(), factsCache);
                     }
 
                     if (debitEntry.getExecutionSemester() != null) {
@@ -203,9 +202,7 @@ public class TreasuryExemptionReportEntryBean extends AbstractReportEntryBean {
 
                 } else if (academicTreasuryEvent.isForImprovementTax()) {
                     if (debitEntry.getCurricularCourse() != null) {
-                        this.degreeType = debitEntry.getCurricularCourse().getDegree().getDegreeType().getName().getContent();
-                        this.degreeCode = debitEntry.getCurricularCourse().getDegree().getCode();
-                        this.degreeName = debitEntry.getCurricularCourse().getDegree().getPresentationName();
+                        fillDegreeInformation(debitEntry.getCurricularCourse().getDegree(), factsCache);
                     }
 
                     if (debitEntry.getExecutionSemester() != null) {
@@ -216,9 +213,7 @@ public class TreasuryExemptionReportEntryBean extends AbstractReportEntryBean {
                 } else if (academicTreasuryEvent.isForAcademicTax()) {
 
                     this.registrationNumber = academicTreasuryEvent.getRegistration().getNumber();
-                    this.degreeType = academicTreasuryEvent.getRegistration().getDegree().getDegreeType().getName().getContent();
-                    this.degreeCode = academicTreasuryEvent.getRegistration().getDegree().getCode();
-                    this.degreeName = academicTreasuryEvent.getRegistration().getDegree().getPresentationName();
+                    fillDegreeInformation(academicTreasuryEvent.getRegistration().getDegree(), factsCache);
                     this.executionYear = academicTreasuryEvent.getExecutionYear().getQualifiedName();
 
                 } else if (academicTreasuryEvent.isForAcademicServiceRequest()) {
@@ -226,10 +221,7 @@ public class TreasuryExemptionReportEntryBean extends AbstractReportEntryBean {
                     final ITreasuryServiceRequest iTreasuryServiceRequest = academicTreasuryEvent.getITreasuryServiceRequest();
 
                     this.registrationNumber = iTreasuryServiceRequest.getRegistration().getNumber();
-                    this.degreeType =
-                            iTreasuryServiceRequest.getRegistration().getDegree().getDegreeType().getName().getContent();
-                    this.degreeCode = iTreasuryServiceRequest.getRegistration().getDegree().getCode();
-                    this.degreeName = iTreasuryServiceRequest.getRegistration().getDegree().getPresentationName();
+                    fillDegreeInformation(iTreasuryServiceRequest.getRegistration().getDegree(), factsCache);
 
                     if (iTreasuryServiceRequest.hasExecutionYear()) {
                         this.executionYear = iTreasuryServiceRequest.getExecutionYear().getQualifiedName();
@@ -240,12 +232,8 @@ public class TreasuryExemptionReportEntryBean extends AbstractReportEntryBean {
 
                     if (treasuryEventTarget.getAcademicTreasuryTargetRegistration() != null) {
                         this.registrationNumber = treasuryEventTarget.getAcademicTreasuryTargetRegistration().getNumber();
-                        this.degreeType =
-                                treasuryEventTarget.getAcademicTreasuryTargetRegistration().getDegree().getDegreeType().getName()
-                                        .getContent();
-                        this.degreeCode = treasuryEventTarget.getAcademicTreasuryTargetRegistration().getDegree().getCode();
-                        this.degreeName =
-                                treasuryEventTarget.getAcademicTreasuryTargetRegistration().getDegree().getPresentationName();
+                        fillDegreeInformation(treasuryEventTarget.getAcademicTreasuryTargetRegistration().getDegree(),
+                                factsCache);
                     }
 
                     if (treasuryEventTarget.getAcademicTreasuryTargetExecutionYear() != null) {
@@ -284,6 +272,14 @@ public class TreasuryExemptionReportEntryBean extends AbstractReportEntryBean {
         }
     }
 
+    private void fillDegreeInformation(final Degree degree, final DebtReportFactsCache factsCache) {
+        final DegreeFacts degreeFacts = factsCache.degree(degree);
+
+        this.degreeType = degreeFacts.getDegreeTypeName();
+        this.degreeCode = degreeFacts.getCode();
+        this.degreeName = degreeFacts.getPresentationName();
+    }
+
     @Override
     public void writeCellValues(final Row row, final IErrorsLog ierrorsLog) {
         final ErrorsLog errorsLog = (ErrorsLog) ierrorsLog;
@@ -446,6 +446,7 @@ public class AcademicTaxServices {
                 academicTreasuryEvent.findActiveEnrolmentEvaluationDebitEntry(improvementEnrolmentEvaluation).get();
 
         final DebitNote debitNote = (DebitNote) debitEntry.getFinantialDocument();
+        PersonCustomer.markAcademicalActBlockingStateModified(debitEntry.getDebtAccount());
 
         if (!debitEntry.isProcessedInDebitNote()) {
             debitEntry.annulDebitEntry(academicTreasuryBundle("label.AcademicTaxServices.removeDebitEntryForImprovement.reason"));
@@ -384,6 +384,8 @@ public class EmolumentServices {
         final DebitEntry debitEntry = academicTreasuryEvent.findActiveAcademicServiceRequestDebitEntry().get();
 
         final DebitNote debitNote = (DebitNote) debitEntry.getFinantialDocument();
+        PersonCustomer.markAcademicalActBlockingStateModified(debitEntry.getDebtAccount());
+
         if (!debitEntry.isProcessedInDebitNote()) {
             debitEntry.annulDebitEntry(
                     academicTreasuryBundle("label.EmolumentServices.removeDebitEntryForAcademicService.reason"));
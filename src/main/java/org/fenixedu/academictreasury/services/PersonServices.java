@@ -35,27 +35,41 @@
  */
 package org.fenixedu.academictreasury.services;
 
+import java.util.Collection;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.fenixedu.academic.domain.Person;
 import org.fenixedu.academictreasury.domain.academicalAct.AcademicActBlockingSuspension;
 import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
+import org.fenixedu.treasury.domain.Product;
 import org.joda.time.LocalDate;
 
 public class PersonServices {
 
     public static boolean isAcademicalActsBlocked(final Person person, final LocalDate when) {
+        return isAcademicalActsBlocked(person, when, PersonCustomer.academicalActBlockingProducts());
+    }
+
+    /*
+     * Answers which of the persons have the academical acts blocked on the
+     * given date. The academical act blocking products are read once for all
+     * persons and each person stops on the first blocking debit entry
+     */
+    public static Set<Person> findAcademicalActsBlocked(final Collection<Person> persons, final LocalDate when) {
+        final Set<Product> academicalActBlockingProducts = PersonCustomer.academicalActBlockingProducts();
+
+        return persons.stream().filter(p -> isAcademicalActsBlocked(p, when, academicalActBlockingProducts))
+                .collect(Collectors.toSet());
+    }
+
+    private static boolean isAcademicalActsBlocked(final Person person, final LocalDate when,
+            final Set<Product> academicalActBlockingProducts) {
         if (AcademicActBlockingSuspension.isBlockingSuspended(person, when)) {
             return false;
         }
-        
-        for (final PersonCustomer personCustomer : PersonCustomer.find(person).collect(Collectors.<PersonCustomer> toSet())) {
-            if (personCustomer.isBlockingAcademicalActs(when)) {
-                return true;
-            }
-        }
-        
-        return false;
+
+        return PersonCustomer.find(person).anyMatch(pc -> pc.isBlockingAcademicalActs(when, academicalActBlockingProducts));
     }
 
 }
@@ -660,6 +660,8 @@ public class TuitionServices {
         final DebitEntry debitEntry = academicTreasuryEvent.findActiveEnrolmentDebitEntry(standaloneEnrolment).get();
 
         DebitNote debitNote = (DebitNote) debitEntry.getFinantialDocument();
+        PersonCustomer.markAcademicalActBlockingStateModified(debitEntry.getDebtAccount());
+
         if (!debitEntry.isProcessedInDebitNote()) {
             debitEntry.annulDebitEntry(academicTreasuryBundle(TreasuryConstants.DEFAULT_LANGUAGE,
                     "label.TuitionServices.removeDebitEntryForStandaloneEnrolment.reason"));
@@ -938,6 +940,8 @@ public class TuitionServices {
         final DebitEntry debitEntry = academicTreasuryEvent.findActiveEnrolmentDebitEntry(extracurricularEnrolment).get();
 
         final DebitNote debitNote = (DebitNote) debitEntry.getFinantialDocument();
+        PersonCustomer.markAcademicalActBlockingStateModified(debitEntry.getDebtAccount());
+
         if (!debitEntry.isProcessedInDebitNote()) {
             debitEntry.annulDebitEntry(
                     academicTreasuryBundle("label.TuitionServices.removeDebitEntryForExtracurricularEnrolment.reason"));
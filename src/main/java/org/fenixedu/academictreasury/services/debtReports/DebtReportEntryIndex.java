@@ -0,0 +1,276 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.services.debtReports;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.fenixedu.academictreasury.domain.settings.AcademicTreasurySettings;
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import pt.ist.fenixframework.DomainObject;
+import pt.ist.fenixframework.FenixFramework;
+
+/**
+ * In memory index of report entries bucketed by the year-month of the date used to
+ * filter them in {@link DebtReportService}.
+ * 
+ * The code of this module that creates entries adds them to the index with
+ * {@link #index(DomainObject)}. The entries created elsewhere are only found by walking the
+ * identifiers of all entries, which does not load their state and only reads the date of the
+ * entries that were not indexed yet. This walk is done at most once in the max age of
+ * {@link AcademicTreasurySettings#getDebtReportEntryIndexMaxAgeInSecondsOrDefault()}, so the
+ * entries created elsewhere in the meantime are only found after it. The entries are then retrieved
+ * only from the buckets that intersect the requested interval. Entries whose date may still
+ * change (for example settlement entries of a document in preparation) are not bucketed,
+ * are checked again in each lookup and are always returned as candidates, so the callers
+ * must keep filtering by the exact date.
+ * 
+ * If the entry identifiers are not numeric the index is disabled and all entries are
+ * returned.
+ */
+public class DebtReportEntryIndex<T extends DomainObject> {
+
+    private static final Logger logger = LoggerFactory.getLogger(DebtReportEntryIndex.class);
+
+    private final String name;
+    private final Supplier<Stream<T>> allEntriesSupplier;
+    private final Function<T, DateTime> dateFunction;
+    private final Predicate<T> stableDatePredicate;
+
+    private final Map<Long, BitSet> indexedEntriesByPage = new HashMap<>();
+    private final NavigableMap<Integer, OidList> buckets = new TreeMap<>();
+    private Set<Long> unstableEntries = new HashSet<>();
+    private final Queue<String> createdEntries = new ConcurrentLinkedQueue<>();
+    private int indexedEntriesCount = 0;
+    private DateTime lastFullRefresh = null;
+    private volatile boolean disabled = false;
+
+    public DebtReportEntryIndex(final String name, final Supplier<Stream<T>> allEntriesSupplier,
+            final Function<T, DateTime> dateFunction, final Predicate<T> stableDatePredicate) {
+        this.name = name;
+        this.allEntriesSupplier = allEntriesSupplier;
+        this.dateFunction = dateFunction;
+        this.stableDatePredicate = stableDatePredicate;
+    }
+
+    /**
+     * Returns the entries whose date is in the year-months intersecting the interval. The
+     * end date is optional
+     */
+    public Stream<T> findCandidates(final LocalDate beginDate, final LocalDate endDate) {
+        final OidList candidates = new OidList();
+
+        synchronized (this) {
+            refresh();
+
+            if (disabled) {
+                return allEntriesSupplier.get();
+            }
+
+            final NavigableMap<Integer, OidList> intersectedBuckets = endDate != null ? buckets.subMap(yearMonth(beginDate),
+                    true, yearMonth(endDate), true) : buckets.tailMap(yearMonth(beginDate), true);
+
+            intersectedBuckets.values().forEach(b -> candidates.addAll(b));
+            unstableEntries.forEach(oid -> candidates.add(oid));
+        }
+
+        return Arrays.stream(candidates.toArray()).mapToObj(oid -> FenixFramework.<T> getDomainObject(Long.toString(oid)))
+                .filter(e -> FenixFramework.isDomainObjectValid(e));
+    }
+
+    /**
+     * Adds an entry created in the current transaction. The entry is only queued, without
+     * waiting for the lookups in progress, and is indexed in the next lookup after its
+     * transaction is committed
+     */
+    public void index(final T entry) {
+        if (!disabled) {
+            createdEntries.add(entry.getExternalId());
+        }
+    }
+
+    private void refresh() {
+        if (disabled) {
+            return;
+        }
+
+        try {
+            if (isFullRefreshRequired()) {
+                fullRefresh();
+            }
+
+            String externalId;
+            while ((externalId = createdEntries.poll()) != null) {
+                final long oid = Long.parseLong(externalId);
+
+                if (!isIndexed(oid)) {
+                    unstableEntries.add(oid);
+                }
+            }
+        } catch (final NumberFormatException e) {
+            disable(e);
+            return;
+        }
+
+        refreshUnstableEntries();
+    }
+
+    private boolean isFullRefreshRequired() {
+        final int maxAgeInSeconds = AcademicTreasurySettings.getInstance().getDebtReportEntryIndexMaxAgeInSecondsOrDefault();
+
+        return lastFullRefresh == null || !lastFullRefresh.plusSeconds(maxAgeInSeconds).isAfterNow();
+    }
+
+    private void fullRefresh() {
+        final long start = System.currentTimeMillis();
+        final DateTime now = new DateTime();
+        final int indexedEntriesCountBefore = indexedEntriesCount;
+
+        unstableEntries = new HashSet<>();
+        allEntriesSupplier.get().forEach(entry -> {
+            final long oid = Long.parseLong(entry.getExternalId());
+
+            if (!isIndexed(oid)) {
+                indexEntry(entry, oid);
+            }
+        });
+
+        lastFullRefresh = now;
+
+        logger.info(String.format("Refreshed %s index: %d new entries, %d unstable entries, %d ms", name,
+                indexedEntriesCount - indexedEntriesCountBefore, unstableEntries.size(), System.currentTimeMillis() - start));
+    }
+
+    private void refreshUnstableEntries() {
+        final Set<Long> previousUnstableEntries = unstableEntries;
+
+        unstableEntries = new HashSet<>();
+        for (final Long oid : previousUnstableEntries) {
+            final T entry = FenixFramework.getDomainObject(Long.toString(oid));
+
+            if (FenixFramework.isDomainObjectValid(entry)) {
+                indexEntry(entry, oid);
+            } else {
+                // Created by a transaction not committed yet, or aborted, which is only known in the next full refresh
+                unstableEntries.add(oid);
+            }
+        }
+    }
+
+    private void indexEntry(final T entry, final long oid) {
+        final DateTime date = stableDatePredicate.test(entry) ? dateFunction.apply(entry) : null;
+        if (date == null) {
+            unstableEntries.add(oid);
+            return;
+        }
+
+        buckets.computeIfAbsent(yearMonth(date.toLocalDate()), k -> new OidList()).add(oid);
+        markIndexed(oid);
+    }
+
+    private void disable(final NumberFormatException e) {
+        logger.warn(String.format("Disabling %s index, entries identifiers are not numeric", name), e);
+
+        disabled = true;
+        indexedEntriesByPage.clear();
+        buckets.clear();
+        unstableEntries = new HashSet<>();
+        createdEntries.clear();
+        indexedEntriesCount = 0;
+    }
+
+    /*
+     * The identifiers are split in pages of 2^31 identifiers, to be kept in bit sets with
+     * the full identifier, including the class identifier in the upper 32 bits and all the
+     * bits of the sequential counter in the lower 32 bits
+     */
+    private boolean isIndexed(final long oid) {
+        final BitSet indexed = indexedEntriesByPage.get(oid >>> 31);
+        return indexed != null && indexed.get((int) (oid & 0x7FFFFFFFL));
+    }
+
+    private void markIndexed(final long oid) {
+        indexedEntriesByPage.computeIfAbsent(oid >>> 31, k -> new BitSet()).set((int) (oid & 0x7FFFFFFFL));
+        indexedEntriesCount++;
+    }
+
+    private static int yearMonth(final LocalDate date) {
+        return date.getYear() * 100 + date.getMonthOfYear();
+    }
+
+    private static class OidList {
+        private long[] oids = new long[16];
+        private int size = 0;
+
+        private void add(final long oid) {
+            if (size == oids.length) {
+                oids = Arrays.copyOf(oids, oids.length * 2);
+            }
+
+            oids[size++] = oid;
+        }
+
+        private void addAll(final OidList other) {
+            if (size + other.size > oids.length) {
+                oids = Arrays.copyOf(oids, Math.max(oids.length * 2, size + other.size));
+            }
+
+            System.arraycopy(other.oids, 0, oids, size, other.size);
+            size += other.size;
+        }
+
+        private long[] toArray() {
+            return Arrays.copyOf(oids, size);
+        }
+    }
+
+}
@@ -61,6 +61,7 @@ import org.fenixedu.treasury.domain.document.DebitEntry;
 import org.fenixedu.treasury.domain.document.PaymentEntry;
 import org.fenixedu.treasury.domain.document.ReimbursementEntry;
 import org.fenixedu.treasury.domain.document.SettlementEntry;
+import org.fenixedu.treasury.domain.document.SettlementNote;
 import org.fenixedu.treasury.domain.exemption.TreasuryExemption;
 import org.fenixedu.treasury.domain.paymentcodes.SibsPaymentCodeTransaction;
 import org.fenixedu.treasury.domain.paymentcodes.SibsPaymentRequest;
@@ -70,8 +71,47 @@ import org.fenixedu.treasury.services.integration.TreasuryPlataformDependentServ
 
 public class DebtReportService {
 
+    private static final DebtReportEntryIndex<DebitEntry> DEBIT_ENTRIES_INDEX = new DebtReportEntryIndex<>("DebitEntry",
+            DebitEntry::findAll, i -> FenixEDUTreasuryPlatformDependentServices.getVersioningCreationDate(i), i -> true);
+
+    private static final DebtReportEntryIndex<CreditEntry> CREDIT_ENTRIES_INDEX = new DebtReportEntryIndex<>("CreditEntry",
+            CreditEntry::findAll, i -> FenixEDUTreasuryPlatformDependentServices.getVersioningCreationDate(i), i -> true);
+
+    private static final DebtReportEntryIndex<SettlementEntry> SETTLEMENT_ENTRIES_INDEX =
+            new DebtReportEntryIndex<>("SettlementEntry", SettlementEntry::findAll,
+                    i -> i.getFinantialDocument().getDocumentDate(), i -> !i.getFinantialDocument().isPreparing());
+
+    private static final DebtReportEntryIndex<PaymentEntry> PAYMENT_ENTRIES_INDEX = new DebtReportEntryIndex<>("PaymentEntry",
+            PaymentEntry::findAll, i -> i.getSettlementNote().getDocumentDate(), i -> !i.getSettlementNote().isPreparing());
+
+    private static final DebtReportEntryIndex<ReimbursementEntry> REIMBURSEMENT_ENTRIES_INDEX =
+            new DebtReportEntryIndex<>("ReimbursementEntry", ReimbursementEntry::findAll,
+                    i -> i.getSettlementNote().getDocumentDate(), i -> !i.getSettlementNote().isPreparing());
+
+    private static final DebtReportEntryIndex<TreasuryExemption> TREASURY_EXEMPTIONS_INDEX =
+            new DebtReportEntryIndex<>("TreasuryExemption", TreasuryExemption::findAll,
+                    i -> i.getDebitEntry() != null ? i.getDebitEntry().getEntryDateTime() : null, i -> i.getDebitEntry() != null);
+
+    /*
+     * The entries created by this module are indexed right away, the others are found in
+     * the next walk of all entries of DebtReportEntryIndex
+     */
+    public static void indexDebitEntry(final DebitEntry debitEntry) {
+        DEBIT_ENTRIES_INDEX.index(debitEntry);
+    }
+
+    public static void indexTreasuryExemption(final TreasuryExemption treasuryExemption) {
+        TREASURY_EXEMPTIONS_INDEX.index(treasuryExemption);
+    }
+
+    public static void indexSettlementNote(final SettlementNote settlementNote) {
+        settlementNote.getSettlemetEntriesSet().forEach(SETTLEMENT_ENTRIES_INDEX::index);
+        settlementNote.getPaymentEntriesSet().forEach(PAYMENT_ENTRIES_INDEX::index);
+        settlementNote.getReimbursementEntriesSet().forEach(REIMBURSEMENT_ENTRIES_INDEX::index);
+    }
+
     public static Stream<DebtReportEntryBean> debitEntriesReport(final DebtReportRequest request, final ErrorsLog log) {
-        return DebitEntry.findAll()
+        return DEBIT_ENTRIES_INDEX.findCandidates(request.getBeginDate(), request.getEndDate())
                 .filter(i -> AcademicTreasuryConstants.isDateBetween(request.getBeginDate(), request.getEndDate(),
                         FenixEDUTreasuryPlatformDependentServices.getVersioningCreationDate(i)))
                 .filter(i -> request.isIncludeAnnuledEntries() || !i.isAnnulled())
@@ -81,7 +121,7 @@ public class DebtReportService {
     }
 
     public static Stream<DebtReportEntryBean> creditEntriesReport(final DebtReportRequest request, final ErrorsLog log) {
-        return CreditEntry.findAll()
+        return CREDIT_ENTRIES_INDEX.findCandidates(request.getBeginDate(), request.getEndDate())
                 .filter(i -> AcademicTreasuryConstants.isDateBetween(request.getBeginDate(), request.getEndDate(),
                         FenixEDUTreasuryPlatformDependentServices.getVersioningCreationDate(i)))
                 .filter(i -> request.isIncludeAnnuledEntries() || !i.isAnnulled())
@@ -92,7 +132,7 @@ public class DebtReportService {
 
     public static Stream<SettlementReportEntryBean> settlementEntriesReport(final DebtReportRequest request,
             final ErrorsLog log) {
-        return SettlementEntry.findAll()
+        return SETTLEMENT_ENTRIES_INDEX.findCandidates(request.getBeginDate(), request.getEndDate())
                 .filter(i -> AcademicTreasuryConstants.isDateBetween(request.getBeginDate(), request.getEndDate(),
                         i.getFinantialDocument().getDocumentDate()))
                 .filter(i -> request.isIncludeAnnuledEntries() || !i.isAnnulled())
@@ -100,7 +140,7 @@ public class DebtReportService {
     }
 
     public static Stream<PaymentReportEntryBean> paymentEntriesReport(final DebtReportRequest request, final ErrorsLog log) {
-        return PaymentEntry.findAll()
+        return PAYMENT_ENTRIES_INDEX.findCandidates(request.getBeginDate(), request.getEndDate())
                 .filter(i -> AcademicTreasuryConstants.isDateBetween(request.getBeginDate(), request.getEndDate(),
                         i.getSettlementNote().getDocumentDate()))
                 .filter(i -> request.isIncludeAnnuledEntries() || !i.getSettlementNote().isAnnulled())
@@ -109,7 +149,7 @@ public class DebtReportService {
 
     public static Stream<ReimbursementReportEntryBean> reimbursementEntriesReport(final DebtReportRequest request,
             final ErrorsLog log) {
-        return ReimbursementEntry.findAll()
+        return REIMBURSEMENT_ENTRIES_INDEX.findCandidates(request.getBeginDate(), request.getEndDate())
                 .filter(i -> AcademicTreasuryConstants.isDateBetween(request.getBeginDate(), request.getEndDate(),
                         i.getSettlementNote().getDocumentDate()))
                 .filter(i -> request.isIncludeAnnuledEntries() || !i.getSettlementNote().isAnnulled())
@@ -143,7 +183,7 @@ public class DebtReportService {
 
     public static Stream<TreasuryExemptionReportEntryBean> treasuryExemptionReport(final DebtReportRequest request,
             final ErrorsLog log) {
-        return TreasuryExemption.findAll()
+        return TREASURY_EXEMPTIONS_INDEX.findCandidates(request.getBeginDate(), request.getEndDate())
                 .filter(i -> i.getDebitEntry() != null && AcademicTreasuryConstants.isDateBetween(request.getBeginDate(),
                         request.getEndDate(), i.getDebitEntry().getEntryDateTime()))
                 .filter(i -> request.getDegreeType() == null || request.getDegreeType() == degreeType(i))
@@ -38,8 +38,8 @@
 package org.fenixedu.academictreasury.services.signals;
 
 import org.fenixedu.academic.domain.serviceRequests.AcademicServiceRequest;
-import org.fenixedu.academictreasury.domain.serviceRequests.ITreasuryServiceRequest;
-import org.fenixedu.academictreasury.services.EmolumentServices;
+import org.fenixedu.academictreasury.domain.signals.AcademicTreasurySignalJob;
+import org.fenixedu.academictreasury.domain.signals.AcademicTreasurySignalJobType;
 import org.fenixedu.bennu.core.signals.DomainObjectEvent;
 
 import com.google.common.eventbus.Subscribe;
@@ -48,6 +48,7 @@ public class AcademicServiceRequestCancelOrRejectHandler {
 
     @Subscribe
     public void academicServiceRequestCancelOrRejectHandler(final DomainObjectEvent<AcademicServiceRequest> event) {
-        EmolumentServices.removeDebitEntryForAcademicService((ITreasuryServiceRequest) event.getInstance());
+        AcademicTreasurySignalJob.executeOrEnqueue(AcademicTreasurySignalJobType.SERVICE_REQUEST_CANCEL_OR_REJECT,
+                event.getInstance());
     }
 }
@@ -37,7 +37,8 @@
 package org.fenixedu.academictreasury.services.signals;
 
 import org.fenixedu.academic.domain.Enrolment;
-import org.fenixedu.academictreasury.services.TuitionServices;
+import org.fenixedu.academictreasury.domain.signals.AcademicTreasurySignalJob;
+import org.fenixedu.academictreasury.domain.signals.AcademicTreasurySignalJobType;
 import org.fenixedu.bennu.core.signals.DomainObjectEvent;
 
 import com.google.common.eventbus.Subscribe;
@@ -46,8 +47,8 @@ public class ExtracurricularEnrolmentHandler {
 
     @Subscribe
     public void extracurricularEnrolment(final DomainObjectEvent<Enrolment> event) {
-        TuitionServices.createInferedTuitionForExtracurricular(event.getInstance(), event.getInstance().getCreationDateDateTime()
-                .toLocalDate(), false);
+        AcademicTreasurySignalJob.executeOrEnqueue(AcademicTreasurySignalJobType.EXTRACURRICULAR_ENROLMENT,
+                event.getInstance());
     }
 
 }
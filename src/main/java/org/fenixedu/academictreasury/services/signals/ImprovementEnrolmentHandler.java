@@ -27,11 +27,9 @@
 package org.fenixedu.academictreasury.services.signals;
 
 import org.fenixedu.academic.domain.EnrolmentEvaluation;
-import org.fenixedu.academictreasury.services.AcademicTaxServices;
-import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
+import org.fenixedu.academictreasury.domain.signals.AcademicTreasurySignalJob;
+import org.fenixedu.academictreasury.domain.signals.AcademicTreasurySignalJobType;
 import org.fenixedu.bennu.core.signals.DomainObjectEvent;
-import org.fenixedu.treasury.domain.FinantialEntity;
-import org.joda.time.LocalDate;
 
 import com.google.common.eventbus.Subscribe;
 
@@ -39,13 +37,7 @@ public class ImprovementEnrolmentHandler {
 
     @Subscribe
     public void improvementEnrolment(final DomainObjectEvent<EnrolmentEvaluation> event) {
-        final EnrolmentEvaluation enrolmentEvaluation = event.getInstance();
-        final LocalDate when = enrolmentEvaluation.getWhenDateTime().toLocalDate();
-        final FinantialEntity finantialEntity =
-                AcademicTreasuryConstants.getFinantialEntityOfDegree(enrolmentEvaluation.getDegreeCurricularPlan().getDegree(),
-                        when);
-
-        AcademicTaxServices.createImprovementTax(finantialEntity, enrolmentEvaluation, when);
+        AcademicTreasurySignalJob.executeOrEnqueue(AcademicTreasurySignalJobType.IMPROVEMENT_ENROLMENT, event.getInstance());
     }
 
 }
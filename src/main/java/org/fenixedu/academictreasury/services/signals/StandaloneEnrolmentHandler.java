@@ -38,7 +38,8 @@
 package org.fenixedu.academictreasury.services.signals;
 
 import org.fenixedu.academic.domain.Enrolment;
-import org.fenixedu.academictreasury.services.TuitionServices;
+import org.fenixedu.academictreasury.domain.signals.AcademicTreasurySignalJob;
+import org.fenixedu.academictreasury.domain.signals.AcademicTreasurySignalJobType;
 import org.fenixedu.bennu.core.signals.DomainObjectEvent;
 
 import com.google.common.eventbus.Subscribe;
@@ -47,8 +48,7 @@ public class StandaloneEnrolmentHandler {
 
     @Subscribe
     public void standaloneEnrolment(final DomainObjectEvent<Enrolment> event) {
-        TuitionServices.createInferedTuitionForStandalone(event.getInstance(), event.getInstance().getCreationDateDateTime()
-                .toLocalDate(), false);
+        AcademicTreasurySignalJob.executeOrEnqueue(AcademicTreasurySignalJobType.STANDALONE_ENROLMENT, event.getInstance());
     }
     
 }
@@ -11,6 +11,7 @@ import org.fenixedu.academictreasury.domain.tuition.*;
 import org.fenixedu.academictreasury.dto.tuition.TuitionDebitEntryBean;
 import org.fenixedu.academictreasury.services.ITuitionServiceExtension;
 import org.fenixedu.academictreasury.services.TuitionServices;
+import org.fenixedu.academictreasury.services.debtReports.DebtReportService;
 import org.fenixedu.academictreasury.util.AcademicTreasuryConstants;
 import org.fenixedu.commons.i18n.LocalizedString;
 import org.fenixedu.treasury.domain.Currency;
@@ -245,6 +246,7 @@ public class RegistrationTuitionService implements ITuitionRegistrationServicePa
                     //
                     // Interest entries cannot be annulled
                     debitEntriesToAnnul.forEach(d -> d.annulOnlyThisDebitEntryAndInterestsInBusinessContext(reason, false));
+                    PersonCustomer.markAcademicalActBlockingStateModified(debtAccount);
 
                     // Collect the new creditEntries that we can compensate with the new debitEntry
                     Set<CreditEntry> newCreditEntriesSet =
@@ -340,6 +342,8 @@ public class RegistrationTuitionService implements ITuitionRegistrationServicePa
             netExemptedAmountToCreditByTypeMap.keySet().forEach(t -> exemptionDecrementAmountsByTypeMap.put(t,
                     exemptionDecrementAmountsByTypeMap.get(t).subtract(netExemptedAmountToCreditByTypeMap.get(t))));
 
+            PersonCustomer.markAcademicalActBlockingStateModified(d.getDebtAccount());
+
             // Distinguish between debit entry in preparing state or closed
             if (d.getFinantialDocument() == null || d.getFinantialDocument().isPreparing()) {
                 // Save the payor entity, if there is one
@@ -381,6 +385,8 @@ public class RegistrationTuitionService implements ITuitionRegistrationServicePa
                                     d.getDescription(), BigDecimal.ONE, d.getInterestRate(), d.getEntryDateTime(), //
                                     d.isAcademicalActBlockingSuspension(), d.isBlockAcademicActsOnDebt(), debitNote);
 
+                    DebtReportService.indexDebitEntry(newDebitEntry);
+
                     if (payorDebtAccount != null) {
                         DocumentNumberSeries debitNoteNumberSeries =
                                 DocumentNumberSeries.findUniqueDefaultSeries(FinantialDocumentType.findForDebitNote(),
@@ -395,7 +401,8 @@ public class RegistrationTuitionService implements ITuitionRegistrationServicePa
                     newTreasuryExemptionMapByType.entrySet().forEach(entry -> {
                         String exemptionReason = entry.getKey().getName().getContent(TreasuryConstants.getDefaultLocale());
 
-                        TreasuryExemption.create(entry.getKey(), exemptionReason, entry.getValue(), newDebitEntry);
+                        DebtReportService.indexTreasuryExemption(
+                                TreasuryExemption.create(entry.getKey(), exemptionReason, entry.getValue(), newDebitEntry));
                     });
                 }
 
@@ -471,7 +478,8 @@ public class RegistrationTuitionService implements ITuitionRegistrationServicePa
             BigDecimal amountToExempt = entry.getValue();
 
             String reason = treasuryExemptionType.getName().getContent(TreasuryConstants.getDefaultLocale());
-            TreasuryExemption.create(treasuryExemptionType, reason, amountToExempt, installmentDebitEntry);
+            DebtReportService.indexTreasuryExemption(
+                    TreasuryExemption.create(treasuryExemptionType, reason, amountToExempt, installmentDebitEntry));
         }
 
         return true;
@@ -487,7 +495,8 @@ public class RegistrationTuitionService implements ITuitionRegistrationServicePa
             BigDecimal amountToExempt = entry.getValue();
 
             String reason = treasuryExemptionType.getName().getContent(TreasuryConstants.getDefaultLocale());
-            TreasuryExemption.create(treasuryExemptionType, reason, amountToExempt, newDebitEntry);
+            DebtReportService.indexTreasuryExemption(
+                    TreasuryExemption.create(treasuryExemptionType, reason, amountToExempt, newDebitEntry));
         }
 
         if (payorDebtAccount != null) {
@@ -535,7 +544,7 @@ public class RegistrationTuitionService implements ITuitionRegistrationServicePa
                         settlementNoteBean.getInvoiceEntryBean(de).setIncluded(true);
                         settlementNoteBean.getInvoiceEntryBean(de).setSettledAmount(minimumAmountToSettle);
 
-                        SettlementNote.createSettlementNote(settlementNoteBean);
+                        DebtReportService.indexSettlementNote(SettlementNote.createSettlementNote(settlementNoteBean));
                     });
         }
 
@@ -590,6 +599,17 @@ public class RegistrationTuitionService implements ITuitionRegistrationServicePa
         return entries;
     }
 
+    /*
+     * Calculates the installments of the tuition payment plan as if none of them
+     * were charged, that is the amounts and exemptions the plan gives to the
+     * registration at this moment. Nothing is written
+     */
+    public List<TuitionDebitEntryBean> executeOriginalAmountsCalculation() {
+        this.isForCalculationsOfOriginalAmounts = true;
+
+        return executeInstallmentDebitEntryBeansCalculation();
+    }
+
     private void initializeOriginalAmountsCalculator() {
         var registration = this.registrationOptions.registration;
         var executionYear = this.registrationOptions.executionYear;
@@ -0,0 +1,365 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.services.tuition;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.fenixedu.academic.domain.ExecutionYear;
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEvent;
+import org.fenixedu.academictreasury.domain.tuition.TuitionInstallmentTariff;
+import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlan;
+import org.fenixedu.academictreasury.dto.tuition.TuitionDebitEntryBean;
+import org.fenixedu.academictreasury.util.TsvUtils;
+import org.fenixedu.treasury.domain.Product;
+import org.fenixedu.treasury.domain.document.DebitEntry;
+import org.fenixedu.treasury.domain.exemption.TreasuryExemptionType;
+import org.fenixedu.treasury.util.TreasuryConstants;
+import org.joda.time.LocalDate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import pt.ist.fenixframework.Atomic;
+import pt.ist.fenixframework.Atomic.TxMode;
+import pt.ist.fenixframework.FenixFramework;
+
+/**
+ * Read only simulation of the tuition recalculation of a population of registrations.
+ * 
+ * For each registration the installments of the tuition payment plan are calculated
+ * as if none of them were charged, and compared with the net amounts and exemptions
+ * already charged in the tuition event. One line per installment is written, tab
+ * separated, in the order of the population. Nothing is written in the domain.
+ * 
+ * The registrations are calculated in parallel, each one in its own read transaction,
+ * so the simulation does not lock anything. Only a few registrations are in flight at
+ * a time, each one written as soon as it and the ones before it are calculated.
+ */
+public class TuitionRecalculationSimulator {
+
+    private static final Logger logger = LoggerFactory.getLogger(TuitionRecalculationSimulator.class);
+
+    private final ExecutionYear executionYear;
+    private final LocalDate debtDate;
+
+    private TuitionPaymentPlan tuitionPaymentPlan;
+    private int poolSize = 1;
+    private boolean onlyDifferences = false;
+
+    private TuitionRecalculationSimulator(final ExecutionYear executionYear, final LocalDate debtDate) {
+        this.executionYear = executionYear;
+        this.debtDate = debtDate;
+    }
+
+    /*
+     * Simulates with this tuition payment plan instead of the one inferred for each registration
+     */
+    public TuitionRecalculationSimulator withTuitionPaymentPlan(final TuitionPaymentPlan tuitionPaymentPlan) {
+        this.tuitionPaymentPlan = tuitionPaymentPlan;
+        return this;
+    }
+
+    public TuitionRecalculationSimulator withPoolSize(final int poolSize) {
+        this.poolSize = Math.max(1, poolSize);
+        return this;
+    }
+
+    /*
+     * Writes only the installments whose net amount or exemptions change
+     */
+    public TuitionRecalculationSimulator onlyDifferences(final boolean value) {
+        this.onlyDifferences = value;
+        return this;
+    }
+
+    public SimulationSummary simulate(final Collection<Registration> registrations, final Writer writer)
+            throws IOException {
+        final SimulationSummary summary = new SimulationSummary();
+
+        final String executionYearId = executionYear.getExternalId();
+        final String tuitionPaymentPlanId = tuitionPaymentPlan != null ? tuitionPaymentPlan.getExternalId() : null;
+
+        TsvUtils.writeLine(writer, headers());
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(poolSize);
+        try {
+            // Bounds the registrations in flight, the head of the window is written as soon as
+            // it is calculated so the lines keep the order of the population
+            final int windowSize = poolSize * 2;
+            final Deque<RegistrationSimulation> window = new ArrayDeque<>(windowSize);
+            for (final Registration registration : registrations) {
+                if (window.size() == windowSize) {
+                    write(window.poll(), summary, writer);
+                }
+
+                final String registrationId = registration.getExternalId();
+                window.add(new RegistrationSimulation(registrationId,
+                        executorService.submit(() -> simulate(registrationId, executionYearId, tuitionPaymentPlanId))));
+            }
+
+            executorService.shutdown();
+
+            while (!window.isEmpty()) {
+                write(window.poll(), summary, writer);
+            }
+
+            writer.flush();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        logger.info(summary.toString());
+
+        return summary;
+    }
+
+    private void write(final RegistrationSimulation simulation, final SimulationSummary summary, final Writer writer)
+            throws InterruptedException, IOException {
+        final List<InstallmentDifference> differences;
+        try {
+            differences = simulation.future.get();
+        } catch (final ExecutionException e) {
+            logger.error("Unable to simulate the tuition of registration " + simulation.registrationId, e.getCause());
+            summary.errors++;
+            return;
+        }
+
+        summary.registrations++;
+
+        if (differences.stream().anyMatch(InstallmentDifference::isChanged)) {
+            summary.registrationsWithDifferences++;
+        }
+
+        for (final InstallmentDifference difference : differences) {
+            if (difference.isChanged()) {
+                summary.installmentsWithDifferences++;
+            }
+
+            if (!onlyDifferences || difference.isChanged()) {
+                TsvUtils.writeLine(writer, difference.toColumns());
+            }
+        }
+    }
+
+    @Atomic(mode = TxMode.READ)
+    private List<InstallmentDifference> simulate(final String registrationId, final String executionYearId,
+            final String tuitionPaymentPlanId) {
+        final Registration registration = FenixFramework.getDomainObject(registrationId);
+        final ExecutionYear executionYear = FenixFramework.getDomainObject(executionYearId);
+
+        final RegistrationOptions registrationOptions =
+                RegistrationTuitionService.startServiceInvocation(registration, executionYear, debtDate);
+
+        final TuitionOptions tuitionOptions = tuitionPaymentPlanId != null ? registrationOptions
+                .withTuitionPaymentPlan(FenixFramework.getDomainObject(tuitionPaymentPlanId)) : registrationOptions
+                        .withInferedTuitionPaymentPlan();
+
+        final List<TuitionDebitEntryBean> recalculatedBeans = tuitionOptions.withAllInstallments()
+                .forceInstallmentsEvenTreasuryEventIsCharged(true).withoutInstallmentsRecalculation()
+                .executeOriginalAmountsCalculation();
+
+        final AcademicTreasuryEvent academicTreasuryEvent =
+                AcademicTreasuryEvent.findUniqueForRegistrationTuition(registration, executionYear).orElse(null);
+
+        // The installments recalculated and the ones already charged, which may no longer exist in the plan
+        final Map<Product, TuitionDebitEntryBean> beansByProduct = new LinkedHashMap<>();
+        recalculatedBeans.forEach(b -> beansByProduct.put(b.getTuitionInstallmentTariff().getProduct(), b));
+
+        if (academicTreasuryEvent != null) {
+            DebitEntry.findActive(academicTreasuryEvent).map(DebitEntry::getProduct)
+                    .sorted(Comparator.comparing(Product::getCode)).forEach(p -> beansByProduct.putIfAbsent(p, null));
+        }
+
+        final List<InstallmentDifference> result = new ArrayList<>();
+        beansByProduct.forEach((product, bean) -> result.add(new InstallmentDifference(registration, academicTreasuryEvent,
+                product, bean)));
+
+        return result;
+    }
+
+    private static List<String> headers() {
+        return TsvUtils.headers("label.TuitionRecalculationSimulator.header", "registrationNumber", "studentNumber",
+                "degreeCode", "tuitionPaymentPlan", "installmentOrder", "product", "currentNetAmount", "recalculatedNetAmount",
+                "netAmountDifference", "currentNetExemptedAmount", "recalculatedNetExemptedAmount", "currentExemptions",
+                "recalculatedExemptions", "changed");
+    }
+
+    private static String exemptions(final Map<TreasuryExemptionType, BigDecimal> exemptionsMap) {
+        if (exemptionsMap == null) {
+            return "";
+        }
+
+        return exemptionsMap.entrySet().stream().filter(e -> TreasuryConstants.isPositive(e.getValue()))
+                .sorted(Comparator.comparing(e -> e.getKey().getCode()))
+                .map(e -> e.getKey().getCode() + "=" + e.getValue().toPlainString()).collect(Collectors.joining(";"));
+    }
+
+    private static boolean isExemptionsEqual(final Map<TreasuryExemptionType, BigDecimal> current,
+            final Map<TreasuryExemptionType, BigDecimal> recalculated) {
+        return exemptions(current).equals(exemptions(recalculated));
+    }
+
+    // @formatter:off
+    /* ********
+     * SERVICES
+     * ********
+     */
+    // @formatter:on
+
+    public static TuitionRecalculationSimulator forExecutionYear(final ExecutionYear executionYear, final LocalDate debtDate) {
+        return new TuitionRecalculationSimulator(executionYear, debtDate);
+    }
+
+    /*
+     * The registrations with a tuition event in the execution year
+     */
+    @Atomic(mode = TxMode.READ)
+    public static List<Registration> findRegistrationsWithTuition(final ExecutionYear executionYear) {
+        return AcademicTreasuryEvent.find(executionYear).filter(e -> e.isForRegistrationTuition()).map(e -> e.getRegistration())
+                .sorted(Comparator.comparing(Registration::getNumber)).collect(Collectors.toList());
+    }
+
+    public static class SimulationSummary {
+        private int registrations;
+        private int registrationsWithDifferences;
+        private int installmentsWithDifferences;
+        private int errors;
+
+        public int getRegistrations() {
+            return registrations;
+        }
+
+        public int getRegistrationsWithDifferences() {
+            return registrationsWithDifferences;
+        }
+
+        public int getInstallmentsWithDifferences() {
+            return installmentsWithDifferences;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Tuition recalculation simulation: %d registrations, %d with differences, "
+                    + "%d installments with differences, %d errors", registrations, registrationsWithDifferences,
+                    installmentsWithDifferences, errors);
+        }
+    }
+
+    private static class RegistrationSimulation {
+        private final String registrationId;
+        private final Future<List<InstallmentDifference>> future;
+
+        private RegistrationSimulation(final String registrationId, final Future<List<InstallmentDifference>> future) {
+            this.registrationId = registrationId;
+            this.future = future;
+        }
+    }
+
+    private static class InstallmentDifference {
+        private final List<String> columns;
+        private final boolean changed;
+
+        private InstallmentDifference(final Registration registration, final AcademicTreasuryEvent academicTreasuryEvent,
+                final Product product, final TuitionDebitEntryBean bean) {
+            final boolean charged = academicTreasuryEvent != null && academicTreasuryEvent.isChargedWithDebitEntry(product);
+
+            final BigDecimal currentNetAmount = charged ? academicTreasuryEvent.getNetAmountToPay(product) : BigDecimal.ZERO;
+            final BigDecimal currentNetExemptedAmount =
+                    charged ? academicTreasuryEvent.getNetExemptedAmount(product) : BigDecimal.ZERO;
+            final Map<TreasuryExemptionType, BigDecimal> currentExemptions =
+                    charged ? academicTreasuryEvent.getNetExemptedAmountsMap(product) : Collections.emptyMap();
+
+            final BigDecimal recalculatedNetAmount = bean != null ? bean.getAmount() : BigDecimal.ZERO;
+            final BigDecimal recalculatedNetExemptedAmount = bean != null ? bean.getExemptedAmount() : BigDecimal.ZERO;
+            final Map<TreasuryExemptionType, BigDecimal> recalculatedExemptions =
+                    bean != null ? bean.getExemptionsMap() : Collections.emptyMap();
+
+            this.changed = !TreasuryConstants.isEqual(currentNetAmount, recalculatedNetAmount)
+                    || !TreasuryConstants.isEqual(currentNetExemptedAmount, recalculatedNetExemptedAmount)
+                    || !isExemptionsEqual(currentExemptions, recalculatedExemptions);
+
+            final TuitionInstallmentTariff tariff = bean != null ? bean.getTuitionInstallmentTariff() : null;
+
+            this.columns = new ArrayList<>();
+            this.columns.add(String.valueOf(registration.getNumber()));
+            this.columns.add(String.valueOf(registration.getStudent().getNumber()));
+            this.columns.add(registration.getDegree().getCode());
+            this.columns.add(tariff != null ? tariff.getTuitionPaymentPlan().getConditionsDescription() : null);
+            this.columns.add(tariff != null ? String.valueOf(tariff.getInstallmentOrder()) : null);
+            this.columns.add(product.getCode());
+            this.columns.add(currentNetAmount.toPlainString());
+            this.columns.add(recalculatedNetAmount.toPlainString());
+            this.columns.add(recalculatedNetAmount.subtract(currentNetAmount).toPlainString());
+            this.columns.add(currentNetExemptedAmount.toPlainString());
+            this.columns.add(recalculatedNetExemptedAmount.toPlainString());
+            this.columns.add(exemptions(currentExemptions));
+            this.columns.add(exemptions(recalculatedExemptions));
+            this.columns.add(String.valueOf(changed));
+        }
+
+        private boolean isChanged() {
+            return changed;
+        }
+
+        private List<String> toColumns() {
+            return columns;
+        }
+    }
+
+}
@@ -37,110 +37,209 @@ package org.fenixedu.academictreasury.util;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.function.Function;
+import java.util.function.Consumer;
 
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellType;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.usermodel.DateUtil;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
 import com.google.common.collect.Lists;
-import com.qubit.terra.framework.tools.excel.ExcelUtil;
-import com.qubit.terra.framework.tools.excel.SheetProcessor;
-import com.qubit.terra.framework.tools.excel.XlsType;
 
+/**
+ * Reads XLSX spreadsheets with the POI event model. The rows are handed to
+ * a callback as they are parsed, so the workbook is never held in memory.
+ * Every row has exactly maxCols values, blank cells and missing rows are
+ * returned as empty strings and date cells are formatted as dd/MM/yyyy HH:mm
+ */
 public class ExcelUtils {
-    private static class TreasuryDefaultExcelSheetProcessor extends SheetProcessor {
 
-        private final boolean readAllSheets;
-        List<List<String>> spreadsheetContent;
+    private static final DateTimeFormatter DATE_CELL_FORMATTER = DateTimeFormat.forPattern("dd/MM/yyyy HH:mm");
 
-        final List<ExcelSheet> result = Lists.newArrayList();
+    @FunctionalInterface
+    public static interface ExcelRowHandler {
 
-        public TreasuryDefaultExcelSheetProcessor(int maxCols, boolean readAllSheets) {
-            super();
-            this.readAllSheets = readAllSheets;
-            setRowProcessor(row -> {
-                final ArrayList<String> rowContent = new ArrayList<String>();
-                spreadsheetContent.add(rowContent);
+        /*
+         * rowIndex is zero based, the header is the row with index 0
+         */
+        public void handle(final int rowIndex, final List<String> row);
+    }
 
-                if(row == null) {
-                    for(int j = 0; j < maxCols; j++) {
-                        rowContent.add("");
-                    }
+    @FunctionalInterface
+    public static interface ExcelSheetRowHandler {
 
-                    return;
-                }
+        public void handle(final String sheetName, final int rowIndex, final List<String> row);
+    }
+
+    /*
+     * Numeric cells are read as their plain value, as if the cell type was
+     * string, except the date formatted cells
+     */
+    private static class TreasuryDataFormatter extends DataFormatter {
 
-                Cell cell;
-                for(int j = 0; j < maxCols; j++) {
-                    cell = row.getCell(j);
+        @Override
+        public String formatRawCellContents(final double value, final int formatIndex, final String formatString) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return DATE_CELL_FORMATTER.print(DateUtil.getJavaDate(value).getTime());
+            }
 
-                    if(cell == null) {
-                        rowContent.add("");
-                        continue;
-                    }
+            return NumberToTextConverter.toText(value);
+        }
+    }
 
-                    if (CellType.NUMERIC == cell.getCellType() && DateUtil.isCellDateFormatted(cell)) {
-                        rowContent.add(new SimpleDateFormat("dd/MM/yyyy HH:mm").format(cell.getDateCellValue()));
-                    } else {
-                        cell.setCellType(CellType.STRING);
-                        String value = cell.getStringCellValue();
-                        rowContent.add(value);
-                    }
+    private static class TreasuryStreamingRowHandler implements SheetContentsHandler {
 
-                }
-            });
+        private final String sheetName;
+        private final int maxCols;
+        private final ExcelSheetRowHandler rowHandler;
+
+        private int nextRowIndex = 0;
+        private String[] currentRow;
+        private int currentRowIndex;
+        private int nextColumn;
+
+        public TreasuryStreamingRowHandler(final String sheetName, final int maxCols, final ExcelSheetRowHandler rowHandler) {
+            this.sheetName = sheetName;
+            this.maxCols = maxCols;
+            this.rowHandler = rowHandler;
         }
 
         @Override
-        protected void beforeSheetProcess(Sheet sheet) {
-            super.beforeSheetProcess(sheet);
-            this.spreadsheetContent = new ArrayList<>();
+        public void startRow(final int rowNum) {
+            // Rows without content are not in the sheet xml, they are handed as blank rows
+            while (nextRowIndex < rowNum) {
+                rowHandler.handle(sheetName, nextRowIndex++, blankRow());
+            }
+
+            this.currentRow = new String[maxCols];
+            this.currentRowIndex = rowNum;
+            this.nextColumn = 0;
         }
 
-        public List<List<String>> getSpreadsheetContent() {
-            return spreadsheetContent;
+        @Override
+        public void endRow(final int rowNum) {
+            final List<String> row = Lists.newArrayListWithCapacity(maxCols);
+            for (final String value : currentRow) {
+                row.add(value != null ? value : "");
+            }
+
+            rowHandler.handle(sheetName, currentRowIndex, row);
+            nextRowIndex = currentRowIndex + 1;
         }
 
         @Override
-        protected void afterSheetProcess(Sheet sheet) {
-            super.afterSheetProcess(sheet);
-            this.result.add(new ExcelSheet(sheet.getSheetName(), getSpreadsheetContent()));
-        }
+        public void cell(final String cellReference, final String formattedValue, final XSSFComment comment) {
+            final int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            nextColumn = column + 1;
 
-        public List<ExcelSheet> getResult() {
-            return this.result;
+            if (column < maxCols) {
+                currentRow[column] = formattedValue;
+            }
         }
 
         @Override
-        protected Function<Workbook, List<Sheet>> getSheetsToProcessSupplier() {
-            return readAllSheets ? workbook -> {
-                int numberOfSheets = workbook.getNumberOfSheets();
-                List<Sheet> sheets = new ArrayList<>(numberOfSheets);
-                for (int i = 0; i < numberOfSheets; i++) {
-                    sheets.add(workbook.getSheetAt(i));
+        public void headerFooter(final String text, final boolean isHeader, final String tagName) {
+        }
+
+        private List<String> blankRow() {
+            final String[] row = new String[maxCols];
+            Arrays.fill(row, "");
+            return new ArrayList<>(Arrays.asList(row));
+        }
+    }
+
+    // @formatter:off
+    /* ********
+     * SERVICES
+     * ********
+     */
+    // @formatter:on
+
+    /*
+     * Streams the rows of the first sheet to the handler
+     */
+    public static void streamExcel(final InputStream stream, final int maxCols, final ExcelRowHandler rowHandler)
+            throws IOException {
+        streamExcelSheets(stream, maxCols, false, sheetName -> {
+        }, (sheetName, rowIndex, row) -> rowHandler.handle(rowIndex, row));
+    }
+
+    /*
+     * Streams the rows of every sheet to the handler, one sheet after the other
+     */
+    public static void streamExcelSheets(final InputStream stream, final int maxCols, final ExcelSheetRowHandler rowHandler)
+            throws IOException {
+        streamExcelSheets(stream, maxCols, true, sheetName -> {
+        }, rowHandler);
+    }
+
+    private static void streamExcelSheets(final InputStream stream, final int maxCols, final boolean readAllSheets,
+            final Consumer<String> sheetStartHandler, final ExcelSheetRowHandler rowHandler) throws IOException {
+        try (final OPCPackage pkg = OPCPackage.open(stream)) {
+            final XSSFReader reader = new XSSFReader(pkg);
+            final ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            final StylesTable styles = reader.getStylesTable();
+            final DataFormatter formatter = new TreasuryDataFormatter();
+
+            final XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                try (final InputStream sheetStream = sheets.next()) {
+                    sheetStartHandler.accept(sheets.getSheetName());
+
+                    final XMLReader parser = newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(styles, strings,
+                            new TreasuryStreamingRowHandler(sheets.getSheetName(), maxCols, rowHandler), formatter, false));
+                    parser.parse(new InputSource(sheetStream));
+                }
+
+                if (!readAllSheets) {
+                    break;
                 }
-                return sheets;
-            } : super.getSheetsToProcessSupplier();
+            }
+        } catch (final OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException(e);
         }
     }
 
+    private static XMLReader newXMLReader() throws ParserConfigurationException, SAXException {
+        final SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+
+        return factory.newSAXParser().getXMLReader();
+    }
+
     public static List<List<String>> readExcel(final InputStream stream, int maxCols) throws IOException {
-        TreasuryDefaultExcelSheetProcessor sheetProcessor = new TreasuryDefaultExcelSheetProcessor(maxCols, false);
-        sheetProcessor.setIncludeHeader(true);
-        ExcelUtil.importExcel(XlsType.XLSX, stream, sheetProcessor);
-        return sheetProcessor.getSpreadsheetContent();
+        final List<List<String>> result = new ArrayList<>();
+        streamExcel(stream, maxCols, (rowIndex, row) -> result.add(row));
+        return result;
     }
 
     public static List<ExcelSheet> readExcelSheets(final InputStream stream, int maxCols) throws IOException {
-        TreasuryDefaultExcelSheetProcessor sheetProcessor = new TreasuryDefaultExcelSheetProcessor(maxCols, true);
-        sheetProcessor.setIncludeHeader(true);
-        ExcelUtil.importExcel(XlsType.XLSX, stream, sheetProcessor);
-        return sheetProcessor.getResult();
+        final List<ExcelSheet> result = Lists.newArrayList();
+        streamExcelSheets(stream, maxCols, true, sheetName -> result.add(new ExcelSheet(sheetName, new ArrayList<>())),
+                (sheetName, rowIndex, row) -> result.get(result.size() - 1).getRows().add(row));
+        return result;
     }
 }
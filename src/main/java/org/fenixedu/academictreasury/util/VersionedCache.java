@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2015, Quorum Born IT <http://www.qub-it.com/>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, without modification, are permitted
+ * provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this list of
+ * conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice, this list
+ * of conditions and the following disclaimer in the documentation and/or other materials
+ * provided with the distribution.
+ * * Neither the name of Quorum Born IT nor the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior written
+ * permission.
+ * * Universidade de Lisboa and its respective subsidiary Serviços Centrais da Universidade
+ * de Lisboa (Departamento de Informática), hereby referred to as the Beneficiary, is the
+ * sole demonstrated end-user and ultimately the only beneficiary of the redistributed binary
+ * form and/or source code.
+ * * The Beneficiary is entrusted with either the binary form, the source code, or both, and
+ * by accepting it, accepts the terms of this License.
+ * * Redistribution of any binary form and/or source code is only allowed in the scope of the
+ * Universidade de Lisboa FenixEdu(™)’s implementation projects.
+ * * This license and conditions of redistribution of source code/binary can only be reviewed
+ * by the Steering Comittee of FenixEdu(™) <http://www.fenixedu.org/>.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS
+ * OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL “Quorum Born IT” BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT
+ * OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.fenixedu.academictreasury.util;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.joda.time.DateTime;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Bounded cache of values derived from domain objects, each one tagged with the
+ * modification date of the objects it was built from. A value is only returned while
+ * the modification date is the same, otherwise it is built again.
+ * 
+ * The modification date must be kept in a domain object and moved forward with
+ * {@link #nextModificationDate(DateTime)} in the same transaction that changes the
+ * objects, so a transaction never uses a value built from other versions of them.
+ */
+public class VersionedCache<V> {
+
+    private final Cache<String, Entry<V>> cache;
+
+    public VersionedCache(final int maximumSize) {
+        this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    public V get(final String key, final DateTime modificationDate, final Supplier<V> supplier) {
+        final Long version = modificationDate != null ? modificationDate.getMillis() : null;
+
+        final Entry<V> cached = cache.getIfPresent(key);
+        if (cached != null && Objects.equals(cached.version, version)) {
+            return cached.value;
+        }
+
+        final V value = supplier.get();
+        cache.put(key, new Entry<>(version, value));
+
+        return value;
+    }
+
+    public void invalidate(final String key) {
+        cache.invalidate(key);
+    }
+
+    /*
+     * The date always moves forward, even within the same millisecond of the last
+     * change or with the clocks of the servers slightly apart, so the values built
+     * before the change are never taken as current
+     */
+    public static DateTime nextModificationDate(final DateTime lastModificationDate) {
+        final DateTime now = new DateTime();
+        return lastModificationDate != null && !now.isAfter(lastModificationDate) ? lastModificationDate.plusMillis(1) : now;
+    }
+
+    private static class Entry<V> {
+        private final Long version;
+        private final V value;
+
+        private Entry(final Long version, final V value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+
+}
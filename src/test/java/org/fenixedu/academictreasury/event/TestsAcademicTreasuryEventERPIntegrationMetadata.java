@@ -0,0 +1,142 @@
+package org.fenixedu.academictreasury.event;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.math.BigDecimal;
+
+import org.fenixedu.academic.domain.Country;
+import org.fenixedu.academic.domain.DegreeCurricularPlan;
+import org.fenixedu.academic.domain.ExecutionInterval;
+import org.fenixedu.academic.domain.ExecutionYear;
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academic.domain.student.Student;
+import org.fenixedu.academictreasury.base.FenixFrameworkRunner;
+import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
+import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEvent;
+import org.fenixedu.academictreasury.domain.tuition.TuitionCalculationType;
+import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlan;
+import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlanGroup;
+import org.fenixedu.academictreasury.dto.tariff.AcademicTariffBean;
+import org.fenixedu.academictreasury.dto.tariff.TuitionPaymentPlanBean;
+import org.fenixedu.academictreasury.services.tuition.RegistrationTuitionService;
+import org.fenixedu.academictreasury.tuition.TuitionPaymentPlanTestsUtilities;
+import org.fenixedu.academictreasury.util.AcademicTreasuryBootstrapper;
+import org.fenixedu.commons.i18n.LocalizedString;
+import org.fenixedu.treasury.domain.FinantialEntity;
+import org.fenixedu.treasury.domain.Product;
+import org.fenixedu.treasury.domain.tariff.DueDateCalculationType;
+import org.fenixedu.treasury.util.TreasuryConstants;
+import org.joda.time.LocalDate;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import pt.ist.esw.advice.pt.ist.fenixframework.AtomicInstance;
+import pt.ist.fenixframework.Atomic.TxMode;
+import pt.ist.fenixframework.FenixFramework;
+
+@RunWith(FenixFrameworkRunner.class)
+public class TestsAcademicTreasuryEventERPIntegrationMetadata {
+
+    private static Registration registration;
+    private static ExecutionYear executionYear;
+
+    @BeforeClass
+    public static void init() {
+        try {
+            FenixFramework.getTransactionManager().withTransaction(() -> {
+                org.fenixedu.academic.domain.EnrolmentTest.initEnrolments();
+
+                TuitionPaymentPlanTestsUtilities.startUp();
+                AcademicTreasuryBootstrapper.bootstrap();
+
+                createTuitionPaymentPlan();
+                ensureNecessaryAcademicDataIsAvailable();
+
+                RegistrationTuitionService.startServiceInvocation(registration, executionYear, new LocalDate())
+                        .withInferedTuitionPaymentPlan() //
+                        .withAllInstallments() //
+                        .withoutInstallmentsRecalculation() //
+                        .executeTuitionPaymentPlanCreation();
+
+                return null;
+            }, new AtomicInstance(TxMode.WRITE, true));
+        } catch (Exception e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    private static TuitionPaymentPlan createTuitionPaymentPlan() {
+        registration = Student.readStudentByNumber(1).getRegistrationStream().findAny().orElseThrow();
+
+        final DegreeCurricularPlan degreeCurricularPlan = registration.getLastStudentCurricularPlan().getDegreeCurricularPlan();
+        final ExecutionInterval executionInterval =
+                ExecutionInterval.findFirstCurrentChild(degreeCurricularPlan.getDegree().getCalendar());
+        executionYear = executionInterval.getExecutionYear();
+
+        final TuitionPaymentPlanGroup group = TuitionPaymentPlanGroup.findUniqueDefaultGroupForRegistration().get();
+        final TuitionPaymentPlanBean bean =
+                new TuitionPaymentPlanBean(group.getCurrentProduct(), group, readFinantialEntity(), executionYear);
+
+        bean.setDefaultPaymentPlan(true);
+        bean.addDegreeCurricularPlans(degreeCurricularPlan);
+        bean.setDegreeType(degreeCurricularPlan.getDegreeType());
+
+        final AcademicTariffBean academicTariffBean = new AcademicTariffBean(1);
+        academicTariffBean.setTuitionInstallmentProduct(Product.findUniqueByCode("PROP_1_PREST_1_CIC").get());
+        academicTariffBean.setTuitionCalculationType(TuitionCalculationType.FIXED_AMOUNT);
+        academicTariffBean.setFixedAmount(new BigDecimal("250"));
+        academicTariffBean.setBeginDate(executionYear.getBeginLocalDate());
+        academicTariffBean.setDueDateCalculationType(DueDateCalculationType.DAYS_AFTER_CREATION);
+        academicTariffBean.setNumberOfDaysAfterCreationForDueDate(7);
+        academicTariffBean.setInterestRateType(null);
+
+        bean.getTuitionInstallmentBeans().add(academicTariffBean);
+
+        return TuitionPaymentPlan.create(bean);
+    }
+
+    private static void ensureNecessaryAcademicDataIsAvailable() {
+        registration.getRegistrationProtocol().setPayGratuity(true);
+
+        if (Country.readByTwoLetterCode("PT") == null) {
+            new Country(ls("Portugal"), ls("Portugal"), "PT", "PRT").setDefaultCountry(true);
+        }
+
+        registration.getPerson().editSocialSecurityNumber("999999990",
+                PersonCustomer.createSaftDefaultPhysicalAddress(registration.getPerson()));
+    }
+
+    /*
+     * The event is then detached from the registration, degree and execution year,
+     * leaving only the values written in its properties map when it was created
+     */
+    @Test
+    public void metadataIsReadFromThePropertiesWithoutDegreeAndExecutionYear() {
+        final AcademicTreasuryEvent academicTreasuryEvent =
+                AcademicTreasuryEvent.findUniqueForRegistrationTuition(registration, executionYear).get();
+        final String expected = metadata(registration.getDegree().getCode(), executionYear.getQualifiedName());
+
+        assertEquals(expected, academicTreasuryEvent.getERPIntegrationMetadata());
+
+        academicTreasuryEvent.setRegistration(null);
+        academicTreasuryEvent.setDegree(null);
+        academicTreasuryEvent.setExecutionYear(null);
+
+        assertEquals(expected, academicTreasuryEvent.getERPIntegrationMetadata());
+    }
+
+    private static String metadata(final String degreeCode, final String executionYear) {
+        return "{\"DEGREE_CODE\":\"" + degreeCode + "\",\"EXECUTION_YEAR\":\"" + executionYear + "\"}";
+    }
+
+    private static FinantialEntity readFinantialEntity() {
+        return FinantialEntity.findAll().iterator().next();
+    }
+
+    public static LocalizedString ls(String string) {
+        return new LocalizedString(TreasuryConstants.DEFAULT_LANGUAGE, string);
+    }
+
+}
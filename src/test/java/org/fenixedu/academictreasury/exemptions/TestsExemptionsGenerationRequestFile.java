@@ -0,0 +1,218 @@
+package org.fenixedu.academictreasury.exemptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.fenixedu.academic.domain.Country;
+import org.fenixedu.academic.domain.DegreeCurricularPlan;
+import org.fenixedu.academic.domain.ExecutionInterval;
+import org.fenixedu.academic.domain.ExecutionYear;
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academic.domain.student.Student;
+import org.fenixedu.academictreasury.base.FenixFrameworkRunner;
+import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
+import org.fenixedu.academictreasury.domain.exceptions.AcademicTreasuryDomainException;
+import org.fenixedu.academictreasury.domain.exemptions.requests.ExemptionsGenerationRequestFile;
+import org.fenixedu.academictreasury.domain.exemptions.requests.ExemptionsGenerationRowResult;
+import org.fenixedu.academictreasury.domain.tuition.TuitionCalculationType;
+import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlan;
+import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlanGroup;
+import org.fenixedu.academictreasury.dto.tariff.AcademicTariffBean;
+import org.fenixedu.academictreasury.dto.tariff.TuitionPaymentPlanBean;
+import org.fenixedu.academictreasury.services.tuition.RegistrationTuitionService;
+import org.fenixedu.academictreasury.tuition.TuitionPaymentPlanTestsUtilities;
+import org.fenixedu.academictreasury.util.AcademicTreasuryBootstrapper;
+import org.fenixedu.commons.i18n.LocalizedString;
+import org.fenixedu.treasury.domain.FinantialEntity;
+import org.fenixedu.treasury.domain.Product;
+import org.fenixedu.treasury.domain.exemption.TreasuryExemption;
+import org.fenixedu.treasury.domain.exemption.TreasuryExemptionType;
+import org.fenixedu.treasury.domain.tariff.DueDateCalculationType;
+import org.fenixedu.treasury.util.TreasuryConstants;
+import org.joda.time.LocalDate;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import pt.ist.esw.advice.pt.ist.fenixframework.AtomicInstance;
+import pt.ist.fenixframework.Atomic.TxMode;
+import pt.ist.fenixframework.FenixFramework;
+
+@RunWith(FenixFrameworkRunner.class)
+public class TestsExemptionsGenerationRequestFile {
+
+    private static final String[] INSTALLMENT_PRODUCT_CODES =
+            { "PROP_1_PREST_1_CIC", "PROP_2_PREST_1_CIC", "PROP_3_PREST_1_CIC", "PROP_4_PREST_1_CIC" };
+
+    private static final BigDecimal CHARGED_AMOUNT = new BigDecimal("250");
+    private static final String AMOUNT_TO_EXEMPT = "200";
+
+    private static Registration registration;
+    private static ExecutionYear executionYear;
+
+    @BeforeClass
+    public static void init() {
+        try {
+            FenixFramework.getTransactionManager().withTransaction(() -> {
+                org.fenixedu.academic.domain.EnrolmentTest.initEnrolments();
+
+                TuitionPaymentPlanTestsUtilities.startUp();
+                AcademicTreasuryBootstrapper.bootstrap();
+
+                createTuitionPaymentPlan();
+                ensureNecessaryAcademicDataIsAvailable();
+
+                RegistrationTuitionService.startServiceInvocation(registration, executionYear, new LocalDate())
+                        .withInferedTuitionPaymentPlan() //
+                        .withAllInstallments() //
+                        .withoutInstallmentsRecalculation() //
+                        .executeTuitionPaymentPlanCreation();
+
+                return null;
+            }, new AtomicInstance(TxMode.WRITE, true));
+        } catch (Exception e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    private static TuitionPaymentPlan createTuitionPaymentPlan() {
+        registration = Student.readStudentByNumber(1).getRegistrationStream().findAny().orElseThrow();
+
+        final DegreeCurricularPlan degreeCurricularPlan = registration.getLastStudentCurricularPlan().getDegreeCurricularPlan();
+        final ExecutionInterval executionInterval =
+                ExecutionInterval.findFirstCurrentChild(degreeCurricularPlan.getDegree().getCalendar());
+        executionYear = executionInterval.getExecutionYear();
+
+        final TuitionPaymentPlanGroup group = TuitionPaymentPlanGroup.findUniqueDefaultGroupForRegistration().get();
+        final TuitionPaymentPlanBean bean =
+                new TuitionPaymentPlanBean(group.getCurrentProduct(), group, readFinantialEntity(), executionYear);
+
+        bean.setDefaultPaymentPlan(true);
+        bean.addDegreeCurricularPlans(degreeCurricularPlan);
+        bean.setDegreeType(degreeCurricularPlan.getDegreeType());
+
+        for (int i = 0; i < INSTALLMENT_PRODUCT_CODES.length; i++) {
+            final AcademicTariffBean academicTariffBean = new AcademicTariffBean(i + 1);
+            academicTariffBean.setTuitionInstallmentProduct(Product.findUniqueByCode(INSTALLMENT_PRODUCT_CODES[i]).get());
+            academicTariffBean.setTuitionCalculationType(TuitionCalculationType.FIXED_AMOUNT);
+            academicTariffBean.setFixedAmount(CHARGED_AMOUNT);
+            academicTariffBean.setBeginDate(executionYear.getBeginLocalDate());
+            academicTariffBean.setDueDateCalculationType(DueDateCalculationType.DAYS_AFTER_CREATION);
+            academicTariffBean.setNumberOfDaysAfterCreationForDueDate(7 + 30 * i);
+            academicTariffBean.setInterestRateType(null);
+
+            bean.getTuitionInstallmentBeans().add(academicTariffBean);
+        }
+
+        return TuitionPaymentPlan.create(bean);
+    }
+
+    private static void ensureNecessaryAcademicDataIsAvailable() {
+        registration.getRegistrationProtocol().setPayGratuity(true);
+
+        if (Country.readByTwoLetterCode("PT") == null) {
+            new Country(ls("Portugal"), ls("Portugal"), "PT", "PRT").setDefaultCountry(true);
+        }
+
+        registration.getPerson().editSocialSecurityNumber("999999990",
+                PersonCustomer.createSaftDefaultPhysicalAddress(registration.getPerson()));
+    }
+
+    /*
+     * The exemption of the first row is created as a previous execution would have done,
+     * so the amount to exempt of that row is no longer valid for its debit entry
+     */
+    @Test
+    public void resumingSkipsTheRowsAlreadyProcessed() throws IOException {
+        final TreasuryExemptionType treasuryExemptionType = TreasuryExemptionType.findByCode("TET1").findFirst().get();
+        final byte[] content = exemptionsFile(new String[] { "1" }, new String[] { "2" });
+
+        final List<ExemptionsGenerationRowResult> rows = ExemptionsGenerationRequestFile.readExcel(treasuryExemptionType, content);
+        assertEquals(2, rows.size());
+
+        final ExemptionsGenerationRowResult firstRow = rows.get(0);
+        assertEquals(2, firstRow.getRowNum());
+
+        TreasuryExemption.create(treasuryExemptionType, firstRow.getReason(), firstRow.getDiscountAmount(1),
+                firstRow.getTuitionDebitEntry(1));
+
+        try {
+            ExemptionsGenerationRequestFile.readExcel(treasuryExemptionType, content);
+            fail("The amount to exempt of the processed row exceeds its debit entry");
+        } catch (final AcademicTreasuryDomainException e) {
+        }
+
+        final List<ExemptionsGenerationRowResult> pendingRows =
+                ExemptionsGenerationRequestFile.readExcel(treasuryExemptionType, content, Set.of(firstRow.getRowNum()));
+
+        assertEquals(1, pendingRows.size());
+        assertEquals(3, pendingRows.get(0).getRowNum());
+        assertEquals(Set.of(2), pendingRows.get(0).getTuitionInstallmentsOrderSet());
+    }
+
+    @Test
+    public void resumingWithAllRowsProcessedReadsNoRows() throws IOException {
+        final TreasuryExemptionType treasuryExemptionType = TreasuryExemptionType.findByCode("TET1").findFirst().get();
+        final byte[] content = exemptionsFile(new String[] { "3" });
+
+        assertEquals(0, ExemptionsGenerationRequestFile.readExcel(treasuryExemptionType, content, Set.of(2)).size());
+    }
+
+    /*
+     * One row for each set of installment orders, exempting the registration tuition
+     */
+    private static byte[] exemptionsFile(final String[]... installmentOrders) throws IOException {
+        try (final XSSFWorkbook workbook = new XSSFWorkbook(); final ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            final Sheet sheet = workbook.createSheet();
+
+            writeRow(sheet.createRow(0), "Number", "Name", "Degree", "Execution year", "Event", "Debit entry", "Reason",
+                    "Amount", "Installments");
+
+            final String tuitionProductCode =
+                    TuitionPaymentPlanGroup.findUniqueDefaultGroupForRegistration().get().getCurrentProduct().getCode();
+
+            for (int i = 0; i < installmentOrders.length; i++) {
+                final String[] values = new String[8 + installmentOrders[i].length];
+                values[0] = String.valueOf(registration.getNumber());
+                values[1] = registration.getStudent().getName();
+                values[2] = registration.getDegree().getCode();
+                values[3] = executionYear.getName();
+                values[4] = tuitionProductCode;
+                values[5] = "";
+                values[6] = "Exemption " + (i + 1);
+                values[7] = AMOUNT_TO_EXEMPT;
+                System.arraycopy(installmentOrders[i], 0, values, 8, installmentOrders[i].length);
+
+                writeRow(sheet.createRow(i + 1), values);
+            }
+
+            workbook.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static void writeRow(final Row row, final String... values) {
+        for (int i = 0; i < values.length; i++) {
+            row.createCell(i).setCellValue(values[i]);
+        }
+    }
+
+    private static FinantialEntity readFinantialEntity() {
+        return FinantialEntity.findAll().iterator().next();
+    }
+
+    public static LocalizedString ls(String string) {
+        return new LocalizedString(TreasuryConstants.DEFAULT_LANGUAGE, string);
+    }
+
+}
@@ -0,0 +1,206 @@
+package org.fenixedu.academictreasury.services.tuition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.fenixedu.academic.domain.Country;
+import org.fenixedu.academic.domain.DegreeCurricularPlan;
+import org.fenixedu.academic.domain.ExecutionInterval;
+import org.fenixedu.academic.domain.ExecutionYear;
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academic.domain.student.Student;
+import org.fenixedu.academictreasury.base.FenixFrameworkRunner;
+import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
+import org.fenixedu.academictreasury.domain.tuition.TuitionCalculationType;
+import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlan;
+import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlanGroup;
+import org.fenixedu.academictreasury.dto.tariff.AcademicTariffBean;
+import org.fenixedu.academictreasury.dto.tariff.TuitionPaymentPlanBean;
+import org.fenixedu.academictreasury.services.tuition.TuitionRecalculationSimulator.SimulationSummary;
+import org.fenixedu.academictreasury.tuition.TuitionPaymentPlanTestsUtilities;
+import org.fenixedu.academictreasury.util.AcademicTreasuryBootstrapper;
+import org.fenixedu.commons.i18n.LocalizedString;
+import org.fenixedu.treasury.domain.FinantialEntity;
+import org.fenixedu.treasury.domain.Product;
+import org.fenixedu.treasury.domain.tariff.DueDateCalculationType;
+import org.fenixedu.treasury.util.TreasuryConstants;
+import org.joda.time.LocalDate;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import pt.ist.esw.advice.pt.ist.fenixframework.AtomicInstance;
+import pt.ist.fenixframework.Atomic.TxMode;
+import pt.ist.fenixframework.FenixFramework;
+
+@RunWith(FenixFrameworkRunner.class)
+public class TuitionRecalculationSimulatorTest {
+
+    private static final String[] INSTALLMENT_PRODUCT_CODES =
+            { "PROP_1_PREST_1_CIC", "PROP_2_PREST_1_CIC", "PROP_3_PREST_1_CIC", "PROP_4_PREST_1_CIC" };
+
+    private static final BigDecimal CHARGED_AMOUNT = new BigDecimal("250");
+    private static final BigDecimal CHANGED_AMOUNT = new BigDecimal("300");
+
+    private static final int PRODUCT_COLUMN = 5;
+    private static final int CURRENT_NET_AMOUNT_COLUMN = 6;
+    private static final int RECALCULATED_NET_AMOUNT_COLUMN = 7;
+    private static final int NET_AMOUNT_DIFFERENCE_COLUMN = 8;
+    private static final int CHANGED_COLUMN = 13;
+
+    private static Registration registration;
+    private static ExecutionYear executionYear;
+    private static TuitionPaymentPlan tuitionPaymentPlan;
+
+    /*
+     * The registration is charged with the plan and then the tariff of the first
+     * installment is changed, in its own transaction, so the simulation threads see it
+     */
+    @BeforeClass
+    public static void init() {
+        try {
+            FenixFramework.getTransactionManager().withTransaction(() -> {
+                org.fenixedu.academic.domain.EnrolmentTest.initEnrolments();
+
+                TuitionPaymentPlanTestsUtilities.startUp();
+                AcademicTreasuryBootstrapper.bootstrap();
+
+                tuitionPaymentPlan = createTuitionPaymentPlan();
+                ensureNecessaryAcademicDataIsAvailable();
+
+                RegistrationTuitionService.startServiceInvocation(registration, executionYear, new LocalDate())
+                        .withInferedTuitionPaymentPlan() //
+                        .withAllInstallments() //
+                        .withoutInstallmentsRecalculation() //
+                        .executeTuitionPaymentPlanCreation();
+
+                return null;
+            }, new AtomicInstance(TxMode.WRITE, true));
+
+            FenixFramework.getTransactionManager().withTransaction(() -> {
+                tuitionPaymentPlan.getOrderedTuitionInstallmentTariffs().get(0).setFixedAmount(CHANGED_AMOUNT);
+
+                return null;
+            }, new AtomicInstance(TxMode.WRITE, true));
+        } catch (Exception e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    private static TuitionPaymentPlan createTuitionPaymentPlan() {
+        registration = Student.readStudentByNumber(1).getRegistrationStream().findAny().orElseThrow();
+
+        final DegreeCurricularPlan degreeCurricularPlan = registration.getLastStudentCurricularPlan().getDegreeCurricularPlan();
+        final ExecutionInterval executionInterval =
+                ExecutionInterval.findFirstCurrentChild(degreeCurricularPlan.getDegree().getCalendar());
+        executionYear = executionInterval.getExecutionYear();
+
+        final TuitionPaymentPlanGroup group = TuitionPaymentPlanGroup.findUniqueDefaultGroupForRegistration().get();
+        final TuitionPaymentPlanBean bean =
+                new TuitionPaymentPlanBean(group.getCurrentProduct(), group, readFinantialEntity(), executionYear);
+
+        bean.setDefaultPaymentPlan(true);
+        bean.addDegreeCurricularPlans(degreeCurricularPlan);
+        bean.setDegreeType(degreeCurricularPlan.getDegreeType());
+
+        for (int i = 0; i < INSTALLMENT_PRODUCT_CODES.length; i++) {
+            final AcademicTariffBean academicTariffBean = new AcademicTariffBean(i + 1);
+            academicTariffBean.setTuitionInstallmentProduct(Product.findUniqueByCode(INSTALLMENT_PRODUCT_CODES[i]).get());
+            academicTariffBean.setTuitionCalculationType(TuitionCalculationType.FIXED_AMOUNT);
+            academicTariffBean.setFixedAmount(CHARGED_AMOUNT);
+            academicTariffBean.setBeginDate(executionYear.getBeginLocalDate());
+            academicTariffBean.setDueDateCalculationType(DueDateCalculationType.DAYS_AFTER_CREATION);
+            academicTariffBean.setNumberOfDaysAfterCreationForDueDate(7 + 30 * i);
+            academicTariffBean.setInterestRateType(null);
+
+            bean.getTuitionInstallmentBeans().add(academicTariffBean);
+        }
+
+        return TuitionPaymentPlan.create(bean);
+    }
+
+    private static void ensureNecessaryAcademicDataIsAvailable() {
+        registration.getRegistrationProtocol().setPayGratuity(true);
+
+        if (Country.readByTwoLetterCode("PT") == null) {
+            new Country(ls("Portugal"), ls("Portugal"), "PT", "PRT").setDefaultCountry(true);
+        }
+
+        registration.getPerson().editSocialSecurityNumber("999999990",
+                PersonCustomer.createSaftDefaultPhysicalAddress(registration.getPerson()));
+    }
+
+    @Test
+    public void simulationReportsTheChangedTariffWithTheOldAndNewAmounts() throws IOException {
+        final StringWriter writer = new StringWriter();
+
+        final SimulationSummary summary = TuitionRecalculationSimulator.forExecutionYear(executionYear, new LocalDate())
+                .simulate(List.of(registration), writer);
+
+        assertEquals(0, summary.getErrors());
+        assertEquals(1, summary.getRegistrations());
+        assertEquals(1, summary.getRegistrationsWithDifferences());
+        assertEquals(1, summary.getInstallmentsWithDifferences());
+
+        final List<List<String>> lines = lines(writer);
+
+        // Header plus one line for each installment
+        assertEquals(1 + INSTALLMENT_PRODUCT_CODES.length, lines.size());
+
+        assertLine(lineOf(lines, INSTALLMENT_PRODUCT_CODES[0]), CHARGED_AMOUNT, CHANGED_AMOUNT, true);
+
+        for (int i = 1; i < INSTALLMENT_PRODUCT_CODES.length; i++) {
+            assertLine(lineOf(lines, INSTALLMENT_PRODUCT_CODES[i]), CHARGED_AMOUNT, CHARGED_AMOUNT, false);
+        }
+    }
+
+    @Test
+    public void onlyDifferencesWritesTheChangedInstallmentOnly() throws IOException {
+        final StringWriter writer = new StringWriter();
+
+        final SimulationSummary summary = TuitionRecalculationSimulator.forExecutionYear(executionYear, new LocalDate())
+                .onlyDifferences(true).simulate(List.of(registration), writer);
+
+        assertEquals(0, summary.getErrors());
+
+        final List<List<String>> lines = lines(writer);
+
+        assertEquals(2, lines.size());
+        assertLine(lineOf(lines, INSTALLMENT_PRODUCT_CODES[0]), CHARGED_AMOUNT, CHANGED_AMOUNT, true);
+    }
+
+    private static void assertLine(final List<String> line, final BigDecimal currentNetAmount,
+            final BigDecimal recalculatedNetAmount, final boolean changed) {
+        assertTrue(TreasuryConstants.isEqual(currentNetAmount, new BigDecimal(line.get(CURRENT_NET_AMOUNT_COLUMN))));
+        assertTrue(TreasuryConstants.isEqual(recalculatedNetAmount, new BigDecimal(line.get(RECALCULATED_NET_AMOUNT_COLUMN))));
+        assertTrue(TreasuryConstants.isEqual(recalculatedNetAmount.subtract(currentNetAmount),
+                new BigDecimal(line.get(NET_AMOUNT_DIFFERENCE_COLUMN))));
+        assertEquals(String.valueOf(changed), line.get(CHANGED_COLUMN));
+    }
+
+    private static List<String> lineOf(final List<List<String>> lines, final String productCode) {
+        return lines.stream().skip(1).filter(l -> productCode.equals(l.get(PRODUCT_COLUMN))).findFirst().orElseThrow();
+    }
+
+    private static List<List<String>> lines(final StringWriter writer) {
+        return Arrays.stream(writer.toString().split("\n")).map(l -> Arrays.asList(l.split("\t", -1)))
+                .collect(Collectors.toList());
+    }
+
+    private static FinantialEntity readFinantialEntity() {
+        return FinantialEntity.findAll().iterator().next();
+    }
+
+    public static LocalizedString ls(String string) {
+        return new LocalizedString(TreasuryConstants.DEFAULT_LANGUAGE, string);
+    }
+
+}
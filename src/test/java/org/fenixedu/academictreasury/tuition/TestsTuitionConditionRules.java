@@ -0,0 +1,218 @@
+package org.fenixedu.academictreasury.tuition;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.fenixedu.academic.domain.DegreeCurricularPlan;
+import org.fenixedu.academic.domain.ExecutionInterval;
+import org.fenixedu.academic.domain.ExecutionYear;
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academic.domain.student.RegistrationRegimeType;
+import org.fenixedu.academic.domain.student.StatuteType;
+import org.fenixedu.academic.domain.student.Student;
+import org.fenixedu.academic.domain.student.StudentStatute;
+import org.fenixedu.academictreasury.base.BasicAcademicTreasuryUtils;
+import org.fenixedu.academictreasury.base.FenixFrameworkRunner;
+import org.fenixedu.academictreasury.domain.tuition.TuitionCalculationType;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionFacts;
+import org.fenixedu.academictreasury.domain.tuition.TuitionConditionRule;
+import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlan;
+import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlanGroup;
+import org.fenixedu.academictreasury.domain.tuition.conditionRule.CurricularYearConditionRule;
+import org.fenixedu.academictreasury.domain.tuition.conditionRule.ExecutionIntervalConditionRule;
+import org.fenixedu.academictreasury.domain.tuition.conditionRule.FirstTimeStudentConditionRule;
+import org.fenixedu.academictreasury.domain.tuition.conditionRule.IngressionTypeConditionRule;
+import org.fenixedu.academictreasury.domain.tuition.conditionRule.RegistrationProtocolConditionRule;
+import org.fenixedu.academictreasury.domain.tuition.conditionRule.RegistrationRegimeTypeConditionRule;
+import org.fenixedu.academictreasury.domain.tuition.conditionRule.RegistrationYearConditionRule;
+import org.fenixedu.academictreasury.domain.tuition.conditionRule.StatuteTypeConditionRule;
+import org.fenixedu.academictreasury.dto.tariff.AcademicTariffBean;
+import org.fenixedu.academictreasury.dto.tariff.TuitionPaymentPlanBean;
+import org.fenixedu.academictreasury.util.AcademicTreasuryBootstrapper;
+import org.fenixedu.treasury.domain.FinantialEntity;
+import org.fenixedu.treasury.domain.Product;
+import org.fenixedu.treasury.domain.tariff.DueDateCalculationType;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import pt.ist.esw.advice.pt.ist.fenixframework.AtomicInstance;
+import pt.ist.fenixframework.Atomic.TxMode;
+import pt.ist.fenixframework.FenixFramework;
+
+/**
+ * The compiled form of each condition rule must agree with the rule, and the
+ * compiled conditions of a plan must follow the edits of its rules
+ */
+@RunWith(FenixFrameworkRunner.class)
+public class TestsTuitionConditionRules {
+
+    private static Registration registration;
+    private static ExecutionInterval executionInterval;
+    private static ExecutionYear executionYear;
+
+    @BeforeClass
+    public static void init() {
+        try {
+            FenixFramework.getTransactionManager().withTransaction(() -> {
+                org.fenixedu.academic.domain.EnrolmentTest.initEnrolments();
+
+                TuitionPaymentPlanTestsUtilities.startUp();
+                AcademicTreasuryBootstrapper.bootstrap();
+                BasicAcademicTreasuryUtils.createStatuteTypeExemptionsMap();
+
+                registration = Student.readStudentByNumber(1).getRegistrationStream().findAny().orElseThrow();
+                executionInterval = ExecutionInterval
+                        .findFirstCurrentChild(registration.getLastStudentCurricularPlan().getDegree().getCalendar());
+                executionYear = executionInterval.getExecutionYear();
+
+                new StudentStatute(registration.getStudent(), StatuteType.findByCode("ST3").get(), executionInterval,
+                        executionInterval.getNext(), null, null, null, registration);
+
+                return null;
+            }, new AtomicInstance(TxMode.WRITE, true));
+        } catch (Exception e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    @Test
+    public void compiledRulesAgreeWithTheRules() {
+        final TuitionConditionFacts facts = TuitionConditionFacts.of(registration, executionYear);
+
+        final CurricularYearConditionRule curricularYearRule = new CurricularYearConditionRule();
+        assertCompiledAgrees(curricularYearRule, facts, false);
+        curricularYearRule.addCurricularYear(facts.getCurricularYear());
+        assertCompiledAgrees(curricularYearRule, facts, true);
+
+        final ExecutionIntervalConditionRule executionIntervalRule = new ExecutionIntervalConditionRule();
+        assertCompiledAgrees(executionIntervalRule, facts, false);
+        facts.getEnrolmentsExecutionIntervals().forEach(i -> executionIntervalRule.addExecutionInterval(i));
+        assertCompiledAgrees(executionIntervalRule, facts, facts.getEnrolmentsExecutionIntervals().size() == 1);
+
+        final FirstTimeStudentConditionRule firstTimeStudentRule = new FirstTimeStudentConditionRule();
+        firstTimeStudentRule.setFirstTimeStudent(!facts.isFirstTimeStudent());
+        assertCompiledAgrees(firstTimeStudentRule, facts, false);
+        firstTimeStudentRule.setFirstTimeStudent(facts.isFirstTimeStudent());
+        assertCompiledAgrees(firstTimeStudentRule, facts, facts.isFirstTimeStudent());
+
+        final IngressionTypeConditionRule ingressionRule = new IngressionTypeConditionRule();
+        assertCompiledAgrees(ingressionRule, facts, false);
+        ingressionRule.addIngression(facts.getIngression());
+        assertCompiledAgrees(ingressionRule, facts, true);
+
+        final RegistrationProtocolConditionRule registrationProtocolRule = new RegistrationProtocolConditionRule();
+        assertCompiledAgrees(registrationProtocolRule, facts, false);
+        registrationProtocolRule.addRegistrationProtocol(facts.getRegistrationProtocol());
+        assertCompiledAgrees(registrationProtocolRule, facts, true);
+
+        final RegistrationRegimeTypeConditionRule regimeTypeRule = new RegistrationRegimeTypeConditionRule();
+        regimeTypeRule.addRegistrationRegimeTypes(otherRegimeType(facts.getRegimeType()));
+        assertCompiledAgrees(regimeTypeRule, facts, false);
+        regimeTypeRule.addRegistrationRegimeTypes(facts.getRegimeType());
+        assertCompiledAgrees(regimeTypeRule, facts, true);
+
+        final RegistrationYearConditionRule registrationYearRule = new RegistrationYearConditionRule();
+        assertCompiledAgrees(registrationYearRule, facts, false);
+        registrationYearRule.addExecutionIntervals(facts.getRegistrationYear());
+        assertCompiledAgrees(registrationYearRule, facts, true);
+
+        final StatuteTypeConditionRule statuteTypeRule = new StatuteTypeConditionRule();
+        statuteTypeRule.addStatuteType(StatuteType.findByCode("ST4").get());
+        assertCompiledAgrees(statuteTypeRule, facts, false);
+        statuteTypeRule.addStatuteType(StatuteType.findByCode("ST3").get());
+        assertCompiledAgrees(statuteTypeRule, facts, true);
+    }
+
+    @Test
+    public void addingAStatuteTypeChangesTheValidPlans() {
+        final StatuteTypeConditionRule rule = new StatuteTypeConditionRule();
+        rule.addStatuteType(StatuteType.findByCode("ST4").get());
+
+        final TuitionPaymentPlan tuitionPaymentPlan = createTuitionPaymentPlan(rule);
+        final StatuteTypeConditionRule planRule =
+                (StatuteTypeConditionRule) tuitionPaymentPlan.getTuitionConditionRule(StatuteTypeConditionRule.class);
+
+        assertFalse(isValidTo(tuitionPaymentPlan));
+
+        planRule.addStatuteType(StatuteType.findByCode("ST3").get());
+        assertTrue(isValidTo(tuitionPaymentPlan));
+
+        planRule.removeStatuteType(StatuteType.findByCode("ST3").get());
+        assertFalse(isValidTo(tuitionPaymentPlan));
+    }
+
+    @Test
+    public void settingTheRegimeTypesChangesTheValidPlans() {
+        final RegistrationRegimeType regimeType = registration.getRegimeType(executionYear);
+
+        final RegistrationRegimeTypeConditionRule rule = new RegistrationRegimeTypeConditionRule();
+        rule.addRegistrationRegimeTypes(otherRegimeType(regimeType));
+
+        final TuitionPaymentPlan tuitionPaymentPlan = createTuitionPaymentPlan(rule);
+        final RegistrationRegimeTypeConditionRule planRule = (RegistrationRegimeTypeConditionRule) tuitionPaymentPlan
+                .getTuitionConditionRule(RegistrationRegimeTypeConditionRule.class);
+
+        assertFalse(isValidTo(tuitionPaymentPlan));
+
+        planRule.setRegistrationRegimeTypesSerialized(regimeType.name());
+        assertTrue(isValidTo(tuitionPaymentPlan));
+
+        planRule.setRegistrationRegimeTypesSerialized(otherRegimeType(regimeType).name());
+        assertFalse(isValidTo(tuitionPaymentPlan));
+    }
+
+    /*
+     * A new facts instance for each call, as the plans are tested on inference
+     */
+    private static boolean isValidTo(final TuitionPaymentPlan tuitionPaymentPlan) {
+        return tuitionPaymentPlan.isValidTo(registration, executionYear, null, Collections.emptySet());
+    }
+
+    private static void assertCompiledAgrees(final TuitionConditionRule rule, final TuitionConditionFacts facts,
+            final boolean expected) {
+        assertEquals(rule.getClass().getSimpleName(), expected, rule.isValidTo(facts, null));
+        assertEquals(rule.getClass().getSimpleName(), rule.isValidTo(facts, null), rule.compile().test(facts, null));
+    }
+
+    private static RegistrationRegimeType otherRegimeType(final RegistrationRegimeType regimeType) {
+        return Arrays.stream(RegistrationRegimeType.values()).filter(t -> t != regimeType).findFirst().get();
+    }
+
+    private static TuitionPaymentPlan createTuitionPaymentPlan(final TuitionConditionRule rule) {
+        final DegreeCurricularPlan degreeCurricularPlan = registration.getLastStudentCurricularPlan().getDegreeCurricularPlan();
+        final TuitionPaymentPlanGroup group = TuitionPaymentPlanGroup.findUniqueDefaultGroupForRegistration().get();
+
+        final TuitionPaymentPlanBean bean =
+                new TuitionPaymentPlanBean(group.getCurrentProduct(), group, readFinantialEntity(), executionYear);
+
+        bean.setDefaultPaymentPlan(false);
+        bean.addDegreeCurricularPlans(degreeCurricularPlan);
+        bean.setDegreeType(degreeCurricularPlan.getDegreeType());
+        bean.addConditionRules(rule);
+
+        final AcademicTariffBean academicTariffBean = new AcademicTariffBean(1);
+        academicTariffBean.setTuitionInstallmentProduct(Product.findUniqueByCode("PROP_1_PREST_1_CIC").get());
+        academicTariffBean.setTuitionCalculationType(TuitionCalculationType.FIXED_AMOUNT);
+        academicTariffBean.setFixedAmount(new BigDecimal("100"));
+        academicTariffBean.setBeginDate(executionYear.getBeginLocalDate());
+        academicTariffBean.setDueDateCalculationType(DueDateCalculationType.DAYS_AFTER_CREATION);
+        academicTariffBean.setNumberOfDaysAfterCreationForDueDate(7);
+        academicTariffBean.setInterestRateType(null);
+
+        bean.getTuitionInstallmentBeans().add(academicTariffBean);
+
+        return TuitionPaymentPlan.create(bean);
+    }
+
+    private static FinantialEntity readFinantialEntity() {
+        return FinantialEntity.findAll().iterator().next();
+    }
+
+}
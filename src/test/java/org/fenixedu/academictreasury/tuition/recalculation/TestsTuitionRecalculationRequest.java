@@ -0,0 +1,193 @@
+package org.fenixedu.academictreasury.tuition.recalculation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.math.BigDecimal;
+
+import org.fenixedu.academic.domain.Country;
+import org.fenixedu.academic.domain.DegreeCurricularPlan;
+import org.fenixedu.academic.domain.ExecutionInterval;
+import org.fenixedu.academic.domain.ExecutionYear;
+import org.fenixedu.academic.domain.student.Registration;
+import org.fenixedu.academic.domain.student.Student;
+import org.fenixedu.academictreasury.base.FenixFrameworkRunner;
+import org.fenixedu.academictreasury.domain.customer.PersonCustomer;
+import org.fenixedu.academictreasury.domain.event.AcademicTreasuryEvent;
+import org.fenixedu.academictreasury.domain.tuition.TuitionCalculationType;
+import org.fenixedu.academictreasury.domain.tuition.TuitionInstallmentTariff;
+import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlan;
+import org.fenixedu.academictreasury.domain.tuition.TuitionPaymentPlanGroup;
+import org.fenixedu.academictreasury.domain.tuition.recalculation.TuitionRecalculationRequest;
+import org.fenixedu.academictreasury.domain.tuition.recalculation.TuitionRecalculationRequestRow;
+import org.fenixedu.academictreasury.dto.tariff.AcademicTariffBean;
+import org.fenixedu.academictreasury.dto.tariff.TuitionPaymentPlanBean;
+import org.fenixedu.academictreasury.services.tuition.RegistrationTuitionService;
+import org.fenixedu.academictreasury.tuition.TuitionPaymentPlanTestsUtilities;
+import org.fenixedu.academictreasury.util.AcademicTreasuryBootstrapper;
+import org.fenixedu.commons.i18n.LocalizedString;
+import org.fenixedu.treasury.domain.FinantialEntity;
+import org.fenixedu.treasury.domain.Product;
+import org.fenixedu.treasury.domain.tariff.DueDateCalculationType;
+import org.fenixedu.treasury.util.TreasuryConstants;
+import org.joda.time.DateTime;
+import org.joda.time.LocalDate;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import pt.ist.esw.advice.pt.ist.fenixframework.AtomicInstance;
+import pt.ist.fenixframework.Atomic.TxMode;
+import pt.ist.fenixframework.FenixFramework;
+
+@RunWith(FenixFrameworkRunner.class)
+public class TestsTuitionRecalculationRequest {
+
+    private static final String[] INSTALLMENT_PRODUCT_CODES =
+            { "PROP_1_PREST_1_CIC", "PROP_2_PREST_1_CIC", "PROP_3_PREST_1_CIC", "PROP_4_PREST_1_CIC" };
+
+    private static final BigDecimal CHARGED_AMOUNT = new BigDecimal("250");
+    private static final BigDecimal CHANGED_AMOUNT = new BigDecimal("300");
+
+    private static Registration registration;
+    private static ExecutionYear executionYear;
+    private static TuitionPaymentPlan tuitionPaymentPlan;
+
+    @BeforeClass
+    public static void init() {
+        try {
+            FenixFramework.getTransactionManager().withTransaction(() -> {
+                org.fenixedu.academic.domain.EnrolmentTest.initEnrolments();
+
+                TuitionPaymentPlanTestsUtilities.startUp();
+                AcademicTreasuryBootstrapper.bootstrap();
+
+                tuitionPaymentPlan = createTuitionPaymentPlan();
+                ensureNecessaryAcademicDataIsAvailable();
+
+                RegistrationTuitionService.startServiceInvocation(registration, executionYear, new LocalDate())
+                        .withInferedTuitionPaymentPlan() //
+                        .withAllInstallments() //
+                        .withoutInstallmentsRecalculation() //
+                        .executeTuitionPaymentPlanCreation();
+
+                return null;
+            }, new AtomicInstance(TxMode.WRITE, true));
+        } catch (Exception e) {
+            throw new UndeclaredThrowableException(e);
+        }
+    }
+
+    private static TuitionPaymentPlan createTuitionPaymentPlan() {
+        registration = Student.readStudentByNumber(1).getRegistrationStream().findAny().orElseThrow();
+
+        final DegreeCurricularPlan degreeCurricularPlan = registration.getLastStudentCurricularPlan().getDegreeCurricularPlan();
+        final ExecutionInterval executionInterval =
+                ExecutionInterval.findFirstCurrentChild(degreeCurricularPlan.getDegree().getCalendar());
+        executionYear = executionInterval.getExecutionYear();
+
+        final TuitionPaymentPlanGroup group = TuitionPaymentPlanGroup.findUniqueDefaultGroupForRegistration().get();
+        final TuitionPaymentPlanBean bean =
+                new TuitionPaymentPlanBean(group.getCurrentProduct(), group, readFinantialEntity(), executionYear);
+
+        bean.setDefaultPaymentPlan(true);
+        bean.addDegreeCurricularPlans(degreeCurricularPlan);
+        bean.setDegreeType(degreeCurricularPlan.getDegreeType());
+
+        for (int i = 0; i < INSTALLMENT_PRODUCT_CODES.length; i++) {
+            final AcademicTariffBean academicTariffBean = new AcademicTariffBean(i + 1);
+            academicTariffBean.setTuitionInstallmentProduct(Product.findUniqueByCode(INSTALLMENT_PRODUCT_CODES[i]).get());
+            academicTariffBean.setTuitionCalculationType(TuitionCalculationType.FIXED_AMOUNT);
+            academicTariffBean.setFixedAmount(CHARGED_AMOUNT);
+            academicTariffBean.setBeginDate(executionYear.getBeginLocalDate());
+            academicTariffBean.setDueDateCalculationType(DueDateCalculationType.DAYS_AFTER_CREATION);
+            academicTariffBean.setNumberOfDaysAfterCreationForDueDate(7 + 30 * i);
+            academicTariffBean.setInterestRateType(null);
+
+            bean.getTuitionInstallmentBeans().add(academicTariffBean);
+        }
+
+        return TuitionPaymentPlan.create(bean);
+    }
+
+    private static void ensureNecessaryAcademicDataIsAvailable() {
+        registration.getRegistrationProtocol().setPayGratuity(true);
+
+        if (Country.readByTwoLetterCode("PT") == null) {
+            new Country(ls("Portugal"), ls("Portugal"), "PT", "PRT").setDefaultCountry(true);
+        }
+
+        registration.getPerson().editSocialSecurityNumber("999999990",
+                PersonCustomer.createSaftDefaultPhysicalAddress(registration.getPerson()));
+    }
+
+    /*
+     * The request is processed sequentially, in the transaction of the test, so the
+     * changed tariff is seen by the recalculation without being committed first
+     */
+    @Test
+    public void recalculationChargesTheChangedTariff() throws IOException {
+        final TuitionInstallmentTariff firstInstallmentTariff = tuitionPaymentPlan.getOrderedTuitionInstallmentTariffs().get(0);
+        final Product firstInstallmentProduct = firstInstallmentTariff.getProduct();
+        firstInstallmentTariff.setFixedAmount(CHANGED_AMOUNT);
+
+        final AcademicTreasuryEvent academicTreasuryEvent =
+                AcademicTreasuryEvent.findUniqueForRegistrationTuition(registration, executionYear).get();
+        final BigDecimal amountToPayBefore = academicTreasuryEvent.getAmountWithVatToPay();
+        final BigDecimal netAmountBefore = CHARGED_AMOUNT.multiply(new BigDecimal(INSTALLMENT_PRODUCT_CODES.length));
+
+        final TuitionRecalculationRequest request =
+                TuitionRecalculationRequest.createForTuitionPaymentPlan(tuitionPaymentPlan, new LocalDate(), new LocalDate());
+
+        request.process();
+
+        assertTrue(request.isProcessed());
+        assertEquals(1, TuitionRecalculationRequestRow.find(request).count());
+
+        final TuitionRecalculationRequestRow row = TuitionRecalculationRequestRow.findUnique(request, registration).get();
+        final BigDecimal difference = CHANGED_AMOUNT.subtract(CHARGED_AMOUNT);
+
+        assertTrue(row.isProcessed());
+        assertTrue(TreasuryConstants.isEqual(netAmountBefore, row.getNetAmountBefore()));
+        assertTrue(TreasuryConstants.isEqual(netAmountBefore.add(difference), row.getNetAmountAfter()));
+        assertTrue(TreasuryConstants.isEqual(difference, row.getNetAmountDifference()));
+        assertTrue(TreasuryConstants.isZero(row.getNetExemptedAmountDifference()));
+
+        assertTrue(TreasuryConstants.isEqual(CHANGED_AMOUNT, academicTreasuryEvent.getNetAmountToPay(firstInstallmentProduct)));
+        assertTrue(TreasuryConstants.isEqual(amountToPayBefore.add(difference), academicTreasuryEvent.getAmountWithVatToPay()));
+
+        final StringWriter writer = new StringWriter();
+        request.writeReport(writer);
+
+        // Header plus the line of the registration
+        assertEquals(2, writer.toString().split("\n").length);
+    }
+
+    @Test
+    public void processingAgainSkipsTheRegistrationsAlreadyRecalculated() {
+        final TuitionRecalculationRequest request =
+                TuitionRecalculationRequest.createForTuitionPaymentPlan(tuitionPaymentPlan, new LocalDate(), null);
+
+        request.process();
+
+        final TuitionRecalculationRequestRow row = TuitionRecalculationRequestRow.findUnique(request, registration).get();
+        final DateTime whenProcessed = row.getWhenProcessed();
+
+        request.process();
+
+        assertEquals(1, TuitionRecalculationRequestRow.find(request).count());
+        assertEquals(whenProcessed, row.getWhenProcessed());
+    }
+
+    private static FinantialEntity readFinantialEntity() {
+        return FinantialEntity.findAll().iterator().next();
+    }
+
+    public static LocalizedString ls(String string) {
+        return new LocalizedString(TreasuryConstants.DEFAULT_LANGUAGE, string);
+    }
+
+}